@@ -0,0 +1,109 @@
+package com.esw.postureanalyzer.vision;
+
+import android.content.Context;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.tensorflow.lite.Interpreter;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs every row of the training CSVs through both TFLite (CPU) and the plain-Java
+ * DenseNetworkModel and checks the outputs agree. The CSVs are packaged into the
+ * test APK from Code/training/data (see sourceSets in build.gradle).
+ */
+@RunWith(AndroidJUnit4.class)
+public class DenseNetworkEquivalenceTest {
+    private static final float TOLERANCE = 1e-4f;
+
+    @Test
+    public void slouchModelMatchesTFLite() throws IOException {
+        assertEquivalent("posture_model.tflite", "pose_dataset.csv", false);
+    }
+
+    @Test
+    public void crossLeggedModelMatchesTFLite() throws IOException {
+        assertEquivalent("crosslegged.tflite", "crosslegged_sitting_data.csv", true);
+    }
+
+    @Test
+    public void leanModelMatchesTFLite() throws IOException {
+        assertEquivalent("lean_direction_model.tflite", "lean_dataset.csv", false);
+    }
+
+    private void assertEquivalent(String modelName, String csvName, boolean normalizeCrossLegged) throws IOException {
+        Context appContext = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        Context testContext = InstrumentationRegistry.getInstrumentation().getContext();
+
+        DenseNetworkModel javaModel = DenseNetworkModel.load(PostureClassifier.loadModelFile(appContext, modelName));
+        Interpreter.Options options = new Interpreter.Options();
+        options.setNumThreads(1);
+        Interpreter interpreter = new Interpreter(PostureClassifier.loadModelFile(appContext, modelName), options);
+        try {
+            int inputs = javaModel.getInputSize();
+            int outputs = javaModel.getOutputSize();
+            ByteBuffer input = ByteBuffer.allocateDirect(inputs * 4).order(ByteOrder.nativeOrder());
+            ByteBuffer tfliteOutput = ByteBuffer.allocateDirect(outputs * 4).order(ByteOrder.nativeOrder());
+            ByteBuffer javaOutput = ByteBuffer.allocateDirect(outputs * 4).order(ByteOrder.nativeOrder());
+
+            List<float[]> rows = readFeatures(testContext, csvName, inputs);
+            assertFalse(csvName + " has no rows", rows.isEmpty());
+            float maxDifference = 0f;
+            for (int row = 0; row < rows.size(); row++) {
+                float[] features = rows.get(row);
+                for (int i = 0; i < inputs; i++) {
+                    float value = normalizeCrossLegged
+                            ? (features[i] - PostureClassifier.CROSS_LEGGED_MEAN[i]) / PostureClassifier.CROSS_LEGGED_STD[i]
+                            : features[i];
+                    input.putFloat(i * 4, value);
+                }
+
+                input.rewind();
+                tfliteOutput.rewind();
+                interpreter.run(input, tfliteOutput);
+                javaModel.run(input, javaOutput);
+
+                for (int i = 0; i < outputs; i++) {
+                    float expected = tfliteOutput.getFloat(i * 4);
+                    float actual = javaOutput.getFloat(i * 4);
+                    maxDifference = Math.max(maxDifference, Math.abs(expected - actual));
+                    assertEquals(modelName + " row " + (row + 1) + " output " + i, expected, actual, TOLERANCE);
+                }
+            }
+            android.util.Log.i("DenseNetworkEquivalence", modelName + ": " + rows.size()
+                    + " rows, max difference " + maxDifference);
+        } finally {
+            interpreter.close();
+        }
+    }
+
+    private static List<float[]> readFeatures(Context context, String csvName, int featureCount) throws IOException {
+        List<float[]> rows = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(context.getAssets().open(csvName)))) {
+            reader.readLine(); // Header
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.trim().isEmpty()) continue;
+                String[] columns = line.split(",");
+                float[] features = new float[featureCount]; // Trailing label column is ignored
+                for (int i = 0; i < featureCount; i++) {
+                    features[i] = Float.parseFloat(columns[i]);
+                }
+                rows.add(features);
+            }
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,174 @@
+#include "capture_loop.h"
+#include <cerrno>
+#include <cstring>
+#include <fcntl.h>
+#include <poll.h>
+#include <time.h>
+#include <unistd.h>
+
+#define LOG_TAG "CaptureLoop"
+#include "native_log.h"
+
+static const int POLL_TIMEOUT_MS = 1000;
+
+int64_t monotonicNanos() {
+    struct timespec now;
+    clock_gettime(CLOCK_MONOTONIC, &now);
+    return static_cast<int64_t>(now.tv_sec) * 1000000000LL + now.tv_nsec;
+}
+
+CaptureLoop::CaptureLoop(FrameSource* source)
+    : source_(source), running_(false), target_fps_(0.0f), last_delivered_ns_(0),
+      dequeued_(0), delivered_(0), skipped_(0), poll_timeouts_(0), errors_(0) {
+    wake_pipe_[0] = -1;
+    wake_pipe_[1] = -1;
+}
+
+CaptureLoop::~CaptureLoop() {
+    stop();
+}
+
+bool CaptureLoop::start(std::unique_ptr<CaptureListener> listener) {
+    if (running_) {
+        LOGE("Capture loop already running");
+        return false;
+    }
+    if (thread_.joinable()) {
+        stop(); // Exited on its own (e.g. device error), clean up first
+    }
+    if (pipe(wake_pipe_) < 0) {
+        LOGE("Failed to create wake pipe: %s", strerror(errno));
+        return false;
+    }
+    
+    listener_ = std::move(listener);
+    last_delivered_ns_ = 0;
+    dequeued_ = 0;
+    delivered_ = 0;
+    skipped_ = 0;
+    poll_timeouts_ = 0;
+    errors_ = 0;
+    running_ = true;
+    thread_ = std::thread(&CaptureLoop::run, this);
+    LOGI("Capture loop started (target %.1f FPS)", target_fps_.load());
+    return true;
+}
+
+void CaptureLoop::stop() {
+    if (thread_.joinable()) {
+        running_ = false;
+        char wake = 1;
+        if (write(wake_pipe_[1], &wake, 1) < 0) {
+            LOGE("Failed to wake capture thread: %s", strerror(errno));
+        }
+        if (thread_.get_id() == std::this_thread::get_id()) {
+            // Stopped from a frame callback; the thread exits when it returns
+            // and still needs its listener, so leave the cleanup to the next start()
+            LOGW("Capture loop stopped from its own thread");
+            thread_.detach();
+            return;
+        }
+        thread_.join();
+        LOGI("Capture loop stopped");
+    }
+    listener_.reset();
+    for (int i = 0; i < 2; ++i) {
+        if (wake_pipe_[i] >= 0) {
+            ::close(wake_pipe_[i]);
+            wake_pipe_[i] = -1;
+        }
+    }
+}
+
+void CaptureLoop::setTargetFps(float fps) {
+    target_fps_ = fps > 0.0f ? fps : 0.0f;
+}
+
+CaptureStats CaptureLoop::stats() const {
+    CaptureStats result;
+    result.dequeued = dequeued_;
+    result.delivered = delivered_;
+    result.skipped = skipped_;
+    result.poll_timeouts = poll_timeouts_;
+    result.errors = errors_;
+    return result;
+}
+
+bool CaptureLoop::shouldDeliver(int64_t timestamp_ns) {
+    float fps = target_fps_;
+    if (fps <= 0.0f || last_delivered_ns_ == 0) {
+        return true;
+    }
+    // Same gap as AnalysisRateGovernor.minFrameIntervalNanos()
+    int64_t min_interval_ns = static_cast<int64_t>(900000000.0 / fps);
+    return timestamp_ns - last_delivered_ns_ >= min_interval_ns;
+}
+
+void CaptureLoop::run() {
+    listener_->onCaptureStarted();
+    
+    struct pollfd fds[2];
+    fds[0].fd = source_->pollFd();
+    fds[0].events = POLLIN;
+    fds[1].fd = wake_pipe_[0];
+    fds[1].events = POLLIN;
+    
+    while (running_) {
+        fds[0].revents = 0;
+        fds[1].revents = 0;
+        int ready = poll(fds, 2, POLL_TIMEOUT_MS);
+        if (ready < 0) {
+            if (errno == EINTR) {
+                continue;
+            }
+            LOGE("poll() failed: %s", strerror(errno));
+            errors_++;
+            break;
+        }
+        if (ready == 0) {
+            poll_timeouts_++;
+            continue;
+        }
+        if (fds[1].revents != 0) {
+            break; // stop()
+        }
+        
+        if (fds[0].revents & POLLIN) {
+            const uint8_t* data = nullptr;
+            int size = 0;
+            if (!source_->dequeueFrame(&data, &size)) {
+                if (fds[0].revents & POLLHUP) {
+                    LOGI("Frame source closed");
+                    break;
+                }
+                continue;
+            }
+            int64_t timestamp_ns = monotonicNanos();
+            int64_t capture_ns = source_->captureTimestampNs();
+            if (capture_ns <= 0 || capture_ns > timestamp_ns) {
+                capture_ns = timestamp_ns;
+            }
+            dequeued_++;
+            
+            if (shouldDeliver(timestamp_ns)) {
+                last_delivered_ns_ = timestamp_ns;
+                listener_->onFrame(data, size, timestamp_ns, capture_ns);
+                delivered_++;
+            } else {
+                skipped_++;
+            }
+            source_->requeueFrame();
+        } else if (fds[0].revents == POLLHUP) {
+            LOGI("Frame source closed");
+            break;
+        } else if (fds[0].revents & (POLLERR | POLLHUP | POLLNVAL)) {
+            // Device gone or streaming stopped under us
+            LOGE("Frame source error (revents=0x%x)", fds[0].revents);
+            errors_++;
+            break;
+        }
+    }
+    
+    running_ = false;
+    listener_->onCaptureStopped();
+}
@@ -0,0 +1,80 @@
+#ifndef CAPTURE_LOOP_H
+#define CAPTURE_LOOP_H
+
+#include "frame_source.h"
+#include <atomic>
+#include <cstdint>
+#include <memory>
+#include <thread>
+
+// Receives frames on the capture thread
+class CaptureListener {
+public:
+    virtual ~CaptureListener() {}
+    
+    // Called on the capture thread before the first frame (e.g. to attach to the JVM)
+    virtual void onCaptureStarted() {}
+    
+    // A frame captured at capture_ns and dequeued at timestamp_ns (both
+    // CLOCK_MONOTONIC; capture_ns falls back to timestamp_ns when the source
+    // has no capture time). The data is only valid during the call; the buffer
+    // is requeued when it returns.
+    virtual void onFrame(const uint8_t* data, int size, int64_t timestamp_ns, int64_t capture_ns) = 0;
+    
+    // Called on the capture thread before it exits
+    virtual void onCaptureStopped() {}
+};
+
+struct CaptureStats {
+    int64_t dequeued;
+    int64_t delivered;
+    int64_t skipped;        // Dequeued faster than the target FPS and requeued
+    int64_t poll_timeouts;
+    int64_t errors;
+};
+
+// Capture thread that blocks in poll() on the source fd instead of polling on a
+// timer, so a frame is picked up as soon as it is ready. Frames that arrive
+// faster than the target FPS are requeued without being delivered.
+class CaptureLoop {
+public:
+    explicit CaptureLoop(FrameSource* source);
+    ~CaptureLoop();
+    
+    // Start the capture thread; the loop owns the listener until stop()
+    bool start(std::unique_ptr<CaptureListener> listener);
+    
+    // Wake the thread and wait for it to exit
+    void stop();
+    
+    bool isRunning() const { return running_; }
+    
+    // 0 delivers every frame
+    void setTargetFps(float fps);
+    float targetFps() const { return target_fps_; }
+    
+    CaptureStats stats() const;
+
+private:
+    void run();
+    bool shouldDeliver(int64_t timestamp_ns);
+    
+    FrameSource* source_;
+    std::unique_ptr<CaptureListener> listener_;
+    std::thread thread_;
+    int wake_pipe_[2];
+    std::atomic<bool> running_;
+    std::atomic<float> target_fps_;
+    int64_t last_delivered_ns_;
+    
+    std::atomic<int64_t> dequeued_;
+    std::atomic<int64_t> delivered_;
+    std::atomic<int64_t> skipped_;
+    std::atomic<int64_t> poll_timeouts_;
+    std::atomic<int64_t> errors_;
+};
+
+// CLOCK_MONOTONIC in nanoseconds, the clock behind System.nanoTime()
+int64_t monotonicNanos();
+
+#endif // CAPTURE_LOOP_H
@@ -0,0 +1,65 @@
+#include "frame_ring.h"
+#include <cstring>
+
+#define LOG_TAG "FrameRing"
+#include "native_log.h"
+
+FrameRing::FrameRing() : lengths_(nullptr), next_(0) {
+}
+
+void FrameRing::attach(const std::vector<uint8_t*>& slots, const std::vector<int>& capacities,
+                       int32_t* lengths) {
+    std::lock_guard<std::mutex> lock(mutex_);
+    slots_ = slots;
+    capacities_ = capacities;
+    held_.assign(slots.size(), false);
+    lengths_ = lengths;
+    next_ = 0;
+    LOGI("Attached %zu slots", slots_.size());
+}
+
+void FrameRing::detach() {
+    std::lock_guard<std::mutex> lock(mutex_);
+    slots_.clear();
+    capacities_.clear();
+    held_.clear();
+    lengths_ = nullptr;
+    next_ = 0;
+}
+
+bool FrameRing::isAttached() {
+    std::lock_guard<std::mutex> lock(mutex_);
+    return !slots_.empty();
+}
+
+int FrameRing::push(const uint8_t* data, int size) {
+    std::lock_guard<std::mutex> lock(mutex_);
+    int count = static_cast<int>(slots_.size());
+    
+    // Round robin from the slot after the last one filled
+    for (int i = 0; i < count; ++i) {
+        int index = (next_ + i) % count;
+        if (held_[index]) {
+            continue;
+        }
+        if (size > capacities_[index]) {
+            LOGE("Frame of %d bytes does not fit a %d byte slot", size, capacities_[index]);
+            return DROPPED;
+        }
+        memcpy(slots_[index], data, size);
+        lengths_[index] = size;
+        held_[index] = true;
+        next_ = (index + 1) % count;
+        return index;
+    }
+    return DROPPED;
+}
+
+void FrameRing::release(int index) {
+    std::lock_guard<std::mutex> lock(mutex_);
+    if (index < 0 || index >= static_cast<int>(held_.size())) {
+        LOGE("Release of invalid slot %d", index);
+        return;
+    }
+    held_[index] = false;
+}
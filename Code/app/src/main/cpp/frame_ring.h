@@ -0,0 +1,43 @@
+#ifndef FRAME_RING_H
+#define FRAME_RING_H
+
+#include <cstdint>
+#include <mutex>
+#include <vector>
+
+// Native side of the Java UvcFrameRing: a set of direct ByteBuffers registered
+// once, filled by the capture side and handed to Java by slot index.
+// Slot memory is owned by Java; it must outlive the registration.
+class FrameRing {
+public:
+    static const int NO_FRAME = -1;
+    static const int DROPPED = -2;
+
+    FrameRing();
+
+    // Register slot memory and the shared per-slot length array
+    void attach(const std::vector<uint8_t*>& slots, const std::vector<int>& capacities,
+                int32_t* lengths);
+    
+    // Forget the registered memory; all slots become free
+    void detach();
+    
+    bool isAttached();
+    
+    // Copy a frame into a free slot and mark it held by Java.
+    // Returns the slot index, or DROPPED if no slot is free or large enough.
+    int push(const uint8_t* data, int size);
+    
+    // Java is done with a slot
+    void release(int index);
+
+private:
+    std::mutex mutex_;
+    std::vector<uint8_t*> slots_;
+    std::vector<int> capacities_;
+    std::vector<bool> held_;
+    int32_t* lengths_;
+    int next_;
+};
+
+#endif // FRAME_RING_H
@@ -0,0 +1,27 @@
+#ifndef FRAME_SOURCE_H
+#define FRAME_SOURCE_H
+
+#include <cstdint>
+
+// Something the capture loop can poll() for frames: a V4L2 device,
+// or a pipe in test mode.
+class FrameSource {
+public:
+    virtual ~FrameSource() {}
+    
+    // File descriptor that becomes readable when a frame is ready
+    virtual int pollFd() const = 0;
+    
+    // Take the next ready frame. Returns false if none is ready after all.
+    // The data stays valid until requeueFrame().
+    virtual bool dequeueFrame(const uint8_t** data, int* size) = 0;
+    
+    // Give the dequeued frame's buffer back to the source
+    virtual void requeueFrame() = 0;
+    
+    // When the dequeued frame was captured (CLOCK_MONOTONIC), or 0 if the
+    // source has no capture timestamp
+    virtual int64_t captureTimestampNs() const { return 0; }
+};
+
+#endif // FRAME_SOURCE_H
@@ -0,0 +1,23 @@
+#ifndef NATIVE_LOG_H
+#define NATIVE_LOG_H
+
+// Logging for sources that also build on the host for unit tests.
+// Define LOG_TAG before including.
+#ifdef __ANDROID__
+#include <android/log.h>
+#define LOGI(...) __android_log_print(ANDROID_LOG_INFO, LOG_TAG, __VA_ARGS__)
+#define LOGW(...) __android_log_print(ANDROID_LOG_WARN, LOG_TAG, __VA_ARGS__)
+#define LOGE(...) __android_log_print(ANDROID_LOG_ERROR, LOG_TAG, __VA_ARGS__)
+#else
+#include <cstdio>
+#define NATIVE_LOG(level, ...) do { \
+        fprintf(stderr, level "/" LOG_TAG ": "); \
+        fprintf(stderr, __VA_ARGS__); \
+        fputc('\n', stderr); \
+    } while (0)
+#define LOGI(...) NATIVE_LOG("I", __VA_ARGS__)
+#define LOGW(...) NATIVE_LOG("W", __VA_ARGS__)
+#define LOGE(...) NATIVE_LOG("E", __VA_ARGS__)
+#endif
+
+#endif // NATIVE_LOG_H
@@ -0,0 +1,101 @@
+#include <jni.h>
+#include <android/bitmap.h>
+#include <android/native_window.h>
+#include <android/native_window_jni.h>
+#include <cstring>
+
+#define LOG_TAG "PreviewRenderer"
+#include "native_log.h"
+
+// Window the USB preview is drawn into, with the buffer size last set on it
+struct PreviewWindow {
+    ANativeWindow* window;
+    int width;
+    int height;
+};
+
+extern "C" {
+
+JNIEXPORT jlong JNICALL
+Java_com_esw_postureanalyzer_vision_UsbPreviewRenderer_nativeAttach(
+        JNIEnv* env, jclass clazz, jobject surface) {
+    ANativeWindow* window = ANativeWindow_fromSurface(env, surface);
+    if (!window) {
+        LOGE("Failed to get native window from surface");
+        return 0;
+    }
+    PreviewWindow* preview = new PreviewWindow();
+    preview->window = window;
+    preview->width = 0;
+    preview->height = 0;
+    LOGI("Preview window attached");
+    return reinterpret_cast<jlong>(preview);
+}
+
+JNIEXPORT void JNICALL
+Java_com_esw_postureanalyzer_vision_UsbPreviewRenderer_nativeDetach(
+        JNIEnv* env, jclass clazz, jlong window_ptr) {
+    PreviewWindow* preview = reinterpret_cast<PreviewWindow*>(window_ptr);
+    if (preview) {
+        ANativeWindow_release(preview->window);
+        delete preview;
+        LOGI("Preview window detached");
+    }
+}
+
+JNIEXPORT jboolean JNICALL
+Java_com_esw_postureanalyzer_vision_UsbPreviewRenderer_nativeRender(
+        JNIEnv* env, jclass clazz, jlong window_ptr, jobject bitmap) {
+    PreviewWindow* preview = reinterpret_cast<PreviewWindow*>(window_ptr);
+    if (!preview) {
+        return JNI_FALSE;
+    }
+    
+    AndroidBitmapInfo info;
+    if (AndroidBitmap_getInfo(env, bitmap, &info) != ANDROID_BITMAP_RESULT_SUCCESS
+            || info.format != ANDROID_BITMAP_FORMAT_RGBA_8888) {
+        LOGE("Preview needs an RGBA_8888 bitmap");
+        return JNI_FALSE;
+    }
+    
+    // Window buffers match the frame; the compositor scales them to the view
+    int width = static_cast<int>(info.width);
+    int height = static_cast<int>(info.height);
+    if (width != preview->width || height != preview->height) {
+        if (ANativeWindow_setBuffersGeometry(preview->window, width, height,
+                                             WINDOW_FORMAT_RGBA_8888) != 0) {
+            LOGE("Failed to set preview buffers to %dx%d", width, height);
+            return JNI_FALSE;
+        }
+        preview->width = width;
+        preview->height = height;
+    }
+    
+    void* pixels = nullptr;
+    if (AndroidBitmap_lockPixels(env, bitmap, &pixels) != ANDROID_BITMAP_RESULT_SUCCESS) {
+        LOGE("Failed to lock bitmap pixels");
+        return JNI_FALSE;
+    }
+    
+    ANativeWindow_Buffer buffer;
+    if (ANativeWindow_lock(preview->window, &buffer, nullptr) != 0) {
+        AndroidBitmap_unlockPixels(env, bitmap);
+        LOGE("Failed to lock preview window");
+        return JNI_FALSE;
+    }
+    
+    int rows = height < buffer.height ? height : buffer.height;
+    int row_bytes = (width < buffer.width ? width : buffer.width) * 4;
+    const uint8_t* src = static_cast<const uint8_t*>(pixels);
+    uint8_t* dst = static_cast<uint8_t*>(buffer.bits);
+    for (int y = 0; y < rows; ++y) {
+        memcpy(dst + static_cast<size_t>(y) * buffer.stride * 4,
+               src + static_cast<size_t>(y) * info.stride, row_bytes);
+    }
+    
+    ANativeWindow_unlockAndPost(preview->window);
+    AndroidBitmap_unlockPixels(env, bitmap);
+    return JNI_TRUE;
+}
+
+} // extern "C"
@@ -0,0 +1,45 @@
+#include <jni.h>
+#include <android/bitmap.h>
+#include <cstdint>
+
+#define LOG_TAG "ReplaySource"
+#include "native_log.h"
+#include "yuyv_convert.h"
+
+extern "C" {
+
+// Convert one YUYV frame read from a replay dump into an RGBA_8888 bitmap,
+// the same conversion the USB camera path uses
+JNIEXPORT jboolean JNICALL
+Java_com_esw_postureanalyzer_vision_ReplayFrameSource_nativeYuyvToBitmap(
+        JNIEnv* env, jclass clazz, jobject yuyv, jint stride, jobject bitmap) {
+    const uint8_t* src = static_cast<const uint8_t*>(env->GetDirectBufferAddress(yuyv));
+    jlong capacity = env->GetDirectBufferCapacity(yuyv);
+    if (!src || capacity < 0) {
+        LOGE("YUYV frame is not a direct buffer");
+        return JNI_FALSE;
+    }
+
+    AndroidBitmapInfo info;
+    if (AndroidBitmap_getInfo(env, bitmap, &info) != ANDROID_BITMAP_RESULT_SUCCESS
+            || info.format != ANDROID_BITMAP_FORMAT_RGBA_8888) {
+        LOGE("Replay bitmap is not RGBA_8888");
+        return JNI_FALSE;
+    }
+    if (stride < static_cast<jint>(info.width) * 2 || capacity < static_cast<jlong>(stride) * info.height) {
+        LOGE("Short YUYV frame: %lld bytes for %ux%u", (long long) capacity, info.width, info.height);
+        return JNI_FALSE;
+    }
+
+    void* pixels = nullptr;
+    if (AndroidBitmap_lockPixels(env, bitmap, &pixels) != ANDROID_BITMAP_RESULT_SUCCESS) {
+        LOGE("Failed to lock replay bitmap");
+        return JNI_FALSE;
+    }
+    yuyv_to_rgba(src, stride, static_cast<uint8_t*>(pixels), info.stride,
+                 static_cast<int>(info.width), static_cast<int>(info.height));
+    AndroidBitmap_unlockPixels(env, bitmap);
+    return JNI_TRUE;
+}
+
+} // extern "C"
@@ -1,14 +1,79 @@
 #include <jni.h>
 #include <android/log.h>
+#include <android/bitmap.h>
 #include "v4l2_camera.h"
+#include "yuyv_convert.h"
 #include <linux/videodev2.h>
+#include <memory>
 
 #define LOG_TAG "UVCCamera-JNI"
 #define LOGI(...) __android_log_print(ANDROID_LOG_INFO, LOG_TAG, __VA_ARGS__)
 #define LOGE(...) __android_log_print(ANDROID_LOG_ERROR, LOG_TAG, __VA_ARGS__)
 
+static JavaVM* java_vm = nullptr;
+
+// Delivers frames from the native capture thread to UVCCameraManager.onNativeFrame().
+// Compressed frames go into the registered ring first and are passed by slot index;
+// otherwise the slot is -1 and Java reads the frame through the camera while it is held.
+class JavaCaptureListener : public CaptureListener {
+public:
+    JavaCaptureListener(JNIEnv* env, jobject manager, jmethodID on_frame, FrameRing* ring)
+        : env_(nullptr), manager_(env->NewGlobalRef(manager)), on_frame_(on_frame), ring_(ring) {
+    }
+    
+    ~JavaCaptureListener() override {
+        JNIEnv* env = nullptr;
+        if (java_vm->GetEnv(reinterpret_cast<void**>(&env), JNI_VERSION_1_6) == JNI_OK) {
+            env->DeleteGlobalRef(manager_);
+        }
+    }
+    
+    void onCaptureStarted() override {
+        JavaVMAttachArgs args;
+        args.version = JNI_VERSION_1_6;
+        args.name = "UVC-Capture";
+        args.group = nullptr;
+        if (java_vm->AttachCurrentThread(&env_, &args) != JNI_OK) {
+            LOGE("Failed to attach capture thread");
+            env_ = nullptr;
+        }
+    }
+    
+    void onFrame(const uint8_t* data, int size, int64_t timestamp_ns, int64_t capture_ns) override {
+        if (!env_) {
+            return;
+        }
+        int slot = ring_->isAttached() ? ring_->push(data, size) : FrameRing::NO_FRAME;
+        env_->CallVoidMethod(manager_, on_frame_, slot, static_cast<jlong>(timestamp_ns),
+                             static_cast<jlong>(capture_ns));
+        if (env_->ExceptionCheck()) {
+            LOGE("Exception in onNativeFrame");
+            env_->ExceptionDescribe();
+            env_->ExceptionClear();
+        }
+    }
+    
+    void onCaptureStopped() override {
+        if (env_) {
+            java_vm->DetachCurrentThread();
+            env_ = nullptr;
+        }
+    }
+
+private:
+    JNIEnv* env_;
+    jobject manager_;
+    jmethodID on_frame_;
+    FrameRing* ring_;
+};
+
 extern "C" {
 
+JNIEXPORT jint JNICALL JNI_OnLoad(JavaVM* vm, void* reserved) {
+    java_vm = vm;
+    return JNI_VERSION_1_6;
+}
+
 JNIEXPORT jlong JNICALL
 Java_com_esw_postureanalyzer_vision_UVCCameraManager_nativeCreate(
         JNIEnv* env, jobject thiz) {
@@ -84,6 +149,29 @@ Java_com_esw_postureanalyzer_vision_UVCCameraManager_nativeSetFormat(
     return result ? JNI_TRUE : JNI_FALSE;
 }
 
+JNIEXPORT jint JNICALL
+Java_com_esw_postureanalyzer_vision_UVCCameraManager_nativeGetWidth(
+        JNIEnv* env, jobject thiz, jlong native_ptr) {
+    V4L2Camera* camera = reinterpret_cast<V4L2Camera*>(native_ptr);
+    return camera ? camera->width() : 0;
+}
+
+JNIEXPORT jint JNICALL
+Java_com_esw_postureanalyzer_vision_UVCCameraManager_nativeGetHeight(
+        JNIEnv* env, jobject thiz, jlong native_ptr) {
+    V4L2Camera* camera = reinterpret_cast<V4L2Camera*>(native_ptr);
+    return camera ? camera->height() : 0;
+}
+
+JNIEXPORT void JNICALL
+Java_com_esw_postureanalyzer_vision_UVCCameraManager_nativeSetQueueConfig(
+        JNIEnv* env, jobject thiz, jlong native_ptr, jint buffer_count, jboolean drain_to_newest) {
+    V4L2Camera* camera = reinterpret_cast<V4L2Camera*>(native_ptr);
+    if (camera) {
+        camera->setQueueConfig(buffer_count, drain_to_newest == JNI_TRUE);
+    }
+}
+
 JNIEXPORT jboolean JNICALL
 Java_com_esw_postureanalyzer_vision_UVCCameraManager_nativeStartStreaming(
         JNIEnv* env, jobject thiz, jlong native_ptr) {
@@ -106,8 +194,112 @@ Java_com_esw_postureanalyzer_vision_UVCCameraManager_nativeStopStreaming(
     }
 }
 
+JNIEXPORT jint JNICALL
+Java_com_esw_postureanalyzer_vision_UVCCameraManager_nativeGetFrameSize(
+        JNIEnv* env, jobject thiz, jlong native_ptr) {
+    V4L2Camera* camera = reinterpret_cast<V4L2Camera*>(native_ptr);
+    return camera ? camera->frameSize() : 0;
+}
+
+JNIEXPORT jboolean JNICALL
+Java_com_esw_postureanalyzer_vision_UVCCameraManager_nativeRegisterRing(
+        JNIEnv* env, jobject thiz, jlong native_ptr, jobjectArray slots, jobject lengths) {
+    V4L2Camera* camera = reinterpret_cast<V4L2Camera*>(native_ptr);
+    if (!camera) {
+        LOGE("Invalid camera pointer");
+        return JNI_FALSE;
+    }
+    
+    jsize count = env->GetArrayLength(slots);
+    int32_t* length_array = static_cast<int32_t*>(env->GetDirectBufferAddress(lengths));
+    if (!length_array || env->GetDirectBufferCapacity(lengths) < count * (jlong) sizeof(int32_t)) {
+        LOGE("Ring length buffer is not a direct buffer of %d ints", count);
+        return JNI_FALSE;
+    }
+    
+    std::vector<uint8_t*> addresses(count);
+    std::vector<int> capacities(count);
+    for (jsize i = 0; i < count; ++i) {
+        jobject slot = env->GetObjectArrayElement(slots, i);
+        addresses[i] = static_cast<uint8_t*>(env->GetDirectBufferAddress(slot));
+        capacities[i] = static_cast<int>(env->GetDirectBufferCapacity(slot));
+        env->DeleteLocalRef(slot);
+        if (!addresses[i]) {
+            LOGE("Ring slot %d is not a direct buffer", i);
+            return JNI_FALSE;
+        }
+    }
+    
+    camera->frameRing()->attach(addresses, capacities, length_array);
+    return JNI_TRUE;
+}
+
+JNIEXPORT void JNICALL
+Java_com_esw_postureanalyzer_vision_UVCCameraManager_nativeReleaseRingFrame(
+        JNIEnv* env, jobject thiz, jlong native_ptr, jint slot) {
+    V4L2Camera* camera = reinterpret_cast<V4L2Camera*>(native_ptr);
+    if (camera) {
+        camera->frameRing()->release(slot);
+    }
+}
+
+JNIEXPORT jboolean JNICALL
+Java_com_esw_postureanalyzer_vision_UVCCameraManager_nativeConvertFrameIntoBitmap(
+        JNIEnv* env, jobject thiz, jlong native_ptr, jobject bitmap) {
+    V4L2Camera* camera = reinterpret_cast<V4L2Camera*>(native_ptr);
+    if (!camera) {
+        LOGE("Invalid camera pointer");
+        return JNI_FALSE;
+    }
+    
+    if (camera->pixelFormat() != V4L2_PIX_FMT_YUYV) {
+        LOGE("Bitmap conversion needs YUYV, camera is fourcc=0x%08x", camera->pixelFormat());
+        return JNI_FALSE;
+    }
+    
+    AndroidBitmapInfo info;
+    if (AndroidBitmap_getInfo(env, bitmap, &info) != ANDROID_BITMAP_RESULT_SUCCESS) {
+        LOGE("Failed to read bitmap info");
+        return JNI_FALSE;
+    }
+    if (info.format != ANDROID_BITMAP_FORMAT_RGBA_8888
+            || (int) info.width != camera->width() || (int) info.height != camera->height()) {
+        LOGE("Bitmap %ux%u format=%d does not match %dx%d RGBA_8888 frames",
+             info.width, info.height, info.format, camera->width(), camera->height());
+        return JNI_FALSE;
+    }
+    
+    const uint8_t* buffer = nullptr;
+    int buffer_size = 0;
+    
+    // Only valid inside onNativeFrame(), while the capture loop holds the buffer
+    if (!camera->currentFrame(&buffer, &buffer_size)) {
+        LOGE("No frame is being delivered");
+        return JNI_FALSE;
+    }
+    
+    bool converted = false;
+    if (buffer_size < camera->bytesPerLine() * camera->height()) {
+        LOGE("Short YUYV frame: %d bytes", buffer_size);
+    } else {
+        void* pixels = nullptr;
+        if (AndroidBitmap_lockPixels(env, bitmap, &pixels) == ANDROID_BITMAP_RESULT_SUCCESS) {
+            // Straight from the mmap'ed V4L2 buffer into the bitmap, no Java copy
+            yuyv_to_rgba(buffer, camera->bytesPerLine(),
+                         static_cast<uint8_t*>(pixels), info.stride,
+                         camera->width(), camera->height());
+            AndroidBitmap_unlockPixels(env, bitmap);
+            converted = true;
+        } else {
+            LOGE("Failed to lock bitmap pixels");
+        }
+    }
+    
+    return converted ? JNI_TRUE : JNI_FALSE;
+}
+
 JNIEXPORT jbyteArray JNICALL
-Java_com_esw_postureanalyzer_vision_UVCCameraManager_nativeGetFrame(
+Java_com_esw_postureanalyzer_vision_UVCCameraManager_nativeCopyFrame(
         JNIEnv* env, jobject thiz, jlong native_ptr) {
     V4L2Camera* camera = reinterpret_cast<V4L2Camera*>(native_ptr);
     if (!camera) {
@@ -115,24 +307,81 @@ Java_com_esw_postureanalyzer_vision_UVCCameraManager_nativeGetFrame(
         return nullptr;
     }
     
-    unsigned char* buffer = nullptr;
+    const uint8_t* buffer = nullptr;
     int buffer_size = 0;
     
-    if (!camera->getFrame(&buffer, &buffer_size)) {
-        return nullptr; // No frame available
+    // Fallback when no ring is registered; only valid inside onNativeFrame()
+    if (!camera->currentFrame(&buffer, &buffer_size)) {
+        LOGE("No frame is being delivered");
+        return nullptr;
     }
     
     // Create Java byte array and copy frame data
     jbyteArray result = env->NewByteArray(buffer_size);
     if (result) {
         env->SetByteArrayRegion(result, 0, buffer_size, 
-                                reinterpret_cast<jbyte*>(buffer));
+                                reinterpret_cast<const jbyte*>(buffer));
+    }
+    return result;
+}
+
+JNIEXPORT jboolean JNICALL
+Java_com_esw_postureanalyzer_vision_UVCCameraManager_nativeStartCapture(
+        JNIEnv* env, jobject thiz, jlong native_ptr) {
+    V4L2Camera* camera = reinterpret_cast<V4L2Camera*>(native_ptr);
+    if (!camera) {
+        LOGE("Invalid camera pointer");
+        return JNI_FALSE;
     }
     
-    // Release the frame
-    camera->releaseFrame();
+    jclass manager_class = env->GetObjectClass(thiz);
+    jmethodID on_frame = env->GetMethodID(manager_class, "onNativeFrame", "(IJJ)V");
+    env->DeleteLocalRef(manager_class);
+    if (!on_frame) {
+        LOGE("onNativeFrame(int, long, long) not found");
+        return JNI_FALSE;
+    }
     
-    return result;
+    std::unique_ptr<CaptureListener> listener(
+            new JavaCaptureListener(env, thiz, on_frame, camera->frameRing()));
+    bool result = camera->captureLoop()->start(std::move(listener));
+    return result ? JNI_TRUE : JNI_FALSE;
+}
+
+JNIEXPORT void JNICALL
+Java_com_esw_postureanalyzer_vision_UVCCameraManager_nativeStopCapture(
+        JNIEnv* env, jobject thiz, jlong native_ptr) {
+    V4L2Camera* camera = reinterpret_cast<V4L2Camera*>(native_ptr);
+    if (camera) {
+        camera->captureLoop()->stop();
+    }
+}
+
+JNIEXPORT void JNICALL
+Java_com_esw_postureanalyzer_vision_UVCCameraManager_nativeSetTargetFps(
+        JNIEnv* env, jobject thiz, jlong native_ptr, jfloat fps) {
+    V4L2Camera* camera = reinterpret_cast<V4L2Camera*>(native_ptr);
+    if (camera) {
+        camera->captureLoop()->setTargetFps(fps);
+    }
+}
+
+JNIEXPORT void JNICALL
+Java_com_esw_postureanalyzer_vision_UVCCameraManager_nativeGetCaptureStats(
+        JNIEnv* env, jobject thiz, jlong native_ptr, jlongArray out) {
+    V4L2Camera* camera = reinterpret_cast<V4L2Camera*>(native_ptr);
+    if (!camera || env->GetArrayLength(out) < 10) {
+        return;
+    }
+    CaptureStats stats = camera->captureLoop()->stats();
+    QueueStats queue = camera->queueStats();
+    // Layout matches UvcCaptureStats.NATIVE_*
+    jlong values[10] = {
+        stats.dequeued, stats.delivered, stats.skipped, stats.poll_timeouts, stats.errors,
+        queue.buffer_count, queue.drain_to_newest ? 1 : 0, queue.drained,
+        queue.avg_age_us, queue.max_age_us
+    };
+    env->SetLongArrayRegion(out, 0, 10, values);
 }
 
 JNIEXPORT jint JNICALL
@@ -3,6 +3,7 @@
 #include <unistd.h>
 #include <sys/ioctl.h>
 #include <sys/mman.h>
+#include <poll.h>
 #include <cstring>
 #include <android/log.h>
 
@@ -12,7 +13,11 @@
 
 V4L2Camera::V4L2Camera() 
     : fd_(-1), buffers_(nullptr), buffer_start_(nullptr), 
-      buffer_count_(0), streaming_(false) {
+      buffer_count_(0), streaming_(false), frame_dequeued_(false),
+      requested_buffers_(4), drain_to_newest_(false), frame_timestamp_ns_(0),
+      age_count_(0), age_index_(0), frames_(0), drained_(0), max_age_us_(0),
+      width_(0), height_(0), bytes_per_line_(0), pixel_format_(0), frame_size_(0),
+      capture_loop_(this) {
     memset(&current_buffer_, 0, sizeof(current_buffer_));
 }
 
@@ -64,11 +69,14 @@ bool V4L2Camera::openByFd(int fd) {
 void V4L2Camera::close() {
     LOGI("Closing camera (fd=%d, streaming=%d)", fd_, streaming_);
     
+    capture_loop_.stop();
+    
     if (streaming_) {
         stopStreaming();
     }
     
     freeBuffers();
+    frame_ring_.detach();
     
     if (fd_ >= 0) {
         LOGI("Closing file descriptor %d", fd_);
@@ -121,8 +129,18 @@ bool V4L2Camera::setFormat(int width, int height, int pixelFormat) {
         return false;
     }
     
-    LOGI("Format successfully set to %dx%d, fourcc=0x%08x", 
-         fmt.fmt.pix.width, fmt.fmt.pix.height, fmt.fmt.pix.pixelformat);
+    // The driver may adjust the request, keep what it actually chose
+    width_ = fmt.fmt.pix.width;
+    height_ = fmt.fmt.pix.height;
+    pixel_format_ = fmt.fmt.pix.pixelformat;
+    bytes_per_line_ = fmt.fmt.pix.bytesperline;
+    frame_size_ = fmt.fmt.pix.sizeimage;
+    if (pixel_format_ == V4L2_PIX_FMT_YUYV && bytes_per_line_ < width_ * 2) {
+        bytes_per_line_ = width_ * 2;
+    }
+    
+    LOGI("Format successfully set to %dx%d, fourcc=0x%08x, stride=%d", 
+         width_, height_, pixel_format_, bytes_per_line_);
     return true;
 }
 
@@ -130,7 +148,7 @@ bool V4L2Camera::initBuffers() {
     struct v4l2_requestbuffers req;
     memset(&req, 0, sizeof(req));
     
-    req.count = 4;
+    req.count = requested_buffers_;
     req.type = V4L2_BUF_TYPE_VIDEO_CAPTURE;
     req.memory = V4L2_MEMORY_MMAP;
     
@@ -143,6 +161,9 @@ bool V4L2Camera::initBuffers() {
         LOGE("Insufficient buffer memory");
         return false;
     }
+    if (static_cast<int>(req.count) != requested_buffers_) {
+        LOGI("Driver adjusted buffer count %d -> %u", requested_buffers_, req.count);
+    }
     
     buffer_count_ = req.count;
     buffers_ = new v4l2_buffer[buffer_count_];
@@ -199,7 +220,23 @@ void V4L2Camera::freeBuffers() {
     buffer_count_ = 0;
 }
 
+void V4L2Camera::setQueueConfig(int buffer_count, bool drain_to_newest) {
+    requested_buffers_ = buffer_count < 2 ? 2 : buffer_count;
+    drain_to_newest_ = drain_to_newest;
+    LOGI("Queue config: %d buffers, drain to newest %s", requested_buffers_,
+         drain_to_newest_ ? "on" : "off");
+}
+
 bool V4L2Camera::startStreaming() {
+    {
+        std::lock_guard<std::mutex> lock(stats_mutex_);
+        age_count_ = 0;
+        age_index_ = 0;
+        frames_ = 0;
+        drained_ = 0;
+        max_age_us_ = 0;
+    }
+    
     if (!initBuffers()) {
         return false;
     }
@@ -232,6 +269,8 @@ bool V4L2Camera::startStreaming() {
 }
 
 bool V4L2Camera::stopStreaming() {
+    capture_loop_.stop();
+    
     if (!streaming_) {
         return true;
     }
@@ -265,14 +304,106 @@ bool V4L2Camera::getFrame(unsigned char** buffer, int* buffer_size) {
         return false;
     }
     
+    if (drain_to_newest_) {
+        drainToNewest();
+    }
+    recordFrameAge();
+    
     *buffer = (unsigned char*)buffer_start_[current_buffer_.index];
     *buffer_size = current_buffer_.bytesused;
+    frame_dequeued_ = true;
     
     return true;
 }
 
+void V4L2Camera::drainToNewest() {
+    // Buffers come back oldest first; while a newer one is already filled,
+    // requeue the older one unread so the newest frame is analysed
+    struct pollfd pfd;
+    pfd.fd = fd_;
+    pfd.events = POLLIN;
+    
+    while (true) {
+        pfd.revents = 0;
+        if (poll(&pfd, 1, 0) <= 0 || !(pfd.revents & POLLIN)) {
+            return;
+        }
+        
+        struct v4l2_buffer newer;
+        memset(&newer, 0, sizeof(newer));
+        newer.type = V4L2_BUF_TYPE_VIDEO_CAPTURE;
+        newer.memory = V4L2_MEMORY_MMAP;
+        if (ioctl(fd_, VIDIOC_DQBUF, &newer) < 0) {
+            return; // EAGAIN: the current buffer is the newest
+        }
+        
+        if (ioctl(fd_, VIDIOC_QBUF, &current_buffer_) < 0) {
+            LOGE("Failed to requeue drained buffer: %s", strerror(errno));
+        }
+        current_buffer_ = newer;
+        
+        std::lock_guard<std::mutex> lock(stats_mutex_);
+        drained_++;
+    }
+}
+
+void V4L2Camera::recordFrameAge() {
+    // Only monotonic driver timestamps are comparable with our clock
+    frame_timestamp_ns_ = 0;
+    if ((current_buffer_.flags & V4L2_BUF_FLAG_TIMESTAMP_MASK) == V4L2_BUF_FLAG_TIMESTAMP_MONOTONIC) {
+        frame_timestamp_ns_ = static_cast<int64_t>(current_buffer_.timestamp.tv_sec) * 1000000000LL
+                + static_cast<int64_t>(current_buffer_.timestamp.tv_usec) * 1000LL;
+    }
+    
+    std::lock_guard<std::mutex> lock(stats_mutex_);
+    frames_++;
+    if (frame_timestamp_ns_ == 0) {
+        return;
+    }
+    int64_t age_us = (monotonicNanos() - frame_timestamp_ns_) / 1000;
+    ages_us_[age_index_] = age_us;
+    age_index_ = (age_index_ + 1) % AGE_WINDOW;
+    if (age_count_ < AGE_WINDOW) age_count_++;
+    if (age_us > max_age_us_) max_age_us_ = age_us;
+}
+
+QueueStats V4L2Camera::queueStats() {
+    std::lock_guard<std::mutex> lock(stats_mutex_);
+    QueueStats stats;
+    stats.buffer_count = buffer_count_ > 0 ? buffer_count_ : requested_buffers_;
+    stats.drain_to_newest = drain_to_newest_;
+    stats.frames = frames_;
+    stats.drained = drained_;
+    int64_t sum = 0;
+    for (int i = 0; i < age_count_; ++i) {
+        sum += ages_us_[i];
+    }
+    stats.avg_age_us = age_count_ > 0 ? sum / age_count_ : 0;
+    stats.max_age_us = max_age_us_;
+    return stats;
+}
+
 void V4L2Camera::releaseFrame() {
+    frame_dequeued_ = false;
     if (ioctl(fd_, VIDIOC_QBUF, &current_buffer_) < 0) {
         LOGE("Failed to requeue buffer: %s", strerror(errno));
     }
 }
+
+bool V4L2Camera::currentFrame(const uint8_t** data, int* size) const {
+    if (!frame_dequeued_) {
+        return false;
+    }
+    *data = static_cast<const uint8_t*>(buffer_start_[current_buffer_.index]);
+    *size = current_buffer_.bytesused;
+    return true;
+}
+
+bool V4L2Camera::dequeueFrame(const uint8_t** data, int* size) {
+    unsigned char* buffer = nullptr;
+    if (!getFrame(&buffer, size)) {
+        return false;
+    }
+    *data = buffer;
+    return true;
+}
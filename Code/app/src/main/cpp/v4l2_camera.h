@@ -2,9 +2,22 @@
 #define V4L2_CAMERA_H
 
 #include <linux/videodev2.h>
+#include <mutex>
 #include <string>
+#include "capture_loop.h"
+#include "frame_ring.h"
+#include "frame_source.h"
 
-class V4L2Camera {
+struct QueueStats {
+    int buffer_count;
+    bool drain_to_newest;
+    int64_t frames;
+    int64_t drained;        // Older filled buffers requeued unread
+    int64_t avg_age_us;     // Capture to dequeue, rolling over the last frames
+    int64_t max_age_us;
+};
+
+class V4L2Camera : public FrameSource {
 public:
     V4L2Camera();
     ~V4L2Camera();
@@ -21,6 +34,10 @@ public:
     // Set camera format
     bool setFormat(int width, int height, int pixelFormat);
     
+    // Number of mmap buffers to request and whether getFrame() skips to the
+    // newest filled buffer. Takes effect on the next startStreaming().
+    void setQueueConfig(int buffer_count, bool drain_to_newest);
+    
     // Start streaming
     bool startStreaming();
     
@@ -33,8 +50,34 @@ public:
     // Release frame buffer
     void releaseFrame();
     
+    // Frame dequeued by getFrame() and not yet released, if any
+    bool currentFrame(const uint8_t** data, int* size) const;
+    
+    // Driver capture timestamp of the current frame (CLOCK_MONOTONIC ns), 0 if unknown
+    int64_t captureTimestampNs() const override { return frame_timestamp_ns_; }
+    
+    QueueStats queueStats();
+    
+    // FrameSource, for the poll() capture loop
+    int pollFd() const override { return fd_; }
+    bool dequeueFrame(const uint8_t** data, int* size) override;
+    void requeueFrame() override { releaseFrame(); }
+    
     // Check if camera is open
     bool isOpen() const { return fd_ >= 0; }
+    
+    // Format negotiated by the last successful setFormat()
+    int width() const { return width_; }
+    int height() const { return height_; }
+    int bytesPerLine() const { return bytes_per_line_; }
+    int pixelFormat() const { return pixel_format_; }
+    int frameSize() const { return frame_size_; }
+    
+    // Direct-buffer ring shared with Java
+    FrameRing* frameRing() { return &frame_ring_; }
+    
+    // Native capture thread
+    CaptureLoop* captureLoop() { return &capture_loop_; }
 
 private:
     int fd_;
@@ -43,11 +86,34 @@ private:
     void** buffer_start_;
     int buffer_count_;
     bool streaming_;
+    bool frame_dequeued_;
+    int requested_buffers_;
+    bool drain_to_newest_;
+    int64_t frame_timestamp_ns_;
+    
+    // Frame age at dequeue
+    static const int AGE_WINDOW = 30;
+    std::mutex stats_mutex_;
+    int64_t ages_us_[AGE_WINDOW];
+    int age_count_;
+    int age_index_;
+    int64_t frames_;
+    int64_t drained_;
+    int64_t max_age_us_;
+    int width_;
+    int height_;
+    int bytes_per_line_;
+    int pixel_format_;
+    int frame_size_;
+    FrameRing frame_ring_;
+    CaptureLoop capture_loop_;
     
     // Helper methods
     bool initBuffers();
     void freeBuffers();
     bool queryCapabilities();
+    void drainToNewest();
+    void recordFrameAge();
 };
 
 #endif // V4L2_CAMERA_H
@@ -0,0 +1,48 @@
+#include "yuyv_convert.h"
+
+// BT.601 limited range coefficients scaled by 256:
+//   R = 1.164 (Y - 16)                   + 1.596 (V - 128)
+//   G = 1.164 (Y - 16) - 0.391 (U - 128) - 0.813 (V - 128)
+//   B = 1.164 (Y - 16) + 2.018 (U - 128)
+#define COEF_Y   298
+#define COEF_RV  409
+#define COEF_GU  100
+#define COEF_GV  208
+#define COEF_BU  516
+
+static inline uint8_t clamp_u8(int value) {
+    if (value < 0) return 0;
+    if (value > 255) return 255;
+    return (uint8_t)value;
+}
+
+static inline void write_pixel(uint8_t* out, int y, int r_chroma, int g_chroma, int b_chroma) {
+    int luma = COEF_Y * (y - 16) + 128; // + 128 rounds the >> 8
+    out[0] = clamp_u8((luma + r_chroma) >> 8);
+    out[1] = clamp_u8((luma + g_chroma) >> 8);
+    out[2] = clamp_u8((luma + b_chroma) >> 8);
+    out[3] = 255;
+}
+
+void yuyv_to_rgba(const uint8_t* yuyv, int src_stride,
+                  uint8_t* rgba, int dst_stride,
+                  int width, int height) {
+    for (int row = 0; row < height; row++) {
+        const uint8_t* src = yuyv + (long)row * src_stride;
+        uint8_t* dst = rgba + (long)row * dst_stride;
+
+        // Each 4-byte macropixel Y0 U Y1 V holds two pixels sharing chroma
+        for (int x = 0; x < width; x += 2) {
+            int u = src[1] - 128;
+            int v = src[3] - 128;
+            int r_chroma = COEF_RV * v;
+            int g_chroma = -COEF_GU * u - COEF_GV * v;
+            int b_chroma = COEF_BU * u;
+
+            write_pixel(dst, src[0], r_chroma, g_chroma, b_chroma);
+            write_pixel(dst + 4, src[2], r_chroma, g_chroma, b_chroma);
+            src += 4;
+            dst += 8;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+#ifndef YUYV_CONVERT_H
+#define YUYV_CONVERT_H
+
+#include <stdint.h>
+
+#ifdef __cplusplus
+extern "C" {
+#endif
+
+// Convert a packed YUYV (YUY2) image to RGBA_8888 (R, G, B, A byte order).
+// BT.601 limited range, integer math. Width must be even.
+// Strides are in bytes; dst may be a locked Android bitmap.
+void yuyv_to_rgba(const uint8_t* yuyv, int src_stride,
+                  uint8_t* rgba, int dst_stride,
+                  int width, int height);
+
+#ifdef __cplusplus
+}
+#endif
+
+#endif // YUYV_CONVERT_H
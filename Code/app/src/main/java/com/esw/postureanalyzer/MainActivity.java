@@ -5,9 +5,9 @@ import android.content.Intent;
 import android.content.pm.PackageManager;
 import android.os.Bundle;
 import android.util.Log;
+import android.view.TextureView;
 import android.view.View;
 import android.widget.Button;
-import android.widget.ImageView;
 import android.widget.RadioButton;
 import android.widget.RadioGroup;
 import android.widget.TextView;
@@ -18,14 +18,22 @@ import androidx.camera.view.PreviewView;
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
 
+import com.esw.postureanalyzer.vision.AnalysisRateGovernor;
 import com.esw.postureanalyzer.vision.CameraXManager;
 import com.esw.postureanalyzer.vision.UnifiedCameraManager;
+import com.esw.postureanalyzer.vision.DelegateAutoTuner;
 import com.esw.postureanalyzer.vision.DelegateType;
 import com.esw.postureanalyzer.vision.EvaluationMetrics;
 import com.esw.postureanalyzer.vision.FirebaseManager;
+import com.esw.postureanalyzer.vision.IngestionMode;
 import com.esw.postureanalyzer.vision.OverlayView;
+import com.esw.postureanalyzer.vision.PipelineLatencyStats;
 import com.esw.postureanalyzer.vision.PoseLandmarkerHelper;
 import com.esw.postureanalyzer.vision.PostureClassifier;
+import com.esw.postureanalyzer.vision.LandmarkStreamRecorder;
+import com.esw.postureanalyzer.vision.LandmarkStreamReplayer;
+import com.esw.postureanalyzer.vision.ReplayFrameSource;
+import com.esw.postureanalyzer.vision.ResolutionSelector;
 import com.esw.postureanalyzer.managers.PostureTimerManager;
 import com.esw.postureanalyzer.managers.PresenceDetector;
 import com.esw.postureanalyzer.managers.BreakReminderManager;
@@ -37,7 +45,7 @@ public class MainActivity extends AppCompatActivity implements PoseLandmarkerHel
     private static final int CAMERA_PERMISSION_CODE = 100;
 
     private PreviewView previewView;
-    private ImageView usbCameraPreview;
+    private TextureView usbCameraPreview;
     private OverlayView overlayView;
     private TextView runtimeTextView, metricsTextView, slouchStatusText, legsStatusText, leanStatusText;
     private TextView presenceStatusText, activeTimeText, slouchTimerText, cameraStatusText;
@@ -47,6 +55,7 @@ public class MainActivity extends AppCompatActivity implements PoseLandmarkerHel
     private TextView performanceStatsText;
     private android.widget.ScrollView performanceStatsScroll;
     private boolean showDetailedStats = false;
+    private boolean measureAllocation = false; // --ez measure_allocation true: count without the stats shown
 
     private CameraXManager cameraXManager;
     private UnifiedCameraManager unifiedCameraManager;
@@ -54,6 +63,16 @@ public class MainActivity extends AppCompatActivity implements PoseLandmarkerHel
     private PostureClassifier postureClassifier;
     private FirebaseManager firebaseManager;
     private PerformanceTracker performanceTracker;
+    private AnalysisRateGovernor rateGovernor;
+    private ResolutionSelector resolutionSelector;
+    private DelegateAutoTuner delegateAutoTuner;
+    private final PipelineLatencyStats pipelineLatency = new PipelineLatencyStats();
+    private ReplayFrameSource.Config replayConfig; // Set when launched for an offline replay run
+    private LandmarkStreamRecorder landmarkRecorder; // Set when launched with record_landmarks
+    private LandmarkStreamReplayer landmarkReplayer; // Set when launched with landmark_replay_path
+    private java.io.File landmarkReplayFile;
+    private boolean landmarkReplayRealTime = true;
+    private int landmarkReplayLoops = 1;
     
     // New managers for enhanced features
     private PostureTimerManager postureTimerManager;
@@ -69,7 +88,7 @@ public class MainActivity extends AppCompatActivity implements PoseLandmarkerHel
         setContentView(R.layout.activity_main);
 
         previewView = findViewById(R.id.preview_view);
-        // Set PreviewView to FIT mode to match ImageView fitCenter behavior
+        // Set PreviewView to FIT mode to match the USB preview's fit-center transform
         previewView.setScaleType(PreviewView.ScaleType.FIT_CENTER);
         usbCameraPreview = findViewById(R.id.usb_camera_preview);
         overlayView = findViewById(R.id.overlay);
@@ -100,14 +119,25 @@ public class MainActivity extends AppCompatActivity implements PoseLandmarkerHel
         cameraSwitchButton = findViewById(R.id.camera_switch_button);
         if (cameraSwitchButton != null) {
             cameraSwitchButton.setOnClickListener(v -> switchCameraSource());
+            // Long press toggles how internal camera frames reach MediaPipe
+            cameraSwitchButton.setOnLongClickListener(v -> {
+                toggleIngestionMode();
+                return true;
+            });
         }
         
         // Toggle stats button
         if (toggleStatsButton != null) {
             toggleStatsButton.setOnClickListener(v -> {
                 showDetailedStats = !showDetailedStats;
+                updateAllocationCounting();
                 updatePerformanceDisplay();
             });
+            // Long press cycles the posture classifier through fused, serial and parallel execution
+            toggleStatsButton.setOnLongClickListener(v -> {
+                cycleClassifierPath();
+                return true;
+            });
         }
 
         if (ContextCompat.checkSelfPermission(this, Manifest.permission.CAMERA) != PackageManager.PERMISSION_GRANTED) {
@@ -133,6 +163,30 @@ public class MainActivity extends AppCompatActivity implements PoseLandmarkerHel
         
         firebaseManager = new FirebaseManager();
         performanceTracker = new PerformanceTracker(this);
+        rateGovernor = new AnalysisRateGovernor();
+        resolutionSelector = new ResolutionSelector(this);
+        postureClassifier.setSwapListener(delegate -> runOnUiThread(() -> onClassifierDelegateSwapped(delegate)));
+        delegateAutoTuner = new DelegateAutoTuner(this, postureClassifier);
+        delegateAutoTuner.setListener(new DelegateAutoTuner.TuningListener() {
+            @Override
+            public void onLandmarkerDelegate(int delegate) {
+                // Not from inside the landmarker's own result callback
+                runOnUiThread(() -> {
+                    if (poseLandmarkerHelper != null && landmarkReplayer == null) {
+                        poseLandmarkerHelper.setCurrentDelegate(delegate);
+                    }
+                });
+            }
+
+            @Override
+            public void onTuningComplete(boolean fromStore) {
+                runOnUiThread(() -> onDelegateTuningComplete(fromStore));
+            }
+        });
+        replayConfig = parseReplayConfig(getIntent());
+        setupLandmarkStream(getIntent());
+        configureClassifier(getIntent());
+        measureAllocation = getIntent().getBooleanExtra("measure_allocation", false);
 
         // Initialize UI with default values
         initializeUI();
@@ -144,17 +198,20 @@ public class MainActivity extends AppCompatActivity implements PoseLandmarkerHel
         testFirebaseConnection();
 
         // Initialize unified camera manager
-        unifiedCameraManager = new UnifiedCameraManager(this, (bitmap, rotationDegrees) -> {
+        unifiedCameraManager = new UnifiedCameraManager(this, frame -> {
             if (poseLandmarkerHelper != null) {
-                poseLandmarkerHelper.detectLiveStream(bitmap, rotationDegrees);
+                poseLandmarkerHelper.detectLiveStream(frame);
             }
         });
+        unifiedCameraManager.setRateGovernor(rateGovernor);
+        unifiedCameraManager.setResolutionSelector(resolutionSelector);
 
         unifiedCameraManager.setStatusListener(new UnifiedCameraManager.CameraStatusListener() {
             @Override
             public void onCameraStarted(UnifiedCameraManager.CameraType type) {
                 runOnUiThread(() -> {
-                    String cameraName = type == UnifiedCameraManager.CameraType.USB_UVC ? "USB Camera" : "Internal Camera";
+                    String cameraName = type == UnifiedCameraManager.CameraType.USB_UVC ? "USB Camera"
+                            : type == UnifiedCameraManager.CameraType.REPLAY ? "Replay" : "Internal Camera";
                     if (cameraStatusText != null) {
                         cameraStatusText.setText("Camera: " + cameraName);
                     }
@@ -195,11 +252,13 @@ public class MainActivity extends AppCompatActivity implements PoseLandmarkerHel
         });
 
         // Keep legacy camera manager for compatibility
-        cameraXManager = new CameraXManager(this, previewView, (bitmap, rotationDegrees) -> {
+        cameraXManager = new CameraXManager(this, previewView, frame -> {
             if (poseLandmarkerHelper != null) {
-                poseLandmarkerHelper.detectLiveStream(bitmap, rotationDegrees);
+                poseLandmarkerHelper.detectLiveStream(frame);
             }
         });
+        cameraXManager.setRateGovernor(rateGovernor);
+        updateAllocationCounting();
         
         delegateRadioGroup.setOnCheckedChangeListener(this);
         
@@ -208,13 +267,22 @@ public class MainActivity extends AppCompatActivity implements PoseLandmarkerHel
     }
     
     /**
-     * Set CPU as the default delegate on app startup
+     * Start in auto mode on app startup: the tuned delegates for this device, tuning them
+     * first on the first launch or after an OS/app update. Models run on CPU meanwhile.
      */
     private void setDefaultDelegate() {
-        // Set CPU radio button as checked
-        RadioButton cpuRadio = findViewById(R.id.delegate_cpu);
-        if (cpuRadio != null) {
-            cpuRadio.setChecked(true);
+        // Set Auto radio button as checked
+        RadioButton autoRadio = findViewById(R.id.delegate_auto);
+        if (autoRadio != null) {
+            autoRadio.setChecked(true);
+            // Long press throws away the stored tuning and tunes again
+            autoRadio.setOnLongClickListener(v -> {
+                if (autoRadio.isChecked() && delegateAutoTuner != null) {
+                    delegateAutoTuner.retune();
+                    Toast.makeText(this, "Tuning delegates...", Toast.LENGTH_SHORT).show();
+                }
+                return true;
+            });
         }
         
         // Initialize delegates to CPU
@@ -224,6 +292,7 @@ public class MainActivity extends AppCompatActivity implements PoseLandmarkerHel
         if (postureClassifier != null) {
             postureClassifier.setDelegate(DelegateType.CPU);
         }
+        updateResolutionDelegate();
         
         // Start initial tracking session with actual load times
         if (performanceTracker != null && postureClassifier != null) {
@@ -232,7 +301,50 @@ public class MainActivity extends AppCompatActivity implements PoseLandmarkerHel
             performanceTracker.startSession(DelegateType.CPU, loadTime, warmupTime);
         }
         
-        Log.d("MainActivity", "Default delegate set to CPU");
+        if (delegateAutoTuner != null) {
+            delegateAutoTuner.start();
+        }
+        Log.d("MainActivity", "Default delegate set to Auto");
+    }
+
+    /**
+     * Count per-frame allocation only while the stats are shown or a benchmark run asked for
+     * it: counting slows every allocation in the process
+     */
+    private void updateAllocationCounting() {
+        CameraXManager.AllocationListener listener =
+                showDetailedStats || measureAllocation ? this::onFrameAllocation : null;
+        if (unifiedCameraManager != null) {
+            unifiedCameraManager.setAllocationListener(listener);
+        }
+        if (cameraXManager != null) {
+            cameraXManager.setAllocationListener(listener);
+        }
+    }
+
+    /**
+     * Per-frame allocation measured by the internal camera's analyzer (analyzer thread)
+     */
+    private void onFrameAllocation(IngestionMode mode, long bytes) {
+        if (poseLandmarkerHelper != null) {
+            poseLandmarkerHelper.recordIngestionAllocation(mode, bytes);
+        }
+    }
+
+    /**
+     * Auto mode has its delegates (UI thread); the classifier swaps them in the background and
+     * the session starts in onClassifierDelegateSwapped()
+     */
+    private void onDelegateTuningComplete(boolean fromStore) {
+        if (postureClassifier == null) {
+            return;
+        }
+        if (!fromStore) {
+            Toast.makeText(this, "Delegates tuned, loading models...", Toast.LENGTH_SHORT).show();
+        }
+        // The landmarker has its final delegate now; the models follow in onClassifierDelegateSwapped()
+        updateResolutionDelegate();
+        Log.d("MainActivity", "Auto delegates requested");
     }
 
     /**
@@ -248,7 +360,7 @@ public class MainActivity extends AppCompatActivity implements PoseLandmarkerHel
         
         if (currentType == UnifiedCameraManager.CameraType.INTERNAL) {
             // Switch to USB camera
-            // IMPORTANT: Hide PreviewView and show USB ImageView
+            // IMPORTANT: Hide PreviewView and show USB TextureView
             if (previewView != null) {
                 previewView.setVisibility(View.GONE);
             }
@@ -261,7 +373,7 @@ public class MainActivity extends AppCompatActivity implements PoseLandmarkerHel
             }
         } else {
             // Switch to internal camera
-            // IMPORTANT: Show PreviewView and hide USB ImageView
+            // IMPORTANT: Show PreviewView and hide USB TextureView
             if (usbCameraPreview != null) {
                 usbCameraPreview.setVisibility(View.GONE);
             }
@@ -275,6 +387,190 @@ public class MainActivity extends AppCompatActivity implements PoseLandmarkerHel
         }
     }
 
+    /**
+     * Replay run requested through launch extras, e.g.
+     *   adb shell am start -n com.esw.postureanalyzer/.MainActivity \
+     *       --es replay_path /sdcard/Android/data/com.esw.postureanalyzer/files/frames.rgba --es replay_format rgba \
+     *       --ei replay_width 640 --ei replay_height 480 --ef replay_fps 0 --ei replay_loops 3
+     * replay_format is rgba, yuyv (raw dumps) or images (directory of JPEG/PNG files).
+     * replay_fps 0 replays unthrottled. Files under the app's external files directory
+     * need no storage permission. Returns null for a normal camera launch.
+     */
+    private static ReplayFrameSource.Config parseReplayConfig(Intent intent) {
+        String path = intent != null ? intent.getStringExtra("replay_path") : null;
+        if (path == null) {
+            return null;
+        }
+        String format = intent.getStringExtra("replay_format");
+        ReplayFrameSource.Config config;
+        if ("rgba".equals(format) || "yuyv".equals(format)) {
+            config = ReplayFrameSource.Config.rawDump(new java.io.File(path),
+                    "rgba".equals(format) ? ReplayFrameSource.SourceFormat.RGBA_DUMP : ReplayFrameSource.SourceFormat.YUYV_DUMP,
+                    intent.getIntExtra("replay_width", 640), intent.getIntExtra("replay_height", 480));
+        } else {
+            config = ReplayFrameSource.Config.imageDirectory(new java.io.File(path));
+        }
+        return config.setTargetFps(intent.getFloatExtra("replay_fps", 0f))
+                .setLoops(intent.getIntExtra("replay_loops", 1))
+                .setRotationDegrees(intent.getIntExtra("replay_rotation", 0));
+    }
+
+    /**
+     * Landmark recording and replay requested through launch extras, e.g.
+     *   adb shell am start -n com.esw.postureanalyzer/.MainActivity --es record_landmarks landmarks.bin
+     *   adb shell am start -n com.esw.postureanalyzer/.MainActivity \
+     *       --es landmark_replay_path landmarks.bin --ez landmark_replay_realtime false --ei landmark_replay_loops 5
+     * Relative paths are under the app's external files directory. A landmark replay feeds
+     * onResults() directly, so the camera and pose landmarker are not started.
+     */
+    private void setupLandmarkStream(Intent intent) {
+        if (intent == null) {
+            return;
+        }
+        String recordPath = intent.getStringExtra("record_landmarks");
+        if (recordPath != null) {
+            landmarkRecorder = new LandmarkStreamRecorder(resolveExternalFile(recordPath));
+            try {
+                landmarkRecorder.start();
+            } catch (java.io.IOException e) {
+                Log.e("MainActivity", "Failed to start landmark recording", e);
+                landmarkRecorder = null;
+            }
+        }
+        String replayPath = intent.getStringExtra("landmark_replay_path");
+        if (replayPath != null) {
+            landmarkReplayFile = resolveExternalFile(replayPath);
+            landmarkReplayRealTime = intent.getBooleanExtra("landmark_replay_realtime", true);
+            landmarkReplayLoops = intent.getIntExtra("landmark_replay_loops", 1);
+            landmarkReplayer = new LandmarkStreamReplayer(this);
+        }
+    }
+
+    /**
+     * Classifier result reuse and scheduling settings from launch extras, for A/B benchmark runs, e.g.
+     *   --ez result_reuse false
+     *   --ef result_reuse_pixels 4 --ef result_reuse_visibility 0.1
+     *   --ef min_joint_visibility 0 --el slouch_interval_ms 0 --el legs_interval_ms 0 --el lean_interval_ms 0
+     */
+    private void configureClassifier(Intent intent) {
+        if (intent == null) {
+            return;
+        }
+        postureClassifier.setResultReuseEnabled(intent.getBooleanExtra("result_reuse", true));
+        if (intent.hasExtra("result_reuse_pixels") || intent.hasExtra("result_reuse_visibility")) {
+            postureClassifier.setResultReuseTolerance(
+                    intent.getFloatExtra("result_reuse_pixels", PostureClassifier.DEFAULT_REUSE_PIXEL_TOLERANCE),
+                    intent.getFloatExtra("result_reuse_visibility", PostureClassifier.DEFAULT_REUSE_VISIBILITY_TOLERANCE));
+        }
+        postureClassifier.setMinJointVisibility(
+                intent.getFloatExtra("min_joint_visibility", PostureClassifier.DEFAULT_MIN_JOINT_VISIBILITY));
+        postureClassifier.setModelIntervals(
+                intent.getLongExtra("slouch_interval_ms", PostureClassifier.DEFAULT_SLOUCH_INTERVAL_MS),
+                intent.getLongExtra("legs_interval_ms", PostureClassifier.DEFAULT_CROSS_LEGGED_INTERVAL_MS),
+                intent.getLongExtra("lean_interval_ms", PostureClassifier.DEFAULT_LEAN_INTERVAL_MS));
+    }
+
+    private java.io.File resolveExternalFile(String path) {
+        java.io.File file = new java.io.File(path);
+        return file.isAbsolute() ? file : new java.io.File(getExternalFilesDir(null), path);
+    }
+
+    /**
+     * Replay run finished (replay thread): log the run report and save it next to the app's
+     * files, so benchmark runs can be collected with adb logcat -s ReplayReport or adb pull
+     */
+    private void onReplayFinished(ReplayFrameSource source, String error) {
+        writeRunReport("replay_report_", source.getStats(), source.getMetricsMap(), error);
+        runOnUiThread(() -> Toast.makeText(this,
+                error != null ? "Replay failed: " + error : "Replay finished", Toast.LENGTH_SHORT).show());
+    }
+
+    /**
+     * Landmark replay finished (replay thread): same report, covering only the post-pose path
+     */
+    private void onLandmarkReplayFinished(LandmarkStreamReplayer replayer, String error) {
+        writeRunReport("landmark_replay_report_", replayer.getStats(), replayer.getMetricsMap(), error);
+        runOnUiThread(() -> Toast.makeText(this,
+                error != null ? "Landmark replay failed: " + error : "Landmark replay finished", Toast.LENGTH_SHORT).show());
+    }
+
+    private void writeRunReport(String filePrefix, String sourceStats, java.util.Map<String, Object> sourceMetrics,
+                                String error) {
+        String report = String.format(
+            "%s\n%s\n%s\n%s\n%s",
+            sourceStats,
+            pipelineLatency.getStats(),
+            poseLandmarkerHelper != null ? poseLandmarkerHelper.getIngestionStats() : "",
+            poseLandmarkerHelper != null ? poseLandmarkerHelper.getPerformanceStats() : "",
+            postureClassifier != null ? postureClassifier.getPerformanceStats() : ""
+        );
+        for (String line : report.split("\n")) {
+            Log.i("ReplayReport", line);
+        }
+        
+        java.util.Map<String, Object> metrics = new java.util.HashMap<>();
+        metrics.put("replay", sourceMetrics);
+        metrics.put("pipelineLatency", pipelineLatency.getMetricsMap());
+        if (poseLandmarkerHelper != null) {
+            metrics.put("ingestionModes", poseLandmarkerHelper.getIngestionMetrics());
+        }
+        if (postureClassifier != null) {
+            metrics.put("individualModels", postureClassifier.getIndividualModelMetrics());
+        }
+        if (error != null) {
+            metrics.put("error", error);
+        }
+        java.io.File reportFile = new java.io.File(getExternalFilesDir(null),
+                filePrefix + System.currentTimeMillis() + ".json");
+        try (java.io.FileWriter writer = new java.io.FileWriter(reportFile)) {
+            writer.write(new org.json.JSONObject(metrics).toString(2));
+            Log.i("ReplayReport", "Report written to " + reportFile.getAbsolutePath());
+        } catch (java.io.IOException | org.json.JSONException e) {
+            Log.e("ReplayReport", "Failed to write replay report", e);
+        }
+    }
+
+    /**
+     * Cycle the posture classifier through the fused model (if bundled), the three separate
+     * models run one after another, and the separate models run in parallel, to compare them
+     */
+    private void cycleClassifierPath() {
+        if (postureClassifier == null) {
+            return;
+        }
+        if (postureClassifier.isFusedModelActive()) {
+            postureClassifier.setFusedModelEnabled(false);
+            postureClassifier.setParallelInferenceEnabled(false);
+        } else if (!postureClassifier.isParallelInferenceEnabled()) {
+            postureClassifier.setParallelInferenceEnabled(true);
+        } else {
+            postureClassifier.setParallelInferenceEnabled(false);
+            postureClassifier.setFusedModelEnabled(true);
+        }
+        String path;
+        if (postureClassifier.isFusedModelActive()) {
+            path = "fused model";
+        } else {
+            path = postureClassifier.isParallelInferenceEnabled() ? "separate models, parallel" : "separate models, serial";
+        }
+        Toast.makeText(this, "Posture classifier: " + path, Toast.LENGTH_SHORT).show();
+        Log.d("MainActivity", "Posture classifier switched to " + path);
+    }
+
+    /**
+     * Toggle between Bitmap and RGBA buffer frame ingestion for the internal camera
+     */
+    private void toggleIngestionMode() {
+        if (unifiedCameraManager == null) {
+            return;
+        }
+        IngestionMode newMode = unifiedCameraManager.getIngestionMode() == IngestionMode.BITMAP
+                ? IngestionMode.RGBA_BUFFER : IngestionMode.BITMAP;
+        unifiedCameraManager.setIngestionMode(newMode);
+        Toast.makeText(this, "Frame ingestion: " + newMode.getDisplayName(), Toast.LENGTH_SHORT).show();
+        Log.d("MainActivity", "Ingestion mode switched to " + newMode.getDisplayName());
+    }
+
     /**
      * Initialize UI with default values
      */
@@ -342,6 +638,8 @@ public class MainActivity extends AppCompatActivity implements PoseLandmarkerHel
         presenceDetector.setPresenceCallback(new PresenceDetector.PresenceCallback() {
             @Override
             public void onStateChanged(PresenceDetector.PresenceState newState) {
+                // Analyze at the minimum rate while nobody is at the desk
+                rateGovernor.setAway(newState == PresenceDetector.PresenceState.AWAY);
                 runOnUiThread(() -> {
                     if (newState == PresenceDetector.PresenceState.AWAY) {
                         presenceStatusText.setText("Status: Away");
@@ -451,6 +749,11 @@ public class MainActivity extends AppCompatActivity implements PoseLandmarkerHel
     public void onResults(PoseLandmarkerHelper.ResultBundle resultBundle) {
         PostureClassifier.ClassificationResult classificationResult = null;
         String metricsString = "PDJ / OKS: N/A";
+        long classifiedNanos = 0;
+
+        if (landmarkRecorder != null) {
+            landmarkRecorder.record(resultBundle);
+        }
 
         if (resultBundle.getResults().landmarks().size() > 0) {
             // Person detected - notify presence detector
@@ -458,6 +761,9 @@ public class MainActivity extends AppCompatActivity implements PoseLandmarkerHel
                 presenceDetector.onPersonDetected();
                 Log.d("MainActivity", "Person detected - State: " + presenceDetector.getCurrentState());
             }
+            if (rateGovernor != null) {
+                rateGovernor.onLandmarks(resultBundle.getResults().landmarks().get(0));
+            }
 
             // Classify posture using TFLite
             classificationResult = postureClassifier.classify(
@@ -465,14 +771,27 @@ public class MainActivity extends AppCompatActivity implements PoseLandmarkerHel
                     resultBundle.getInputImageWidth(),
                     resultBundle.getInputImageHeight()
             );
+            classifiedNanos = System.nanoTime();
             
             // Track and upload performance data with throttling
-            if (performanceTracker != null && classificationResult != null) {
+            // An inference time of 0 means the frame could not be matched to its submission
+            if (performanceTracker != null && classificationResult != null
+                    && resultBundle.getInferenceTime() > 0) {
                 // Use TOTAL inference time (PoseLandmarker + classification models)
                 // resultBundle.getInferenceTime() already includes the pose detection time
                 long totalInferenceTimeMicros = resultBundle.getInferenceTime();
                 performanceTracker.recordInference(totalInferenceTimeMicros);
                 
+                // Feed the analysis resolution probe (internal camera only)
+                if (resolutionSelector != null && unifiedCameraManager != null
+                        && unifiedCameraManager.getCurrentCameraType() == UnifiedCameraManager.CameraType.INTERNAL) {
+                    resolutionSelector.recordPipeline(totalInferenceTimeMicros);
+                }
+                if (delegateAutoTuner != null) {
+                    delegateAutoTuner.recordLandmarkerFrame(poseLandmarkerHelper.getCurrentDelegate(),
+                            totalInferenceTimeMicros);
+                }
+                
                 // Calculate FPS from total time
                 if (totalInferenceTimeMicros > 0) {
                     double fps = 1_000_000.0 / totalInferenceTimeMicros; // Convert μs to FPS
@@ -483,6 +802,11 @@ public class MainActivity extends AppCompatActivity implements PoseLandmarkerHel
                 uploadPerformanceData();
             }
 
+            // Any posture change restores the full analysis rate
+            if (classificationResult != null && rateGovernor != null) {
+                rateGovernor.onPostureState(classificationResult.getSlouchStatus());
+            }
+
             // Handle posture timer based on slouching status
             if (classificationResult != null && postureTimerManager != null) {
                 String slouchStatus = classificationResult.getSlouchStatus();
@@ -517,6 +841,7 @@ public class MainActivity extends AppCompatActivity implements PoseLandmarkerHel
 
         final PostureClassifier.ClassificationResult finalResult = classificationResult;
         final String finalMetrics = metricsString;
+        final long finalClassifiedNanos = classifiedNanos;
 
         runOnUiThread(() -> {
             // Convert from microseconds to milliseconds
@@ -572,6 +897,10 @@ public class MainActivity extends AppCompatActivity implements PoseLandmarkerHel
                     resultBundle.getInputImageHeight(),
                     resultBundle.getInputImageWidth()
             );
+            
+            // Capture -> pose -> classification -> UI, per stage
+            pipelineLatency.recordFrame(resultBundle.getCaptureNanos(), resultBundle.getArrivalNanos(),
+                    resultBundle.getResultNanos(), finalClassifiedNanos, System.nanoTime());
         });
     }
 
@@ -582,16 +911,24 @@ public class MainActivity extends AppCompatActivity implements PoseLandmarkerHel
 
     @Override
     public void onCheckedChanged(RadioGroup group, int checkedId) {
-        DelegateType newDelegate = null;
+        // Per-model delegates picked by the tuner; the session starts in onClassifierDelegateSwapped()
+        if (checkedId == R.id.delegate_auto) {
+            if (delegateAutoTuner != null) {
+                delegateAutoTuner.start();
+            }
+            Log.d("MainActivity", "Delegates switched to Auto");
+            return;
+        }
+        if (delegateAutoTuner != null) {
+            delegateAutoTuner.stop();
+        }
         
         // TFLite delegates
         if (checkedId == R.id.delegate_cpu) {
-            newDelegate = DelegateType.CPU;
             poseLandmarkerHelper.setCurrentDelegate(PoseLandmarkerHelper.DELEGATE_CPU);
             postureClassifier.setDelegate(DelegateType.CPU);
             Log.d("MainActivity", "TFLite delegate switched to CPU");
         } else if (checkedId == R.id.delegate_gpu) {
-            newDelegate = DelegateType.GPU;
             Log.d("MainActivity", "User selected TFLite GPU delegate");
             try {
                 poseLandmarkerHelper.setCurrentDelegate(PoseLandmarkerHelper.DELEGATE_GPU);
@@ -607,45 +944,95 @@ public class MainActivity extends AppCompatActivity implements PoseLandmarkerHel
                 return;
             }
         } else if (checkedId == R.id.delegate_nnapi) {
-            newDelegate = DelegateType.NNAPI;
             postureClassifier.setDelegate(DelegateType.NNAPI);
             Log.d("MainActivity", "TFLite delegate switched to NNAPI");
+        } else if (checkedId == R.id.delegate_java) {
+            // Posture models only; the pose landmarker keeps its current delegate
+            postureClassifier.setDelegate(DelegateType.JAVA);
+            Log.d("MainActivity", "Posture models switched to the plain-Java engine");
         }
         
-        if (newDelegate != null) {
-            
-            // Start new tracking session with actual load times
-            if (performanceTracker != null) {
-                long loadTime = postureClassifier.getLastModelLoadTimeMs();
-                long warmupTime = postureClassifier.getLastWarmupTimeMs();
-                postureClassifier.resetPerformanceMonitors();
-                
-                performanceTracker.startSession(newDelegate, loadTime, warmupTime);
-            }
+        // The old models keep classifying until the new ones are built; the session starts
+        // in onClassifierDelegateSwapped()
+    }
+
+    /**
+     * Re-evaluate the analysis resolution for what each frame's budget is spent on: the pose
+     * landmarker's delegate and each posture model's delegate (Auto mixes them per model)
+     */
+    private void updateResolutionDelegate() {
+        if (resolutionSelector == null || poseLandmarkerHelper == null || postureClassifier == null) {
+            return;
+        }
+        String landmarker = poseLandmarkerHelper.getCurrentDelegate() == PoseLandmarkerHelper.DELEGATE_GPU
+                ? DelegateType.GPU.name() : DelegateType.CPU.name();
+        resolutionSelector.setDelegate(landmarker + "/" + postureClassifier.getDelegateDescription());
+    }
+
+    /**
+     * The classifier's new models are live (UI thread): start a tracking session for them
+     */
+    private void onClassifierDelegateSwapped(DelegateType delegate) {
+        if (postureClassifier == null || isFinishing()) {
+            return;
+        }
+        // While Auto is still tuning, the resolution follows its final landmarker choice
+        RadioButton autoRadio = findViewById(R.id.delegate_auto);
+        boolean autoTuning = autoRadio != null && autoRadio.isChecked()
+                && delegateAutoTuner != null && delegateAutoTuner.isTuning();
+        if (!autoTuning) {
+            updateResolutionDelegate();
+        }
+        
+        // Start new tracking session with actual load times
+        if (performanceTracker != null) {
+            long loadTime = postureClassifier.getLastModelLoadTimeMs();
+            long warmupTime = postureClassifier.getLastWarmupTimeMs();
+            postureClassifier.resetPerformanceMonitors();
             
-            Toast.makeText(this, "Switched to " + newDelegate.getDisplayName(), 
-                          Toast.LENGTH_SHORT).show();
+            performanceTracker.startSession(delegate, loadTime, warmupTime);
         }
+        // Thread counts depend on the delegates; measured once the pose pipeline is running
+        postureClassifier.startThreadTuning();
+        
+        Toast.makeText(this, "Switched to " + postureClassifier.getDelegateDescription(),
+                      Toast.LENGTH_SHORT).show();
     }
 
     @Override
     protected void onResume() {
         super.onResume();
         if (ContextCompat.checkSelfPermission(this, Manifest.permission.CAMERA) == PackageManager.PERMISSION_GRANTED) {
-            // Start with internal camera by default (unified camera manager handles this)
-            if (unifiedCameraManager != null) {
+            // Start with internal camera by default (unified camera manager handles this).
+            // A replay run starts below instead, once the landmarker is ready for its first frame.
+            // A landmark replay needs neither camera nor landmarker.
+            if (landmarkReplayer != null) {
+                Log.d("MainActivity", "Landmark replay run: " + landmarkReplayFile.getAbsolutePath());
+                pipelineLatency.reset();
+                landmarkReplayer.setReplayListener(this::onLandmarkReplayFinished);
+                landmarkReplayer.start(landmarkReplayFile, landmarkReplayRealTime, landmarkReplayLoops);
+            } else if (replayConfig != null) {
+                Log.d("MainActivity", "Replay run: " + replayConfig.describe());
+            } else if (unifiedCameraManager != null) {
                 unifiedCameraManager.startInternalCamera(previewView);
             } else if (cameraXManager != null) {
                 // Fallback to legacy camera manager
                 cameraXManager.startCamera();
             }
             
-            if (poseLandmarkerHelper != null) {
+            if (poseLandmarkerHelper != null && landmarkReplayer == null) {
                 poseLandmarkerHelper.setupPoseLandmarker();
             }
+            if (replayConfig != null && unifiedCameraManager != null) {
+                pipelineLatency.reset();
+                unifiedCameraManager.startReplay(replayConfig, this::onReplayFinished);
+            }
             if (presenceDetector != null) {
                 presenceDetector.reset();
             }
+            if (rateGovernor != null) {
+                rateGovernor.reset();
+            }
             if (breakReminderManager != null && !breakReminderManager.isTracking()) {
                 breakReminderManager.startTracking();
             }
@@ -655,9 +1042,16 @@ public class MainActivity extends AppCompatActivity implements PoseLandmarkerHel
     @Override
     protected void onPause() {
         super.onPause();
+        if (landmarkReplayer != null) {
+            landmarkReplayer.setReplayListener(null);
+            landmarkReplayer.stop();
+        }
         if (unifiedCameraManager != null) {
             unifiedCameraManager.stopCamera();
         }
+        if (landmarkRecorder != null) {
+            landmarkRecorder.flush();
+        }
         if (poseLandmarkerHelper != null) {
             poseLandmarkerHelper.clearPoseLandmarker();
         }
@@ -672,9 +1066,15 @@ public class MainActivity extends AppCompatActivity implements PoseLandmarkerHel
     @Override
     protected void onDestroy() {
         super.onDestroy();
+        if (cameraXManager != null) {
+            cameraXManager.setAllocationListener(null);
+        }
         if (unifiedCameraManager != null) {
             unifiedCameraManager.release();
         }
+        if (landmarkRecorder != null) {
+            landmarkRecorder.stop();
+        }
         if (postureClassifier != null) {
             postureClassifier.close();
         }
@@ -700,13 +1100,40 @@ public class MainActivity extends AppCompatActivity implements PoseLandmarkerHel
             String postureStats = postureClassifier.getPerformanceStats();
             String landmarkerStats = poseLandmarkerHelper.getPerformanceStats();
             
+            String ingestionStats = poseLandmarkerHelper.getIngestionStats();
+            String uvcDecodeStats = unifiedCameraManager != null ? unifiedCameraManager.getUvcDecodeStats() : null;
+            if (uvcDecodeStats != null) {
+                ingestionStats += "\n" + uvcDecodeStats;
+            }
+            String replayStats = unifiedCameraManager != null ? unifiedCameraManager.getReplayStats() : null;
+            if (replayStats != null) {
+                ingestionStats += "\n" + replayStats;
+            }
+            if (landmarkReplayer != null) {
+                ingestionStats += "\n" + landmarkReplayer.getStats();
+            }
+            if (landmarkRecorder != null) {
+                ingestionStats += "\n" + landmarkRecorder.getStats();
+            }
+            
             String stats = String.format(
                 "=== PERFORMANCE COMPARISON ===\n\n" +
                 "Current Delegate: %s\n\n" +
                 "POSE LANDMARKER:\n%s\n\n" +
+                "FRAME INGESTION (active: %s):\n%s\n\n" +
+                "PIPELINE LATENCY:\n%s\n\n" +
+                "ANALYSIS RATE:\n%s\n\n" +
+                "ANALYSIS RESOLUTION:\n%s\n\n" +
+                "DELEGATE TUNING:\n%s\n\n" +
                 "POSTURE CLASSIFIERS:\n%s",
-                postureClassifier.getCurrentDelegate().getDisplayName(),
+                postureClassifier.getDelegateDescription(),
                 landmarkerStats,
+                unifiedCameraManager != null ? unifiedCameraManager.getIngestionMode().getDisplayName() : "N/A",
+                ingestionStats,
+                pipelineLatency.getStats(),
+                rateGovernor != null ? rateGovernor.getStats() : "N/A",
+                resolutionSelector != null ? resolutionSelector.getStats() : "N/A",
+                delegateAutoTuner != null ? delegateAutoTuner.getStats() : "N/A",
                 postureStats
             );
             
@@ -733,6 +1160,16 @@ public class MainActivity extends AppCompatActivity implements PoseLandmarkerHel
         
         // Set model info before uploading
         performanceTracker.setModelInfo("posture_models_combined", 21504); // 3.4KB + 5.0KB + 13.1KB
+        if (resolutionSelector != null) {
+            performanceTracker.setAnalysisResolution(
+                resolutionSelector.getSelectedResolution(),
+                resolutionSelector.getSelectedConversionUs(),
+                resolutionSelector.getSelectedPipelineUs(),
+                resolutionSelector.getProbeMetrics());
+        }
+        if (delegateAutoTuner != null) {
+            performanceTracker.setDelegateTuning(delegateAutoTuner.getMetricsMap());
+        }
         
         // Upload session data (runs async)
         performanceTracker.uploadSession();
@@ -783,6 +1220,31 @@ public class MainActivity extends AppCompatActivity implements PoseLandmarkerHel
             java.util.Map<String, Object> individualModels = postureClassifier.getIndividualModelMetrics();
             detailedStats.put("individualModels", individualModels);
             
+            // Frame ingestion mode comparison (allocation per frame + end-to-end latency)
+            detailedStats.put("ingestionModes", poseLandmarkerHelper.getIngestionMetrics());
+            if (unifiedCameraManager != null) {
+                detailedStats.put("ingestionMode", unifiedCameraManager.getIngestionMode().name());
+            }
+            
+            // USB MJPEG decode (pooled bitmaps)
+            if (unifiedCameraManager != null && unifiedCameraManager.getUvcDecodeMetrics() != null) {
+                detailedStats.put("uvcDecode", unifiedCameraManager.getUvcDecodeMetrics());
+            }
+            
+            // Capture -> pose -> classification -> UI latency histograms
+            detailedStats.put("pipelineLatency", pipelineLatency.getMetricsMap());
+            
+            // Adaptive analysis rate
+            if (rateGovernor != null) {
+                detailedStats.put("analysisRate", rateGovernor.getMetricsMap());
+            }
+            if (resolutionSelector != null) {
+                detailedStats.put("analysisResolution", resolutionSelector.getMetricsMap());
+            }
+            if (delegateAutoTuner != null) {
+                detailedStats.put("delegateTuning", delegateAutoTuner.getMetricsMap());
+            }
+            
             // Device info
             String deviceModel = android.os.Build.MODEL;
             String deviceManufacturer = android.os.Build.MANUFACTURER;
@@ -38,6 +38,15 @@ public class PerformanceMetrics {
     public String modelName;
     public long modelSizeBytes;
     
+    // Camera analysis resolution (internal camera)
+    public String analysisResolution;
+    public long analysisConversionTime; // microseconds per frame
+    public long analysisPipelineTime; // microseconds per frame
+    public Map<String, Object> resolutionProbes;
+    
+    // Per-component delegate timings and choices (DelegateAutoTuner)
+    public Map<String, Object> delegateTuning;
+    
     // Memory Usage (optional - can be added later)
     public long peakMemoryMb;
     
@@ -84,6 +93,17 @@ public class PerformanceMetrics {
         map.put("modelName", modelName);
         map.put("modelSizeBytes", modelSizeBytes);
         
+        // Analysis resolution
+        if (analysisResolution != null) {
+            map.put("analysisResolution", analysisResolution);
+            map.put("analysisConversionTime", analysisConversionTime);
+            map.put("analysisPipelineTime", analysisPipelineTime);
+            if (resolutionProbes != null) map.put("resolutionProbes", resolutionProbes);
+        }
+        
+        // Delegate tuning
+        if (delegateTuning != null) map.put("delegateTuning", delegateTuning);
+        
         // Optional metrics
         if (peakMemoryMb > 0) map.put("peakMemoryMb", peakMemoryMb);
         if (avgPowerMw > 0) map.put("avgPowerMw", avgPowerMw);
@@ -12,6 +12,7 @@ import com.google.firebase.database.FirebaseDatabase;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 /**
@@ -42,6 +43,15 @@ public class PerformanceTracker {
     private String currentModelName;
     private long currentModelSize;
     
+    // Analysis resolution chosen by ResolutionSelector
+    private String analysisResolution;
+    private long analysisConversionTime;
+    private long analysisPipelineTime;
+    private Map<String, Object> resolutionProbes;
+    
+    // Per-component delegate timings from DelegateAutoTuner
+    private Map<String, Object> delegateTuning;
+    
     public PerformanceTracker(Context context) {
         this.context = context;
         // Use regional database instance with correct reference
@@ -90,6 +100,24 @@ public class PerformanceTracker {
         this.currentModelSize = modelSizeBytes;
     }
     
+    /**
+     * Set the selected camera analysis resolution and its measured per-frame timings
+     */
+    public void setAnalysisResolution(String resolution, long conversionTimeMicros, long pipelineTimeMicros,
+                                      Map<String, Object> probes) {
+        this.analysisResolution = resolution;
+        this.analysisConversionTime = conversionTimeMicros;
+        this.analysisPipelineTime = pipelineTimeMicros;
+        this.resolutionProbes = probes;
+    }
+    
+    /**
+     * Set the delegate tuning table (DelegateAutoTuner.getMetricsMap())
+     */
+    public void setDelegateTuning(Map<String, Object> tuning) {
+        this.delegateTuning = tuning;
+    }
+    
     /**
      * Upload current session data to Firebase
      */
@@ -146,6 +174,15 @@ public class PerformanceTracker {
         metrics.modelName = currentModelName != null ? currentModelName : "posture_models";
         metrics.modelSizeBytes = currentModelSize;
         
+        // Analysis Resolution
+        metrics.analysisResolution = analysisResolution;
+        metrics.analysisConversionTime = analysisConversionTime;
+        metrics.analysisPipelineTime = analysisPipelineTime;
+        metrics.resolutionProbes = resolutionProbes;
+        
+        // Delegate tuning
+        metrics.delegateTuning = delegateTuning;
+        
         // Timestamp
         metrics.timestamp = System.currentTimeMillis();
         metrics.sessionId = sessionId;
@@ -203,6 +203,8 @@ public class ReportGenerator {
             addTableRow(detailTable, "Lean Left Count", String.valueOf(stats.leanLeftCount));
             addTableRow(detailTable, "Lean Right Count", String.valueOf(stats.leanRightCount));
             addTableRow(detailTable, "Upright Count", String.valueOf(stats.uprightCount));
+            addTableRow(detailTable, "Upper Body Not Visible", String.valueOf(stats.slouchNotVisibleCount));
+            addTableRow(detailTable, "Legs Not Visible", String.valueOf(stats.legsNotVisibleCount));
             addTableRow(detailTable, "Avg PDJ Score", String.format("%.2f", stats.avgPdj));
             addTableRow(detailTable, "Avg OKS Score", String.format("%.2f", stats.avgOks));
             addTableRow(detailTable, "Avg Inference Time", String.format("%.0f ms", stats.avgInferenceTime));
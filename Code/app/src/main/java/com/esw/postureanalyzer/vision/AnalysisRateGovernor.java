@@ -0,0 +1,235 @@
+package com.esw.postureanalyzer.vision;
+
+import android.util.Log;
+import com.google.mediapipe.tasks.components.containers.NormalizedLandmark;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Adapts the pose analysis rate to what is happening in front of the camera
+ * - Drops to minFps while the user is AWAY
+ * - Steps down towards a floor while landmarks stay still
+ * - Jumps back to maxFps on motion or a posture/presence change
+ *
+ * While a person is present the frame interval never exceeds maxAlertDelayMs,
+ * which bounds how much later a slouch is seen compared to full rate.
+ */
+public class AnalysisRateGovernor {
+    private static final String TAG = "AnalysisRateGovernor";
+
+    public static final float DEFAULT_MIN_FPS = 1f;
+    public static final float DEFAULT_MAX_FPS = 30f;
+    public static final long DEFAULT_MAX_ALERT_DELAY_MS = 500;
+
+    private static final float MOTION_THRESHOLD = 0.02f;   // Mean normalized landmark displacement
+    private static final float MIN_VISIBILITY = 0.5f;
+    private static final long STABLE_HOLD_MS = 5000;       // Stillness required before slowing down
+    private static final long STEP_DOWN_INTERVAL_MS = 2000; // Halve the rate at most this often
+
+    private final float minFps;
+    private final float maxFps;
+    private final long maxAlertDelayMs;
+
+    private float currentFps;
+    private boolean away = false;
+    private String lastPostureState;
+
+    // Previous analyzed landmarks (x, y per landmark), reused between frames
+    private float[] lastLandmarks = new float[0];
+    private int lastLandmarkCount = 0;
+    private long stableSinceMs;
+    private long lastStepMs;
+
+    private long lastAdmittedNanos = 0;
+    private long framesAnalyzed = 0;
+    private long framesSkipped = 0;
+    private long rampUps = 0;
+
+    public AnalysisRateGovernor() {
+        this(DEFAULT_MIN_FPS, DEFAULT_MAX_FPS, DEFAULT_MAX_ALERT_DELAY_MS);
+    }
+
+    public AnalysisRateGovernor(float minFps, float maxFps, long maxAlertDelayMs) {
+        if (minFps <= 0 || maxFps < minFps) {
+            throw new IllegalArgumentException("Invalid FPS range: " + minFps + ".." + maxFps);
+        }
+        this.minFps = minFps;
+        this.maxFps = maxFps;
+        this.maxAlertDelayMs = maxAlertDelayMs;
+        this.currentFps = maxFps;
+        this.stableSinceMs = System.currentTimeMillis();
+        this.lastStepMs = stableSinceMs;
+    }
+
+    /**
+     * Called by the camera for every arriving frame.
+     * Returns false if the frame should be skipped to hold the current rate.
+     */
+    public synchronized boolean shouldAnalyze(long arrivalNanos) {
+        long intervalNanos = minFrameIntervalNanos(currentFps);
+        if (currentFps < maxFps && lastAdmittedNanos != 0 && arrivalNanos - lastAdmittedNanos < intervalNanos) {
+            framesSkipped++;
+            return false;
+        }
+        lastAdmittedNanos = arrivalNanos;
+        framesAnalyzed++;
+        return true;
+    }
+
+    /**
+     * Shortest gap between two frames kept at fps: 10% under 1/fps, so camera jitter does not
+     * skip a frame that is only just early. Also used by UsbPreviewRenderer and, in native
+     * code, by CaptureLoop::shouldDeliver().
+     */
+    static long minFrameIntervalNanos(float fps) {
+        return (long) (900_000_000L / fps);
+    }
+
+    /**
+     * Count a frame from a camera that schedules capture at getTargetIntervalMs()
+     * instead of filtering arrivals through shouldAnalyze()
+     */
+    public synchronized void recordScheduledFrame() {
+        framesAnalyzed++;
+    }
+
+    /**
+     * Current target interval between analyzed frames, for cameras that schedule capture
+     */
+    public synchronized long getTargetIntervalMs() {
+        return (long) (1000f / currentFps);
+    }
+
+    public synchronized float getCurrentFps() {
+        return currentFps;
+    }
+
+    /**
+     * Presence state from PresenceDetector
+     */
+    public synchronized void setAway(boolean away) {
+        if (this.away == away) {
+            return;
+        }
+        this.away = away;
+        if (away) {
+            setRate(minFps, "user away");
+        } else {
+            rampUp("user returned");
+        }
+    }
+
+    /**
+     * Feed the landmarks of each analyzed frame to measure motion
+     */
+    public synchronized void onLandmarks(List<NormalizedLandmark> landmarks) {
+        long now = System.currentTimeMillis();
+        int count = landmarks.size();
+        if (lastLandmarks.length < count * 2) {
+            lastLandmarks = new float[count * 2];
+        }
+
+        float displacement = 0f;
+        int compared = 0;
+        for (int i = 0; i < count; i++) {
+            NormalizedLandmark landmark = landmarks.get(i);
+            if (i < lastLandmarkCount && landmark.visibility().orElse(0f) >= MIN_VISIBILITY) {
+                displacement += Math.abs(landmark.x() - lastLandmarks[i * 2])
+                        + Math.abs(landmark.y() - lastLandmarks[i * 2 + 1]);
+                compared++;
+            }
+            lastLandmarks[i * 2] = landmark.x();
+            lastLandmarks[i * 2 + 1] = landmark.y();
+        }
+        lastLandmarkCount = count;
+
+        if (compared > 0 && displacement / compared > MOTION_THRESHOLD) {
+            rampUp("motion");
+            return;
+        }
+        if (!away && now - stableSinceMs >= STABLE_HOLD_MS && now - lastStepMs >= STEP_DOWN_INTERVAL_MS) {
+            float stableFloor = Math.max(minFps, 1000f / maxAlertDelayMs);
+            if (currentFps > stableFloor) {
+                lastStepMs = now;
+                setRate(Math.max(stableFloor, currentFps / 2f), "landmarks stable");
+            }
+        }
+    }
+
+    /**
+     * Feed the classified posture; any change restores full rate
+     */
+    public synchronized void onPostureState(String postureState) {
+        if (postureState == null) {
+            return;
+        }
+        if (lastPostureState != null && !lastPostureState.equals(postureState)) {
+            rampUp("posture changed to " + postureState);
+        }
+        lastPostureState = postureState;
+    }
+
+    private void rampUp(String reason) {
+        long now = System.currentTimeMillis();
+        stableSinceMs = now;
+        lastStepMs = now;
+        if (!away && currentFps < maxFps) {
+            rampUps++;
+            setRate(maxFps, reason);
+        }
+    }
+
+    private void setRate(float fps, String reason) {
+        if (fps != currentFps) {
+            Log.d(TAG, String.format(Locale.US, "Analysis rate %.1f -> %.1f FPS (%s)", currentFps, fps, reason));
+            currentFps = fps;
+        }
+    }
+
+    /**
+     * Reset to full rate and present (e.g. on app resume, with PresenceDetector.reset())
+     */
+    public synchronized void reset() {
+        away = false;
+        currentFps = maxFps;
+        lastAdmittedNanos = 0;
+        lastLandmarkCount = 0;
+        lastPostureState = null;
+        stableSinceMs = System.currentTimeMillis();
+        lastStepMs = stableSinceMs;
+        framesAnalyzed = 0;
+        framesSkipped = 0;
+        rampUps = 0;
+    }
+
+    /**
+     * Get statistics string for display
+     */
+    public synchronized String getStats() {
+        long total = framesAnalyzed + framesSkipped;
+        float skippedPct = total > 0 ? framesSkipped * 100f / total : 0f;
+        return String.format(Locale.US,
+            "Rate: %.1f FPS (range %.1f-%.1f, %s)\n  Analyzed: %d  Skipped: %d (%.0f%%)\n  Ramp-ups: %d",
+            currentFps, minFps, maxFps, away ? "away" : "present",
+            framesAnalyzed, framesSkipped, skippedPct, rampUps
+        );
+    }
+
+    /**
+     * Get metrics as a map for Firebase upload
+     */
+    public synchronized Map<String, Object> getMetricsMap() {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("currentFps", currentFps);
+        metrics.put("minFps", minFps);
+        metrics.put("maxFps", maxFps);
+        metrics.put("maxAlertDelayMs", maxAlertDelayMs);
+        metrics.put("away", away);
+        metrics.put("framesAnalyzed", framesAnalyzed);
+        metrics.put("framesSkipped", framesSkipped);
+        metrics.put("rampUps", rampUps);
+        return metrics;
+    }
+}
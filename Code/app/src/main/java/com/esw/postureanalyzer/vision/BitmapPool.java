@@ -0,0 +1,167 @@
+package com.esw.postureanalyzer.vision;
+
+import android.graphics.Bitmap;
+import android.util.Log;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Small fixed-size pool of reference-counted ARGB_8888 bitmaps
+ * Used for per-frame scratch bitmaps that are handed to MediaPipe and
+ * returned once the result callback fires, instead of allocating a new
+ * full-frame bitmap every frame and leaving it to the GC.
+ */
+public class BitmapPool {
+    private static final String TAG = "BitmapPool";
+
+    private final String name;
+    private final PooledBitmap[] entries;
+
+    // Counters
+    private long hits = 0;
+    private long misses = 0;
+    private int outstanding = 0;
+
+    /**
+     * A pooled bitmap. Starts with one reference when acquired and goes back
+     * to the pool when the last reference is released.
+     */
+    public final class PooledBitmap {
+        private Bitmap bitmap;
+        private int refCount = 0;
+        private final boolean pooled;
+
+        private PooledBitmap(Bitmap bitmap, boolean pooled) {
+            this.bitmap = bitmap;
+            this.pooled = pooled;
+        }
+
+        public Bitmap getBitmap() {
+            return bitmap;
+        }
+
+        public void retain() {
+            synchronized (BitmapPool.this) {
+                refCount++;
+            }
+        }
+
+        public void release() {
+            synchronized (BitmapPool.this) {
+                if (refCount <= 0) {
+                    Log.w(TAG, name + ": release() on a bitmap that is not in use");
+                    return;
+                }
+                refCount--;
+                if (refCount == 0) {
+                    outstanding--;
+                    if (!pooled && bitmap != null) {
+                        // Overflow bitmap, not kept by the pool
+                        bitmap.recycle();
+                        bitmap = null;
+                    }
+                }
+            }
+        }
+    }
+
+    public BitmapPool(String name, int capacity) {
+        this.name = name;
+        this.entries = new PooledBitmap[capacity];
+    }
+
+    /**
+     * Acquire a bitmap of the given size. Reuses a free pooled bitmap when
+     * one matches, otherwise (re)allocates. The caller owns one reference.
+     */
+    public synchronized PooledBitmap acquire(int width, int height) {
+        int emptySlot = -1;
+        int staleSlot = -1;
+
+        for (int i = 0; i < entries.length; i++) {
+            PooledBitmap entry = entries[i];
+            if (entry == null) {
+                if (emptySlot < 0) emptySlot = i;
+                continue;
+            }
+            if (entry.refCount > 0) {
+                continue;
+            }
+            if (entry.bitmap.getWidth() == width && entry.bitmap.getHeight() == height) {
+                hits++;
+                return checkout(entry);
+            }
+            if (staleSlot < 0) staleSlot = i;
+        }
+
+        misses++;
+        Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+
+        if (emptySlot >= 0 || staleSlot >= 0) {
+            int slot = emptySlot >= 0 ? emptySlot : staleSlot;
+            if (entries[slot] != null) {
+                // Frame size changed, drop the free bitmap of the old size
+                entries[slot].bitmap.recycle();
+            }
+            entries[slot] = new PooledBitmap(bitmap, true);
+            return checkout(entries[slot]);
+        }
+
+        // Every pooled bitmap is still held downstream
+        return checkout(new PooledBitmap(bitmap, false));
+    }
+
+    private PooledBitmap checkout(PooledBitmap entry) {
+        entry.refCount = 1;
+        outstanding++;
+        return entry;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Number of bitmaps currently acquired and not yet released
+     */
+    public synchronized int getOutstanding() {
+        return outstanding;
+    }
+
+    /**
+     * Recycle free pooled bitmaps. Bitmaps still held are left to their owners.
+     */
+    public synchronized void clear() {
+        for (int i = 0; i < entries.length; i++) {
+            PooledBitmap entry = entries[i];
+            if (entry != null && entry.refCount == 0) {
+                entry.bitmap.recycle();
+                entries[i] = null;
+            }
+        }
+    }
+
+    public synchronized String getStats() {
+        long total = hits + misses;
+        return String.format(Locale.US,
+            "%s pool: hits=%d misses=%d (%.0f%% hit) outstanding=%d",
+            name, hits, misses, total > 0 ? hits * 100.0 / total : 0.0, outstanding);
+    }
+
+    /**
+     * Get pool counters as a map for Firebase upload
+     */
+    public synchronized Map<String, Object> getMetricsMap() {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("capacity", entries.length);
+        metrics.put("hits", hits);
+        metrics.put("misses", misses);
+        metrics.put("outstanding", outstanding);
+        return metrics;
+    }
+}
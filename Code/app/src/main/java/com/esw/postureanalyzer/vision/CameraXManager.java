@@ -2,30 +2,59 @@ package com.esw.postureanalyzer.vision;
 
 import android.graphics.Bitmap;
 import android.graphics.Matrix;
+import android.os.Build;
+import android.os.Debug;
+import android.os.SystemClock;
+import android.util.Log;
 import android.util.Size;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.camera.core.AspectRatio;
 import androidx.camera.core.CameraSelector;
 import androidx.camera.core.ImageAnalysis;
+import androidx.camera.core.ImageProxy;
 import androidx.camera.core.Preview;
 import androidx.camera.lifecycle.ProcessCameraProvider;
 import androidx.camera.view.PreviewView;
 import androidx.core.content.ContextCompat;
 import com.google.common.util.concurrent.ListenableFuture;
+import java.nio.ByteBuffer;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
 public class CameraXManager {
+    private static final String TAG = "CameraXManager";
+    private static final Size DEFAULT_RESOLUTION = new Size(1280, 720);
+    // Sensor timestamps older than this at arrival are taken to be on another clock
+    private static final long MAX_CAPTURE_AGE_NANOS = 1_000_000_000L;
+
     private final AppCompatActivity activity;
     private final PreviewView previewView;
     private final FrameListener listener;
     private final ExecutorService cameraExecutor;
     private ProcessCameraProvider cameraProvider; // Store for explicit unbinding
 
-    public interface FrameListener {
-        void onFrame(Bitmap bitmap, int rotationDegrees);
+    private volatile IngestionMode ingestionMode = IngestionMode.BITMAP;
+    private volatile AnalysisRateGovernor rateGovernor;
+    private volatile ResolutionSelector resolutionSelector;
+    private volatile AllocationListener allocationListener;
+    // Allocation counting is process-wide; counted so that one manager clearing its listener
+    // does not stop it for another
+    private static int allocCountingUsers = 0;
+
+    /**
+     * Bytes allocated for one frame: Java-heap bytes the analyzer thread allocated from
+     * conversion until the frame listener (and with it detectAsync) returned, plus the
+     * converted bitmap's pixels, which live on the native heap from API 26
+     */
+    public interface AllocationListener {
+        void onFrameAllocation(IngestionMode mode, long bytes);
     }
 
+    // Reused when the RGBA plane has row padding and must be packed before MediaPipe.
+    // Safe while a frame is retained: KEEP_ONLY_LATEST delivers no new image until
+    // the frame's image is closed.
+    private ByteBuffer packedRgbaBuffer;
+
     public CameraXManager(AppCompatActivity activity, PreviewView previewView, FrameListener listener) {
         this.activity = activity;
         this.previewView = previewView;
@@ -33,6 +62,69 @@ public class CameraXManager {
         this.cameraExecutor = Executors.newSingleThreadExecutor();
     }
 
+    /**
+     * Skip frames before conversion when the governor lowers the analysis rate
+     */
+    public void setRateGovernor(AnalysisRateGovernor rateGovernor) {
+        this.rateGovernor = rateGovernor;
+    }
+
+    /**
+     * Measure per-frame allocation with ART's per-thread allocation counters. Counting is
+     * switched on for the whole process and slows every allocation, so it only runs while a
+     * listener is set; pass null to stop it.
+     */
+    @SuppressWarnings("deprecation") // Still maintained by ART; there is no per-thread replacement
+    public void setAllocationListener(AllocationListener listener) {
+        synchronized (CameraXManager.class) {
+            if (listener != null && allocationListener == null) {
+                if (allocCountingUsers++ == 0) {
+                    Debug.startAllocCounting();
+                }
+            } else if (listener == null && allocationListener != null) {
+                if (--allocCountingUsers == 0) {
+                    Debug.stopAllocCounting();
+                }
+            }
+            this.allocationListener = listener;
+        }
+    }
+
+    /**
+     * Let the selector choose the analysis resolution. The camera is rebound
+     * whenever the selector moves to another resolution.
+     */
+    public void setResolutionSelector(ResolutionSelector selector) {
+        this.resolutionSelector = selector;
+        if (selector != null) {
+            selector.setListener(resolution -> activity.runOnUiThread(() -> {
+                if (cameraProvider != null) {
+                    Log.d(TAG, "Rebinding analysis at " + resolution);
+                    startCamera();
+                }
+            }));
+        }
+    }
+
+    /**
+     * Select how frames are delivered. Restarts the camera if it is running,
+     * since the analysis output format is fixed when the use case is bound.
+     */
+    public void setIngestionMode(IngestionMode mode) {
+        if (ingestionMode == mode) {
+            return;
+        }
+        ingestionMode = mode;
+        Log.d(TAG, "Ingestion mode set to " + mode.getDisplayName());
+        if (cameraProvider != null) {
+            startCamera();
+        }
+    }
+
+    public IngestionMode getIngestionMode() {
+        return ingestionMode;
+    }
+
     public void startCamera() {
         ListenableFuture<ProcessCameraProvider> cameraProviderFuture = ProcessCameraProvider.getInstance(activity);
         cameraProviderFuture.addListener(() -> {
@@ -44,28 +136,149 @@ public class CameraXManager {
                         .requireLensFacing(CameraSelector.LENS_FACING_BACK)
                         .build();
 
-                ImageAnalysis imageAnalysis = new ImageAnalysis.Builder()
-                        .setTargetResolution(new Size(1280, 720))  // 720p for better quality
-                        .setBackpressureStrategy(ImageAnalysis.STRATEGY_KEEP_ONLY_LATEST)
-                        .build();
+                final boolean useBuffers = ingestionMode == IngestionMode.RGBA_BUFFER;
+
+                final ResolutionSelector selector = resolutionSelector;
+                Size targetResolution = selector != null ? selector.getTargetResolution() : DEFAULT_RESOLUTION;
+                
+                ImageAnalysis.Builder analysisBuilder = new ImageAnalysis.Builder()
+                        .setTargetResolution(targetResolution)
+                        .setBackpressureStrategy(ImageAnalysis.STRATEGY_KEEP_ONLY_LATEST);
+                if (useBuffers) {
+                    // CameraX converts YUV -> RGBA natively into its own reused buffers
+                    analysisBuilder.setOutputImageFormat(ImageAnalysis.OUTPUT_IMAGE_FORMAT_RGBA_8888);
+                }
+                ImageAnalysis imageAnalysis = analysisBuilder.build();
 
                 imageAnalysis.setAnalyzer(cameraExecutor, image -> {
-                    Bitmap bitmap = image.toBitmap();
+                    long arrivalNanos = System.nanoTime();
+                    AnalysisRateGovernor governor = rateGovernor;
+                    if (governor != null && !governor.shouldAnalyze(arrivalNanos)) {
+                        image.close();
+                        return;
+                    }
+                    AllocationListener allocations = allocationListener;
+                    long allocatedStart = allocations != null ? getThreadAllocatedBytes() : 0;
                     int rotation = image.getImageInfo().getRotationDegrees();
-                    if (bitmap != null) {
-                        listener.onFrame(bitmap, rotation);
+                    long captureNanos = toNanoTimeClock(image.getImageInfo().getTimestamp(), arrivalNanos);
+                    Frame frame = null;
+                    long nativeBytes = 0;
+                    try {
+                        if (useBuffers) {
+                            ByteBuffer rgba = getPackedRgba(image);
+                            recordConversion(selector, image, arrivalNanos);
+                            // The image stays open until the last reference to the frame is released
+                            frame = Frame.ofBuffer(Frame.Format.RGBA_8888, rgba, image.getWidth(), image.getHeight(),
+                                    image.getWidth() * 4, rotation, captureNanos, arrivalNanos, f -> image.close());
+                        } else {
+                            Bitmap bitmap = image.toBitmap();
+                            recordConversion(selector, image, arrivalNanos);
+                            if (bitmap != null) {
+                                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+                                    nativeBytes = bitmap.getAllocationByteCount(); // Not in the heap counter
+                                }
+                                frame = Frame.ofBitmap(bitmap, rotation, captureNanos, arrivalNanos, null);
+                            }
+                        }
+                    } finally {
+                        // Bitmap frames own a copy of the pixels
+                        if (frame == null || frame.getFormat() == Frame.Format.BITMAP) {
+                            image.close();
+                        }
+                    }
+                    if (frame != null) {
+                        try {
+                            listener.onFrame(frame);
+                            if (allocations != null) {
+                                allocations.onFrameAllocation(useBuffers ? IngestionMode.RGBA_BUFFER : IngestionMode.BITMAP,
+                                        getThreadAllocatedBytes() - allocatedStart + nativeBytes);
+                            }
+                        } finally {
+                            frame.release();
+                        }
                     }
-                    image.close();
                 });
 
                 cameraProvider.unbindAll();
                 cameraProvider.bindToLifecycle(activity, cameraSelector, preview, imageAnalysis);
+                Log.d(TAG, "Camera bound with " + (useBuffers ? IngestionMode.RGBA_BUFFER : IngestionMode.BITMAP).getDisplayName()
+                        + " ingestion, target " + targetResolution);
             } catch (Exception e) {
                 e.printStackTrace();
             }
         }, ContextCompat.getMainExecutor(activity));
     }
-    
+
+    @SuppressWarnings("deprecation")
+    private static long getThreadAllocatedBytes() {
+        return Debug.getThreadAllocSize();
+    }
+
+    /**
+     * Map a sensor timestamp onto the System.nanoTime() clock. Camera HALs report
+     * either CLOCK_MONOTONIC (System.nanoTime) or CLOCK_BOOTTIME (elapsedRealtime);
+     * a timestamp that is not shortly before arrival on either falls back to arrival.
+     */
+    static long toNanoTimeClock(long sensorNanos, long arrivalNanos) {
+        if (sensorNanos <= 0) {
+            return arrivalNanos;
+        }
+        if (isPlausibleCapture(sensorNanos, arrivalNanos)) {
+            return sensorNanos;
+        }
+        long bootTimeOffset = SystemClock.elapsedRealtimeNanos() - System.nanoTime();
+        long monotonicNanos = sensorNanos - bootTimeOffset;
+        if (isPlausibleCapture(monotonicNanos, arrivalNanos)) {
+            return monotonicNanos;
+        }
+        return arrivalNanos;
+    }
+
+    private static boolean isPlausibleCapture(long captureNanos, long arrivalNanos) {
+        long age = arrivalNanos - captureNanos;
+        return age >= 0 && age < MAX_CAPTURE_AGE_NANOS;
+    }
+
+    private static void recordConversion(ResolutionSelector selector, ImageProxy image, long arrivalNanos) {
+        if (selector != null) {
+            long micros = (System.nanoTime() - arrivalNanos) / 1_000;
+            selector.recordConversion(image.getWidth(), image.getHeight(), micros);
+        }
+    }
+
+    /**
+     * Return the RGBA plane as a tightly packed buffer.
+     * Uses the camera buffer directly when it has no row padding.
+     */
+    private ByteBuffer getPackedRgba(ImageProxy image) {
+        ImageProxy.PlaneProxy plane = image.getPlanes()[0];
+        ByteBuffer source = plane.getBuffer();
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int rowBytes = width * 4;
+        int rowStride = plane.getRowStride();
+
+        source.rewind();
+        if (rowStride == rowBytes) {
+            return source;
+        }
+
+        int packedSize = rowBytes * height;
+        if (packedRgbaBuffer == null || packedRgbaBuffer.capacity() != packedSize) {
+            packedRgbaBuffer = ByteBuffer.allocateDirect(packedSize);
+            Log.d(TAG, "Allocated packed RGBA buffer (row stride " + rowStride + " != " + rowBytes + ")");
+        }
+        packedRgbaBuffer.clear();
+        for (int row = 0; row < height; row++) {
+            source.limit(row * rowStride + rowBytes);
+            source.position(row * rowStride);
+            packedRgbaBuffer.put(source);
+        }
+        source.clear();
+        packedRgbaBuffer.flip();
+        return packedRgbaBuffer;
+    }
+
     /**
      * Stop the CameraX camera explicitly
      */
@@ -75,4 +288,4 @@ public class CameraXManager {
             cameraProvider = null;
         }
     }
-}
\ No newline at end of file
+}
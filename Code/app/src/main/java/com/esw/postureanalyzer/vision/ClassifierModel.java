@@ -0,0 +1,15 @@
+package com.esw.postureanalyzer.vision;
+
+import java.nio.ByteBuffer;
+
+/**
+ * One loaded posture model, run on preallocated tensors
+ * - input holds the model's float32 features in native order, position 0
+ * - output receives the model's float32 scores, read back with absolute gets
+ * Callers pass the same buffers on every call, so implementations may keep them.
+ */
+interface ClassifierModel {
+    void run(ByteBuffer input, ByteBuffer output);
+
+    void close();
+}
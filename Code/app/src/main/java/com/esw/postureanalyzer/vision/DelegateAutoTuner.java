@@ -0,0 +1,527 @@
+package com.esw.postureanalyzer.vision;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.os.Build;
+import android.util.Log;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Picks the fastest delegate for each posture model and for the pose landmarker
+ * - Benchmarks every posture model (and the fused model, if bundled) on each delegate
+ *   on a background thread
+ * - Probes the pose landmarker on CPU and GPU with live frames
+ * - Persists the table per device, and tunes again after an OS or app update
+ */
+public class DelegateAutoTuner {
+    private static final String TAG = "DelegateAutoTuner";
+    private static final String PREFS_NAME = "delegate_tuning";
+
+    private static final int LANDMARKER_WARMUP_FRAMES = 10; // Discarded after each delegate switch
+    private static final int LANDMARKER_PROBE_FRAMES = 30;  // Measured per delegate
+
+    /** Timing of a delegate that could not run the component */
+    public static final long UNAVAILABLE = -1;
+
+    // Tuned components
+    public static final String SLOUCH = "slouch";
+    public static final String CROSS_LEGGED = "crossLegged";
+    public static final String LEAN = "lean";
+    public static final String FUSED = "fused";
+    public static final String POSE_LANDMARKER = "poseLandmarker";
+
+    private static final String[] MODEL_COMPONENTS = {SLOUCH, CROSS_LEGGED, LEAN, FUSED};
+    private static final String[] MODEL_ASSETS = {
+        PostureClassifier.SLOUCH_MODEL_ASSET,
+        PostureClassifier.CROSS_LEGGED_MODEL_ASSET,
+        PostureClassifier.LEAN_MODEL_ASSET,
+        PostureClassifier.FUSED_MODEL_ASSET
+    };
+    private static final DelegateType[] MODEL_DELEGATES = {
+        DelegateType.CPU, DelegateType.GPU, DelegateType.NNAPI, DelegateType.JAVA
+    };
+    private static final int[] LANDMARKER_DELEGATES = {
+        PoseLandmarkerHelper.DELEGATE_CPU, PoseLandmarkerHelper.DELEGATE_GPU
+    };
+
+    public interface TuningListener {
+        /**
+         * The pose landmarker should switch to this delegate (a probe step or the final choice).
+         * May be called on the frame result thread, so switch asynchronously.
+         */
+        void onLandmarkerDelegate(int delegate);
+
+        /**
+         * Every component has its delegate; fromStore is true when no benchmark was needed
+         */
+        void onTuningComplete(boolean fromStore);
+    }
+
+    /**
+     * Median microseconds per run of a posture model on a delegate; ModelBenchmark in the app
+     */
+    interface ModelTimer {
+        long medianMicros(String modelName, DelegateType delegateType) throws IOException;
+    }
+
+    private enum State { IDLE, BENCHMARKING, PROBING_LANDMARKER, DONE }
+
+    private final ModelTimer modelTimer;
+    private final PostureClassifier classifier;
+    private final SharedPreferences prefs;
+    private final String deviceKey;
+    private final String buildKey;
+    private TuningListener listener;
+
+    private State state = State.IDLE;
+    private boolean active = false; // Results are applied only while auto mode is selected
+    private long tunedAtMs;
+    private boolean fromStore;
+
+    // component -> delegate name -> median microseconds (UNAVAILABLE if it failed)
+    private final Map<String, Map<String, Long>> timings = new HashMap<>();
+    // component -> selected delegate name
+    private final Map<String, String> selected = new HashMap<>();
+
+    // Current landmarker probe step
+    private int probeIndex;
+    private int warmupRemaining;
+    private int probeSamples;
+    private long probeSumUs;
+    private int mismatchedFrames;
+
+    public DelegateAutoTuner(Context context, PostureClassifier classifier) {
+        this(classifier, context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE),
+                (Build.MANUFACTURER + "_" + Build.MODEL).replaceAll("[^a-zA-Z0-9]", "_"),
+                Build.FINGERPRINT + "|" + getAppVersion(context),
+                benchmarkTimer(context.getApplicationContext()));
+    }
+
+    /**
+     * For tests: the table is stored in prefs under deviceKey, made on buildKey, and the
+     * posture models are timed with modelTimer
+     */
+    DelegateAutoTuner(PostureClassifier classifier, SharedPreferences prefs, String deviceKey,
+                      String buildKey, ModelTimer modelTimer) {
+        this.classifier = classifier;
+        this.prefs = prefs;
+        this.deviceKey = deviceKey;
+        this.buildKey = buildKey;
+        this.modelTimer = modelTimer;
+    }
+
+    private static ModelTimer benchmarkTimer(Context context) {
+        return (modelName, delegateType) -> ModelBenchmark.medianMicros(context, modelName, delegateType,
+                PostureClassifier.DEFAULT_NUM_THREADS);
+    }
+
+    public synchronized void setListener(TuningListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Switch to the tuned delegates: the stored table if it was made on this OS build and app
+     * version, otherwise benchmark first
+     */
+    public void start() {
+        TuningListener callback;
+        synchronized (this) {
+            active = true;
+            if (state == State.BENCHMARKING || state == State.PROBING_LANDMARKER) {
+                return; // Applied when the running tuning finishes
+            }
+            if (state == State.IDLE && !loadTable()) {
+                startBenchmark();
+                return;
+            }
+            callback = listener;
+        }
+        applyModelDelegates();
+        if (callback != null) {
+            callback.onLandmarkerDelegate(getSelectedLandmarkerDelegate());
+            callback.onTuningComplete(fromStore);
+        }
+    }
+
+    /**
+     * Another delegate was selected by hand: keep the table but do not apply it. A landmarker
+     * probe in progress is abandoned, since the landmarker delegate is no longer ours to switch.
+     */
+    public synchronized void stop() {
+        active = false;
+        if (state == State.PROBING_LANDMARKER) {
+            Log.d(TAG, "Landmarker probe abandoned");
+            state = State.IDLE;
+        }
+    }
+
+    /**
+     * Discard the stored table for this device and tune again
+     */
+    public void retune() {
+        synchronized (this) {
+            if (state == State.BENCHMARKING || state == State.PROBING_LANDMARKER) {
+                return;
+            }
+            SharedPreferences.Editor editor = prefs.edit();
+            for (String key : prefs.getAll().keySet()) {
+                if (key.startsWith(deviceKey + "_")) {
+                    editor.remove(key);
+                }
+            }
+            editor.apply();
+            state = State.IDLE;
+        }
+        start();
+    }
+
+    private void startBenchmark() {
+        state = State.BENCHMARKING;
+        timings.clear();
+        selected.clear();
+        fromStore = false;
+        Log.i(TAG, "Tuning delegates for " + deviceKey);
+        Thread thread = new Thread(this::benchmarkModels, "DelegateTuner");
+        thread.start();
+    }
+
+    /**
+     * Tuner thread: time every posture model on every delegate, apply the fastest, then hand
+     * over to the live landmarker probe
+     */
+    private void benchmarkModels() {
+        for (int i = 0; i < MODEL_COMPONENTS.length; i++) {
+            Map<String, Long> componentTimings = new HashMap<>();
+            for (DelegateType delegate : MODEL_DELEGATES) {
+                if (MODEL_COMPONENTS[i].equals(FUSED) && delegate == DelegateType.JAVA) {
+                    continue; // The Java engine never runs the fused model
+                }
+                long micros = benchmarkModel(MODEL_ASSETS[i], delegate);
+                componentTimings.put(delegate.name(), micros);
+                Log.d(TAG, String.format(Locale.US, "  %s on %s: %s", MODEL_COMPONENTS[i],
+                        delegate.getDisplayName(), micros == UNAVAILABLE ? "unavailable" : micros + "μs"));
+            }
+            synchronized (this) {
+                timings.put(MODEL_COMPONENTS[i], componentTimings);
+                selected.put(MODEL_COMPONENTS[i], fastest(componentTimings, DelegateType.CPU.name()));
+            }
+        }
+
+        boolean apply;
+        TuningListener callback;
+        synchronized (this) {
+            apply = active;
+            state = State.PROBING_LANDMARKER;
+            probeIndex = 0;
+            resetProbeStep();
+            callback = listener;
+        }
+        if (apply) {
+            applyModelDelegates();
+        }
+        Log.d(TAG, "Probing the pose landmarker on " + landmarkerName(LANDMARKER_DELEGATES[0]));
+        if (callback != null) {
+            callback.onLandmarkerDelegate(LANDMARKER_DELEGATES[0]);
+        }
+    }
+
+    /**
+     * Median microseconds per run of one model on one delegate, or UNAVAILABLE
+     */
+    private long benchmarkModel(String modelName, DelegateType delegateType) {
+        try {
+            return modelTimer.medianMicros(modelName, delegateType);
+        } catch (IOException e) {
+            Log.d(TAG, "  " + modelName + " not bundled");
+            return UNAVAILABLE;
+        } catch (Exception e) {
+            Log.w(TAG, "  " + modelName + " failed on " + delegateType.getDisplayName() + ": " + e.getMessage());
+            return UNAVAILABLE;
+        }
+    }
+
+    /**
+     * Pose pipeline time for one frame (result thread); delegate is the one the landmarker
+     * actually ran with, which differs from the probed one until the switch has happened,
+     * or for good if the landmarker fell back to CPU
+     */
+    public void recordLandmarkerFrame(int delegate, long micros) {
+        int nextDelegate;
+        boolean finished = false;
+        TuningListener callback;
+        synchronized (this) {
+            if (state != State.PROBING_LANDMARKER) {
+                return;
+            }
+            int probed = LANDMARKER_DELEGATES[probeIndex];
+            if (delegate != probed) {
+                if (++mismatchedFrames < LANDMARKER_WARMUP_FRAMES + LANDMARKER_PROBE_FRAMES) {
+                    return;
+                }
+                Log.w(TAG, "Pose landmarker did not switch to " + landmarkerName(probed));
+                recordLandmarkerTiming(probed, UNAVAILABLE);
+            } else {
+                if (warmupRemaining > 0) {
+                    warmupRemaining--;
+                    return;
+                }
+                probeSamples++;
+                probeSumUs += micros;
+                if (probeSamples < LANDMARKER_PROBE_FRAMES) {
+                    return;
+                }
+                recordLandmarkerTiming(probed, probeSumUs / probeSamples);
+            }
+
+            probeIndex++;
+            if (probeIndex < LANDMARKER_DELEGATES.length) {
+                resetProbeStep();
+                nextDelegate = LANDMARKER_DELEGATES[probeIndex];
+                Log.d(TAG, "Probing the pose landmarker on " + landmarkerName(nextDelegate));
+            } else {
+                selected.put(POSE_LANDMARKER,
+                        fastest(timings.get(POSE_LANDMARKER), landmarkerName(PoseLandmarkerHelper.DELEGATE_CPU)));
+                state = State.DONE;
+                tunedAtMs = System.currentTimeMillis();
+                saveTable();
+                Log.i(TAG, "Delegate tuning finished: " + selected);
+                nextDelegate = getSelectedLandmarkerDelegate();
+                finished = active;
+            }
+            callback = active ? listener : null;
+        }
+        if (callback != null) {
+            callback.onLandmarkerDelegate(nextDelegate);
+            if (finished) {
+                callback.onTuningComplete(false);
+            }
+        }
+    }
+
+    private void recordLandmarkerTiming(int delegate, long micros) {
+        Map<String, Long> landmarkerTimings = timings.get(POSE_LANDMARKER);
+        if (landmarkerTimings == null) {
+            landmarkerTimings = new HashMap<>();
+            timings.put(POSE_LANDMARKER, landmarkerTimings);
+        }
+        landmarkerTimings.put(landmarkerName(delegate), micros);
+        Log.d(TAG, String.format(Locale.US, "  %s on %s: %s", POSE_LANDMARKER, landmarkerName(delegate),
+                micros == UNAVAILABLE ? "unavailable" : micros + "μs"));
+    }
+
+    private void resetProbeStep() {
+        warmupRemaining = LANDMARKER_WARMUP_FRAMES;
+        probeSamples = 0;
+        probeSumUs = 0;
+        mismatchedFrames = 0;
+    }
+
+    private void applyModelDelegates() {
+        DelegateType slouch;
+        DelegateType crossLegged;
+        DelegateType lean;
+        DelegateType fused;
+        synchronized (this) {
+            if (!active) {
+                return;
+            }
+            slouch = getSelectedModelDelegate(SLOUCH);
+            crossLegged = getSelectedModelDelegate(CROSS_LEGGED);
+            lean = getSelectedModelDelegate(LEAN);
+            fused = getSelectedModelDelegate(FUSED);
+        }
+        classifier.setModelDelegates(slouch, crossLegged, lean, fused);
+    }
+
+    private synchronized DelegateType getSelectedModelDelegate(String component) {
+        String name = selected.get(component);
+        try {
+            return name != null ? DelegateType.valueOf(name) : DelegateType.CPU;
+        } catch (IllegalArgumentException e) {
+            return DelegateType.CPU;
+        }
+    }
+
+    private synchronized int getSelectedLandmarkerDelegate() {
+        return landmarkerName(PoseLandmarkerHelper.DELEGATE_GPU).equals(selected.get(POSE_LANDMARKER))
+                ? PoseLandmarkerHelper.DELEGATE_GPU : PoseLandmarkerHelper.DELEGATE_CPU;
+    }
+
+    /**
+     * Delegate name with the lowest timing, or fallback if none ran
+     */
+    private static String fastest(Map<String, Long> componentTimings, String fallback) {
+        String best = fallback;
+        long bestMicros = Long.MAX_VALUE;
+        if (componentTimings != null) {
+            for (Map.Entry<String, Long> entry : componentTimings.entrySet()) {
+                long micros = entry.getValue();
+                if (micros != UNAVAILABLE && micros < bestMicros) {
+                    best = entry.getKey();
+                    bestMicros = micros;
+                }
+            }
+        }
+        return best;
+    }
+
+    private static String landmarkerName(int delegate) {
+        return delegate == PoseLandmarkerHelper.DELEGATE_GPU ? DelegateType.GPU.name() : DelegateType.CPU.name();
+    }
+
+    private static String getAppVersion(Context context) {
+        try {
+            PackageInfo info = context.getPackageManager().getPackageInfo(context.getPackageName(), 0);
+            long versionCode = Build.VERSION.SDK_INT >= Build.VERSION_CODES.P
+                    ? info.getLongVersionCode() : info.versionCode;
+            return info.versionName + "(" + versionCode + ")";
+        } catch (PackageManager.NameNotFoundException e) {
+            return "unknown";
+        }
+    }
+
+    private String prefsKey(String name) {
+        return deviceKey + "_" + name;
+    }
+
+    private boolean loadTable() {
+        String storedBuild = prefs.getString(prefsKey("build"), null);
+        if (storedBuild == null) {
+            return false;
+        }
+        if (!storedBuild.equals(buildKey)) {
+            Log.i(TAG, "OS or app updated since the last tuning (" + storedBuild + "), tuning again");
+            return false;
+        }
+        timings.clear();
+        selected.clear();
+        for (String component : allComponents()) {
+            String choice = prefs.getString(prefsKey(component), null);
+            if (choice == null) {
+                return false;
+            }
+            selected.put(component, choice);
+            Map<String, Long> componentTimings = new HashMap<>();
+            for (String delegate : candidateNames(component)) {
+                String key = prefsKey(component + "_" + delegate + "_us");
+                if (prefs.contains(key)) {
+                    componentTimings.put(delegate, prefs.getLong(key, UNAVAILABLE));
+                }
+            }
+            timings.put(component, componentTimings);
+        }
+        tunedAtMs = prefs.getLong(prefsKey("tunedAt"), 0);
+        state = State.DONE;
+        fromStore = true;
+        Log.d(TAG, "Using stored delegate tuning: " + selected);
+        return true;
+    }
+
+    private void saveTable() {
+        SharedPreferences.Editor editor = prefs.edit();
+        for (String component : allComponents()) {
+            editor.putString(prefsKey(component), selected.get(component));
+            Map<String, Long> componentTimings = timings.get(component);
+            if (componentTimings != null) {
+                for (Map.Entry<String, Long> entry : componentTimings.entrySet()) {
+                    editor.putLong(prefsKey(component + "_" + entry.getKey() + "_us"), entry.getValue());
+                }
+            }
+        }
+        editor.putLong(prefsKey("tunedAt"), tunedAtMs);
+        editor.putString(prefsKey("build"), buildKey);
+        editor.apply();
+    }
+
+    private static String[] allComponents() {
+        String[] components = Arrays.copyOf(MODEL_COMPONENTS, MODEL_COMPONENTS.length + 1);
+        components[MODEL_COMPONENTS.length] = POSE_LANDMARKER;
+        return components;
+    }
+
+    private static String[] candidateNames(String component) {
+        if (component.equals(POSE_LANDMARKER)) {
+            return new String[]{DelegateType.CPU.name(), DelegateType.GPU.name()};
+        }
+        String[] names = new String[MODEL_DELEGATES.length];
+        for (int i = 0; i < MODEL_DELEGATES.length; i++) {
+            names[i] = MODEL_DELEGATES[i].name();
+        }
+        return names;
+    }
+
+    public synchronized boolean isTuning() {
+        return state == State.BENCHMARKING || state == State.PROBING_LANDMARKER;
+    }
+
+    /**
+     * Get statistics string for display
+     */
+    public synchronized String getStats() {
+        StringBuilder stats = new StringBuilder();
+        switch (state) {
+            case BENCHMARKING:
+                stats.append("Delegate tuning: benchmarking posture models");
+                break;
+            case PROBING_LANDMARKER:
+                stats.append("Delegate tuning: probing pose landmarker on ")
+                        .append(landmarkerName(LANDMARKER_DELEGATES[probeIndex]));
+                break;
+            case DONE:
+                stats.append(fromStore ? "Delegate tuning: stored" : "Delegate tuning: tuned this launch");
+                break;
+            default:
+                stats.append("Delegate tuning: not run");
+                break;
+        }
+        for (String component : allComponents()) {
+            Map<String, Long> componentTimings = timings.get(component);
+            if (componentTimings == null) {
+                continue;
+            }
+            stats.append("\n  ").append(component).append(": ");
+            String choice = selected.get(component);
+            stats.append(choice != null ? choice : "?");
+            for (String delegate : candidateNames(component)) {
+                Long micros = componentTimings.get(delegate);
+                if (micros != null) {
+                    stats.append(String.format(Locale.US, " | %s %s", delegate,
+                            micros == UNAVAILABLE ? "n/a" : micros + "μs"));
+                }
+            }
+        }
+        return stats.toString();
+    }
+
+    /**
+     * Get the tuning table as a map for Firebase upload
+     */
+    public synchronized Map<String, Object> getMetricsMap() {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("state", state.name());
+        metrics.put("fromStore", fromStore);
+        metrics.put("active", active);
+        metrics.put("device", deviceKey);
+        metrics.put("build", buildKey);
+        metrics.put("tunedAt", tunedAtMs);
+        Map<String, Object> table = new HashMap<>();
+        for (String component : allComponents()) {
+            Map<String, Long> componentTimings = timings.get(component);
+            if (componentTimings == null) {
+                continue;
+            }
+            Map<String, Object> entry = new HashMap<>();
+            entry.put("selected", selected.get(component));
+            entry.put("timingsUs", new HashMap<>(componentTimings));
+            table.put(component, entry);
+        }
+        metrics.put("table", table);
+        return metrics;
+    }
+}
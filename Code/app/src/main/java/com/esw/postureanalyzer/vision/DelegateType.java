@@ -3,7 +3,9 @@ package com.esw.postureanalyzer.vision;
 public enum DelegateType {
     CPU("CPU"),
     GPU("GPU"),
-    NNAPI("NPU");
+    NNAPI("NPU"),
+    JAVA("Java"), // Plain-Java evaluation of the dense posture models (DenseNetworkModel), no TFLite
+    AUTO("Auto"); // Per-model choice from DelegateAutoTuner (PostureClassifier.setModelDelegates)
 
     private final String displayName;
 
@@ -0,0 +1,473 @@
+package com.esw.postureanalyzer.vision;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * ClassifierModel that evaluates a small fully connected TFLite model in plain Java
+ * - The .tflite flatbuffer is parsed once at load time into primitive weight arrays
+ * - Evaluation is a few multiply-add loops on preallocated activations, with no JNI
+ *   and no allocation per call
+ *
+ * Supported models: float32, one subgraph, one input and one output, where the ops form
+ * a single chain of FULLY_CONNECTED (fused NONE/RELU/RELU_N1_TO_1/RELU6/TANH), RELU,
+ * RELU_N1_TO_1, RELU6, TANH, LOGISTIC, SOFTMAX and RESHAPE. That covers the posture,
+ * cross-legged and lean models. Anything else is rejected with
+ * UnsupportedOperationException so the caller can fall back to TFLite.
+ *
+ * Has no Android dependencies, so it also runs on a plain JVM.
+ */
+class DenseNetworkModel implements ClassifierModel {
+
+    // BuiltinOperator codes (tensorflow/lite/schema/schema.fbs)
+    private static final int OP_FULLY_CONNECTED = 9;
+    private static final int OP_LOGISTIC = 14;
+    private static final int OP_RELU = 19;
+    private static final int OP_RELU_N1_TO_1 = 20;
+    private static final int OP_RELU6 = 21;
+    private static final int OP_RESHAPE = 22;
+    private static final int OP_SOFTMAX = 25;
+    private static final int OP_TANH = 28;
+
+    // BuiltinOptions union types
+    private static final int OPTIONS_FULLY_CONNECTED = 8;
+    private static final int OPTIONS_SOFTMAX = 9;
+
+    // ActivationFunctionType
+    private static final int ACT_NONE = 0;
+    private static final int ACT_RELU = 1;
+    private static final int ACT_RELU_N1_TO_1 = 2;
+    private static final int ACT_RELU6 = 3;
+    private static final int ACT_TANH = 4;
+
+    private static final int TENSOR_FLOAT32 = 0;
+
+    /**
+     * One op of the chain, writing into its own preallocated output
+     */
+    private abstract static class Layer {
+        final float[] output;
+
+        Layer(int size) {
+            output = new float[size];
+        }
+
+        abstract void apply(float[] input);
+
+        abstract String describe();
+    }
+
+    private static class DenseLayer extends Layer {
+        private final int inputs;
+        private final float[] weights; // [output][input], row major as stored by TFLite
+        private final float[] bias;    // null if the op has none
+        private final int activation;
+
+        DenseLayer(int inputs, int outputs, float[] weights, float[] bias, int activation) {
+            super(outputs);
+            this.inputs = inputs;
+            this.weights = weights;
+            this.bias = bias;
+            this.activation = activation;
+        }
+
+        @Override
+        void apply(float[] input) {
+            for (int o = 0, row = 0; o < output.length; o++, row += inputs) {
+                float total = 0f;
+                for (int i = 0; i < inputs; i++) {
+                    total += input[i] * weights[row + i];
+                }
+                if (bias != null) {
+                    total += bias[o];
+                }
+                output[o] = activate(total, activation);
+            }
+        }
+
+        @Override
+        String describe() {
+            return String.format(Locale.US, "FC %dx%d%s", inputs, output.length, activationSuffix(activation));
+        }
+    }
+
+    private static class ActivationLayer extends Layer {
+        private final int activation;
+
+        ActivationLayer(int size, int activation) {
+            super(size);
+            this.activation = activation;
+        }
+
+        @Override
+        void apply(float[] input) {
+            for (int i = 0; i < output.length; i++) {
+                output[i] = activate(input[i], activation);
+            }
+        }
+
+        @Override
+        String describe() {
+            return activationSuffix(activation).trim();
+        }
+    }
+
+    private static class LogisticLayer extends Layer {
+        LogisticLayer(int size) {
+            super(size);
+        }
+
+        @Override
+        void apply(float[] input) {
+            for (int i = 0; i < output.length; i++) {
+                output[i] = (float) (1.0 / (1.0 + Math.exp(-input[i])));
+            }
+        }
+
+        @Override
+        String describe() {
+            return "logistic";
+        }
+    }
+
+    private static class SoftmaxLayer extends Layer {
+        private final float beta;
+
+        SoftmaxLayer(int size, float beta) {
+            super(size);
+            this.beta = beta;
+        }
+
+        @Override
+        void apply(float[] input) {
+            float max = input[0];
+            for (int i = 1; i < output.length; i++) {
+                if (input[i] > max) max = input[i];
+            }
+            float sum = 0f;
+            for (int i = 0; i < output.length; i++) {
+                output[i] = (float) Math.exp((input[i] - max) * beta);
+                sum += output[i];
+            }
+            for (int i = 0; i < output.length; i++) {
+                output[i] /= sum;
+            }
+        }
+
+        @Override
+        String describe() {
+            return "softmax";
+        }
+    }
+
+    private static class PassThroughLayer extends Layer {
+        PassThroughLayer(int size) {
+            super(size);
+        }
+
+        @Override
+        void apply(float[] input) {
+            System.arraycopy(input, 0, output, 0, output.length);
+        }
+
+        @Override
+        String describe() {
+            return "reshape";
+        }
+    }
+
+    private static float activate(float value, int activation) {
+        switch (activation) {
+            case ACT_RELU: return Math.max(0f, value);
+            case ACT_RELU_N1_TO_1: return Math.max(-1f, Math.min(1f, value));
+            case ACT_RELU6: return Math.max(0f, Math.min(6f, value));
+            case ACT_TANH: return (float) Math.tanh(value);
+            default: return value;
+        }
+    }
+
+    private static String activationSuffix(int activation) {
+        switch (activation) {
+            case ACT_RELU: return " relu";
+            case ACT_RELU_N1_TO_1: return " relu_n1_to_1";
+            case ACT_RELU6: return " relu6";
+            case ACT_TANH: return " tanh";
+            default: return "";
+        }
+    }
+
+    private final Layer[] layers;
+    private final float[] input;
+
+    private DenseNetworkModel(int inputSize, Layer[] layers) {
+        this.input = new float[inputSize];
+        this.layers = layers;
+    }
+
+    public int getInputSize() {
+        return input.length;
+    }
+
+    public int getOutputSize() {
+        return layers[layers.length - 1].output.length;
+    }
+
+    /**
+     * Evaluate one sample. The returned array is reused by the next call.
+     */
+    public float[] evaluate(float[] features) {
+        System.arraycopy(features, 0, input, 0, input.length);
+        return forward();
+    }
+
+    @Override
+    public void run(ByteBuffer inputTensor, ByteBuffer outputTensor) {
+        for (int i = 0; i < input.length; i++) {
+            input[i] = inputTensor.getFloat(i * 4);
+        }
+        float[] output = forward();
+        for (int i = 0; i < output.length; i++) {
+            outputTensor.putFloat(i * 4, output[i]);
+        }
+    }
+
+    private float[] forward() {
+        float[] activations = input;
+        for (Layer layer : layers) {
+            layer.apply(activations);
+            activations = layer.output;
+        }
+        return activations;
+    }
+
+    @Override
+    public void close() {
+        // Nothing native to release
+    }
+
+    /**
+     * Layer summary for logs, e.g. "9 -> FC 9x64 relu -> FC 64x32 relu -> FC 32x3 -> softmax"
+     */
+    public String describe() {
+        StringBuilder description = new StringBuilder().append(input.length);
+        for (Layer layer : layers) {
+            description.append(" -> ").append(layer.describe());
+        }
+        return description.toString();
+    }
+
+    /**
+     * Parse a .tflite model, e.g. the MappedByteBuffer of an asset
+     */
+    public static DenseNetworkModel load(ByteBuffer model) {
+        return new FlatModel(model).build();
+    }
+
+    /**
+     * Just enough of a flatbuffer reader for the TFLite schema fields used here
+     */
+    private static class FlatModel {
+        private final ByteBuffer data;
+
+        FlatModel(ByteBuffer model) {
+            data = model.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+            data.position(0);
+            if (data.limit() < 8 || data.get(4) != 'T' || data.get(5) != 'F' || data.get(6) != 'L' || data.get(7) != '3') {
+                throw new UnsupportedOperationException("Not a TFLite model");
+            }
+        }
+
+        // Absolute position of field `index` of the table at `table`, or 0 if absent
+        private int field(int table, int index) {
+            int vtable = table - data.getInt(table);
+            int vtableSize = data.getShort(vtable) & 0xFFFF;
+            int slot = 4 + 2 * index;
+            if (slot >= vtableSize) return 0;
+            int offset = data.getShort(vtable + slot) & 0xFFFF;
+            return offset == 0 ? 0 : table + offset;
+        }
+
+        private int indirect(int position) {
+            return position + data.getInt(position);
+        }
+
+        private int vectorLength(int fieldPosition) {
+            return fieldPosition == 0 ? 0 : data.getInt(indirect(fieldPosition));
+        }
+
+        private int vectorStart(int fieldPosition) {
+            return indirect(fieldPosition) + 4;
+        }
+
+        private int tableAt(int vectorField, int index) {
+            return indirect(vectorStart(vectorField) + 4 * index);
+        }
+
+        private int[] intVector(int fieldPosition) {
+            int[] values = new int[vectorLength(fieldPosition)];
+            int start = fieldPosition == 0 ? 0 : vectorStart(fieldPosition);
+            for (int i = 0; i < values.length; i++) {
+                values[i] = data.getInt(start + 4 * i);
+            }
+            return values;
+        }
+
+        private int intField(int table, int index, int defaultValue) {
+            int position = field(table, index);
+            return position == 0 ? defaultValue : data.getInt(position);
+        }
+
+        private int byteField(int table, int index, int defaultValue) {
+            int position = field(table, index);
+            return position == 0 ? defaultValue : data.get(position);
+        }
+
+        private float floatField(int table, int index, float defaultValue) {
+            int position = field(table, index);
+            return position == 0 ? defaultValue : data.getFloat(position);
+        }
+
+        DenseNetworkModel build() {
+            int model = indirect(0);
+            int operatorCodes = field(model, 1);
+            int subgraphs = field(model, 2);
+            int buffers = field(model, 4);
+            if (vectorLength(subgraphs) != 1) {
+                throw new UnsupportedOperationException("Expected one subgraph, found " + vectorLength(subgraphs));
+            }
+
+            int[] builtinCodes = new int[vectorLength(operatorCodes)];
+            for (int i = 0; i < builtinCodes.length; i++) {
+                int code = tableAt(operatorCodes, i);
+                // Newer converters write builtin_code, older ones only the deprecated byte
+                builtinCodes[i] = Math.max(byteField(code, 0, 0), intField(code, 3, 0));
+            }
+
+            int subgraph = tableAt(subgraphs, 0);
+            int tensors = field(subgraph, 0);
+            int[] inputs = intVector(field(subgraph, 1));
+            int[] outputs = intVector(field(subgraph, 2));
+            int operators = field(subgraph, 3);
+            if (inputs.length != 1 || outputs.length != 1) {
+                throw new UnsupportedOperationException("Expected one input and one output tensor");
+            }
+
+            int current = inputs[0];
+            int inputSize = checkedTensorSize(tensors, current);
+            int currentSize = inputSize;
+            List<Layer> layers = new ArrayList<>();
+            for (int i = 0; i < vectorLength(operators); i++) {
+                int op = tableAt(operators, i);
+                int opcode = builtinCodes[intField(op, 0, 0)];
+                int[] opInputs = intVector(field(op, 1));
+                int[] opOutputs = intVector(field(op, 2));
+                if (opInputs.length == 0 || opInputs[0] != current || opOutputs.length != 1) {
+                    throw new UnsupportedOperationException("Op " + i + " does not continue a single chain");
+                }
+                int outputSize = checkedTensorSize(tensors, opOutputs[0]);
+
+                Layer layer;
+                switch (opcode) {
+                    case OP_FULLY_CONNECTED:
+                        layer = denseLayer(tensors, buffers, op, opInputs, currentSize, outputSize);
+                        break;
+                    case OP_LOGISTIC:
+                        layer = new LogisticLayer(outputSize);
+                        break;
+                    case OP_SOFTMAX: {
+                        int options = byteField(op, 3, 0) == OPTIONS_SOFTMAX ? indirect(field(op, 4)) : 0;
+                        layer = new SoftmaxLayer(outputSize, options != 0 ? floatField(options, 0, 0f) : 0f);
+                        break;
+                    }
+                    case OP_RELU:
+                        layer = new ActivationLayer(outputSize, ACT_RELU);
+                        break;
+                    case OP_RELU_N1_TO_1:
+                        layer = new ActivationLayer(outputSize, ACT_RELU_N1_TO_1);
+                        break;
+                    case OP_RELU6:
+                        layer = new ActivationLayer(outputSize, ACT_RELU6);
+                        break;
+                    case OP_TANH:
+                        layer = new ActivationLayer(outputSize, ACT_TANH);
+                        break;
+                    case OP_RESHAPE:
+                        layer = new PassThroughLayer(outputSize);
+                        break;
+                    default:
+                        throw new UnsupportedOperationException("Unsupported op " + opcode);
+                }
+                if (opcode != OP_FULLY_CONNECTED && outputSize != currentSize) {
+                    throw new UnsupportedOperationException("Op " + opcode + " changes the size from "
+                            + currentSize + " to " + outputSize);
+                }
+                layers.add(layer);
+                current = opOutputs[0];
+                currentSize = outputSize;
+            }
+            if (current != outputs[0] || layers.isEmpty()) {
+                throw new UnsupportedOperationException("The op chain does not end at the model output");
+            }
+            return new DenseNetworkModel(inputSize, layers.toArray(new Layer[0]));
+        }
+
+        private DenseLayer denseLayer(int tensors, int buffers, int op, int[] opInputs, int inputSize, int outputSize) {
+            int activation = ACT_NONE;
+            if (byteField(op, 3, 0) == OPTIONS_FULLY_CONNECTED && field(op, 4) != 0) {
+                int options = indirect(field(op, 4));
+                activation = byteField(options, 0, ACT_NONE);
+                if (byteField(options, 1, 0) != 0) {
+                    throw new UnsupportedOperationException("Shuffled FULLY_CONNECTED weights");
+                }
+            }
+            if (activation > ACT_TANH) {
+                throw new UnsupportedOperationException("Unsupported fused activation " + activation);
+            }
+            float[] weights = constant(tensors, buffers, opInputs[1]);
+            if (weights.length != inputSize * outputSize) {
+                throw new UnsupportedOperationException("FULLY_CONNECTED weights are " + weights.length
+                        + " values for " + inputSize + "x" + outputSize);
+            }
+            float[] bias = null;
+            if (opInputs.length > 2 && opInputs[2] >= 0) {
+                bias = constant(tensors, buffers, opInputs[2]);
+                if (bias.length != outputSize) {
+                    throw new UnsupportedOperationException("FULLY_CONNECTED bias has " + bias.length + " values");
+                }
+            }
+            return new DenseLayer(inputSize, outputSize, weights, bias, activation);
+        }
+
+        // Element count of a float32 tensor
+        private int checkedTensorSize(int tensors, int index) {
+            int tensor = tableAt(tensors, index);
+            if (byteField(tensor, 1, TENSOR_FLOAT32) != TENSOR_FLOAT32) {
+                throw new UnsupportedOperationException("Tensor " + index + " is not float32");
+            }
+            int size = 1;
+            for (int dimension : intVector(field(tensor, 0))) {
+                size *= dimension;
+            }
+            return size;
+        }
+
+        private float[] constant(int tensors, int buffers, int index) {
+            int size = checkedTensorSize(tensors, index);
+            int tensor = tableAt(tensors, index);
+            int buffer = tableAt(buffers, intField(tensor, 2, 0));
+            int dataField = field(buffer, 0);
+            if (vectorLength(dataField) != size * 4) {
+                throw new UnsupportedOperationException("Tensor " + index + " has no inline float32 data");
+            }
+            float[] values = new float[size];
+            int start = vectorStart(dataField);
+            for (int i = 0; i < size; i++) {
+                values[i] = data.getFloat(start + 4 * i);
+            }
+            return values;
+        }
+    }
+}
@@ -2,121 +2,193 @@ package com.esw.postureanalyzer.vision;
 
 import android.util.Log;
 import com.google.mediapipe.tasks.components.containers.NormalizedLandmark;
+import java.nio.FloatBuffer;
 import java.util.List;
-
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Geometric features for the posture models, in pixels of the analysed image.
+ * The write*Features methods put the features straight into a model's input
+ * tensor (absolute puts from index 0) without allocating; the get*Features
+ * methods return them as a new array.
+ */
 public class FeatureExtractor {
     private static final String TAG = "FeatureExtractor";
+    // Per-frame feature logging allocates; enable with adb shell setprop log.tag.FeatureExtractor DEBUG
+    private static final boolean DEBUG = Log.isLoggable(TAG, Log.DEBUG);
+
+    public static final int SLOUCH_FEATURES = 3;
+    public static final int CROSS_LEGGED_FEATURES = 6;
+    public static final int LEANING_FEATURES = 9;
+
+    private static float pixelX(NormalizedLandmark lm, int width) {
+        return lm == null ? 0f : lm.x() * width;
+    }
+
+    private static float pixelY(NormalizedLandmark lm, int height) {
+        return lm == null ? 0f : lm.y() * height;
+    }
 
-    private static float[] toPixel(NormalizedLandmark lm, int width, int height) {
-        if (lm == null) return new float[]{0f, 0f};
-        return new float[]{lm.x() * width, lm.y() * height};
+    private static float visibility(NormalizedLandmark lm) {
+        // Not Optional.orElse(0f), which boxes the default on every call
+        Optional<Float> visibility = lm.visibility();
+        return visibility.isPresent() ? visibility.get() : 0.0f;
     }
 
-    private static float angle3Pts(float[] a, float[] b, float[] c) {
+    /**
+     * Angle ABC in degrees
+     */
+    private static float angle3Pts(float ax, float ay, float bx, float by, float cx, float cy) {
         // Vector BA = A - B
-        float[] ba = {a[0] - b[0], a[1] - b[1]};
-        
+        float baX = ax - bx;
+        float baY = ay - by;
+
         // Vector BC = C - B
-        float[] bc = {c[0] - b[0], c[1] - b[1]};
-        
+        float bcX = cx - bx;
+        float bcY = cy - by;
+
         // Dot product
-        float dotProduct = ba[0] * bc[0] + ba[1] * bc[1];
-        
+        float dotProduct = baX * bcX + baY * bcY;
+
         // Magnitudes (add small epsilon to prevent division by zero)
-        float magBA = (float) Math.sqrt(ba[0] * ba[0] + ba[1] * ba[1]) + 1e-6f;
-        float magBC = (float) Math.sqrt(bc[0] * bc[0] + bc[1] * bc[1]) + 1e-6f;
-        
+        float magBA = (float) Math.sqrt(baX * baX + baY * baY) + 1e-6f;
+        float magBC = (float) Math.sqrt(bcX * bcX + bcY * bcY) + 1e-6f;
+
         // Cosine of angle (clip to [-1, 1] to handle floating point errors)
         float cosAngle = dotProduct / (magBA * magBC);
         cosAngle = Math.max(-1.0f, Math.min(1.0f, cosAngle));
-        
+
         // Calculate angle in degrees
         float angle = (float) Math.toDegrees(Math.acos(cosAngle));
-        
+
         // Round to 2 decimal places for consistency with training data
         return Math.round(angle * 100.0f) / 100.0f;
     }
 
-    private static float slopeAngle(float[] a, float[] b) {
-        return (float) Math.toDegrees(Math.atan2(b[1] - a[1], b[0] - a[0]));
-    }
-
-    private static float[] midpoint(float[] p, float[] q) {
-        return new float[]{(p[0] + q[0]) / 2.0f, (p[1] + q[1]) / 2.0f};
+    private static float slopeAngle(float ax, float ay, float bx, float by) {
+        return (float) Math.toDegrees(Math.atan2(by - ay, bx - ax));
     }
 
     // --- SLOUCH MODEL FEATURES ---
     public static float[] getSlouchFeatures(List<NormalizedLandmark> landmarks, int w, int h) {
-        float[] leftShoulder = toPixel(landmarks.get(11), w, h);
-        float[] rightShoulder = toPixel(landmarks.get(12), w, h);
-        float[] leftHip = toPixel(landmarks.get(23), w, h);
-        float[] rightHip = toPixel(landmarks.get(24), w, h);
-
-        float torsoTilt = angle3Pts(leftShoulder, leftHip, rightShoulder);
-        float leftAngle = angle3Pts(leftShoulder, leftHip, rightHip);
-        float rightAngle = angle3Pts(rightShoulder, rightHip, leftHip);
-
-        Log.d(TAG, String.format("Slouch features - torsoTilt: %.2f, leftAngle: %.2f, rightAngle: %.2f",
-                torsoTilt, leftAngle, rightAngle));
+        float[] features = new float[SLOUCH_FEATURES];
+        writeSlouchFeatures(landmarks, w, h, FloatBuffer.wrap(features));
+        return features;
+    }
 
-        return new float[]{torsoTilt, leftAngle, rightAngle};
+    public static void writeSlouchFeatures(List<NormalizedLandmark> landmarks, int w, int h, FloatBuffer out) {
+        NormalizedLandmark leftShoulder = landmarks.get(11);
+        NormalizedLandmark rightShoulder = landmarks.get(12);
+        NormalizedLandmark leftHip = landmarks.get(23);
+        NormalizedLandmark rightHip = landmarks.get(24);
+        float lshX = pixelX(leftShoulder, w), lshY = pixelY(leftShoulder, h);
+        float rshX = pixelX(rightShoulder, w), rshY = pixelY(rightShoulder, h);
+        float lhipX = pixelX(leftHip, w), lhipY = pixelY(leftHip, h);
+        float rhipX = pixelX(rightHip, w), rhipY = pixelY(rightHip, h);
+
+        float torsoTilt = angle3Pts(lshX, lshY, lhipX, lhipY, rshX, rshY);
+        float leftAngle = angle3Pts(lshX, lshY, lhipX, lhipY, rhipX, rhipY);
+        float rightAngle = angle3Pts(rshX, rshY, rhipX, rhipY, lhipX, lhipY);
+
+        if (DEBUG) {
+            Log.d(TAG, String.format(Locale.US, "Slouch features - torsoTilt: %.2f, leftAngle: %.2f, rightAngle: %.2f",
+                    torsoTilt, leftAngle, rightAngle));
+        }
+
+        out.put(0, torsoTilt);
+        out.put(1, leftAngle);
+        out.put(2, rightAngle);
     }
 
     // --- CROSS-LEGGED MODEL FEATURES ---
     public static float[] getCrossLeggedFeatures(List<NormalizedLandmark> landmarks, int w, int h) {
-        float[] leftHip = toPixel(landmarks.get(23), w, h);
-        float[] rightHip = toPixel(landmarks.get(24), w, h);
-        float[] leftKnee = toPixel(landmarks.get(25), w, h);
-        float[] rightKnee = toPixel(landmarks.get(26), w, h);
-        float[] leftAnkle = toPixel(landmarks.get(27), w, h);
-        float[] rightAnkle = toPixel(landmarks.get(28), w, h);
-
-        float leftLegAngle = angle3Pts(leftHip, leftKnee, leftAnkle);
-        float rightLegAngle = angle3Pts(rightHip, rightKnee, rightAnkle);
+        float[] features = new float[CROSS_LEGGED_FEATURES];
+        writeCrossLeggedFeatures(landmarks, w, h, FloatBuffer.wrap(features));
+        return features;
+    }
 
-        float kneeDist = (float) Math.hypot(leftKnee[0] - rightKnee[0], leftKnee[1] - rightKnee[1]);
-        float ankleDist = (float) Math.hypot(leftAnkle[0] - rightAnkle[0], leftAnkle[1] - rightAnkle[1]);
-        float hipDist = (float) Math.hypot(leftHip[0] - rightHip[0], leftHip[1] - rightHip[1]) + 1e-6f;
+    public static void writeCrossLeggedFeatures(List<NormalizedLandmark> landmarks, int w, int h, FloatBuffer out) {
+        NormalizedLandmark leftHip = landmarks.get(23);
+        NormalizedLandmark rightHip = landmarks.get(24);
+        NormalizedLandmark leftKnee = landmarks.get(25);
+        NormalizedLandmark rightKnee = landmarks.get(26);
+        NormalizedLandmark leftAnkle = landmarks.get(27);
+        NormalizedLandmark rightAnkle = landmarks.get(28);
+        float lhipX = pixelX(leftHip, w), lhipY = pixelY(leftHip, h);
+        float rhipX = pixelX(rightHip, w), rhipY = pixelY(rightHip, h);
+        float lkneeX = pixelX(leftKnee, w), lkneeY = pixelY(leftKnee, h);
+        float rkneeX = pixelX(rightKnee, w), rkneeY = pixelY(rightKnee, h);
+        float lankleX = pixelX(leftAnkle, w), lankleY = pixelY(leftAnkle, h);
+        float rankleX = pixelX(rightAnkle, w), rankleY = pixelY(rightAnkle, h);
+
+        float leftLegAngle = angle3Pts(lhipX, lhipY, lkneeX, lkneeY, lankleX, lankleY);
+        float rightLegAngle = angle3Pts(rhipX, rhipY, rkneeX, rkneeY, rankleX, rankleY);
+
+        float kneeDist = (float) Math.hypot(lkneeX - rkneeX, lkneeY - rkneeY);
+        float ankleDist = (float) Math.hypot(lankleX - rankleX, lankleY - rankleY);
+        float hipDist = (float) Math.hypot(lhipX - rhipX, lhipY - rhipY) + 1e-6f;
 
         kneeDist /= hipDist;
         ankleDist /= hipDist;
 
-        float ankleCross = leftAnkle[0] > rightAnkle[0] ? 1.0f : 0.0f;
-        float kneeCross = leftKnee[0] > rightKnee[0] ? 1.0f : 0.0f;
+        float ankleCross = lankleX > rankleX ? 1.0f : 0.0f;
+        float kneeCross = lkneeX > rkneeX ? 1.0f : 0.0f;
 
-        Log.d(TAG, String.format("CrossLegged features - leftLeg: %.2f, rightLeg: %.2f, kneeDist: %.2f, ankleDist: %.2f, ankleCross: %.0f, kneeCross: %.0f",
-                leftLegAngle, rightLegAngle, kneeDist, ankleDist, ankleCross, kneeCross));
+        if (DEBUG) {
+            Log.d(TAG, String.format(Locale.US, "CrossLegged features - leftLeg: %.2f, rightLeg: %.2f, kneeDist: %.2f, ankleDist: %.2f, ankleCross: %.0f, kneeCross: %.0f",
+                    leftLegAngle, rightLegAngle, kneeDist, ankleDist, ankleCross, kneeCross));
+        }
 
-        return new float[]{leftLegAngle, rightLegAngle, kneeDist, ankleDist, ankleCross, kneeCross};
+        out.put(0, leftLegAngle);
+        out.put(1, rightLegAngle);
+        out.put(2, kneeDist);
+        out.put(3, ankleDist);
+        out.put(4, ankleCross);
+        out.put(5, kneeCross);
     }
 
     // --- LEANING MODEL FEATURES ---
     public static float[] getLeaningFeatures(List<NormalizedLandmark> landmarks, int w, int h) {
-        float[] lsh = toPixel(landmarks.get(11), w, h);
-        float[] rsh = toPixel(landmarks.get(12), w, h);
-        float[] lhip = toPixel(landmarks.get(23), w, h);
-        float[] rhip = toPixel(landmarks.get(24), w, h);
-        float[] lear = toPixel(landmarks.get(7), w, h);
-        float[] rear = toPixel(landmarks.get(8), w, h);
-
-        float lshVis = landmarks.get(11).visibility().orElse(0.0f);
-        float rshVis = landmarks.get(12).visibility().orElse(0.0f);
-        float lhipVis = landmarks.get(23).visibility().orElse(0.0f);
-        float rhipVis = landmarks.get(24).visibility().orElse(0.0f);
-        float learVis = landmarks.get(7).visibility().orElse(0.0f);
-        float rearVis = landmarks.get(8).visibility().orElse(0.0f);
-
-        float[] midSh = midpoint(lsh, rsh);
-        float[] midHip = midpoint(lhip, rhip);
-
-        float[] v = {midSh[0] - midHip[0], midSh[1] - midHip[1]};
-        float torsoAngle = (float) Math.toDegrees(Math.atan2(-v[0], -v[1]));
-        float shoulderAngle = slopeAngle(lsh, rsh);
-        float headTiltAngle = slopeAngle(lear, rear);
-
-        Log.d(TAG, String.format("Lean features - torsoAngle: %.2f, shoulderAngle: %.2f, headTiltAngle: %.2f",
-                torsoAngle, shoulderAngle, headTiltAngle));
-
-        return new float[]{torsoAngle, shoulderAngle, headTiltAngle, lshVis, rshVis, lhipVis, rhipVis, learVis, rearVis};
+        float[] features = new float[LEANING_FEATURES];
+        writeLeaningFeatures(landmarks, w, h, FloatBuffer.wrap(features));
+        return features;
+    }
+
+    public static void writeLeaningFeatures(List<NormalizedLandmark> landmarks, int w, int h, FloatBuffer out) {
+        NormalizedLandmark lsh = landmarks.get(11);
+        NormalizedLandmark rsh = landmarks.get(12);
+        NormalizedLandmark lhip = landmarks.get(23);
+        NormalizedLandmark rhip = landmarks.get(24);
+        NormalizedLandmark lear = landmarks.get(7);
+        NormalizedLandmark rear = landmarks.get(8);
+        float lshX = pixelX(lsh, w), lshY = pixelY(lsh, h);
+        float rshX = pixelX(rsh, w), rshY = pixelY(rsh, h);
+        float lhipX = pixelX(lhip, w), lhipY = pixelY(lhip, h);
+        float rhipX = pixelX(rhip, w), rhipY = pixelY(rhip, h);
+
+        float midShX = (lshX + rshX) / 2.0f, midShY = (lshY + rshY) / 2.0f;
+        float midHipX = (lhipX + rhipX) / 2.0f, midHipY = (lhipY + rhipY) / 2.0f;
+
+        float vX = midShX - midHipX;
+        float vY = midShY - midHipY;
+        float torsoAngle = (float) Math.toDegrees(Math.atan2(-vX, -vY));
+        float shoulderAngle = slopeAngle(lshX, lshY, rshX, rshY);
+        float headTiltAngle = slopeAngle(pixelX(lear, w), pixelY(lear, h), pixelX(rear, w), pixelY(rear, h));
+
+        if (DEBUG) {
+            Log.d(TAG, String.format(Locale.US, "Lean features - torsoAngle: %.2f, shoulderAngle: %.2f, headTiltAngle: %.2f",
+                    torsoAngle, shoulderAngle, headTiltAngle));
+        }
+
+        out.put(0, torsoAngle);
+        out.put(1, shoulderAngle);
+        out.put(2, headTiltAngle);
+        out.put(3, visibility(lsh));
+        out.put(4, visibility(rsh));
+        out.put(5, visibility(lhip));
+        out.put(6, visibility(rhip));
+        out.put(7, visibility(lear));
+        out.put(8, visibility(rear));
     }
-}
\ No newline at end of file
+}
@@ -145,20 +145,26 @@ public class FirebaseDataRetriever {
         public int leanLeftCount;
         public int leanRightCount;
         public int uprightCount;
+        // Entries where the model was skipped; left out of the percentages
+        public int slouchNotVisibleCount;
+        public int legsNotVisibleCount;
         public double avgPdj;
         public double avgOks;
         public double avgInferenceTime;
 
         public double getSlouchingPercentage() {
-            return totalEntries > 0 ? (slouchingCount * 100.0 / totalEntries) : 0.0;
+            int visible = totalEntries - slouchNotVisibleCount;
+            return visible > 0 ? (slouchingCount * 100.0 / visible) : 0.0;
         }
 
         public double getGoodPosturePercentage() {
-            return totalEntries > 0 ? (goodPostureCount * 100.0 / totalEntries) : 0.0;
+            int visible = totalEntries - slouchNotVisibleCount;
+            return visible > 0 ? (goodPostureCount * 100.0 / visible) : 0.0;
         }
 
         public double getCrossLeggedPercentage() {
-            return totalEntries > 0 ? (crossLeggedCount * 100.0 / totalEntries) : 0.0;
+            int visible = totalEntries - legsNotVisibleCount;
+            return visible > 0 ? (crossLeggedCount * 100.0 / visible) : 0.0;
         }
 
         @Override
@@ -209,10 +215,12 @@ public class FirebaseDataRetriever {
                     Map<String, String> posture = (Map<String, String>) entry.get("posture");
                     if (posture != null) {
                         String slouch = posture.get("slouch");
+                        if (PostureClassifier.NOT_VISIBLE.equals(slouch)) stats.slouchNotVisibleCount++;
                         if ("Slouching".equals(slouch) || "yes".equals(slouch)) stats.slouchingCount++;
                         if ("Good Posture".equals(slouch) || "no".equals(slouch)) stats.goodPostureCount++;
 
                         String legs = posture.get("legs");
+                        if (PostureClassifier.NOT_VISIBLE.equals(legs)) stats.legsNotVisibleCount++;
                         if ("Cross-legged".equals(legs) || "yes".equals(legs)) stats.crossLeggedCount++;
                         if ("Normal".equals(legs) || "no".equals(legs)) stats.normalLegsCount++;
 
@@ -402,6 +410,7 @@ public class FirebaseDataRetriever {
                             // Get posture data
                             DataSnapshot postureSnap = child.child("posture");
                             String slouch = postureSnap.child("slouch").getValue(String.class);
+                            if (PostureClassifier.NOT_VISIBLE.equals(slouch)) continue;
                             boolean isGoodPosture = "Good Posture".equals(slouch);
 
                             // Aggregate by day
@@ -485,8 +494,11 @@ public class FirebaseDataRetriever {
                             String slouch = postureSnap.child("slouch").getValue(String.class);
                             String lean = postureSnap.child("lean").getValue(String.class);
                             String legs = postureSnap.child("legs").getValue(String.class);
+                            // The leg joints include the hips, so a hidden upper body hides the legs too
+                            if (PostureClassifier.NOT_VISIBLE.equals(slouch)) continue;
 
                             stats.totalCount++;
+                            if (!PostureClassifier.NOT_VISIBLE.equals(legs)) stats.legsVisibleCount++;
 
                             // Count issues
                             if ("Slouching".equals(slouch)) {
@@ -571,6 +583,7 @@ public class FirebaseDataRetriever {
         public int backUpperIssues = 0;
         public int backLowerIssues = 0;
         public int hipIssues = 0;
+        public int legsVisibleCount = 0; // Lower back and hips are judged on these entries only
 
         public float getHeadHeat() {
             return totalCount > 0 ? (headIssues * 100f / totalCount) : 0;
@@ -593,11 +606,11 @@ public class FirebaseDataRetriever {
         }
 
         public float getBackLowerHeat() {
-            return totalCount > 0 ? (backLowerIssues * 100f / totalCount) : 0;
+            return legsVisibleCount > 0 ? (backLowerIssues * 100f / legsVisibleCount) : 0;
         }
 
         public float getHipHeat() {
-            return totalCount > 0 ? (hipIssues * 100f / totalCount) : 0;
+            return legsVisibleCount > 0 ? (hipIssues * 100f / legsVisibleCount) : 0;
         }
     }
 }
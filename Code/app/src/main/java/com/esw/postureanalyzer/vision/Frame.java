@@ -0,0 +1,134 @@
+package com.esw.postureanalyzer.vision;
+
+import android.graphics.Bitmap;
+import android.util.Log;
+import java.nio.ByteBuffer;
+
+/**
+ * One camera frame as delivered by any camera source
+ * - Pixel data is either a Bitmap or a plane buffer, tagged with its format
+ * - Dimensions are of the buffer as captured; rotationDegrees turns it upright
+ * - Capture and arrival times are on the System.nanoTime() clock
+ *
+ * Frames are reference counted. The source holds one reference for the duration of
+ * FrameListener.onFrame() and releases it when the call returns. A consumer that
+ * keeps the frame (or its pixels) past the call must retain() it and release() it
+ * when done; the release hook then hands the buffers back to the source for reuse.
+ */
+public final class Frame {
+    private static final String TAG = "Frame";
+
+    public enum Format {
+        BITMAP("Bitmap"),            // ARGB_8888 Bitmap
+        RGBA_8888("RGBA");           // One interleaved RGBA plane
+
+        private final String displayName;
+
+        Format(String displayName) {
+            this.displayName = displayName;
+        }
+
+        public String getDisplayName() {
+            return displayName;
+        }
+    }
+
+    /**
+     * Called once, on the thread that drops the last reference
+     */
+    public interface ReleaseHook {
+        void onReleased(Frame frame);
+    }
+
+    private final Format format;
+    private final int width;
+    private final int height;
+    private final int rotationDegrees;
+    private final long captureNanos;
+    private final long arrivalNanos;
+    private final Bitmap bitmap;
+    private final ByteBuffer[] planes;
+    private final int[] rowStrides;
+    private final ReleaseHook releaseHook;
+    private int refCount = 1;
+
+    private Frame(Format format, int width, int height, int rotationDegrees,
+                  long captureNanos, long arrivalNanos, Bitmap bitmap,
+                  ByteBuffer[] planes, int[] rowStrides, ReleaseHook releaseHook) {
+        this.format = format;
+        this.width = width;
+        this.height = height;
+        this.rotationDegrees = rotationDegrees;
+        this.captureNanos = captureNanos;
+        this.arrivalNanos = arrivalNanos;
+        this.bitmap = bitmap;
+        this.planes = planes;
+        this.rowStrides = rowStrides;
+        this.releaseHook = releaseHook;
+    }
+
+    /**
+     * A Bitmap frame. releaseHook may be null if the bitmap belongs to the frame.
+     */
+    public static Frame ofBitmap(Bitmap bitmap, int rotationDegrees, long captureNanos, long arrivalNanos,
+                                 ReleaseHook releaseHook) {
+        return new Frame(Format.BITMAP, bitmap.getWidth(), bitmap.getHeight(), rotationDegrees,
+                captureNanos, arrivalNanos, bitmap, null, null, releaseHook);
+    }
+
+    /**
+     * A single-plane frame (RGBA_8888)
+     */
+    public static Frame ofBuffer(Format format, ByteBuffer buffer, int width, int height, int rowStride,
+                                 int rotationDegrees, long captureNanos, long arrivalNanos,
+                                 ReleaseHook releaseHook) {
+        return new Frame(format, width, height, rotationDegrees, captureNanos, arrivalNanos, null,
+                new ByteBuffer[] {buffer}, new int[] {rowStride}, releaseHook);
+    }
+
+    public Format getFormat() { return format; }
+    public int getWidth() { return width; }
+    public int getHeight() { return height; }
+    public int getRotationDegrees() { return rotationDegrees; }
+    public long getCaptureNanos() { return captureNanos; }
+    public long getArrivalNanos() { return arrivalNanos; }
+
+    /**
+     * The bitmap of a BITMAP frame, null for buffer frames
+     */
+    public Bitmap getBitmap() { return bitmap; }
+
+    public int getPlaneCount() { return planes != null ? planes.length : 0; }
+    public ByteBuffer getPlane(int index) { return planes[index]; }
+    public int getRowStride(int index) { return rowStrides[index]; }
+
+    /**
+     * True if plane 0 has no row padding, e.g. an RGBA buffer that can be wrapped as is
+     */
+    public boolean isTightlyPacked() {
+        return planes != null && rowStrides[0] == width * 4;
+    }
+
+    public synchronized void retain() {
+        if (refCount <= 0) {
+            throw new IllegalStateException("retain() on a released " + format.getDisplayName() + " frame");
+        }
+        refCount++;
+    }
+
+    public void release() {
+        synchronized (this) {
+            if (refCount <= 0) {
+                Log.w(TAG, "release() on a frame that is already released");
+                return;
+            }
+            refCount--;
+            if (refCount > 0) {
+                return;
+            }
+        }
+        if (releaseHook != null) {
+            releaseHook.onReleased(this);
+        }
+    }
+}
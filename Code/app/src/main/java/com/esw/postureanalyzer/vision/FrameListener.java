@@ -0,0 +1,9 @@
+package com.esw.postureanalyzer.vision;
+
+/**
+ * Receives frames from any camera source (CameraX, USB UVC)
+ * The frame is only guaranteed valid during the call; retain() it to keep it longer.
+ */
+public interface FrameListener {
+    void onFrame(Frame frame);
+}
@@ -0,0 +1,19 @@
+package com.esw.postureanalyzer.vision;
+
+/**
+ * How camera frames are handed to MediaPipe
+ */
+public enum IngestionMode {
+    BITMAP("Bitmap"),            // ImageProxy.toBitmap() + rotated Bitmap copy
+    RGBA_BUFFER("RGBA Buffer");  // RGBA_8888 plane wrapped as MPImage, rotation passed as metadata
+
+    private final String displayName;
+
+    IngestionMode(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+}
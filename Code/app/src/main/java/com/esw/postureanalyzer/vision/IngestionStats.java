@@ -0,0 +1,116 @@
+package com.esw.postureanalyzer.vision;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Per-ingestion-mode frame statistics
+ * Tracks bytes allocated per frame on the analyzer thread (conversion through detectAsync,
+ * including native bitmap pixels, see CameraXManager.AllocationListener) and end-to-end latency
+ * (frame arrival from the camera -> MediaPipe result callback)
+ */
+public class IngestionStats {
+    private static final int WINDOW_SIZE = 30; // Rolling average over 30 frames
+
+    private final IngestionMode mode;
+
+    // Fixed-size rolling windows so that recording a frame does not allocate
+    private final long[] latencyUs = new long[WINDOW_SIZE];
+    private final long[] allocatedBytes = new long[WINDOW_SIZE];
+    private int latencyCount = 0;
+    private int latencyIndex = 0;
+    private int allocationCount = 0;
+    private int allocationIndex = 0;
+
+    private long totalFrames = 0;
+    private long totalAllocatedBytes = 0;
+
+    public IngestionStats(IngestionMode mode) {
+        this.mode = mode;
+    }
+
+    /**
+     * Record the bytes allocated to submit one frame
+     */
+    public synchronized void recordAllocation(long bytes) {
+        allocatedBytes[allocationIndex] = bytes;
+        allocationIndex = (allocationIndex + 1) % WINDOW_SIZE;
+        if (allocationCount < WINDOW_SIZE) allocationCount++;
+
+        totalFrames++;
+        totalAllocatedBytes += bytes;
+    }
+
+    /**
+     * Record the end-to-end latency of one frame in microseconds
+     */
+    public synchronized void recordLatency(long micros) {
+        latencyUs[latencyIndex] = micros;
+        latencyIndex = (latencyIndex + 1) % WINDOW_SIZE;
+        if (latencyCount < WINDOW_SIZE) latencyCount++;
+    }
+
+    public synchronized long getAverageAllocatedBytes() {
+        return average(allocatedBytes, allocationCount);
+    }
+
+    public synchronized long getAverageLatencyUs() {
+        return average(latencyUs, latencyCount);
+    }
+
+    public synchronized boolean hasData() {
+        return latencyCount > 0;
+    }
+
+    public synchronized void reset() {
+        latencyCount = 0;
+        latencyIndex = 0;
+        allocationCount = 0;
+        allocationIndex = 0;
+        totalFrames = 0;
+        totalAllocatedBytes = 0;
+    }
+
+    /**
+     * Get statistics string for display
+     */
+    public synchronized String getStats() {
+        if (!hasData()) {
+            return mode.getDisplayName() + ": No data yet";
+        }
+        return String.format(Locale.US,
+            "%s\n  Alloc/frame: avg=%d KB\n  End-to-end: avg=%dμs\n  Frames: %d",
+            mode.getDisplayName(),
+            getAverageAllocatedBytes() / 1024,
+            getAverageLatencyUs(),
+            totalFrames
+        );
+    }
+
+    /**
+     * Get metrics as a map for Firebase upload
+     */
+    public synchronized Map<String, Object> getMetricsMap() {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("mode", mode.getDisplayName());
+        metrics.put("hasData", hasData());
+        if (!hasData()) {
+            return metrics;
+        }
+        metrics.put("frames", totalFrames);
+        metrics.put("totalAllocatedBytes", totalAllocatedBytes);
+        metrics.put("avgAllocatedBytesPerFrame", getAverageAllocatedBytes());
+        metrics.put("avgEndToEndUs", getAverageLatencyUs());
+        return metrics;
+    }
+
+    private static long average(long[] values, int count) {
+        if (count == 0) return 0;
+        long sum = 0;
+        for (int i = 0; i < count; i++) {
+            sum += values[i];
+        }
+        return sum / count;
+    }
+}
@@ -0,0 +1,35 @@
+package com.esw.postureanalyzer.vision;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import org.tensorflow.lite.Interpreter;
+
+/**
+ * ClassifierModel backed by a TFLite Interpreter
+ * Interpreter.run() wraps its arguments in a new array and map on every call;
+ * this keeps one of each and goes through runForMultipleInputsOutputs() instead.
+ */
+class InterpreterModel implements ClassifierModel {
+    private final Interpreter interpreter;
+    private final Object[] inputs = new Object[1];
+    private final Map<Integer, Object> outputs = new HashMap<>();
+
+    InterpreterModel(Interpreter interpreter) {
+        this.interpreter = interpreter;
+    }
+
+    @Override
+    public void run(ByteBuffer input, ByteBuffer output) {
+        input.rewind();
+        output.rewind();
+        inputs[0] = input;
+        outputs.put(0, output); // Replaces the value in place after the first call
+        interpreter.runForMultipleInputsOutputs(inputs, outputs);
+    }
+
+    @Override
+    public void close() {
+        interpreter.close();
+    }
+}
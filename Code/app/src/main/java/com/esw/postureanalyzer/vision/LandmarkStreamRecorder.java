@@ -0,0 +1,132 @@
+package com.esw.postureanalyzer.vision;
+
+import android.util.Log;
+import com.google.mediapipe.tasks.components.containers.NormalizedLandmark;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Records the per-frame pose landmark stream to a compact binary file, so the
+ * post-pose path can be replayed without a camera or pose model
+ * (see LandmarkStreamReplayer).
+ *
+ * File layout (big-endian, DataOutputStream):
+ *   header: int MAGIC, int VERSION, int landmarks per pose (33)
+ *   record: long timestampNanos, int imageWidth, int imageHeight, byte hasPose,
+ *           then if hasPose: landmarks x {float x, float y, float z, float visibility}
+ * Visibility is NaN when MediaPipe did not report it.
+ */
+public class LandmarkStreamRecorder {
+    private static final String TAG = "LandmarkStreamRecorder";
+
+    static final int MAGIC = 0x504C4D53; // "PLMS"
+    static final int VERSION = 1;
+    static final int LANDMARK_COUNT = 33;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final File file;
+    private DataOutputStream output;
+    private long framesRecorded = 0;
+    private long posesRecorded = 0;
+    private long bytesWritten = 0;
+
+    public LandmarkStreamRecorder(File file) {
+        this.file = file;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public synchronized void start() throws IOException {
+        if (output != null) {
+            return;
+        }
+        output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE));
+        output.writeInt(MAGIC);
+        output.writeInt(VERSION);
+        output.writeInt(LANDMARK_COUNT);
+        bytesWritten = 12;
+        Log.i(TAG, "Recording landmarks to " + file.getAbsolutePath());
+    }
+
+    public synchronized boolean isRecording() {
+        return output != null;
+    }
+
+    /**
+     * Append one frame's result. An empty result is recorded as a frame without a pose.
+     */
+    public synchronized void record(PoseLandmarkerHelper.ResultBundle resultBundle) {
+        if (output == null) {
+            return;
+        }
+        long timestampNanos = resultBundle.hasCaptureTimestamp()
+                ? resultBundle.getCaptureNanos() : resultBundle.getResultNanos();
+        List<List<NormalizedLandmark>> poses = resultBundle.getResults().landmarks();
+        List<NormalizedLandmark> pose = poses.isEmpty() ? null : poses.get(0);
+        boolean hasPose = pose != null && pose.size() >= LANDMARK_COUNT;
+        try {
+            output.writeLong(timestampNanos);
+            output.writeInt(resultBundle.getInputImageWidth());
+            output.writeInt(resultBundle.getInputImageHeight());
+            output.writeByte(hasPose ? 1 : 0);
+            bytesWritten += 17;
+            if (hasPose) {
+                for (int i = 0; i < LANDMARK_COUNT; i++) {
+                    NormalizedLandmark landmark = pose.get(i);
+                    output.writeFloat(landmark.x());
+                    output.writeFloat(landmark.y());
+                    output.writeFloat(landmark.z());
+                    output.writeFloat(landmark.visibility().isPresent() ? landmark.visibility().get() : Float.NaN);
+                }
+                bytesWritten += LANDMARK_COUNT * 16;
+                posesRecorded++;
+            }
+            framesRecorded++;
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to record landmarks, stopping", e);
+            stop();
+        }
+    }
+
+    /**
+     * Push buffered records to the file, e.g. when the app goes to the background
+     */
+    public synchronized void flush() {
+        if (output == null) {
+            return;
+        }
+        try {
+            output.flush();
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to flush landmark recording", e);
+        }
+    }
+
+    /**
+     * Flush and close the file
+     */
+    public synchronized void stop() {
+        if (output == null) {
+            return;
+        }
+        try {
+            output.close();
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to close landmark recording", e);
+        }
+        output = null;
+        Log.i(TAG, "Landmark recording stopped: " + getStats());
+    }
+
+    public synchronized String getStats() {
+        return String.format(Locale.US, "Landmark recorder: %s  Frames: %d  Poses: %d  Size: %d KB",
+                file.getName(), framesRecorded, posesRecorded, bytesWritten / 1024);
+    }
+}
@@ -0,0 +1,308 @@
+package com.esw.postureanalyzer.vision;
+
+import android.util.Log;
+import com.google.mediapipe.framework.image.MPImage;
+import com.google.mediapipe.tasks.components.containers.Landmark;
+import com.google.mediapipe.tasks.components.containers.NormalizedLandmark;
+import com.google.mediapipe.tasks.vision.poselandmarker.PoseLandmarkerResult;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Feeds a landmark stream recorded by LandmarkStreamRecorder back into a
+ * LandmarkerListener, exercising everything after MediaPipe (classification,
+ * evaluation metrics, UI and upload) without a camera or pose model
+ * - Real time: records are spaced by their recorded timestamps
+ * - Max speed: records are delivered back to back
+ *
+ * Each record is delivered as a ResultBundle stamped with the delivery time, so
+ * pipeline latency covers only the post-pose stages.
+ */
+public class LandmarkStreamReplayer {
+    private static final String TAG = "LandmarkStreamReplayer";
+    private static final int WINDOW_SIZE = 30; // Rolling average over 30 frames
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    public interface ReplayListener {
+        /**
+         * Called on the replay thread when the stream has been played through or failed
+         */
+        void onReplayFinished(LandmarkStreamReplayer replayer, String error);
+    }
+
+    private final PoseLandmarkerHelper.LandmarkerListener resultListener;
+    private volatile ReplayListener replayListener;
+    private volatile Thread replayThread;
+    private volatile boolean running = false;
+    private File file;
+    private boolean realTime = true;
+    private int loops = 1;
+
+    // Rolling listener time window (time spent in onResults per frame)
+    private final long[] deliverTimesUs = new long[WINDOW_SIZE];
+    private int sampleCount = 0;
+    private int sampleIndex = 0;
+
+    // Counters for the current run
+    private long framesDelivered = 0;
+    private long posesDelivered = 0;
+    private long maxDeliverUs = 0;
+    private long totalLateUs = 0; // Real time only: how far behind schedule frames went out
+    private int loopsCompleted = 0;
+    private long runStartNanos = 0;
+    private long runEndNanos = 0;
+
+    public LandmarkStreamReplayer(PoseLandmarkerHelper.LandmarkerListener resultListener) {
+        this.resultListener = resultListener;
+    }
+
+    public void setReplayListener(ReplayListener listener) {
+        this.replayListener = listener;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Start replaying on a background thread; stops any previous run
+     */
+    public void start(File file, boolean realTime, int loops) {
+        stop();
+        synchronized (this) {
+            this.file = file;
+            this.realTime = realTime;
+            this.loops = Math.max(1, loops);
+            resetCounters();
+            runStartNanos = System.nanoTime();
+        }
+        running = true;
+        Thread thread = new Thread(this::run, "LandmarkReplay");
+        replayThread = thread;
+        thread.start();
+        Log.i(TAG, "Landmark replay started: " + describe());
+    }
+
+    /**
+     * Stop the replay thread and wait for it to exit
+     */
+    public void stop() {
+        running = false;
+        Thread thread = replayThread;
+        if (thread == null || thread == Thread.currentThread()) {
+            return;
+        }
+        thread.interrupt();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        replayThread = null;
+    }
+
+    private void run() {
+        String error = null;
+        try {
+            for (int loop = 0; loop < loops && running; loop++) {
+                replayOnce();
+                synchronized (this) {
+                    if (running) loopsCompleted++;
+                }
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Landmark replay failed", e);
+            error = e.getMessage() != null ? e.getMessage() : e.toString();
+        } catch (InterruptedException e) {
+            // stop()
+        } finally {
+            synchronized (this) {
+                runEndNanos = System.nanoTime();
+            }
+            running = false;
+        }
+        Log.i(TAG, "Landmark replay finished: " + getStats().replace('\n', ' '));
+        ReplayListener listener = replayListener;
+        if (listener != null) {
+            listener.onReplayFinished(this, error);
+        }
+    }
+
+    private void replayOnce() throws IOException, InterruptedException {
+        try (DataInputStream input = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE))) {
+            if (input.readInt() != LandmarkStreamRecorder.MAGIC) {
+                throw new IOException(file.getName() + " is not a landmark recording");
+            }
+            int version = input.readInt();
+            if (version != LandmarkStreamRecorder.VERSION) {
+                throw new IOException("Unsupported landmark recording version " + version);
+            }
+            int landmarkCount = input.readInt();
+
+            long firstTimestampNanos = -1;
+            long loopStartNanos = System.nanoTime();
+            while (running) {
+                long timestampNanos;
+                try {
+                    timestampNanos = input.readLong();
+                } catch (EOFException e) {
+                    break; // End of recording
+                }
+                int width = input.readInt();
+                int height = input.readInt();
+                boolean hasPose = input.readByte() != 0;
+                List<List<NormalizedLandmark>> poses = Collections.emptyList();
+                if (hasPose) {
+                    List<NormalizedLandmark> pose = new ArrayList<>(landmarkCount);
+                    for (int i = 0; i < landmarkCount; i++) {
+                        float x = input.readFloat();
+                        float y = input.readFloat();
+                        float z = input.readFloat();
+                        float visibility = input.readFloat();
+                        pose.add(NormalizedLandmark.create(x, y, z,
+                                Float.isNaN(visibility) ? Optional.empty() : Optional.of(visibility),
+                                Optional.empty()));
+                    }
+                    poses = Collections.singletonList(pose);
+                }
+
+                long lateUs = 0;
+                if (realTime) {
+                    if (firstTimestampNanos < 0) {
+                        firstTimestampNanos = timestampNanos;
+                    }
+                    long dueNanos = loopStartNanos + (timestampNanos - firstTimestampNanos);
+                    long waitNanos = dueNanos - System.nanoTime();
+                    if (waitNanos > 0) {
+                        Thread.sleep(waitNanos / 1_000_000, (int) (waitNanos % 1_000_000));
+                    } else {
+                        lateUs = -waitNanos / 1_000;
+                    }
+                }
+                deliver(new ReplayedResult(poses, timestampNanos / 1_000_000), width, height, hasPose, lateUs);
+            }
+        }
+    }
+
+    private void deliver(PoseLandmarkerResult result, int width, int height, boolean hasPose, long lateUs) {
+        long nowNanos = System.nanoTime();
+        resultListener.onResults(new PoseLandmarkerHelper.ResultBundle(
+                result, 0, width, height, nowNanos, nowNanos, nowNanos));
+        long deliverUs = (System.nanoTime() - nowNanos) / 1_000;
+        synchronized (this) {
+            deliverTimesUs[sampleIndex] = deliverUs;
+            sampleIndex = (sampleIndex + 1) % WINDOW_SIZE;
+            if (sampleCount < WINDOW_SIZE) sampleCount++;
+            if (deliverUs > maxDeliverUs) maxDeliverUs = deliverUs;
+            totalLateUs += lateUs;
+            framesDelivered++;
+            if (hasPose) posesDelivered++;
+        }
+    }
+
+    /**
+     * A pose result rebuilt from a recording; no world landmarks or masks are kept
+     */
+    private static class ReplayedResult extends PoseLandmarkerResult {
+        private final List<List<NormalizedLandmark>> landmarks;
+        private final long timestampMs;
+
+        ReplayedResult(List<List<NormalizedLandmark>> landmarks, long timestampMs) {
+            this.landmarks = landmarks;
+            this.timestampMs = timestampMs;
+        }
+
+        @Override
+        public long timestampMs() { return timestampMs; }
+        @Override
+        public List<List<NormalizedLandmark>> landmarks() { return landmarks; }
+        @Override
+        public List<List<Landmark>> worldLandmarks() { return Collections.emptyList(); }
+        @Override
+        public Optional<List<MPImage>> segmentationMasks() { return Optional.empty(); }
+    }
+
+    private void resetCounters() {
+        sampleCount = 0;
+        sampleIndex = 0;
+        framesDelivered = 0;
+        posesDelivered = 0;
+        maxDeliverUs = 0;
+        totalLateUs = 0;
+        loopsCompleted = 0;
+        runEndNanos = 0;
+    }
+
+    private long averageDeliverUs() {
+        if (sampleCount == 0) return 0;
+        long sum = 0;
+        for (int i = 0; i < sampleCount; i++) {
+            sum += deliverTimesUs[i];
+        }
+        return sum / sampleCount;
+    }
+
+    private long elapsedNanos() {
+        if (runStartNanos == 0) return 0;
+        return (runEndNanos != 0 ? runEndNanos : System.nanoTime()) - runStartNanos;
+    }
+
+    private String describe() {
+        return String.format(Locale.US, "%s, %s, %d loop(s)",
+            file.getName(), realTime ? "real time" : "max speed", loops);
+    }
+
+    public synchronized double getAchievedFps() {
+        long elapsed = elapsedNanos();
+        return elapsed > 0 ? framesDelivered * 1_000_000_000.0 / elapsed : 0.0;
+    }
+
+    /**
+     * Get statistics string for display
+     */
+    public synchronized String getStats() {
+        if (file == null) {
+            return "Landmark replay: not started";
+        }
+        return String.format(Locale.US,
+            "Landmark replay: %s%s\n  Frames: %d  Poses: %d  Loops: %d  Elapsed: %.1f s  FPS: %.1f\n  onResults: %dμs avg, %dμs max  Late: %dμs avg",
+            describe(), running ? " (running)" : "",
+            framesDelivered, posesDelivered, loopsCompleted, elapsedNanos() / 1e9, getAchievedFps(),
+            averageDeliverUs(), maxDeliverUs, framesDelivered > 0 ? totalLateUs / framesDelivered : 0
+        );
+    }
+
+    /**
+     * Get metrics as a map for Firebase upload or the run report
+     */
+    public synchronized Map<String, Object> getMetricsMap() {
+        Map<String, Object> metrics = new HashMap<>();
+        if (file == null) {
+            return metrics;
+        }
+        metrics.put("source", describe());
+        metrics.put("realTime", realTime);
+        metrics.put("running", running);
+        metrics.put("frames", framesDelivered);
+        metrics.put("poses", posesDelivered);
+        metrics.put("loops", loopsCompleted);
+        metrics.put("elapsedMs", elapsedNanos() / 1_000_000);
+        metrics.put("achievedFps", getAchievedFps());
+        metrics.put("avgOnResultsUs", averageDeliverUs());
+        metrics.put("maxOnResultsUs", maxDeliverUs);
+        metrics.put("avgLateUs", framesDelivered > 0 ? totalLateUs / framesDelivered : 0);
+        return metrics;
+    }
+}
@@ -0,0 +1,89 @@
+package com.esw.postureanalyzer.vision;
+
+import android.content.Context;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.util.Arrays;
+import org.tensorflow.lite.Interpreter;
+import org.tensorflow.lite.gpu.GpuDelegate;
+import org.tensorflow.lite.nnapi.NnApiDelegate;
+
+/**
+ * Times one posture model asset on one delegate, with its own interpreter and delegate
+ * instance, so it can run on a tuner thread while the classifier keeps serving frames.
+ * Used by DelegateAutoTuner and ThreadCountTuner.
+ */
+class ModelBenchmark {
+    static final int WARMUP_RUNS = 20;
+    static final int RUNS = 200;
+
+    private ModelBenchmark() {
+    }
+
+    /**
+     * Median microseconds per run. numThreads applies to CPU and GPU (NNAPI always uses one,
+     * like PostureClassifier). Throws IOException if the asset is not bundled, or whatever
+     * the delegate throws if it cannot run the model.
+     */
+    static long medianMicros(Context context, String modelName, DelegateType delegateType, int numThreads)
+            throws IOException {
+        ClassifierModel model = null;
+        GpuDelegate gpuDelegate = null;
+        NnApiDelegate nnApiDelegate = null;
+        try {
+            MappedByteBuffer modelBuffer = PostureClassifier.loadModelFile(context, modelName);
+            int inputSize;
+            int outputSize;
+            if (delegateType == DelegateType.JAVA) {
+                DenseNetworkModel denseModel = DenseNetworkModel.load(modelBuffer);
+                inputSize = denseModel.getInputSize();
+                outputSize = denseModel.getOutputSize();
+                model = denseModel;
+            } else {
+                // Same options as PostureClassifier.createInterpreterOptions()
+                Interpreter.Options options = new Interpreter.Options();
+                if (delegateType == DelegateType.GPU) {
+                    gpuDelegate = PostureClassifier.createGpuDelegate();
+                    options.addDelegate(gpuDelegate);
+                    options.setNumThreads(numThreads);
+                } else if (delegateType == DelegateType.NNAPI) {
+                    nnApiDelegate = PostureClassifier.createNnApiDelegate();
+                    options.addDelegate(nnApiDelegate);
+                    options.setNumThreads(1);
+                } else {
+                    options.setNumThreads(numThreads);
+                }
+                Interpreter interpreter = new Interpreter(modelBuffer, options);
+                inputSize = interpreter.getInputTensor(0).numElements();
+                outputSize = interpreter.getOutputTensor(0).numElements();
+                model = new InterpreterModel(interpreter);
+            }
+
+            ByteBuffer input = ByteBuffer.allocateDirect(inputSize * 4).order(ByteOrder.nativeOrder());
+            ByteBuffer output = ByteBuffer.allocateDirect(outputSize * 4).order(ByteOrder.nativeOrder());
+            for (int i = 0; i < WARMUP_RUNS; i++) {
+                model.run(input, output);
+            }
+            long[] runNs = new long[RUNS];
+            for (int i = 0; i < RUNS; i++) {
+                long start = System.nanoTime();
+                model.run(input, output);
+                runNs[i] = System.nanoTime() - start;
+            }
+            Arrays.sort(runNs);
+            return runNs[RUNS / 2] / 1_000;
+        } finally {
+            if (model != null) {
+                model.close();
+            }
+            if (gpuDelegate != null) {
+                gpuDelegate.close();
+            }
+            if (nnApiDelegate != null) {
+                nnApiDelegate.close();
+            }
+        }
+    }
+}
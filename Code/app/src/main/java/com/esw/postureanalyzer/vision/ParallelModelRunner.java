@@ -0,0 +1,111 @@
+package com.esw.postureanalyzer.vision;
+
+import android.util.Log;
+
+/**
+ * Runs a fixed set of tasks concurrently, each on its own long-lived worker thread,
+ * and waits for all of them. A task always runs on the same worker, so each model
+ * (and its interpreter) is only ever touched by one thread.
+ *
+ * Workers wait on a shared generation counter instead of an executor queue, so
+ * runAll() allocates nothing per call. An interrupted worker closes the runner.
+ */
+class ParallelModelRunner {
+    private static final String TAG = "ParallelModelRunner";
+
+    private final Runnable[] tasks;
+    private final Thread[] workers;
+    private final Object lock = new Object();
+    private long generation = 0; // Bumped once per runAll()
+    private int pending = 0;     // Tasks of the current generation still running
+    private int skipped = 0;     // Tasks of the current generation a stopped worker never ran
+    private boolean closed = false;
+
+    ParallelModelRunner(String[] names, Runnable[] tasks) {
+        this.tasks = tasks;
+        this.workers = new Thread[tasks.length];
+        for (int i = 0; i < tasks.length; i++) {
+            final int index = i;
+            Thread worker = new Thread(() -> workerLoop(index), "Classifier-" + names[i]);
+            worker.setDaemon(true);
+            workers[i] = worker;
+            worker.start();
+        }
+    }
+
+    /**
+     * Run every task once, concurrently, and return when all have finished.
+     * Throws IllegalStateException if the runner is closed, or closes before every task ran.
+     */
+    void runAll() throws InterruptedException {
+        synchronized (lock) {
+            if (closed) {
+                throw new IllegalStateException("ParallelModelRunner is closed");
+            }
+            generation++;
+            pending = tasks.length;
+            skipped = 0;
+            lock.notifyAll();
+            while (pending > 0) {
+                lock.wait();
+            }
+            if (skipped > 0) {
+                throw new IllegalStateException("ParallelModelRunner closed with "
+                        + skipped + " task(s) not run");
+            }
+        }
+    }
+
+    private void workerLoop(int index) {
+        long seenGeneration = 0;
+        while (true) {
+            synchronized (lock) {
+                while (!closed && generation == seenGeneration) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        // Without this worker runAll() could never finish
+                        Log.w(TAG, "Worker " + workers[index].getName() + " interrupted, closing");
+                        closed = true;
+                        lock.notifyAll();
+                    }
+                }
+                if (closed) {
+                    if (generation != seenGeneration) {
+                        // This generation's task will not run: count it as done so runAll() returns
+                        skipped++;
+                        finishTask();
+                    }
+                    return;
+                }
+                seenGeneration = generation;
+            }
+            try {
+                tasks[index].run();
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Task " + workers[index].getName() + " failed", e);
+            } finally {
+                synchronized (lock) {
+                    finishTask();
+                }
+            }
+        }
+    }
+
+    // Called holding lock
+    private void finishTask() {
+        if (--pending == 0) {
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Stop the workers once they finish their current task
+     */
+    void close() {
+        synchronized (lock) {
+            closed = true;
+            lock.notifyAll();
+        }
+    }
+}
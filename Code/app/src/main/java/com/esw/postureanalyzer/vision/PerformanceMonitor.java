@@ -1,85 +1,138 @@
 package com.esw.postureanalyzer.vision;
 
 import android.util.Log;
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Locale;
 
 /**
  * Monitors and tracks performance metrics for ML inference
  * Tracks inference time, total processing time, and calculates statistics
+ * Samples go into fixed primitive windows, so recording a frame does not allocate.
+ * The windows are guarded by the monitor, as samples and reads come from different threads.
  */
 public class PerformanceMonitor {
     private static final String TAG = "PerformanceMonitor";
     private static final int WINDOW_SIZE = 30; // Rolling average over 30 frames
 
-    private final List<Long> inferenceTimesMs = new ArrayList<>();
-    private final List<Long> totalTimesMs = new ArrayList<>();
+    private final long[] inferenceTimesUs = new long[WINDOW_SIZE];
+    private final long[] totalTimesUs = new long[WINDOW_SIZE];
+    private int inferenceCount = 0;
+    private int inferenceIndex = 0; // Next slot to write
+    private int totalCount = 0;
+    private int totalIndex = 0;
     private final String componentName;
 
     private long startTime;
     private long inferenceStartTime;
 
+    // Frame admission counters (only used by live pipelines)
+    private long framesAdmitted;
+    private long framesDroppedAtAdmission;
+    private long framesDroppedByPipeline;
+
     public PerformanceMonitor(String componentName) {
         this.componentName = componentName;
     }
 
     /**
-     * Mark the start of total processing (including pre/post processing)
+     * Mark the start of total processing (including pre/post processing).
+     * One start at a time: with several frames in flight, time each one and use recordTotal().
      */
-    public void startTotal() {
+    public synchronized void startTotal() {
         startTime = System.nanoTime();
     }
 
     /**
-     * Mark the start of inference only
+     * Mark the start of inference only (one at a time, see startTotal())
      */
-    public void startInference() {
+    public synchronized void startInference() {
         inferenceStartTime = System.nanoTime();
     }
 
     /**
      * Mark the end of inference
      */
-    public void endInference() {
-        long endTime = System.nanoTime();
-        long durationUs = (endTime - inferenceStartTime) / 1_000; // Convert to microseconds
-        
-        inferenceTimesMs.add(durationUs);
-        if (inferenceTimesMs.size() > WINDOW_SIZE) {
-            inferenceTimesMs.remove(0);
-        }
+    public synchronized void endInference() {
+        recordInference((System.nanoTime() - inferenceStartTime) / 1_000); // Convert to microseconds
     }
 
     /**
      * Mark the end of total processing
      */
-    public void endTotal() {
-        long endTime = System.nanoTime();
-        long durationUs = (endTime - startTime) / 1_000; // Convert to microseconds
-        
-        totalTimesMs.add(durationUs);
-        if (totalTimesMs.size() > WINDOW_SIZE) {
-            totalTimesMs.remove(0);
-        }
+    public synchronized void endTotal() {
+        recordTotal((System.nanoTime() - startTime) / 1_000); // Convert to microseconds
+    }
+
+    /**
+     * Record the inference time of a frame timed by the caller
+     */
+    public synchronized void recordInference(long durationUs) {
+        inferenceTimesUs[inferenceIndex] = durationUs;
+        inferenceIndex = (inferenceIndex + 1) % WINDOW_SIZE;
+        if (inferenceCount < WINDOW_SIZE) inferenceCount++;
+    }
+
+    /**
+     * Record the total processing time of a frame timed by the caller
+     */
+    public synchronized void recordTotal(long durationUs) {
+        totalTimesUs[totalIndex] = durationUs;
+        totalIndex = (totalIndex + 1) % WINDOW_SIZE;
+        if (totalCount < WINDOW_SIZE) totalCount++;
+    }
+
+    /**
+     * Record a frame admitted into the pipeline
+     */
+    public synchronized void recordFrameAdmitted() {
+        framesAdmitted++;
+    }
+
+    /**
+     * Record a frame rejected (or superseded) before it was submitted
+     */
+    public synchronized void recordFrameDroppedAtAdmission() {
+        framesDroppedAtAdmission++;
+    }
+
+    /**
+     * Record a submitted frame that never produced a result
+     */
+    public synchronized void recordFrameDroppedByPipeline() {
+        framesDroppedByPipeline++;
+    }
+
+    public synchronized long getFramesAdmitted() {
+        return framesAdmitted;
+    }
+
+    public synchronized long getFramesDroppedAtAdmission() {
+        return framesDroppedAtAdmission;
+    }
+
+    public synchronized long getFramesDroppedByPipeline() {
+        return framesDroppedByPipeline;
+    }
+
+    private synchronized boolean hasFrameCounters() {
+        return framesAdmitted > 0 || framesDroppedAtAdmission > 0 || framesDroppedByPipeline > 0;
     }
 
     /**
      * Get comprehensive statistics string
      */
-    public String getStats() {
-        if (inferenceTimesMs.isEmpty() || totalTimesMs.isEmpty()) {
+    public synchronized String getStats() {
+        if (!hasData()) {
             Log.w(TAG, componentName + ": No data collected yet (lists empty)");
             return componentName + ": No data yet";
         }
 
-        long avgInference = calculateAverage(inferenceTimesMs);
-        long minInference = calculateMin(inferenceTimesMs);
-        long maxInference = calculateMax(inferenceTimesMs);
+        long avgInference = calculateAverage(inferenceTimesUs, inferenceCount);
+        long minInference = calculateMin(inferenceTimesUs, inferenceCount);
+        long maxInference = calculateMax(inferenceTimesUs, inferenceCount);
         
-        long avgTotal = calculateAverage(totalTimesMs);
-        long minTotal = calculateMin(totalTimesMs);
-        long maxTotal = calculateMax(totalTimesMs);
+        long avgTotal = calculateAverage(totalTimesUs, totalCount);
+        long minTotal = calculateMin(totalTimesUs, totalCount);
+        long maxTotal = calculateMax(totalTimesUs, totalCount);
 
         String stats = String.format(Locale.US,
             "%s\n  Inference: avg=%dμs min=%dμs max=%dμs\n  Total: avg=%dμs min=%dμs max=%dμs\n  FPS: %.1f",
@@ -89,58 +142,64 @@ public class PerformanceMonitor {
             avgTotal > 0 ? 1_000_000.0 / avgTotal : 0
         );
         
-        Log.d(TAG, "Stats for " + componentName + ": samples=" + inferenceTimesMs.size() + ", avgInf=" + avgInference + "μs");
+        if (hasFrameCounters()) {
+            stats += String.format(Locale.US,
+                "\n  Frames: admitted=%d dropped(admission)=%d dropped(pipeline)=%d",
+                getFramesAdmitted(), getFramesDroppedAtAdmission(), getFramesDroppedByPipeline());
+        }
+        
+        Log.d(TAG, "Stats for " + componentName + ": samples=" + inferenceCount + ", avgInf=" + avgInference + "μs");
         return stats;
     }
 
     /**
      * Get average inference time in milliseconds
      */
-    public long getAverageInferenceMs() {
-        return inferenceTimesMs.isEmpty() ? 0 : calculateAverage(inferenceTimesMs);
+    public synchronized long getAverageInferenceMs() {
+        return inferenceCount == 0 ? 0 : calculateAverage(inferenceTimesUs, inferenceCount);
     }
 
     /**
      * Get average total time in milliseconds
      */
-    public long getAverageTotalMs() {
-        return totalTimesMs.isEmpty() ? 0 : calculateAverage(totalTimesMs);
+    public synchronized long getAverageTotalMs() {
+        return totalCount == 0 ? 0 : calculateAverage(totalTimesUs, totalCount);
     }
 
     /**
      * Get the most recent inference time
      */
-    public long getLastInferenceMs() {
-        return inferenceTimesMs.isEmpty() ? 0 : inferenceTimesMs.get(inferenceTimesMs.size() - 1);
+    public synchronized long getLastInferenceMs() {
+        return inferenceCount == 0 ? 0 : inferenceTimesUs[(inferenceIndex + WINDOW_SIZE - 1) % WINDOW_SIZE];
     }
 
     /**
      * Get the most recent total time
      */
-    public long getLastTotalMs() {
-        return totalTimesMs.isEmpty() ? 0 : totalTimesMs.get(totalTimesMs.size() - 1);
+    public synchronized long getLastTotalMs() {
+        return totalCount == 0 ? 0 : totalTimesUs[(totalIndex + WINDOW_SIZE - 1) % WINDOW_SIZE];
     }
 
-    private long calculateAverage(List<Long> times) {
+    private long calculateAverage(long[] times, int count) {
         long sum = 0;
-        for (long time : times) {
-            sum += time;
+        for (int i = 0; i < count; i++) {
+            sum += times[i];
         }
-        return sum / times.size();
+        return sum / count;
     }
 
-    private long calculateMin(List<Long> times) {
+    private long calculateMin(long[] times, int count) {
         long min = Long.MAX_VALUE;
-        for (long time : times) {
-            if (time < min) min = time;
+        for (int i = 0; i < count; i++) {
+            if (times[i] < min) min = times[i];
         }
         return min;
     }
 
-    private long calculateMax(List<Long> times) {
+    private long calculateMax(long[] times, int count) {
         long max = Long.MIN_VALUE;
-        for (long time : times) {
-            if (time > max) max = time;
+        for (int i = 0; i < count; i++) {
+            if (times[i] > max) max = times[i];
         }
         return max;
     }
@@ -148,9 +207,14 @@ public class PerformanceMonitor {
     /**
      * Reset all collected statistics
      */
-    public void reset() {
-        inferenceTimesMs.clear();
-        totalTimesMs.clear();
+    public synchronized void reset() {
+        inferenceCount = 0;
+        inferenceIndex = 0;
+        totalCount = 0;
+        totalIndex = 0;
+        framesAdmitted = 0;
+        framesDroppedAtAdmission = 0;
+        framesDroppedByPipeline = 0;
     }
 
     /**
@@ -163,31 +227,37 @@ public class PerformanceMonitor {
     /**
      * Check if we have collected any data
      */
-    public boolean hasData() {
-        return !inferenceTimesMs.isEmpty() && !totalTimesMs.isEmpty();
+    public synchronized boolean hasData() {
+        return inferenceCount > 0 && totalCount > 0;
     }
     
     /**
      * Get detailed metrics as a map for Firebase upload
      */
-    public java.util.Map<String, Object> getMetricsMap() {
+    public synchronized java.util.Map<String, Object> getMetricsMap() {
         java.util.Map<String, Object> metrics = new java.util.HashMap<>();
         
-        if (inferenceTimesMs.isEmpty() || totalTimesMs.isEmpty()) {
+        if (hasFrameCounters()) {
+            metrics.put("framesAdmitted", getFramesAdmitted());
+            metrics.put("framesDroppedAtAdmission", getFramesDroppedAtAdmission());
+            metrics.put("framesDroppedByPipeline", getFramesDroppedByPipeline());
+        }
+        
+        if (!hasData()) {
             metrics.put("hasData", false);
             return metrics;
         }
         
         metrics.put("hasData", true);
-        metrics.put("samples", inferenceTimesMs.size());
-        metrics.put("avgInferenceUs", calculateAverage(inferenceTimesMs));
-        metrics.put("minInferenceUs", calculateMin(inferenceTimesMs));
-        metrics.put("maxInferenceUs", calculateMax(inferenceTimesMs));
-        metrics.put("avgTotalUs", calculateAverage(totalTimesMs));
-        metrics.put("minTotalUs", calculateMin(totalTimesMs));
-        metrics.put("maxTotalUs", calculateMax(totalTimesMs));
+        metrics.put("samples", inferenceCount);
+        metrics.put("avgInferenceUs", calculateAverage(inferenceTimesUs, inferenceCount));
+        metrics.put("minInferenceUs", calculateMin(inferenceTimesUs, inferenceCount));
+        metrics.put("maxInferenceUs", calculateMax(inferenceTimesUs, inferenceCount));
+        metrics.put("avgTotalUs", calculateAverage(totalTimesUs, totalCount));
+        metrics.put("minTotalUs", calculateMin(totalTimesUs, totalCount));
+        metrics.put("maxTotalUs", calculateMax(totalTimesUs, totalCount));
         
-        long avgTotal = calculateAverage(totalTimesMs);
+        long avgTotal = calculateAverage(totalTimesUs, totalCount);
         metrics.put("avgFps", avgTotal > 0 ? 1_000_000.0 / avgTotal : 0);
         
         return metrics;
@@ -0,0 +1,171 @@
+package com.esw.postureanalyzer.vision;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Per-stage latency histograms from camera capture to the UI update
+ * - Capture: sensor/driver capture -> frame received by the app
+ * - Pose: frame received -> MediaPipe result (conversion, admission wait, inference)
+ * - Classify: MediaPipe result -> posture classifiers done
+ * - UI: classified -> result drawn on the main thread
+ * - End-to-end: capture -> UI
+ *
+ * Fixed buckets so that recording a frame does not allocate.
+ */
+public class PipelineLatencyStats {
+
+    public enum Stage {
+        CAPTURE("Capture"),
+        POSE("Pose"),
+        CLASSIFY("Classify"),
+        UI("UI"),
+        END_TO_END("End-to-end");
+
+        private final String displayName;
+
+        Stage(String displayName) {
+            this.displayName = displayName;
+        }
+
+        public String getDisplayName() {
+            return displayName;
+        }
+    }
+
+    // Bucket upper bounds in ms; the last bucket holds everything slower
+    private static final long[] BUCKET_LIMITS_MS = {5, 10, 20, 50, 100, 200, 500};
+    private static final int BUCKET_COUNT = BUCKET_LIMITS_MS.length + 1;
+
+    private final long[][] buckets = new long[Stage.values().length][BUCKET_COUNT];
+    private final long[] counts = new long[Stage.values().length];
+    private final long[] totalUs = new long[Stage.values().length];
+    private final long[] maxUs = new long[Stage.values().length];
+
+    /**
+     * Record one frame's timestamps (System.nanoTime() clock). classifiedNanos is 0
+     * when no pose was classified; the UI stage then starts at the pose result.
+     */
+    public synchronized void recordFrame(long captureNanos, long arrivalNanos, long resultNanos,
+                                         long classifiedNanos, long uiNanos) {
+        if (captureNanos == 0 || arrivalNanos == 0) {
+            return; // Result not matched to a submitted frame
+        }
+        record(Stage.CAPTURE, arrivalNanos - captureNanos);
+        record(Stage.POSE, resultNanos - arrivalNanos);
+        if (classifiedNanos != 0) {
+            record(Stage.CLASSIFY, classifiedNanos - resultNanos);
+            record(Stage.UI, uiNanos - classifiedNanos);
+        } else {
+            record(Stage.UI, uiNanos - resultNanos);
+        }
+        record(Stage.END_TO_END, uiNanos - captureNanos);
+    }
+
+    private void record(Stage stage, long nanos) {
+        long micros = Math.max(0, nanos / 1_000);
+        int s = stage.ordinal();
+        buckets[s][bucketFor(micros)]++;
+        counts[s]++;
+        totalUs[s] += micros;
+        if (micros > maxUs[s]) maxUs[s] = micros;
+    }
+
+    private static int bucketFor(long micros) {
+        for (int i = 0; i < BUCKET_LIMITS_MS.length; i++) {
+            if (micros < BUCKET_LIMITS_MS[i] * 1_000) {
+                return i;
+            }
+        }
+        return BUCKET_LIMITS_MS.length;
+    }
+
+    /**
+     * Upper bound in ms of the bucket holding the given percentile, -1 if the
+     * percentile falls in the open-ended bucket
+     */
+    private long percentileMs(int stage, int percentile) {
+        long target = (counts[stage] * percentile + 99) / 100;
+        long cumulative = 0;
+        for (int i = 0; i < BUCKET_LIMITS_MS.length; i++) {
+            cumulative += buckets[stage][i];
+            if (cumulative >= target) {
+                return BUCKET_LIMITS_MS[i];
+            }
+        }
+        return -1;
+    }
+
+    private long averageUs(int stage) {
+        return counts[stage] == 0 ? 0 : totalUs[stage] / counts[stage];
+    }
+
+    public synchronized boolean hasData() {
+        return counts[Stage.END_TO_END.ordinal()] > 0;
+    }
+
+    public synchronized void reset() {
+        for (int s = 0; s < counts.length; s++) {
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                buckets[s][i] = 0;
+            }
+            counts[s] = 0;
+            totalUs[s] = 0;
+            maxUs[s] = 0;
+        }
+    }
+
+    private static String formatPercentile(long ms) {
+        return ms < 0 ? ">" + BUCKET_LIMITS_MS[BUCKET_LIMITS_MS.length - 1] : "≤" + ms;
+    }
+
+    /**
+     * Get statistics string for display
+     */
+    public synchronized String getStats() {
+        if (!hasData()) {
+            return "Pipeline latency: No data yet";
+        }
+        StringBuilder stats = new StringBuilder("Pipeline latency (ms: avg, p50, p95, max)");
+        for (Stage stage : Stage.values()) {
+            int s = stage.ordinal();
+            if (counts[s] == 0) continue;
+            stats.append(String.format(Locale.US, "\n  %s: %.1f  %s  %s  %.1f",
+                    stage.getDisplayName(),
+                    averageUs(s) / 1000.0,
+                    formatPercentile(percentileMs(s, 50)),
+                    formatPercentile(percentileMs(s, 95)),
+                    maxUs[s] / 1000.0));
+        }
+        stats.append(String.format(Locale.US, "\n  Frames: %d", counts[Stage.END_TO_END.ordinal()]));
+        return stats.toString();
+    }
+
+    /**
+     * Get metrics as a map for Firebase upload
+     */
+    public synchronized Map<String, Object> getMetricsMap() {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("hasData", hasData());
+        for (Stage stage : Stage.values()) {
+            int s = stage.ordinal();
+            Map<String, Object> stageMetrics = new HashMap<>();
+            stageMetrics.put("frames", counts[s]);
+            stageMetrics.put("avgUs", averageUs(s));
+            stageMetrics.put("maxUs", maxUs[s]);
+            stageMetrics.put("p50Ms", percentileMs(s, 50));
+            stageMetrics.put("p95Ms", percentileMs(s, 95));
+            Map<String, Object> histogram = new HashMap<>();
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                String label = i < BUCKET_LIMITS_MS.length
+                        ? "lt" + BUCKET_LIMITS_MS[i] + "ms"
+                        : "ge" + BUCKET_LIMITS_MS[BUCKET_LIMITS_MS.length - 1] + "ms";
+                histogram.put(label, buckets[s][i]);
+            }
+            stageMetrics.put("histogram", histogram);
+            metrics.put(stage.name(), stageMetrics);
+        }
+        return metrics;
+    }
+}
@@ -2,16 +2,30 @@ package com.esw.postureanalyzer.vision;
 
 import android.content.Context;
 import android.graphics.Bitmap;
+import android.graphics.Canvas;
 import android.graphics.Matrix;
+import android.graphics.RectF;
 import android.os.SystemClock;
 import android.util.Log;
 import com.google.mediapipe.framework.image.BitmapImageBuilder;
+import com.google.mediapipe.framework.image.ByteBufferImageBuilder;
 import com.google.mediapipe.framework.image.MPImage;
+import com.google.mediapipe.tasks.components.containers.Landmark;
+import com.google.mediapipe.tasks.components.containers.NormalizedLandmark;
 import com.google.mediapipe.tasks.core.BaseOptions;
 import com.google.mediapipe.tasks.core.Delegate;
+import com.google.mediapipe.tasks.vision.core.ImageProcessingOptions;
 import com.google.mediapipe.tasks.vision.core.RunningMode;
 import com.google.mediapipe.tasks.vision.poselandmarker.PoseLandmarker;
 import com.google.mediapipe.tasks.vision.poselandmarker.PoseLandmarkerResult;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class PoseLandmarkerHelper {
     private static final String TAG = "PoseLandmarkerHelper";
@@ -25,13 +39,63 @@ public class PoseLandmarkerHelper {
     private int currentDelegate = DELEGATE_CPU;
     private final Object lock = new Object(); // Synchronization lock
     private volatile boolean isInitialized = false;
-    private volatile boolean isProcessing = false; // Track if currently processing a frame
     
     private final PerformanceMonitor performanceMonitor = new PerformanceMonitor("PoseLandmarker");
 
+    // Per-ingestion-mode allocation and end-to-end latency
+    private final Map<IngestionMode, IngestionStats> ingestionStats = new EnumMap<>(IngestionMode.class);
+
+    // Frames submitted to detectAsync and not yet returned, matched by timestamp in the callback
+    private static final int MAX_PENDING_FRAMES = 8;
+    private final long[] pendingTimestampMs = new long[MAX_PENDING_FRAMES];
+    private final long[] pendingArrivalNanos = new long[MAX_PENDING_FRAMES];
+    private final long[] pendingCaptureNanos = new long[MAX_PENDING_FRAMES];
+    // Per frame, as several can be in flight: detect call entered, detectAsync called
+    private final long[] pendingStartNanos = new long[MAX_PENDING_FRAMES];
+    private final long[] pendingSubmitNanos = new long[MAX_PENDING_FRAMES];
+    private final IngestionMode[] pendingMode = new IngestionMode[MAX_PENDING_FRAMES];
+    private final BitmapPool.PooledBitmap[] pendingBitmap = new BitmapPool.PooledBitmap[MAX_PENDING_FRAMES];
+    private final Frame[] pendingFrame = new Frame[MAX_PENDING_FRAMES]; // Retained while its bitmap is in MediaPipe
+    private final RectF[] pendingRoi = new RectF[MAX_PENDING_FRAMES]; // Upright normalized crop
+    private final boolean[] pendingCropped = new boolean[MAX_PENDING_FRAMES];
+    private final int[] pendingFullWidth = new int[MAX_PENDING_FRAMES];   // Upright full-frame size
+    private final int[] pendingFullHeight = new int[MAX_PENDING_FRAMES];
+    private int pendingIndex = 0;
+    private final Object pendingLock = new Object(); // Separate from lock: close() waits on in-flight callbacks
+
+    // Admission control: at most maxInFlight frames inside MediaPipe, newest waiting frame wins
+    public static final int DEFAULT_MAX_IN_FLIGHT = 1;
+    private volatile int maxInFlight = DEFAULT_MAX_IN_FLIGHT;
+    private int inFlight = 0; // guarded by pendingLock
+    private Frame waitingFrame; // guarded by pendingLock, retained
+    private final ExecutorService admissionExecutor = Executors.newSingleThreadExecutor();
+
+    // Rotation/crop targets are owned by MediaPipe until the result callback returns them
+    private static final int ROTATION_POOL_SIZE = 3;
+    private final BitmapPool rotationPool = new BitmapPool("Rotation/ROI", ROTATION_POOL_SIZE);
+    private final Matrix rotationMatrix = new Matrix();
+    private final RectF rotationBounds = new RectF();
+    private final Canvas rotationCanvas = new Canvas();
+
+    // Landmark-guided cropping: MediaPipe sees only the region around the user
+    private static final int ROI_ALIGNMENT = 16; // Crop sizes are multiples of this, keeps pool hits stable
+    private static final int MIN_ROI_SIZE = 64;
+    private final RoiTracker roiTracker = new RoiTracker();
+    private volatile boolean roiCroppingEnabled = true;
+    private final RectF frameRoi = new RectF();   // guarded by lock
+    private final RectF bufferRoi = new RectF();  // guarded by lock
+    private final RectF resultRoi = new RectF();  // callback thread only
+    private ByteBuffer roiRgbaBuffer;             // guarded by lock
+
     public PoseLandmarkerHelper(Context context, LandmarkerListener listener) {
         this.context = context;
         this.listener = listener;
+        for (IngestionMode mode : IngestionMode.values()) {
+            ingestionStats.put(mode, new IngestionStats(mode));
+        }
+        for (int i = 0; i < MAX_PENDING_FRAMES; i++) {
+            pendingRoi[i] = new RectF();
+        }
     }
 
     public void setupPoseLandmarker() {
@@ -92,11 +156,50 @@ public class PoseLandmarkerHelper {
     }
 
     public void detectLiveStream(Bitmap bitmap, int imageRotation) {
+        if (bitmap == null) {
+            Log.w(TAG, "Bitmap is null, skipping detection");
+            return;
+        }
+        long now = System.nanoTime();
+        Frame frame = Frame.ofBitmap(bitmap, imageRotation, now, now, null);
+        try {
+            detectLiveStream(frame);
+        } finally {
+            frame.release();
+        }
+    }
+
+    /**
+     * Detect on a frame from any camera source, using the path for its format.
+     * The frame's capture and arrival times are carried into the ResultBundle.
+     */
+    public void detectLiveStream(Frame frame) {
+        switch (frame.getFormat()) {
+            case BITMAP:
+                detectBitmap(frame);
+                break;
+            case RGBA_8888:
+                if (frame.isTightlyPacked()) {
+                    detectRgba(frame);
+                } else {
+                    Log.w(TAG, "RGBA frame has row padding, skipping detection");
+                }
+                break;
+        }
+    }
+
+    /**
+     * Detect on a Bitmap frame.
+     * The frame is retained while its bitmap is waiting or inside MediaPipe.
+     */
+    private void detectBitmap(Frame frame) {
         if (!isInitialized || poseLandmarker == null) {
             Log.w(TAG, "PoseLandmarker not initialized, skipping detection");
             return;
         }
         
+        Bitmap bitmap = frame.getBitmap();
+        int imageRotation = frame.getRotationDegrees();
         if (bitmap == null || bitmap.isRecycled()) {
             Log.w(TAG, "Bitmap is null or recycled, skipping detection");
             return;
@@ -107,58 +210,478 @@ public class PoseLandmarkerHelper {
                 return;
             }
             
+            if (!tryAdmitFrame()) {
+                // Park the frame; it is submitted when an in-flight frame completes
+                parkWaitingFrame(frame);
+                return;
+            }
+            
             try {
-                isProcessing = true;
-                performanceMonitor.startTotal();
+                long startNanos = System.nanoTime();
                 
-                Matrix matrix = new Matrix();
-                matrix.postRotate(imageRotation);
-                Bitmap rotatedBitmap = Bitmap.createBitmap(bitmap, 0, 0, bitmap.getWidth(), bitmap.getHeight(), matrix, false);
+                boolean quarterTurn = imageRotation % 180 != 0;
+                int fullWidth = quarterTurn ? bitmap.getHeight() : bitmap.getWidth();
+                int fullHeight = quarterTurn ? bitmap.getWidth() : bitmap.getHeight();
+                boolean cropped = roiCroppingEnabled && roiTracker.nextRoi(frameRoi)
+                        && alignRoi(frameRoi, fullWidth, fullHeight);
                 
-                if (rotatedBitmap == null || rotatedBitmap.isRecycled()) {
-                    Log.w(TAG, "Rotated bitmap is invalid, skipping detection");
-                    isProcessing = false;
-                    return;
+                Bitmap rotatedBitmap = bitmap;
+                BitmapPool.PooledBitmap pooledBitmap = null;
+                if (imageRotation % 360 != 0 || cropped) {
+                    pooledBitmap = rotateIntoPool(bitmap, imageRotation, cropped ? frameRoi : null);
+                    rotatedBitmap = pooledBitmap.getBitmap();
+                }
+                if (cropped) {
+                    roiTracker.recordCrop(frameRoi);
                 }
                 
                 MPImage mpImage = new BitmapImageBuilder(rotatedBitmap).build();
+                long timestampMs = SystemClock.uptimeMillis();
+                // MediaPipe reads the source bitmap itself when there is no rotation target
+                trackPendingFrame(timestampMs, startNanos, frame, IngestionMode.BITMAP, pooledBitmap,
+                        pooledBitmap == null, cropped ? frameRoi : null, fullWidth, fullHeight);
                 
-                performanceMonitor.startInference();
-                poseLandmarker.detectAsync(mpImage, SystemClock.uptimeMillis());
+                try {
+                    poseLandmarker.detectAsync(mpImage, timestampMs);
+                } catch (RuntimeException e) {
+                    // Never reached MediaPipe, take the rotation target back now
+                    releasePendingFrame(timestampMs);
+                    throw e;
+                }
                 
-                // Don't recycle rotatedBitmap here as MediaPipe might still be using it
+                // pooledBitmap is returned to the pool in returnLivestreamResult
             } catch (IllegalStateException e) {
                 Log.e(TAG, "MediaPipe closed during detection", e);
                 isInitialized = false;
-                isProcessing = false;
             } catch (Exception e) {
                 Log.e(TAG, "Error in detectLiveStream", e);
-                isProcessing = false;
             }
         }
     }
 
+    /**
+     * Detect on a tightly packed RGBA_8888 buffer without creating a Bitmap.
+     * Rotation is passed to MediaPipe as metadata instead of rotating the pixels.
+     * MediaPipe copies the buffer into its own packet inside detectAsync, so the
+     * source may reuse or release it as soon as this returns.
+     */
+    private void detectRgba(Frame frame) {
+        ByteBuffer rgba = frame.getPlane(0);
+        int width = frame.getWidth();
+        int height = frame.getHeight();
+        int imageRotation = frame.getRotationDegrees();
+        if (!isInitialized || poseLandmarker == null) {
+            Log.w(TAG, "PoseLandmarker not initialized, skipping detection");
+            return;
+        }
+        
+        if (rgba == null || rgba.remaining() < width * height * 4) {
+            Log.w(TAG, "RGBA buffer is null or too small, skipping detection");
+            return;
+        }
+        
+        synchronized (lock) {
+            if (!isInitialized || poseLandmarker == null) {
+                return;
+            }
+            
+            if (!tryAdmitFrame()) {
+                // The camera buffer cannot outlive this call, so it cannot wait for a slot
+                performanceMonitor.recordFrameDroppedAtAdmission();
+                return;
+            }
+            
+            try {
+                long startNanos = System.nanoTime();
+                
+                boolean quarterTurn = imageRotation % 180 != 0;
+                int fullWidth = quarterTurn ? height : width;
+                int fullHeight = quarterTurn ? width : height;
+                boolean cropped = false;
+                if (roiCroppingEnabled && roiTracker.nextRoi(frameRoi)) {
+                    // Crop in buffer coordinates; MediaPipe rotates the crop upright
+                    RoiTracker.uprightToBuffer(frameRoi, imageRotation, bufferRoi);
+                    if (alignRoi(bufferRoi, width, height)) {
+                        RoiTracker.bufferToUpright(bufferRoi, imageRotation, frameRoi);
+                        cropped = true;
+                    }
+                }
+                
+                MPImage mpImage;
+                if (cropped) {
+                    int cropWidth = Math.round(bufferRoi.width() * width);
+                    int cropHeight = Math.round(bufferRoi.height() * height);
+                    ByteBuffer cropBuffer = cropRgba(rgba, width, height, bufferRoi);
+                    mpImage = new ByteBufferImageBuilder(cropBuffer, cropWidth, cropHeight, MPImage.IMAGE_FORMAT_RGBA).build();
+                    roiTracker.recordCrop(frameRoi);
+                } else {
+                    mpImage = new ByteBufferImageBuilder(rgba, width, height, MPImage.IMAGE_FORMAT_RGBA).build();
+                }
+                ImageProcessingOptions processingOptions = ImageProcessingOptions.builder()
+                        .setRotationDegrees(imageRotation)
+                        .build();
+                long timestampMs = SystemClock.uptimeMillis();
+                trackPendingFrame(timestampMs, startNanos, frame, IngestionMode.RGBA_BUFFER, null,
+                        false, cropped ? frameRoi : null, fullWidth, fullHeight);
+                
+                try {
+                    poseLandmarker.detectAsync(mpImage, processingOptions, timestampMs);
+                } catch (RuntimeException e) {
+                    releasePendingFrame(timestampMs);
+                    throw e;
+                }
+            } catch (IllegalStateException e) {
+                Log.e(TAG, "MediaPipe closed during detection", e);
+                isInitialized = false;
+            } catch (Exception e) {
+                Log.e(TAG, "Error in detectLiveStream (RGBA)", e);
+            }
+        }
+    }
+
+    /**
+     * Set how many frames may be inside MediaPipe at once (1..MAX_PENDING_FRAMES)
+     */
+    public void setMaxInFlight(int frames) {
+        maxInFlight = Math.max(1, Math.min(frames, MAX_PENDING_FRAMES));
+        Log.d(TAG, "Max in-flight frames set to " + maxInFlight);
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    /**
+     * Admit a frame if fewer than maxInFlight frames are in MediaPipe.
+     * Submitters are serialized by lock and completions only lower inFlight,
+     * so a frame admitted here always gets a slot in trackPendingFrame.
+     */
+    private boolean tryAdmitFrame() {
+        synchronized (pendingLock) {
+            if (inFlight >= maxInFlight) {
+                return false;
+            }
+        }
+        performanceMonitor.recordFrameAdmitted();
+        return true;
+    }
+
+    /**
+     * Keep only the newest rejected bitmap frame; an older waiting frame is dropped
+     */
+    private void parkWaitingFrame(Frame frame) {
+        frame.retain();
+        Frame dropped;
+        synchronized (pendingLock) {
+            dropped = waitingFrame;
+            waitingFrame = frame;
+        }
+        if (dropped != null) {
+            performanceMonitor.recordFrameDroppedAtAdmission();
+            dropped.release();
+        }
+    }
+
+    /**
+     * Submit the waiting frame, if any, now that a slot has freed up.
+     * Runs on a separate thread so detectAsync is never called from MediaPipe's callback.
+     */
+    private void submitWaitingFrame() {
+        final Frame frame;
+        synchronized (pendingLock) {
+            if (waitingFrame == null) {
+                return;
+            }
+            frame = waitingFrame;
+            waitingFrame = null;
+        }
+        admissionExecutor.execute(() -> {
+            try {
+                detectBitmap(frame);
+            } finally {
+                frame.release();
+            }
+        });
+    }
+
+    /**
+     * Enable or disable landmark-guided ROI cropping (on by default)
+     */
+    public void setRoiCroppingEnabled(boolean enabled) {
+        roiCroppingEnabled = enabled;
+        roiTracker.reset();
+        Log.d(TAG, "ROI cropping " + (enabled ? "enabled" : "disabled"));
+    }
+
+    public boolean isRoiCroppingEnabled() {
+        return roiCroppingEnabled;
+    }
+
+    /**
+     * Snap a normalized ROI to whole pixels with sizes that are multiples of ROI_ALIGNMENT.
+     * Returns false if the crop would be too small to be useful.
+     */
+    private static boolean alignRoi(RectF roi, int width, int height) {
+        int cropWidth = alignUp(Math.round(roi.width() * width), width);
+        int cropHeight = alignUp(Math.round(roi.height() * height), height);
+        if (cropWidth < MIN_ROI_SIZE || cropHeight < MIN_ROI_SIZE) {
+            return false;
+        }
+        int left = Math.max(0, Math.min(Math.round(roi.centerX() * width) - cropWidth / 2, width - cropWidth));
+        int top = Math.max(0, Math.min(Math.round(roi.centerY() * height) - cropHeight / 2, height - cropHeight));
+        roi.set((float) left / width, (float) top / height,
+                (float) (left + cropWidth) / width, (float) (top + cropHeight) / height);
+        return true;
+    }
+
+    private static int alignUp(int size, int limit) {
+        int aligned = (size + ROI_ALIGNMENT - 1) / ROI_ALIGNMENT * ROI_ALIGNMENT;
+        return Math.min(aligned, limit);
+    }
+
+    /**
+     * Copy a pixel-aligned crop of a packed RGBA frame into a reused buffer.
+     * MediaPipe copies the image inside detectAsync, so one buffer is enough.
+     */
+    private ByteBuffer cropRgba(ByteBuffer source, int width, int height, RectF roi) {
+        int left = Math.round(roi.left * width);
+        int top = Math.round(roi.top * height);
+        int cropWidth = Math.round(roi.width() * width);
+        int cropHeight = Math.round(roi.height() * height);
+        int rowBytes = cropWidth * 4;
+        int size = rowBytes * cropHeight;
+        if (roiRgbaBuffer == null || roiRgbaBuffer.capacity() < size) {
+            roiRgbaBuffer = ByteBuffer.allocateDirect(size);
+        }
+        
+        int base = source.position();
+        int limit = source.limit();
+        roiRgbaBuffer.clear();
+        for (int row = 0; row < cropHeight; row++) {
+            int start = base + ((top + row) * width + left) * 4;
+            source.limit(start + rowBytes);
+            source.position(start);
+            roiRgbaBuffer.put(source);
+        }
+        source.limit(limit);
+        source.position(base);
+        roiRgbaBuffer.flip();
+        return roiRgbaBuffer;
+    }
+
+    /**
+     * Rotate a frame, and optionally crop it to an upright normalized ROI, into a pooled bitmap.
+     * The caller owns the returned reference.
+     */
+    private BitmapPool.PooledBitmap rotateIntoPool(Bitmap source, int rotation, RectF roi) {
+        rotationMatrix.reset();
+        rotationMatrix.postRotate(rotation);
+        rotationBounds.set(0, 0, source.getWidth(), source.getHeight());
+        rotationMatrix.mapRect(rotationBounds);
+        rotationMatrix.postTranslate(-rotationBounds.left, -rotationBounds.top);
+        
+        int targetWidth = Math.round(rotationBounds.width());
+        int targetHeight = Math.round(rotationBounds.height());
+        if (roi != null) {
+            float uprightWidth = targetWidth;
+            float uprightHeight = targetHeight;
+            rotationMatrix.postTranslate(-roi.left * uprightWidth, -roi.top * uprightHeight);
+            targetWidth = Math.round(roi.width() * uprightWidth);
+            targetHeight = Math.round(roi.height() * uprightHeight);
+        }
+        
+        BitmapPool.PooledBitmap target = rotationPool.acquire(targetWidth, targetHeight);
+        rotationCanvas.setBitmap(target.getBitmap());
+        rotationCanvas.drawBitmap(source, rotationMatrix, null);
+        rotationCanvas.setBitmap(null);
+        return target;
+    }
+
+    /**
+     * Results arrive in submission order, so an error belongs to the oldest pending frame
+     */
+    private void releaseOldestPendingFrame() {
+        synchronized (pendingLock) {
+            int oldest = -1;
+            for (int i = 0; i < MAX_PENDING_FRAMES; i++) {
+                if (pendingMode[i] != null && (oldest < 0 || pendingTimestampMs[i] < pendingTimestampMs[oldest])) {
+                    oldest = i;
+                }
+            }
+            if (oldest >= 0) {
+                clearPendingSlot(oldest);
+            }
+        }
+    }
+
+    /**
+     * Give a frame a pending slot; the caller calls detectAsync straight after
+     */
+    private void trackPendingFrame(long timestampMs, long startNanos, Frame frame,
+                                   IngestionMode mode, BitmapPool.PooledBitmap pooledBitmap,
+                                   boolean retainFrame, RectF roi, int fullWidth, int fullHeight) {
+        synchronized (pendingLock) {
+            for (int i = 0; i < MAX_PENDING_FRAMES; i++) {
+                int slot = (pendingIndex + i) % MAX_PENDING_FRAMES;
+                if (pendingMode[slot] == null) {
+                    pendingIndex = slot;
+                    break;
+                }
+            }
+            if (pendingMode[pendingIndex] != null) {
+                // Every slot still pending: the oldest never got a callback
+                clearPendingSlot(pendingIndex);
+                performanceMonitor.recordFrameDroppedByPipeline();
+            }
+            inFlight++;
+            pendingBitmap[pendingIndex] = pooledBitmap;
+            if (retainFrame) {
+                frame.retain();
+                pendingFrame[pendingIndex] = frame;
+            }
+            pendingTimestampMs[pendingIndex] = timestampMs;
+            pendingArrivalNanos[pendingIndex] = frame.getArrivalNanos();
+            pendingCaptureNanos[pendingIndex] = frame.getCaptureNanos();
+            pendingMode[pendingIndex] = mode;
+            pendingCropped[pendingIndex] = roi != null;
+            if (roi != null) {
+                pendingRoi[pendingIndex].set(roi);
+            }
+            pendingFullWidth[pendingIndex] = fullWidth;
+            pendingFullHeight[pendingIndex] = fullHeight;
+            pendingStartNanos[pendingIndex] = startNanos;
+            pendingSubmitNanos[pendingIndex] = System.nanoTime();
+            pendingIndex = (pendingIndex + 1) % MAX_PENDING_FRAMES;
+        }
+    }
+
+    /**
+     * Forget a pending frame and return its rotation target to the pool
+     */
+    private void releasePendingFrame(long timestampMs) {
+        synchronized (pendingLock) {
+            int slot = findPendingFrame(timestampMs);
+            if (slot >= 0) {
+                clearPendingSlot(slot);
+            }
+        }
+    }
+
+    private void clearPendingSlot(int slot) {
+        if (pendingMode[slot] == null) {
+            return;
+        }
+        if (pendingBitmap[slot] != null) {
+            pendingBitmap[slot].release();
+            pendingBitmap[slot] = null;
+        }
+        if (pendingFrame[slot] != null) {
+            pendingFrame[slot].release();
+            pendingFrame[slot] = null;
+        }
+        pendingMode[slot] = null;
+        inFlight--;
+    }
+
+    /**
+     * MediaPipe returns results in timestamp order, so pending frames older than
+     * a returned result were dropped inside the graph
+     */
+    private void releaseFramesDroppedBefore(long timestampMs) {
+        for (int i = 0; i < MAX_PENDING_FRAMES; i++) {
+            if (pendingMode[i] != null && pendingTimestampMs[i] < timestampMs) {
+                clearPendingSlot(i);
+                performanceMonitor.recordFrameDroppedByPipeline();
+            }
+        }
+    }
+
+    /**
+     * Release every pending frame, e.g. when the landmarker is closed
+     */
+    private void releaseAllPendingFrames() {
+        synchronized (pendingLock) {
+            for (int i = 0; i < MAX_PENDING_FRAMES; i++) {
+                clearPendingSlot(i);
+            }
+            if (waitingFrame != null) {
+                waitingFrame.release();
+                waitingFrame = null;
+            }
+        }
+    }
+
+    /**
+     * Find the pending slot for a result timestamp, or -1 if it was overwritten
+     */
+    private int findPendingFrame(long timestampMs) {
+        for (int i = 0; i < MAX_PENDING_FRAMES; i++) {
+            if (pendingMode[i] != null && pendingTimestampMs[i] == timestampMs) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
     private void returnLivestreamResult(PoseLandmarkerResult result, MPImage input) {
+        long resultNanos = System.nanoTime();
         try {
-            performanceMonitor.endInference();
-            performanceMonitor.endTotal();
-            isProcessing = false; // Mark processing complete
-            
             if (result == null || input == null) {
                 Log.w(TAG, "Null result or input in callback");
                 return;
             }
-            long inferenceTime = performanceMonitor.getLastTotalMs();
-            listener.onResults(new ResultBundle(result, inferenceTime, input.getWidth(), input.getHeight()));
+            long inferenceTime = 0; // Detect call to result, μs
+            
+            // Buffer frames are rotated by MediaPipe, so landmarks are normalized to the upright size
+            int width = input.getWidth();
+            int height = input.getHeight();
+            boolean cropped = false;
+            long captureNanos = 0;
+            long arrivalNanos = 0;
+            int slot;
+            synchronized (pendingLock) {
+                slot = findPendingFrame(result.timestampMs());
+                if (slot >= 0) {
+                    IngestionMode mode = pendingMode[slot];
+                    captureNanos = pendingCaptureNanos[slot];
+                    arrivalNanos = pendingArrivalNanos[slot];
+                    inferenceTime = (resultNanos - pendingStartNanos[slot]) / 1_000;
+                    performanceMonitor.recordInference((resultNanos - pendingSubmitNanos[slot]) / 1_000);
+                    performanceMonitor.recordTotal(inferenceTime);
+                    long latencyUs = (resultNanos - arrivalNanos) / 1_000;
+                    ingestionStats.get(mode).recordLatency(latencyUs);
+                    // Landmarks are reported against the upright full frame, even for crops
+                    width = pendingFullWidth[slot];
+                    height = pendingFullHeight[slot];
+                    cropped = pendingCropped[slot];
+                    if (cropped) {
+                        resultRoi.set(pendingRoi[slot]);
+                    }
+                    clearPendingSlot(slot);
+                }
+                releaseFramesDroppedBefore(result.timestampMs());
+            }
+            submitWaitingFrame();
+            
+            if (cropped) {
+                result = mapToFullFrame(result, resultRoi);
+            }
+            if (result.landmarks().isEmpty()) {
+                roiTracker.reset();
+            } else {
+                roiTracker.onLandmarks(result.landmarks().get(0), cropped ? resultRoi : null);
+            }
+            listener.onResults(new ResultBundle(result, inferenceTime, width, height,
+                    captureNanos, arrivalNanos, resultNanos));
         } catch (Exception e) {
             Log.e(TAG, "Error in returnLivestreamResult", e);
-            isProcessing = false;
         }
     }
 
     private void returnLivestreamError(RuntimeException error) {
         try {
-            isProcessing = false; // Mark processing complete on error
+            releaseOldestPendingFrame();
+            submitWaitingFrame();
             
             if (error != null && error.getMessage() != null) {
                 listener.onError(error.getMessage());
@@ -167,10 +690,53 @@ public class PoseLandmarkerHelper {
             }
         } catch (Exception e) {
             Log.e(TAG, "Error in returnLivestreamError", e);
-            isProcessing = false;
         }
     }
 
+    /**
+     * Map landmarks detected in a crop back to normalized full-frame coordinates.
+     * z shares the x scale, so it is scaled by the crop width. World landmarks are
+     * metric and hip-centred, so they do not depend on the crop.
+     */
+    private static PoseLandmarkerResult mapToFullFrame(PoseLandmarkerResult result, RectF roi) {
+        List<List<NormalizedLandmark>> mappedPoses = new ArrayList<>(result.landmarks().size());
+        for (List<NormalizedLandmark> pose : result.landmarks()) {
+            List<NormalizedLandmark> mapped = new ArrayList<>(pose.size());
+            for (NormalizedLandmark landmark : pose) {
+                mapped.add(NormalizedLandmark.create(
+                        roi.left + landmark.x() * roi.width(),
+                        roi.top + landmark.y() * roi.height(),
+                        landmark.z() * roi.width(),
+                        landmark.visibility(),
+                        landmark.presence()));
+            }
+            mappedPoses.add(mapped);
+        }
+        return new FullFrameResult(result, mappedPoses);
+    }
+
+    /**
+     * A pose result whose landmarks were remapped from a crop to the full frame
+     */
+    private static class FullFrameResult extends PoseLandmarkerResult {
+        private final PoseLandmarkerResult cropResult;
+        private final List<List<NormalizedLandmark>> landmarks;
+
+        FullFrameResult(PoseLandmarkerResult cropResult, List<List<NormalizedLandmark>> landmarks) {
+            this.cropResult = cropResult;
+            this.landmarks = landmarks;
+        }
+
+        @Override
+        public long timestampMs() { return cropResult.timestampMs(); }
+        @Override
+        public List<List<NormalizedLandmark>> landmarks() { return landmarks; }
+        @Override
+        public List<List<Landmark>> worldLandmarks() { return cropResult.worldLandmarks(); }
+        @Override
+        public Optional<List<MPImage>> segmentationMasks() { return cropResult.segmentationMasks(); }
+    }
+
     public void clearPoseLandmarker() {
         synchronized (lock) {
             try {
@@ -180,6 +746,10 @@ public class PoseLandmarkerHelper {
                     poseLandmarker = null;
                     Log.d(TAG, "PoseLandmarker cleared");
                 }
+                // No more callbacks will come for frames still in flight
+                releaseAllPendingFrames();
+                rotationPool.clear();
+                roiTracker.reset();
             } catch (Exception e) {
                 Log.e(TAG, "Error clearing PoseLandmarker", e);
                 poseLandmarker = null; // Force null even if close fails
@@ -205,27 +775,79 @@ public class PoseLandmarkerHelper {
     public String getPerformanceStats() {
         return performanceMonitor.getStats();
     }
+    
+    /**
+     * Record the bytes allocated to hand one frame to MediaPipe
+     * (measured by CameraXManager around conversion and detectAsync)
+     */
+    public void recordIngestionAllocation(IngestionMode mode, long bytes) {
+        ingestionStats.get(mode).recordAllocation(bytes);
+    }
+    
+    /**
+     * Get allocation and end-to-end latency statistics for each ingestion mode
+     */
+    public String getIngestionStats() {
+        StringBuilder stats = new StringBuilder();
+        for (IngestionStats modeStats : ingestionStats.values()) {
+            if (stats.length() > 0) stats.append("\n");
+            stats.append(modeStats.getStats());
+        }
+        stats.append("\n").append(rotationPool.getStats());
+        stats.append("\n").append(roiTracker.getStats());
+        return stats.toString();
+    }
+    
+    /**
+     * Get ingestion mode metrics for Firebase upload
+     */
+    public Map<String, Object> getIngestionMetrics() {
+        Map<String, Object> metrics = new java.util.HashMap<>();
+        for (Map.Entry<IngestionMode, IngestionStats> entry : ingestionStats.entrySet()) {
+            metrics.put(entry.getKey().name(), entry.getValue().getMetricsMap());
+        }
+        metrics.put("rotationPool", rotationPool.getMetricsMap());
+        metrics.put("roi", roiTracker.getMetricsMap());
+        metrics.put("roiCroppingEnabled", roiCroppingEnabled);
+        return metrics;
+    }
 
     public interface LandmarkerListener {
         void onError(String error);
         void onResults(ResultBundle resultBundle);
     }
 
+    /**
+     * A pose result with the frame's timestamps (System.nanoTime() clock):
+     * camera capture, arrival in the app and MediaPipe result. Capture, arrival
+     * and inference time are 0 if the frame could not be matched to its submission.
+     */
     public static class ResultBundle {
         private final PoseLandmarkerResult results;
         private final long inferenceTime;
         private final int inputImageWidth;
         private final int inputImageHeight;
+        private final long captureNanos;
+        private final long arrivalNanos;
+        private final long resultNanos;
 
-        public ResultBundle(PoseLandmarkerResult results, long inferenceTime, int width, int height) {
+        public ResultBundle(PoseLandmarkerResult results, long inferenceTime, int width, int height,
+                            long captureNanos, long arrivalNanos, long resultNanos) {
             this.results = results;
             this.inferenceTime = inferenceTime;
             this.inputImageWidth = width;
             this.inputImageHeight = height;
+            this.captureNanos = captureNanos;
+            this.arrivalNanos = arrivalNanos;
+            this.resultNanos = resultNanos;
         }
         public PoseLandmarkerResult getResults() { return results; }
         public long getInferenceTime() { return inferenceTime; }
         public int getInputImageWidth() { return inputImageWidth; }
         public int getInputImageHeight() { return inputImageHeight; }
+        public long getCaptureNanos() { return captureNanos; }
+        public long getArrivalNanos() { return arrivalNanos; }
+        public long getResultNanos() { return resultNanos; }
+        public boolean hasCaptureTimestamp() { return captureNanos != 0; }
     }
 }
\ No newline at end of file
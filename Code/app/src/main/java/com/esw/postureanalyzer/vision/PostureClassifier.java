@@ -1,14 +1,26 @@
 package com.esw.postureanalyzer.vision;
 
 import android.content.Context;
+import android.content.res.AssetFileDescriptor;
 import android.util.Log;
 import com.google.mediapipe.tasks.components.containers.NormalizedLandmark;
 import com.google.mediapipe.tasks.vision.poselandmarker.PoseLandmarkerResult;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
 import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import org.tensorflow.lite.Interpreter;
 import org.tensorflow.lite.gpu.CompatibilityList;
 import org.tensorflow.lite.gpu.GpuDelegate;
@@ -16,17 +28,114 @@ import org.tensorflow.lite.nnapi.NnApiDelegate;
 
 public class PostureClassifier {
     private static final String TAG = "PostureClassifier";
+    // Per-frame logging allocates; enable with adb shell setprop log.tag.PostureClassifier DEBUG
+    private static final boolean DEBUG = Log.isLoggable(TAG, Log.DEBUG);
     
-    // Model interpreters
-    private Interpreter slouchInterpreter;
-    private Interpreter crossLeggedInterpreter;
-    private Interpreter leanInterpreter;
+    // Model assets
+    static final String SLOUCH_MODEL_ASSET = "posture_model.tflite";
+    static final String CROSS_LEGGED_MODEL_ASSET = "crosslegged.tflite";
+    static final String LEAN_MODEL_ASSET = "lean_direction_model.tflite";
+
+    // Models
+    private ClassifierModel slouchModel;
+    private ClassifierModel crossLeggedModel;
+    private ClassifierModel leanModel;
+    
+    // Preallocated input/output tensors, reused for every frame
+    private final ModelTensors slouchTensors = new ModelTensors(FeatureExtractor.SLOUCH_FEATURES, 1);
+    private final ModelTensors crossLeggedTensors = new ModelTensors(FeatureExtractor.CROSS_LEGGED_FEATURES, 1);
+    private final ModelTensors leanTensors = new ModelTensors(FeatureExtractor.LEANING_FEATURES, 3);
+    
+    // Optional fused model: all three heads in one call (built by Code/training/build_fused_model.py)
+    // input  = slouch features | normalized cross-legged features | lean features
+    // output = slouch score | cross-legged score | lean left, right, upright
+    static final String FUSED_MODEL_ASSET = "posture_fused.tflite";
+    static final int FUSED_INPUTS = FeatureExtractor.SLOUCH_FEATURES + FeatureExtractor.CROSS_LEGGED_FEATURES
+            + FeatureExtractor.LEANING_FEATURES;
+    static final int FUSED_OUTPUTS = 5;
+    private ClassifierModel fusedModel; // Null when the asset is missing or the Java engine is selected
+    private boolean fusedModelEnabled = true;
+    private final ModelTensors fusedTensors = new ModelTensors(FUSED_INPUTS, FUSED_OUTPUTS);
+    private final FloatBuffer fusedSlouchInput = fusedTensors.inputView(0);
+    private final FloatBuffer fusedCrossLeggedInput = fusedTensors.inputView(FeatureExtractor.SLOUCH_FEATURES);
+    private final FloatBuffer fusedLeanInput = fusedTensors.inputView(
+            FeatureExtractor.SLOUCH_FEATURES + FeatureExtractor.CROSS_LEGGED_FEATURES);
+    
+    // Optional concurrent execution of the separate models, one worker thread per model.
+    // Workers write their status here; runAll() returning publishes it to the caller.
+    private ParallelModelRunner parallelRunner; // Null unless parallel inference is enabled
+    private boolean runSlouch;
+    private boolean runLegs;
+    private boolean runLean;
+    private int parallelSlouchStatus;
+    private int parallelLegsStatus;
+    private int parallelLeanStatus;
+    
+    // Result reuse: a model is skipped while the joints it reads stay within tolerance of the
+    // joints its last result was computed from, so a still user costs no inference
+    public static final float DEFAULT_REUSE_PIXEL_TOLERANCE = 2.0f;
+    public static final float DEFAULT_REUSE_VISIBILITY_TOLERANCE = 0.05f;
+    private boolean resultReuseEnabled = true;
+    private float reusePixelTolerance = DEFAULT_REUSE_PIXEL_TOLERANCE;
+    private float reuseVisibilityTolerance = DEFAULT_REUSE_VISIBILITY_TOLERANCE;
+    private final CoherenceCache slouchCache = new CoherenceCache(SLOUCH_ERROR, false, 11, 12, 23, 24);
+    private final CoherenceCache crossLeggedCache = new CoherenceCache(LEGS_ERROR, false, 23, 24, 25, 26, 27, 28);
+    // Lean features include the joints' visibility, so visibility changes count as movement
+    private final CoherenceCache leanCache = new CoherenceCache(LEAN_ERROR, true, 7, 8, 11, 12, 23, 24);
+    
+    // Scheduling: a model is skipped when the joints it needs are hidden, and otherwise runs at
+    // most once per interval, reusing its last result in between. Slouch changes fastest.
+    public static final float DEFAULT_MIN_JOINT_VISIBILITY = 0.3f;
+    public static final long DEFAULT_SLOUCH_INTERVAL_MS = 0;
+    public static final long DEFAULT_CROSS_LEGGED_INTERVAL_MS = 500;
+    public static final long DEFAULT_LEAN_INTERVAL_MS = 200;
+    private static final int RUN_MODEL = -1;
+    private float minJointVisibility = DEFAULT_MIN_JOINT_VISIBILITY;
+    private final ModelSchedule slouchSchedule =
+            new ModelSchedule(SLOUCH_NOT_VISIBLE, DEFAULT_SLOUCH_INTERVAL_MS, 11, 12, 23, 24);
+    // Same joints as the cross-legged features; knees and ankles are usually hidden under a desk
+    private final ModelSchedule crossLeggedSchedule =
+            new ModelSchedule(LEGS_NOT_VISIBLE, DEFAULT_CROSS_LEGGED_INTERVAL_MS, 23, 24, 25, 26, 27, 28);
+    private final ModelSchedule leanSchedule =
+            new ModelSchedule(LEAN_NOT_VISIBLE, DEFAULT_LEAN_INTERVAL_MS, 11, 12, 23, 24);
     
-    // Delegates
-    private GpuDelegate gpuDelegate;
-    private NnApiDelegate nnApiDelegate;
+    // Live models: modelSet owns the interpreters and delegates copied into the fields above.
+    // Delegate changes build a new set on swapExecutor while this one keeps serving frames.
+    private ModelSet modelSet;
+    private final ExecutorService swapExecutor; // Null in tests without swaps
+    private final ModelFactory modelFactory; // Tests only: builds stand-in sets instead of TFLite ones
+    private SwapListener swapListener;
+    private boolean closed = false;
+    // Requested delegates; the live ones below catch up when the swap completes
+    private DelegateType targetMode = DelegateType.CPU;
+    private DelegateType targetSlouch = DelegateType.CPU;
+    private DelegateType targetCrossLegged = DelegateType.CPU;
+    private DelegateType targetLean = DelegateType.CPU;
+    private DelegateType targetFused = DelegateType.CPU;
+    // Swap statistics
+    private boolean swapInProgress = false;
+    private int framesDuringSwap = 0; // classify() calls served by the old set while the new one builds
+    private int swaps = 0;
+    private int failedSwaps = 0;
+    private long lastSwapMs = 0; // Request picked up to new set live
+    private long lastSwapLockUs = 0; // Time classify() was blocked by the swap itself
+    private int lastSwapFrames = 0;
     
-    private DelegateType currentDelegate = DelegateType.CPU;
+    private DelegateType currentDelegate = DelegateType.CPU; // AUTO when the models use different delegates
+    private DelegateType slouchDelegate = DelegateType.CPU;
+    private DelegateType crossLeggedDelegate = DelegateType.CPU;
+    private DelegateType leanDelegate = DelegateType.CPU;
+    private DelegateType fusedDelegate = DelegateType.CPU;
+
+    // Requested interpreter threads per model on the CPU and GPU delegates (NNAPI always uses
+    // one); DEFAULT_NUM_THREADS until ThreadCountTuner has measured this device under load
+    static final int DEFAULT_NUM_THREADS = 4;
+    private int slouchThreads = DEFAULT_NUM_THREADS;
+    private int crossLeggedThreads = DEFAULT_NUM_THREADS;
+    private int leanThreads = DEFAULT_NUM_THREADS;
+    private int fusedThreads = DEFAULT_NUM_THREADS;
+    private final ThreadCountTuner threadTuner; // Null in tests
+    private volatile long lastClassifyNs = Long.MIN_VALUE / 2; // Tells ThreadCountTuner the pipeline is live
     private final Context context;
     
     // Performance tracking
@@ -37,11 +146,15 @@ public class PostureClassifier {
     private final PerformanceMonitor slouchMonitor = new PerformanceMonitor("Slouch Model");
     private final PerformanceMonitor crossLeggedMonitor = new PerformanceMonitor("CrossLegged Model");
     private final PerformanceMonitor leanMonitor = new PerformanceMonitor("Lean Model");
+    // Whole classifier stage per frame, for each path
+    private final PerformanceMonitor fusedFrameMonitor = new PerformanceMonitor("Classifier per frame (fused)");
+    private final PerformanceMonitor separateFrameMonitor = new PerformanceMonitor("Classifier per frame (separate, serial)");
+    private final PerformanceMonitor parallelFrameMonitor = new PerformanceMonitor("Classifier per frame (separate, parallel)");
 
     // CRITICAL: Replace these with actual values from your scaler.npz file
     // These are placeholder estimates - YOU MUST UPDATE THESE
-    private static final float[] CROSS_LEGGED_MEAN = {106.287895f,110.316536f,1.6213433f,1.8441758f,0.4867459f,0.96107554f};
-    private static final float[] CROSS_LEGGED_STD = {42.17919f,42.129074f,0.43531278f,0.78367054f,0.49980646f,0.19342752f};
+    static final float[] CROSS_LEGGED_MEAN = {106.287895f,110.316536f,1.6213433f,1.8441758f,0.4867459f,0.96107554f};
+    static final float[] CROSS_LEGGED_STD = {42.17919f,42.129074f,0.43531278f,0.78367054f,0.49980646f,0.19342752f};
 
     // Slouching model normalization parameters (3 features)
     // IMPORTANT: Update these with actual values after retraining your slouching model
@@ -57,51 +170,402 @@ public class PostureClassifier {
     private static final int REF_WIDTH = 640;
     private static final int REF_HEIGHT = 480;
 
+    // Status labels; classify() returns one of the prebuilt results below
+    // NOT_VISIBLE: the model was skipped because its joints are hidden (see ModelSchedule)
+    public static final String NOT_VISIBLE = "Not visible";
+    private static final String[] SLOUCH_LABELS = {"Good Posture", "Slouching", "Error", "N/A", NOT_VISIBLE};
+    private static final String[] LEGS_LABELS = {"Cross-legged", "Normal", "Error", "N/A", NOT_VISIBLE};
+    // FIXED: Corrected label order to match training (0:left, 1:right, 2:upright)
+    private static final String[] LEAN_LABELS = {"Left", "Right", "Upright", "Error", "N/A", NOT_VISIBLE};
+    private static final int SLOUCH_ERROR = 2, SLOUCH_NA = 3, SLOUCH_NOT_VISIBLE = 4;
+    private static final int LEGS_ERROR = 2, LEGS_NA = 3, LEGS_NOT_VISIBLE = 4;
+    private static final int LEAN_ERROR = 3, LEAN_NA = 4, LEAN_NOT_VISIBLE = 5;
+    private static final ClassificationResult[][][] RESULTS = buildResults();
+
     public PostureClassifier(Context context) {
         this.context = context;
-        initializeModels(DelegateType.CPU);
+        this.threadTuner = new ThreadCountTuner(context, this);
+        this.swapExecutor = Executors.newSingleThreadExecutor();
+        this.modelFactory = null;
+        // Nothing to serve frames yet, so the first set is built inline
+        install(buildModelSet(DelegateType.CPU, DelegateType.CPU, DelegateType.CPU, DelegateType.CPU,
+                DelegateType.CPU, getModelThreads()));
     }
 
     /**
-     * Initialize all models with the specified delegate
+     * For tests: classify with the given models instead of the bundled TFLite assets
      */
-    private void initializeModels(DelegateType delegateType) {
-        // Clean up existing resources
-        cleanup();
+    PostureClassifier(ClassifierModel slouchModel, ClassifierModel crossLeggedModel, ClassifierModel leanModel) {
+        this(slouchModel, crossLeggedModel, leanModel, null, null);
+    }
 
+    /**
+     * For tests: delegate and thread changes are swapped in on swapExecutor, with sets built
+     * by modelFactory
+     */
+    PostureClassifier(ClassifierModel slouchModel, ClassifierModel crossLeggedModel, ClassifierModel leanModel,
+                      ExecutorService swapExecutor, ModelFactory modelFactory) {
+        this.context = null;
+        this.threadTuner = null;
+        this.swapExecutor = swapExecutor;
+        this.modelFactory = modelFactory;
+        ModelSet set = new ModelSet(DelegateType.CPU, DelegateType.CPU, DelegateType.CPU, DelegateType.CPU,
+                DelegateType.CPU, getModelThreads());
+        set.slouchModel = slouchModel;
+        set.crossLeggedModel = crossLeggedModel;
+        set.leanModel = leanModel;
+        install(set);
+    }
+
+    private static ClassificationResult[][][] buildResults() {
+        ClassificationResult[][][] results =
+                new ClassificationResult[SLOUCH_LABELS.length][LEGS_LABELS.length][LEAN_LABELS.length];
+        for (int s = 0; s < SLOUCH_LABELS.length; s++) {
+            for (int l = 0; l < LEGS_LABELS.length; l++) {
+                for (int n = 0; n < LEAN_LABELS.length; n++) {
+                    results[s][l][n] = new ClassificationResult(SLOUCH_LABELS[s], LEGS_LABELS[l], LEAN_LABELS[n]);
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Direct native-order float tensors for one model
+     */
+    private static class ModelTensors {
+        final ByteBuffer input;
+        final FloatBuffer inputFloats;
+        final ByteBuffer output;
+        final FloatBuffer outputFloats;
+
+        ModelTensors(int inputSize, int outputSize) {
+            input = ByteBuffer.allocateDirect(inputSize * 4).order(ByteOrder.nativeOrder());
+            inputFloats = input.asFloatBuffer();
+            output = ByteBuffer.allocateDirect(outputSize * 4).order(ByteOrder.nativeOrder());
+            outputFloats = output.asFloatBuffer();
+        }
+
+        /**
+         * Float view of the input starting at element offset, for packing several feature sets
+         */
+        FloatBuffer inputView(int offset) {
+            FloatBuffer view = inputFloats.duplicate();
+            view.position(offset);
+            return view.slice();
+        }
+    }
+
+    /**
+     * Last result of one model and the joints (in pixels) it was computed from
+     */
+    private static class CoherenceCache {
+        final int errorStatus;
+        final boolean compareVisibility;
+        final int[] joints;
+        final float[] x;
+        final float[] y;
+        final float[] visibility;
+        int width;
+        int height;
+        int status;
+        boolean valid;
+        long lookups;
+        long hits;
+
+        CoherenceCache(int errorStatus, boolean compareVisibility, int... joints) {
+            this.errorStatus = errorStatus;
+            this.compareVisibility = compareVisibility;
+            this.joints = joints;
+            x = new float[joints.length];
+            y = new float[joints.length];
+            visibility = new float[joints.length];
+        }
+
+        /**
+         * True if every joint is within pixelTolerance of where it was for the cached result
+         */
+        boolean lookup(List<NormalizedLandmark> landmarks, int w, int h,
+                       float pixelTolerance, float visibilityTolerance) {
+            lookups++;
+            if (!valid || w != width || h != height) {
+                return false;
+            }
+            float maxDistanceSq = pixelTolerance * pixelTolerance;
+            for (int i = 0; i < joints.length; i++) {
+                NormalizedLandmark lm = landmarks.get(joints[i]);
+                float dx = pixelX(lm, w) - x[i];
+                float dy = pixelY(lm, h) - y[i];
+                if (dx * dx + dy * dy > maxDistanceSq) {
+                    return false;
+                }
+                if (compareVisibility && Math.abs(visibility(lm) - visibility[i]) > visibilityTolerance) {
+                    return false;
+                }
+            }
+            hits++;
+            return true;
+        }
+
+        void store(List<NormalizedLandmark> landmarks, int w, int h, int status) {
+            // Errors are never reused, so the next frame tries the model again
+            valid = status != errorStatus;
+            if (!valid) {
+                return;
+            }
+            for (int i = 0; i < joints.length; i++) {
+                NormalizedLandmark lm = landmarks.get(joints[i]);
+                x[i] = pixelX(lm, w);
+                y[i] = pixelY(lm, h);
+                visibility[i] = visibility(lm);
+            }
+            width = w;
+            height = h;
+            this.status = status;
+        }
+
+        void invalidate() {
+            valid = false;
+        }
+
+        void resetCounters() {
+            lookups = 0;
+            hits = 0;
+        }
+
+        String getStats() {
+            return String.format(Locale.US, "%.0f%% (%d/%d)",
+                    lookups > 0 ? 100.0 * hits / lookups : 0.0, hits, lookups);
+        }
+
+        Map<String, Object> getMetricsMap() {
+            Map<String, Object> metrics = new HashMap<>();
+            metrics.put("lookups", lookups);
+            metrics.put("hits", hits);
+            metrics.put("hitRate", lookups > 0 ? (double) hits / lookups : 0.0);
+            return metrics;
+        }
+
+        private static float pixelX(NormalizedLandmark lm, int width) {
+            return lm == null ? 0f : lm.x() * width;
+        }
+
+        private static float pixelY(NormalizedLandmark lm, int height) {
+            return lm == null ? 0f : lm.y() * height;
+        }
+
+        private static float visibility(NormalizedLandmark lm) {
+            if (lm == null) {
+                return 0f;
+            }
+            Optional<Float> visibility = lm.visibility();
+            return visibility.isPresent() ? visibility.get() : 0f;
+        }
+    }
+
+    /**
+     * When one model runs: the joints it needs to see, its minimum interval, and run/skip counts
+     */
+    private static class ModelSchedule {
+        final int notVisibleStatus;
+        final int[] requiredJoints;
+        long intervalNs;
+        long lastRunNs;
+        long runs;
+        long rateSkips;
+        long visibilitySkips;
+
+        ModelSchedule(int notVisibleStatus, long intervalMs, int... requiredJoints) {
+            this.notVisibleStatus = notVisibleStatus;
+            this.requiredJoints = requiredJoints;
+            setIntervalMs(intervalMs);
+        }
+
+        void setIntervalMs(long intervalMs) {
+            intervalNs = intervalMs * 1_000_000L;
+        }
+
+        boolean jointsVisible(List<NormalizedLandmark> landmarks, float minVisibility) {
+            for (int joint : requiredJoints) {
+                NormalizedLandmark lm = landmarks.get(joint);
+                if (lm == null) {
+                    return false;
+                }
+                Optional<Float> visibility = lm.visibility();
+                if (visibility.isPresent() && visibility.get() < minVisibility) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        void resetCounters() {
+            runs = 0;
+            rateSkips = 0;
+            visibilitySkips = 0;
+        }
+
+        String getStats() {
+            return String.format(Locale.US, "%d run, %d rate skip, %d not visible", runs, rateSkips, visibilitySkips);
+        }
+
+        Map<String, Object> getMetricsMap() {
+            Map<String, Object> metrics = new HashMap<>();
+            metrics.put("runs", runs);
+            metrics.put("rateSkips", rateSkips);
+            metrics.put("visibilitySkips", visibilitySkips);
+            metrics.put("intervalMs", intervalNs / 1_000_000L);
+            return metrics;
+        }
+    }
+
+    /**
+     * One complete set of interpreters and the delegates they own. A set is built and warmed
+     * up off the classify() lock, swapped in whole, and closed once it is no longer live.
+     */
+    private static final class ModelSet {
+        DelegateType mode;
+        DelegateType slouch;
+        DelegateType crossLegged;
+        DelegateType lean;
+        DelegateType fused;
+        final int[] threads; // slouch, cross-legged, lean, fused
+        ClassifierModel slouchModel;
+        ClassifierModel crossLeggedModel;
+        ClassifierModel leanModel;
+        ClassifierModel fusedModel; // Null when the asset is missing or the Java engine is selected
+        GpuDelegate gpuDelegate;
+        NnApiDelegate nnApiDelegate;
+        long loadTimeMs;
+        long warmupTimeMs;
+
+        ModelSet(DelegateType mode, DelegateType slouch, DelegateType crossLegged, DelegateType lean,
+                 DelegateType fused, int[] threads) {
+            this.mode = mode;
+            this.slouch = slouch;
+            this.crossLegged = crossLegged;
+            this.lean = lean;
+            this.fused = fused;
+            this.threads = threads;
+        }
+
+        boolean sameDelegates(ModelSet other) {
+            return other != null && mode == other.mode && slouch == other.slouch && crossLegged == other.crossLegged
+                    && lean == other.lean && fused == other.fused;
+        }
+
+        void close() {
+            if (slouchModel != null) {
+                slouchModel.close();
+                slouchModel = null;
+            }
+            if (crossLeggedModel != null) {
+                crossLeggedModel.close();
+                crossLeggedModel = null;
+            }
+            if (leanModel != null) {
+                leanModel.close();
+                leanModel = null;
+            }
+            if (fusedModel != null) {
+                fusedModel.close();
+                fusedModel = null;
+            }
+            if (gpuDelegate != null) {
+                gpuDelegate.close();
+                gpuDelegate = null;
+            }
+            if (nnApiDelegate != null) {
+                nnApiDelegate.close();
+                nnApiDelegate = null;
+            }
+        }
+    }
+
+    /**
+     * For tests: creates the stand-in model a swap loads for an asset; throw to fail the swap
+     */
+    interface ModelFactory {
+        ClassifierModel create(String modelName, DelegateType delegateType);
+    }
+
+    /**
+     * Notified after a swap has put models on different delegates live (swap thread)
+     */
+    public interface SwapListener {
+        void onDelegatesSwapped(DelegateType delegate);
+    }
+
+    public synchronized void setSwapListener(SwapListener listener) {
+        this.swapListener = listener;
+    }
+
+    /**
+     * Build and warm up a model set on the calling thread; touches no live state, so the
+     * current set keeps serving classify() meanwhile. Falls back to all-CPU if a delegate fails.
+     */
+    private ModelSet buildModelSet(DelegateType mode, DelegateType slouch, DelegateType crossLegged,
+                                   DelegateType lean, DelegateType fused, int[] threads) {
+        ModelSet set = new ModelSet(mode, slouch, crossLegged, lean, fused, threads);
+        if (modelFactory != null) {
+            try {
+                set.slouchModel = modelFactory.create(SLOUCH_MODEL_ASSET, slouch);
+                set.crossLeggedModel = modelFactory.create(CROSS_LEGGED_MODEL_ASSET, crossLegged);
+                set.leanModel = modelFactory.create(LEAN_MODEL_ASSET, lean);
+                return set;
+            } catch (RuntimeException e) {
+                set.close();
+                throw e;
+            }
+        }
         try {
-            Interpreter.Options options = createInterpreterOptions(delegateType);
+            // One options object per delegate in use; the Java engine needs none
+            Map<DelegateType, Interpreter.Options> options = new EnumMap<>(DelegateType.class);
             
-            Log.d(TAG, "Loading models with " + delegateType.getDisplayName() + "...");
+            Log.d(TAG, "Loading models with " + describeDelegates(mode, slouch, crossLegged, lean, fused) + "...");
             long startTime = System.currentTimeMillis();
             
-            slouchInterpreter = new Interpreter(loadModelFile(context, "posture_model.tflite"), options);
+            set.slouchModel = loadModel(SLOUCH_MODEL_ASSET, optionsFor(slouch, options, threads[0], set));
             Log.d(TAG, "  ✓ Slouch model loaded");
             
-            crossLeggedInterpreter = new Interpreter(loadModelFile(context, "crosslegged.tflite"), options);
+            set.crossLeggedModel = loadModel(CROSS_LEGGED_MODEL_ASSET, optionsFor(crossLegged, options, threads[1], set));
             Log.d(TAG, "  ✓ CrossLegged model loaded");
             
-            leanInterpreter = new Interpreter(loadModelFile(context, "lean_direction_model.tflite"), options);
+            set.leanModel = loadModel(LEAN_MODEL_ASSET, optionsFor(lean, options, threads[2], set));
             Log.d(TAG, "  ✓ Lean model loaded");
             
-            long loadTime = System.currentTimeMillis() - startTime;
-            lastModelLoadTimeMs = loadTime;
+            set.fusedModel = loadFusedModel(optionsFor(fused, options, threads[3], set));
             
-            currentDelegate = delegateType;
-            resetPerformanceMonitors();
+            long loadTime = System.currentTimeMillis() - startTime;
+            set.loadTimeMs = loadTime;
             
-            Log.d(TAG, "✓ All models initialized with " + delegateType.getDisplayName() + " in " + loadTime + "ms");
+            Log.d(TAG, "✓ All models initialized with " + describeDelegates(mode, slouch, crossLegged, lean, fused)
+                    + " in " + loadTime + "ms");
             
-            // Run a test inference to warm up the delegate
-            if (delegateType == DelegateType.NNAPI) {
+            // Run a test inference to warm up the delegate, on tensors of its own: the live
+            // set is still using the classifier's tensors
+            if (options.containsKey(DelegateType.NNAPI)) {
                 Log.d(TAG, "Running NNAPI warmup inference...");
                 try {
-                    float[][] testInput = new float[1][3];
-                    float[][] testOutput = new float[1][1];
                     long warmupStart = System.nanoTime();
-                    slouchInterpreter.run(testInput, testOutput);
+                    if (slouch == DelegateType.NNAPI) {
+                        ModelTensors tensors = new ModelTensors(FeatureExtractor.SLOUCH_FEATURES, 1);
+                        set.slouchModel.run(tensors.input, tensors.output);
+                    }
+                    if (crossLegged == DelegateType.NNAPI) {
+                        ModelTensors tensors = new ModelTensors(FeatureExtractor.CROSS_LEGGED_FEATURES, 1);
+                        set.crossLeggedModel.run(tensors.input, tensors.output);
+                    }
+                    if (lean == DelegateType.NNAPI) {
+                        ModelTensors tensors = new ModelTensors(FeatureExtractor.LEANING_FEATURES, 3);
+                        set.leanModel.run(tensors.input, tensors.output);
+                    }
+                    if (set.fusedModel != null && fused == DelegateType.NNAPI) {
+                        ModelTensors tensors = new ModelTensors(FUSED_INPUTS, FUSED_OUTPUTS);
+                        set.fusedModel.run(tensors.input, tensors.output);
+                    }
                     long warmupTime = (System.nanoTime() - warmupStart) / 1_000_000;
-                    lastWarmupTimeMs = warmupTime;
+                    set.warmupTimeMs = warmupTime;
                     Log.d(TAG, "  → NNAPI warmup completed in " + warmupTime + "ms");
                     if (warmupTime > 100) {
                         Log.w(TAG, "  ⚠ NNAPI warmup took longer than expected - may not be using hardware accelerator");
@@ -110,34 +574,49 @@ public class PostureClassifier {
                     Log.e(TAG, "  ✗ NNAPI warmup failed", e);
                 }
             } else {
-                lastWarmupTimeMs = 0; // No warmup for CPU/GPU
+                set.warmupTimeMs = 0; // No warmup for CPU/GPU
             }
+            return set;
         } catch (Exception e) {
-            Log.e(TAG, "✗ Error initializing models with " + delegateType, e);
+            Log.e(TAG, "✗ Error initializing models with " + mode, e);
             Log.e(TAG, "  → Error type: " + e.getClass().getSimpleName());
             Log.e(TAG, "  → Error message: " + e.getMessage());
             
             // Fallback to CPU if delegate fails
-            if (delegateType != DelegateType.CPU) {
-                Log.w(TAG, "→ Falling back to CPU due to " + delegateType + " failure");
+            boolean allCpu = slouch == DelegateType.CPU && crossLegged == DelegateType.CPU
+                    && lean == DelegateType.CPU && fused == DelegateType.CPU;
+            if (!allCpu) {
+                Log.w(TAG, "→ Falling back to CPU due to " + mode + " failure");
                 try {
                     // Clean up failed delegates before fallback
-                    cleanup();
-                    currentDelegate = DelegateType.CPU; // Update to CPU before retry
+                    set.close();
+                    set.mode = DelegateType.CPU;
+                    set.slouch = DelegateType.CPU;
+                    set.crossLegged = DelegateType.CPU;
+                    set.lean = DelegateType.CPU;
+                    set.fused = DelegateType.CPU;
+                    set.warmupTimeMs = 0;
                     Interpreter.Options cpuOptions = new Interpreter.Options();
-                    cpuOptions.setNumThreads(4);
                     
-                    slouchInterpreter = new Interpreter(loadModelFile(context, "posture_model.tflite"), cpuOptions);
-                    crossLeggedInterpreter = new Interpreter(loadModelFile(context, "crosslegged.tflite"), cpuOptions);
-                    leanInterpreter = new Interpreter(loadModelFile(context, "lean_direction_model.tflite"), cpuOptions);
+                    long startTime = System.currentTimeMillis();
+                    set.slouchModel = new InterpreterModel(new Interpreter(loadModelFile(context, SLOUCH_MODEL_ASSET),
+                            cpuOptions.setNumThreads(threads[0])));
+                    set.crossLeggedModel = new InterpreterModel(new Interpreter(loadModelFile(context, CROSS_LEGGED_MODEL_ASSET),
+                            cpuOptions.setNumThreads(threads[1])));
+                    set.leanModel = new InterpreterModel(new Interpreter(loadModelFile(context, LEAN_MODEL_ASSET),
+                            cpuOptions.setNumThreads(threads[2])));
+                    set.fusedModel = loadFusedModel(cpuOptions.setNumThreads(threads[3]));
+                    set.loadTimeMs = System.currentTimeMillis() - startTime;
                     
                     Log.d(TAG, "✓ Successfully fell back to CPU");
-                    resetPerformanceMonitors();
+                    return set;
                 } catch (Exception cpuError) {
+                    set.close();
                     Log.e(TAG, "→ CPU fallback also failed - this is critical!", cpuError);
                     throw new RuntimeException("Failed to initialize models even with CPU", cpuError);
                 }
             } else {
+                set.close();
                 Log.e(TAG, "→ CPU initialization failed - this is critical!");
                 throw new RuntimeException("Failed to initialize models with CPU", e);
             }
@@ -145,38 +624,168 @@ public class PostureClassifier {
     }
 
     /**
-     * Create interpreter options with the specified delegate
+     * Make a model set live (caller holds the lock, so no classify() is using the old one)
+     */
+    private void install(ModelSet set) {
+        modelSet = set;
+        slouchModel = set.slouchModel;
+        crossLeggedModel = set.crossLeggedModel;
+        leanModel = set.leanModel;
+        fusedModel = set.fusedModel;
+        currentDelegate = set.mode;
+        slouchDelegate = set.slouch;
+        crossLeggedDelegate = set.crossLegged;
+        leanDelegate = set.lean;
+        fusedDelegate = set.fused;
+        lastModelLoadTimeMs = set.loadTimeMs;
+        lastWarmupTimeMs = set.warmupTimeMs;
+    }
+
+    /**
+     * Ask for models on the given delegates; the swap thread builds them while the current
+     * models keep serving frames. Caller holds the lock.
+     */
+    private void requestModels(DelegateType mode, DelegateType slouch, DelegateType crossLegged,
+                               DelegateType lean, DelegateType fused) {
+        if (mode == targetMode && slouch == targetSlouch && crossLegged == targetCrossLegged
+                && lean == targetLean && fused == targetFused) {
+            return;
+        }
+        targetMode = mode;
+        targetSlouch = slouch;
+        targetCrossLegged = crossLegged;
+        targetLean = lean;
+        targetFused = fused;
+        scheduleSwap();
+    }
+
+    private void scheduleSwap() {
+        if (swapExecutor != null && !closed) {
+            swapExecutor.execute(this::swapModels);
+        }
+    }
+
+    /**
+     * Swap thread: build the requested set with no lock held, then take the lock only to make
+     * it live. classify() runs under the same lock, so once the swap has it no call is still
+     * using the old set, and the old set is closed after the lock is released.
+     */
+    private void swapModels() {
+        DelegateType mode;
+        DelegateType slouch;
+        DelegateType crossLegged;
+        DelegateType lean;
+        DelegateType fused;
+        int[] threads;
+        long startNs;
+        synchronized (this) {
+            // Requests made while an earlier swap was building are served by one build
+            if (closed || (targetMode == currentDelegate && targetSlouch == slouchDelegate
+                    && targetCrossLegged == crossLeggedDelegate && targetLean == leanDelegate
+                    && targetFused == fusedDelegate
+                    && Arrays.equals(getModelThreads(), modelSet.threads))) {
+                return;
+            }
+            mode = targetMode;
+            slouch = targetSlouch;
+            crossLegged = targetCrossLegged;
+            lean = targetLean;
+            fused = targetFused;
+            threads = getModelThreads();
+            swapInProgress = true;
+            framesDuringSwap = 0;
+            startNs = System.nanoTime();
+        }
+        Log.d(TAG, "Building " + describeDelegates(mode, slouch, crossLegged, lean, fused)
+                + " models in the background");
+
+        ModelSet next;
+        try {
+            next = buildModelSet(mode, slouch, crossLegged, lean, fused, threads);
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                swapInProgress = false;
+                failedSwaps++;
+            }
+            Log.e(TAG, "✗ Delegate swap failed, keeping " + getDelegateDescription(), e);
+            return;
+        }
+
+        ModelSet old;
+        boolean delegatesChanged;
+        SwapListener listener;
+        String swapped;
+        synchronized (this) {
+            long lockStartNs = System.nanoTime();
+            swapInProgress = false;
+            if (closed) {
+                next.close();
+                return;
+            }
+            old = modelSet;
+            delegatesChanged = !next.sameDelegates(old);
+            install(next);
+            if (delegatesChanged) {
+                // Results and timings from the previous delegates are not reused; a thread-count
+                // swap keeps both, as the listener (which starts a new session) is not told of it
+                invalidateResultCaches();
+                resetPerformanceMonitors();
+            }
+            if (next.mode != mode) {
+                // Fell back to CPU: stop asking for the delegate that failed
+                targetMode = next.mode;
+                targetSlouch = next.slouch;
+                targetCrossLegged = next.crossLegged;
+                targetLean = next.lean;
+                targetFused = next.fused;
+            }
+            long endNs = System.nanoTime();
+            swaps++;
+            lastSwapMs = (endNs - startNs) / 1_000_000L;
+            lastSwapLockUs = (endNs - lockStartNs) / 1_000L;
+            lastSwapFrames = framesDuringSwap;
+            listener = swapListener;
+            swapped = String.format(Locale.US, "✓ Swapped to %s in %dms, %d frames served meanwhile",
+                    getDelegateDescription(), lastSwapMs, lastSwapFrames);
+        }
+        old.close();
+        Log.d(TAG, swapped);
+        if (delegatesChanged && listener != null) {
+            listener.onDelegatesSwapped(next.mode);
+        }
+    }
+
+    /**
+     * Interpreter options for a delegate, created once per model set; null for the Java engine.
+     * The thread count is set per model: an Interpreter copies its options when it is created.
+     */
+    private Interpreter.Options optionsFor(DelegateType delegateType, Map<DelegateType, Interpreter.Options> options,
+                                           int numThreads, ModelSet set) {
+        if (delegateType == DelegateType.JAVA) {
+            return null;
+        }
+        Interpreter.Options delegateOptions = options.get(delegateType);
+        if (delegateOptions == null) {
+            delegateOptions = createInterpreterOptions(delegateType, set);
+            options.put(delegateType, delegateOptions);
+        }
+        if (delegateType != DelegateType.NNAPI) {
+            delegateOptions.setNumThreads(numThreads);
+        }
+        return delegateOptions;
+    }
+
+    /**
+     * Create interpreter options with the specified delegate; the set owns the delegate instance
      */
-    private Interpreter.Options createInterpreterOptions(DelegateType delegateType) {
+    private Interpreter.Options createInterpreterOptions(DelegateType delegateType, ModelSet set) {
         Interpreter.Options options = new Interpreter.Options();
 
         switch (delegateType) {
             case GPU:
                 try {
-                    options.setNumThreads(4); // GPU can benefit from multi-threading
-                    Log.d(TAG, "Initializing GPU delegate...");
-                    
-                    CompatibilityList compatList = new CompatibilityList();
-                    boolean isCompatible = compatList.isDelegateSupportedOnThisDevice();
-                    Log.d(TAG, "  → Compatibility check: " + isCompatible);
-                    
-                    // Force GPU usage even if compatibility check fails
-                    // (Known issue with some Qualcomm devices + TFLite versions)
-                    GpuDelegate.Options gpuOptions;
-                    if (isCompatible) {
-                        gpuOptions = compatList.getBestOptionsForThisDevice();
-                        Log.d(TAG, "  → Using best options from CompatibilityList");
-                    } else {
-                        // Force GPU with default options
-                        gpuOptions = new GpuDelegate.Options();
-                        gpuOptions.setInferencePreference(GpuDelegate.Options.INFERENCE_PREFERENCE_FAST_SINGLE_ANSWER);
-                        gpuOptions.setPrecisionLossAllowed(true); // Allow FP16 for speed
-                        Log.w(TAG, "  → Compatibility check failed, forcing GPU with default options");
-                        Log.w(TAG, "  → Device has OpenGL ES 3.2 + Adreno 750, should work");
-                    }
-                    
-                    gpuDelegate = new GpuDelegate(gpuOptions);
-                    options.addDelegate(gpuDelegate);
+                    set.gpuDelegate = createGpuDelegate();
+                    options.addDelegate(set.gpuDelegate);
                     Log.d(TAG, "✓ GPU delegate enabled successfully");
                 } catch (Exception e) {
                     Log.e(TAG, "✗ GPU delegate initialization failed with exception", e);
@@ -186,24 +795,8 @@ public class PostureClassifier {
 
             case NNAPI:
                 try {
-                    NnApiDelegate.Options nnApiOptions = new NnApiDelegate.Options();
-                    // Critical settings for hardware acceleration
-                    nnApiOptions.setAllowFp16(true);              // Enable FP16 for faster computation
-                    nnApiOptions.setUseNnapiCpu(false);           // FORCE hardware acceleration, no CPU fallback
-                    nnApiOptions.setExecutionPreference(NnApiDelegate.Options.EXECUTION_PREFERENCE_SUSTAINED_SPEED);
-                    nnApiOptions.setMaxNumberOfDelegatedPartitions(3); // Allow all models to be delegated
-                    
-                    // Try to get accelerator name
-                    String acceleratorName = "Unknown";
-                    try {
-                        // NNAPI will select best available: NPU > DSP > GPU > CPU
-                        nnApiDelegate = new NnApiDelegate(nnApiOptions);
-                        acceleratorName = nnApiDelegate.toString();
-                    } catch (Exception e) {
-                        Log.w(TAG, "Could not get NNAPI accelerator info", e);
-                    }
-                    
-                    options.addDelegate(nnApiDelegate);
+                    set.nnApiDelegate = createNnApiDelegate();
+                    options.addDelegate(set.nnApiDelegate);
                     options.setNumThreads(1); // NNAPI handles threading internally
                     
                     Log.d(TAG, "✓ NNAPI delegate enabled");
@@ -211,7 +804,7 @@ public class PostureClassifier {
                     Log.d(TAG, "  → FP16 enabled: true");
                     Log.d(TAG, "  → CPU fallback disabled: true");
                     Log.d(TAG, "  → Max delegated partitions: 3");
-                    Log.d(TAG, "  → Accelerator: " + acceleratorName);
+                    Log.d(TAG, "  → Accelerator: " + set.nnApiDelegate);
                     
                     // Device-specific info
                     Log.d(TAG, "  → Device: Qualcomm (Expected: Hexagon DSP/NPU)");
@@ -223,32 +816,302 @@ public class PostureClassifier {
 
             case CPU:
             default:
-                // CPU uses default options with multi-threading
-                options.setNumThreads(4);
-                Log.d(TAG, "✓ CPU delegate enabled (4 threads)");
+                // Thread count is set per model by optionsFor()
+                Log.d(TAG, "✓ CPU delegate enabled");
                 break;
         }
 
         return options;
     }
 
-    private MappedByteBuffer loadModelFile(Context context, String modelName) throws IOException {
-        try (FileInputStream inputStream = new FileInputStream(context.getAssets().openFd(modelName).getFileDescriptor());
+    /**
+     * GPU delegate with the best options for this device (also used by DelegateAutoTuner)
+     */
+    static GpuDelegate createGpuDelegate() {
+        Log.d(TAG, "Initializing GPU delegate...");
+        
+        CompatibilityList compatList = new CompatibilityList();
+        boolean isCompatible = compatList.isDelegateSupportedOnThisDevice();
+        Log.d(TAG, "  → Compatibility check: " + isCompatible);
+        
+        // Force GPU usage even if compatibility check fails
+        // (Known issue with some Qualcomm devices + TFLite versions)
+        GpuDelegate.Options gpuOptions;
+        if (isCompatible) {
+            gpuOptions = compatList.getBestOptionsForThisDevice();
+            Log.d(TAG, "  → Using best options from CompatibilityList");
+        } else {
+            // Force GPU with default options
+            gpuOptions = new GpuDelegate.Options();
+            gpuOptions.setInferencePreference(GpuDelegate.Options.INFERENCE_PREFERENCE_FAST_SINGLE_ANSWER);
+            gpuOptions.setPrecisionLossAllowed(true); // Allow FP16 for speed
+            Log.w(TAG, "  → Compatibility check failed, forcing GPU with default options");
+            Log.w(TAG, "  → Device has OpenGL ES 3.2 + Adreno 750, should work");
+        }
+        compatList.close();
+        return new GpuDelegate(gpuOptions);
+    }
+
+    /**
+     * NNAPI delegate configured for hardware acceleration (also used by DelegateAutoTuner)
+     */
+    static NnApiDelegate createNnApiDelegate() {
+        NnApiDelegate.Options nnApiOptions = new NnApiDelegate.Options();
+        // Critical settings for hardware acceleration
+        nnApiOptions.setAllowFp16(true);              // Enable FP16 for faster computation
+        nnApiOptions.setUseNnapiCpu(false);           // FORCE hardware acceleration, no CPU fallback
+        nnApiOptions.setExecutionPreference(NnApiDelegate.Options.EXECUTION_PREFERENCE_SUSTAINED_SPEED);
+        nnApiOptions.setMaxNumberOfDelegatedPartitions(3); // Allow all models to be delegated
+        // NNAPI will select best available: NPU > DSP > GPU > CPU
+        return new NnApiDelegate(nnApiOptions);
+    }
+
+    /**
+     * Load a model asset into a TFLite interpreter, or into the plain-Java engine if options is null
+     */
+    private ClassifierModel loadModel(String modelName, Interpreter.Options options) throws IOException {
+        if (options == null) {
+            DenseNetworkModel model = DenseNetworkModel.load(loadModelFile(context, modelName));
+            Log.d(TAG, "  → " + modelName + ": " + model.describe());
+            return model;
+        }
+        return new InterpreterModel(new Interpreter(loadModelFile(context, modelName), options));
+    }
+
+    /**
+     * Load the fused model if it is bundled, else null; the three separate models stay loaded as the fallback
+     */
+    private ClassifierModel loadFusedModel(Interpreter.Options options) {
+        if (options == null) {
+            Log.d(TAG, "  → Fused model not used by the " + DelegateType.JAVA.getDisplayName() + " engine");
+            return null;
+        }
+        MappedByteBuffer modelBuffer;
+        try {
+            modelBuffer = loadModelFile(context, FUSED_MODEL_ASSET);
+        } catch (IOException e) {
+            Log.d(TAG, "  → No " + FUSED_MODEL_ASSET + " bundled, using the separate models");
+            return null;
+        }
+        try {
+            Interpreter interpreter = new Interpreter(modelBuffer, options);
+            if (interpreter.getInputTensorCount() != 1 || interpreter.getOutputTensorCount() != 1
+                    || interpreter.getInputTensor(0).numElements() != FUSED_INPUTS
+                    || interpreter.getOutputTensor(0).numElements() != FUSED_OUTPUTS) {
+                Log.w(TAG, "  ✗ " + FUSED_MODEL_ASSET + " does not have the expected ["
+                        + FUSED_INPUTS + "] -> [" + FUSED_OUTPUTS + "] layout, using the separate models");
+                interpreter.close();
+                return null;
+            }
+            Log.d(TAG, "  ✓ Fused model loaded");
+            return new InterpreterModel(interpreter);
+        } catch (Exception e) {
+            Log.w(TAG, "  ✗ Fused model failed to load, using the separate models", e);
+            return null;
+        }
+    }
+
+    /**
+     * Prefer the fused model when it is loaded (default), or force the separate models
+     */
+    public synchronized void setFusedModelEnabled(boolean enabled) {
+        fusedModelEnabled = enabled;
+    }
+
+    public synchronized boolean isFusedModelEnabled() {
+        return fusedModelEnabled;
+    }
+
+    /**
+     * True if classify() currently runs the fused model
+     */
+    public synchronized boolean isFusedModelActive() {
+        return fusedModel != null && fusedModelEnabled;
+    }
+
+    /**
+     * Run the three separate models concurrently, each on its own worker thread, instead of
+     * one after another on the calling thread. Does not affect the fused model.
+     */
+    public synchronized void setParallelInferenceEnabled(boolean enabled) {
+        if (enabled == (parallelRunner != null)) {
+            return;
+        }
+        if (enabled) {
+            parallelRunner = new ParallelModelRunner(
+                    new String[]{"slouch", "crosslegged", "lean"},
+                    new Runnable[]{
+                            () -> {
+                                if (runSlouch) parallelSlouchStatus = runSlouchInference();
+                            },
+                            () -> {
+                                if (runLegs) parallelLegsStatus = runCrossLeggedInference();
+                            },
+                            () -> {
+                                if (runLean) parallelLeanStatus = runLeaningInference();
+                            }
+                    });
+        } else {
+            parallelRunner.close();
+            parallelRunner = null;
+        }
+        Log.d(TAG, "Parallel inference " + (enabled ? "enabled" : "disabled"));
+    }
+
+    public synchronized boolean isParallelInferenceEnabled() {
+        return parallelRunner != null;
+    }
+
+    /**
+     * Reuse a model's previous result while its joints have not moved (on by default)
+     */
+    public synchronized void setResultReuseEnabled(boolean enabled) {
+        resultReuseEnabled = enabled;
+        if (!enabled) {
+            invalidateResultCaches();
+        }
+    }
+
+    public synchronized boolean isResultReuseEnabled() {
+        return resultReuseEnabled;
+    }
+
+    /**
+     * How far a joint may move (in image pixels) and how much a visibility score may change
+     * (lean model only) before a model's previous result is no longer reused
+     */
+    public synchronized void setResultReuseTolerance(float pixelTolerance, float visibilityTolerance) {
+        reusePixelTolerance = pixelTolerance;
+        reuseVisibilityTolerance = visibilityTolerance;
+        invalidateResultCaches();
+    }
+
+    private void invalidateResultCaches() {
+        slouchCache.invalidate();
+        crossLeggedCache.invalidate();
+        leanCache.invalidate();
+    }
+
+    private boolean reuseResult(CoherenceCache cache, List<NormalizedLandmark> landmarks, int w, int h) {
+        return resultReuseEnabled && cache.lookup(landmarks, w, h, reusePixelTolerance, reuseVisibilityTolerance);
+    }
+
+    /**
+     * Skip a model when any of its required joints has a visibility below this (0 disables)
+     */
+    public synchronized void setMinJointVisibility(float minVisibility) {
+        minJointVisibility = minVisibility;
+    }
+
+    /**
+     * Minimum time between runs of each model; 0 runs it on every frame
+     */
+    public synchronized void setModelIntervals(long slouchMs, long crossLeggedMs, long leanMs) {
+        slouchSchedule.setIntervalMs(slouchMs);
+        crossLeggedSchedule.setIntervalMs(crossLeggedMs);
+        leanSchedule.setIntervalMs(leanMs);
+    }
+
+    /**
+     * The status to report for a model this frame without running it, or RUN_MODEL
+     */
+    private int schedule(ModelSchedule schedule, CoherenceCache cache,
+                         List<NormalizedLandmark> landmarks, int w, int h, long nowNs) {
+        if (!schedule.jointsVisible(landmarks, minJointVisibility)) {
+            schedule.visibilitySkips++;
+            cache.invalidate(); // Run as soon as the joints are visible again
+            return schedule.notVisibleStatus;
+        }
+        if (cache.valid && nowNs - schedule.lastRunNs < schedule.intervalNs) {
+            schedule.rateSkips++;
+            return cache.status;
+        }
+        if (reuseResult(cache, landmarks, w, h)) {
+            return cache.status;
+        }
+        schedule.runs++;
+        schedule.lastRunNs = nowNs;
+        return RUN_MODEL;
+    }
+
+    static MappedByteBuffer loadModelFile(Context context, String modelName) throws IOException {
+        try (AssetFileDescriptor fd = context.getAssets().openFd(modelName);
+             FileInputStream inputStream = new FileInputStream(fd.getFileDescriptor());
              FileChannel fileChannel = inputStream.getChannel()) {
-            long startOffset = context.getAssets().openFd(modelName).getStartOffset();
-            long declaredLength = context.getAssets().openFd(modelName).getDeclaredLength();
-            return fileChannel.map(FileChannel.MapMode.READ_ONLY, startOffset, declaredLength);
+            return fileChannel.map(FileChannel.MapMode.READ_ONLY, fd.getStartOffset(), fd.getDeclaredLength());
         }
     }
 
     /**
-     * Set the delegate type for all models
+     * Set the delegate type for all models. Returns at once: the new models are built in the
+     * background and swapped in when ready, then SwapListener is notified.
      */
     public synchronized void setDelegate(DelegateType delegateType) {
-        if (currentDelegate != delegateType) {
-            Log.d(TAG, "Switching delegate from " + currentDelegate + " to " + delegateType);
-            initializeModels(delegateType);
+        if (targetMode != delegateType) {
+            Log.d(TAG, "Switching delegate from " + targetMode + " to " + delegateType);
+        }
+        requestModels(delegateType, delegateType, delegateType, delegateType, delegateType);
+    }
+
+    /**
+     * Give each model its own delegate (e.g. from DelegateAutoTuner); the fused model is
+     * loaded with the fused delegate. getCurrentDelegate() reports AUTO once the swap is done.
+     */
+    public synchronized void setModelDelegates(DelegateType slouch, DelegateType crossLegged,
+                                               DelegateType lean, DelegateType fused) {
+        Log.d(TAG, "Switching to per-model delegates: " + describeDelegates(DelegateType.AUTO, slouch, crossLegged, lean, fused));
+        requestModels(DelegateType.AUTO, slouch, crossLegged, lean, fused);
+    }
+
+    /**
+     * Interpreter threads per model on the CPU and GPU delegates (e.g. from ThreadCountTuner);
+     * swaps in models with the current delegates if anything changed
+     */
+    public synchronized void setModelThreads(int slouch, int crossLegged, int lean, int fused) {
+        if (slouch == slouchThreads && crossLegged == crossLeggedThreads
+                && lean == leanThreads && fused == fusedThreads) {
+            return;
         }
+        slouchThreads = slouch;
+        crossLeggedThreads = crossLegged;
+        leanThreads = lean;
+        fusedThreads = fused;
+        Log.d(TAG, "Switching to per-model threads: slouch " + slouch + ", legs " + crossLegged
+                + ", lean " + lean + ", fused " + fused);
+        scheduleSwap();
+    }
+
+    /**
+     * Measure the best thread count of each CPU/GPU model while the pose pipeline is running,
+     * then apply it; call after the delegates change
+     */
+    public void startThreadTuning() {
+        if (threadTuner != null) {
+            threadTuner.start();
+        }
+    }
+
+    /**
+     * Requested delegates of slouch, cross-legged, lean and fused (ThreadCountTuner order)
+     */
+    synchronized DelegateType[] getModelDelegates() {
+        return new DelegateType[]{targetSlouch, targetCrossLegged, targetLean, targetFused};
+    }
+
+    /**
+     * Requested thread counts, in the same order
+     */
+    synchronized int[] getModelThreads() {
+        return new int[]{slouchThreads, crossLeggedThreads, leanThreads, fusedThreads};
+    }
+
+    long getLastClassifyNanos() {
+        return lastClassifyNs;
+    }
+
+    private synchronized String getThreadDescription() {
+        int[] threads = modelSet.threads;
+        return "slouch " + threads[0] + ", legs " + threads[1] + ", lean " + threads[2] + ", fused " + threads[3];
     }
 
     /**
@@ -258,76 +1121,223 @@ public class PostureClassifier {
         return currentDelegate;
     }
 
+    /**
+     * Current delegate, with the per-model choice when it is AUTO
+     */
+    public synchronized String getDelegateDescription() {
+        return describeDelegates(currentDelegate, slouchDelegate, crossLeggedDelegate, leanDelegate, fusedDelegate);
+    }
+
+    private static String describeDelegates(DelegateType mode, DelegateType slouch, DelegateType crossLegged,
+                                            DelegateType lean, DelegateType fused) {
+        if (mode != DelegateType.AUTO) {
+            return mode.getDisplayName();
+        }
+        return mode.getDisplayName() + " (slouch " + slouch.getDisplayName() + ", legs " + crossLegged.getDisplayName()
+                + ", lean " + lean.getDisplayName() + ", fused " + fused.getDisplayName() + ")";
+    }
+
+    /**
+     * Classify the first pose. Steady state allocates nothing: features are written straight
+     * into the preallocated tensors and the result is one of a fixed set of instances.
+     */
     public synchronized ClassificationResult classify(PoseLandmarkerResult poseResult, int imageWidth, int imageHeight) {
+        lastClassifyNs = System.nanoTime();
         if (poseResult.landmarks().isEmpty()) {
             return null;
         }
         
         // Safety check: ensure interpreters are initialized
-        if (slouchInterpreter == null || crossLeggedInterpreter == null || leanInterpreter == null) {
+        if (slouchModel == null || crossLeggedModel == null || leanModel == null) {
             Log.w(TAG, "Interpreters not initialized yet, skipping classification");
             return null;
         }
         List<NormalizedLandmark> landmarks = poseResult.landmarks().get(0);
+        if (swapInProgress) {
+            framesDuringSwap++;
+        }
+
+        if (DEBUG) {
+            Log.d(TAG, "Classifying with image dimensions: " + imageWidth + "x" + imageHeight);
+        }
+
+        if (fusedModel != null && fusedModelEnabled) {
+            return classifyFused(landmarks, imageWidth, imageHeight);
+        }
+        return classifySeparate(landmarks, imageWidth, imageHeight);
+    }
+
+    private ClassificationResult classifySeparate(List<NormalizedLandmark> landmarks, int imageWidth, int imageHeight) {
+        PerformanceMonitor frameMonitor = parallelRunner != null ? parallelFrameMonitor : separateFrameMonitor;
+        frameMonitor.startTotal();
 
-        Log.d(TAG, "Classifying with image dimensions: " + imageWidth + "x" + imageHeight);
+        long nowNs = System.nanoTime();
+        int slouchStatus = schedule(slouchSchedule, slouchCache, landmarks, imageWidth, imageHeight, nowNs);
+        int legsStatus = schedule(crossLeggedSchedule, crossLeggedCache, landmarks, imageWidth, imageHeight, nowNs);
+        int leanStatus = schedule(leanSchedule, leanCache, landmarks, imageWidth, imageHeight, nowNs);
+        runSlouch = slouchStatus == RUN_MODEL;
+        runLegs = legsStatus == RUN_MODEL;
+        runLean = leanStatus == RUN_MODEL;
 
         // Extract features using actual image dimensions (matching training data collection)
-        float[] slouchFeatures = FeatureExtractor.getSlouchFeatures(landmarks, imageWidth, imageHeight);
-        float[] crossLeggedFeatures = FeatureExtractor.getCrossLeggedFeatures(landmarks, imageWidth, imageHeight);
-        float[] leaningFeatures = FeatureExtractor.getLeaningFeatures(landmarks, imageWidth, imageHeight);
+        if (runSlouch) {
+            FeatureExtractor.writeSlouchFeatures(landmarks, imageWidth, imageHeight, slouchTensors.inputFloats);
 
-        // Log raw features before normalization
-        Log.d(TAG, String.format("RAW slouch features: [%.2f, %.2f, %.2f]", 
-                slouchFeatures[0], slouchFeatures[1], slouchFeatures[2]));
+            // Slouch features go to the model raw: z-score normalization with SLOUCHING_MEAN/STD
+            // is disabled until the slouch model is retrained with a StandardScaler
+            if (DEBUG) {
+                Log.d(TAG, String.format(Locale.US, "Features sent to model: [%.2f, %.2f, %.2f]",
+                        slouchTensors.inputFloats.get(0), slouchTensors.inputFloats.get(1), slouchTensors.inputFloats.get(2)));
+            }
+        }
+        if (runLegs) {
+            FeatureExtractor.writeCrossLeggedFeatures(landmarks, imageWidth, imageHeight, crossLeggedTensors.inputFloats);
+            normalizeCrossLegged(crossLeggedTensors.inputFloats);
+        }
+        if (runLean) {
+            FeatureExtractor.writeLeaningFeatures(landmarks, imageWidth, imageHeight, leanTensors.inputFloats);
+        }
 
-        // TESTING: Try WITHOUT normalization first
-        // If your model was trained without StandardScaler, it expects raw features
-        // Comment out the normalization below to test
-        
-        // Apply z-score normalization to slouching features (matching training)
-        // TEMPORARILY DISABLED - Testing without normalization
-        /*
-        for (int i = 0; i < slouchFeatures.length; i++) {
-            slouchFeatures[i] = (slouchFeatures[i] - SLOUCHING_MEAN[i]) / (SLOUCHING_STD[i] + 1e-8f);
+        // Run inference; the frame monitor's inference time is the wall time of the models that ran
+        if (runSlouch || runLegs || runLean) {
+            frameMonitor.startInference();
+            if (parallelRunner != null) {
+                try {
+                    parallelRunner.runAll();
+                    if (runSlouch) slouchStatus = parallelSlouchStatus;
+                    if (runLegs) legsStatus = parallelLegsStatus;
+                    if (runLean) leanStatus = parallelLeanStatus;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    Log.w(TAG, "Interrupted while waiting for the model workers");
+                    slouchStatus = SLOUCH_ERROR;
+                    legsStatus = LEGS_ERROR;
+                    leanStatus = LEAN_ERROR;
+                } catch (IllegalStateException e) {
+                    // A worker stopped: run the models serially from the next frame on
+                    Log.e(TAG, "Model workers stopped, falling back to serial inference", e);
+                    parallelRunner.close();
+                    parallelRunner = null;
+                    slouchStatus = SLOUCH_ERROR;
+                    legsStatus = LEGS_ERROR;
+                    leanStatus = LEAN_ERROR;
+                }
+            } else {
+                if (runSlouch) slouchStatus = runSlouchInference();
+                if (runLegs) legsStatus = runCrossLeggedInference();
+                if (runLean) leanStatus = runLeaningInference();
+            }
+            frameMonitor.endInference();
+
+            if (runSlouch) slouchCache.store(landmarks, imageWidth, imageHeight, slouchStatus);
+            if (runLegs) crossLeggedCache.store(landmarks, imageWidth, imageHeight, legsStatus);
+            if (runLean) leanCache.store(landmarks, imageWidth, imageHeight, leanStatus);
         }
-        */
-        
-        Log.d(TAG, String.format("Features sent to model: [%.2f, %.2f, %.2f]", 
-                slouchFeatures[0], slouchFeatures[1], slouchFeatures[2]));
 
-        // Normalize cross-legged features
-        for (int i = 0; i < crossLeggedFeatures.length; i++) {
-            crossLeggedFeatures[i] = (crossLeggedFeatures[i] - CROSS_LEGGED_MEAN[i]) / CROSS_LEGGED_STD[i];
+        frameMonitor.endTotal();
+        return RESULTS[slouchStatus][legsStatus][leanStatus];
+    }
+
+    /**
+     * All three heads in one call, with the same thresholds and labels as the separate models
+     */
+    private ClassificationResult classifyFused(List<NormalizedLandmark> landmarks, int imageWidth, int imageHeight) {
+        fusedFrameMonitor.startTotal();
+
+        // One call produces all three results, so it is only skipped when no model is due;
+        // models that are not due keep their scheduled status either way
+        long nowNs = System.nanoTime();
+        int slouchScheduled = schedule(slouchSchedule, slouchCache, landmarks, imageWidth, imageHeight, nowNs);
+        int legsScheduled = schedule(crossLeggedSchedule, crossLeggedCache, landmarks, imageWidth, imageHeight, nowNs);
+        int leanScheduled = schedule(leanSchedule, leanCache, landmarks, imageWidth, imageHeight, nowNs);
+        if (slouchScheduled != RUN_MODEL && legsScheduled != RUN_MODEL && leanScheduled != RUN_MODEL) {
+            fusedFrameMonitor.endTotal();
+            return RESULTS[slouchScheduled][legsScheduled][leanScheduled];
+        }
+
+        FeatureExtractor.writeSlouchFeatures(landmarks, imageWidth, imageHeight, fusedSlouchInput);
+        FeatureExtractor.writeCrossLeggedFeatures(landmarks, imageWidth, imageHeight, fusedCrossLeggedInput);
+        FeatureExtractor.writeLeaningFeatures(landmarks, imageWidth, imageHeight, fusedLeanInput);
+        normalizeCrossLegged(fusedCrossLeggedInput);
+
+        int slouchStatus;
+        int legsStatus;
+        int leanStatus;
+        try {
+            fusedFrameMonitor.startInference();
+            fusedModel.run(fusedTensors.input, fusedTensors.output);
+            fusedFrameMonitor.endInference();
+
+            FloatBuffer output = fusedTensors.outputFloats;
+            slouchStatus = output.get(0) >= 0.5f ? 0 : 1;
+            legsStatus = output.get(1) >= 0.5f ? 0 : 1;
+            leanStatus = argMax(output, 2, 3);
+
+            if (DEBUG) {
+                Log.d(TAG, String.format(Locale.US, "Fused [%s]: slouch %.4f, legs %.4f, lean [%.2f,%.2f,%.2f]",
+                    currentDelegate.getDisplayName(), output.get(0), output.get(1),
+                    output.get(2), output.get(3), output.get(4)));
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Fused inference error", e);
+            slouchStatus = SLOUCH_ERROR;
+            legsStatus = LEGS_ERROR;
+            leanStatus = LEAN_ERROR;
+        }
+        if (slouchScheduled == RUN_MODEL) {
+            slouchCache.store(landmarks, imageWidth, imageHeight, slouchStatus);
+        } else {
+            slouchStatus = slouchScheduled;
+        }
+        if (legsScheduled == RUN_MODEL) {
+            crossLeggedCache.store(landmarks, imageWidth, imageHeight, legsStatus);
+        } else {
+            legsStatus = legsScheduled;
+        }
+        if (leanScheduled == RUN_MODEL) {
+            leanCache.store(landmarks, imageWidth, imageHeight, leanStatus);
+        } else {
+            leanStatus = leanScheduled;
         }
 
-        // Run inference
-        String slouchStatus = runSlouchInference(slouchFeatures);
-        String legsStatus = runCrossLeggedInference(crossLeggedFeatures);
-        String leanStatus = runLeaningInference(leaningFeatures);
+        fusedFrameMonitor.endTotal();
+        return RESULTS[slouchStatus][legsStatus][leanStatus];
+    }
 
-        return new ClassificationResult(slouchStatus, legsStatus, leanStatus);
+    private static void normalizeCrossLegged(FloatBuffer features) {
+        for (int i = 0; i < FeatureExtractor.CROSS_LEGGED_FEATURES; i++) {
+            features.put(i, (features.get(i) - CROSS_LEGGED_MEAN[i]) / CROSS_LEGGED_STD[i]);
+        }
+    }
+
+    /**
+     * Index (relative to offset) of the largest of count scores
+     */
+    private static int argMax(FloatBuffer scores, int offset, int count) {
+        int maxIndex = 0;
+        for (int i = 1; i < count; i++) {
+            if (scores.get(offset + i) > scores.get(offset + maxIndex)) {
+                maxIndex = i;
+            }
+        }
+        return maxIndex;
     }
 
-    private String runSlouchInference(float[] input) {
-        if (slouchInterpreter == null) {
+    private int runSlouchInference() {
+        if (slouchModel == null) {
             Log.e(TAG, "Slouch interpreter is NULL!");
-            return "N/A";
+            return SLOUCH_NA;
         }
         try {
             slouchMonitor.startTotal();
             
-            float[][] inputArray = new float[1][3];
-            System.arraycopy(input, 0, inputArray[0], 0, 3);
-            float[][] output = new float[1][1];
-            
             slouchMonitor.startInference();
             long startNs = System.nanoTime();
-            slouchInterpreter.run(inputArray, output);
+            slouchModel.run(slouchTensors.input, slouchTensors.output);
             long endNs = System.nanoTime();
             slouchMonitor.endInference();
 
-            float slouchScore = output[0][0];
+            float slouchScore = slouchTensors.outputFloats.get(0);
             
             // Interpretation: score >= 0.5 means good posture (straight/not slouching)
             //                 score < 0.5 means slouching
@@ -335,87 +1345,77 @@ public class PostureClassifier {
             
             slouchMonitor.endTotal();
             
-            long inferenceUs = (endNs - startNs) / 1_000;
-            Log.d(TAG, String.format("Slouch [%s]: %.4f -> %s (raw: %d μs)", 
-                currentDelegate.getDisplayName(), slouchScore, 
-                (isGoodPosture ? "Good" : "Slouch"), inferenceUs));
+            if (DEBUG) {
+                long inferenceUs = (endNs - startNs) / 1_000;
+                Log.d(TAG, String.format(Locale.US, "Slouch [%s]: %.4f -> %s (raw: %d μs)", 
+                    currentDelegate.getDisplayName(), slouchScore, 
+                    (isGoodPosture ? "Good" : "Slouch"), inferenceUs));
+            }
             
-            return isGoodPosture ? "Good Posture" : "Slouching";
+            return isGoodPosture ? 0 : 1;
         } catch (Exception e) {
             Log.e(TAG, "Slouch inference error", e);
-            return "Error";
+            return SLOUCH_ERROR;
         }
     }
 
-    private String runCrossLeggedInference(float[] input) {
-        if (crossLeggedInterpreter == null) return "N/A";
+    private int runCrossLeggedInference() {
+        if (crossLeggedModel == null) return LEGS_NA;
         try {
             crossLeggedMonitor.startTotal();
             
-            float[][] inputArray = new float[1][6];
-            System.arraycopy(input, 0, inputArray[0], 0, 6);
-            float[][] output = new float[1][1];
-            
             crossLeggedMonitor.startInference();
             long startNs = System.nanoTime();
-            crossLeggedInterpreter.run(inputArray, output);
+            crossLeggedModel.run(crossLeggedTensors.input, crossLeggedTensors.output);
             long endNs = System.nanoTime();
             crossLeggedMonitor.endInference();
 
-            float crossLeggedScore = output[0][0];
+            float crossLeggedScore = crossLeggedTensors.outputFloats.get(0);
             boolean isCrossLegged = crossLeggedScore >= 0.5f;
             
             crossLeggedMonitor.endTotal();
             
-            long inferenceUs = (endNs - startNs) / 1_000;
-            Log.d(TAG, String.format("CrossLegged [%s]: %.4f -> %s (raw: %d μs)", 
-                currentDelegate.getDisplayName(), crossLeggedScore,
-                (isCrossLegged ? "CrossLegged" : "Uncrossed"), inferenceUs));
+            if (DEBUG) {
+                long inferenceUs = (endNs - startNs) / 1_000;
+                Log.d(TAG, String.format(Locale.US, "CrossLegged [%s]: %.4f -> %s (raw: %d μs)", 
+                    currentDelegate.getDisplayName(), crossLeggedScore,
+                    (isCrossLegged ? "CrossLegged" : "Uncrossed"), inferenceUs));
+            }
             
-            return isCrossLegged ? "Cross-legged" : "Normal";
+            return isCrossLegged ? 0 : 1;
         } catch (Exception e) {
             Log.e(TAG, "CrossLegged inference error", e);
-            return "Error";
+            return LEGS_ERROR;
         }
     }
 
-    private String runLeaningInference(float[] input) {
-        if (leanInterpreter == null) return "N/A";
+    private int runLeaningInference() {
+        if (leanModel == null) return LEAN_NA;
         try {
             leanMonitor.startTotal();
             
-            float[][] inputArray = new float[1][9];
-            System.arraycopy(input, 0, inputArray[0], 0, 9);
-            float[][] output = new float[1][3];
-            
             leanMonitor.startInference();
             long startNs = System.nanoTime();
-            leanInterpreter.run(inputArray, output);
+            leanModel.run(leanTensors.input, leanTensors.output);
             long endNs = System.nanoTime();
             leanMonitor.endInference();
 
-            int maxIndex = 0;
-            for (int i = 1; i < output[0].length; i++) {
-                if (output[0][i] > output[0][maxIndex]) {
-                    maxIndex = i;
-                }
-            }
-
-            // FIXED: Corrected label order to match training (0:left, 1:right, 2:upright)
-            String[] labels = {"Left", "Right", "Upright"};
-            String result = labels[maxIndex];
+            FloatBuffer output = leanTensors.outputFloats;
+            int maxIndex = argMax(output, 0, 3);
             
             leanMonitor.endTotal();
             
-            long inferenceUs = (endNs - startNs) / 1_000;
-            Log.d(TAG, String.format("Lean [%s]: [%.2f,%.2f,%.2f] -> %s (raw: %d μs)", 
-                currentDelegate.getDisplayName(), output[0][0], output[0][1], output[0][2], 
-                result, inferenceUs));
+            if (DEBUG) {
+                long inferenceUs = (endNs - startNs) / 1_000;
+                Log.d(TAG, String.format(Locale.US, "Lean [%s]: [%.2f,%.2f,%.2f] -> %s (raw: %d μs)", 
+                    currentDelegate.getDisplayName(), output.get(0), output.get(1), output.get(2), 
+                    LEAN_LABELS[maxIndex], inferenceUs));
+            }
             
-            return result;
+            return maxIndex;
         } catch (Exception e) {
             Log.e(TAG, "Lean inference error", e);
-            return "Error";
+            return LEAN_ERROR;
         }
     }
 
@@ -424,18 +1424,99 @@ public class PostureClassifier {
      */
     public String getPerformanceStats() {
         return String.format(
-            "Delegate: %s\n\n%s\n\n%s\n\n%s",
-            currentDelegate.getDisplayName(),
+            "Delegate: %s\nThreads: %s\n%s\n%s\nPath: %s\n%s\n%s\n\n%s\n\n%s\n\n%s\n\n%s\n\n%s\n\n%s",
+            getDelegateDescription(),
+            getThreadDescription(),
+            threadTuner != null ? threadTuner.getStats() : "Thread tuning: not available",
+            getSwapStats(),
+            getClassifierPath(),
+            getResultReuseStats(),
+            getSchedulingStats(),
+            fusedFrameMonitor.getStats(),
+            separateFrameMonitor.getStats(),
+            parallelFrameMonitor.getStats(),
             slouchMonitor.getStats(),
             crossLeggedMonitor.getStats(),
             leanMonitor.getStats()
         );
     }
 
+    private synchronized String getClassifierPath() {
+        if (fusedModel != null && fusedModelEnabled) {
+            return "fused model";
+        }
+        String separate = parallelRunner != null ? "separate models, parallel" : "separate models, serial";
+        return separate + (fusedModel == null ? " (no fused model loaded)" : " (fused model disabled)");
+    }
+
+    private synchronized String getSwapStats() {
+        String stats = String.format(Locale.US, "Delegate swaps: %d (%d failed)", swaps, failedSwaps);
+        if (swapInProgress) {
+            stats += String.format(Locale.US, ", building %s (%d frames served so far)",
+                    describeDelegates(targetMode, targetSlouch, targetCrossLegged, targetLean, targetFused),
+                    framesDuringSwap);
+        }
+        if (swaps > 0) {
+            stats += String.format(Locale.US, "\nLast swap: %dms, %d frames served meanwhile, classify blocked %dμs",
+                    lastSwapMs, lastSwapFrames, lastSwapLockUs);
+        }
+        return stats;
+    }
+
+    private synchronized Map<String, Object> getSwapMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("swaps", swaps);
+        metrics.put("failedSwaps", failedSwaps);
+        metrics.put("inProgress", swapInProgress);
+        metrics.put("lastSwapMs", lastSwapMs);
+        metrics.put("lastSwapFrames", lastSwapFrames);
+        metrics.put("lastSwapLockUs", lastSwapLockUs);
+        return metrics;
+    }
+
+    private synchronized String getResultReuseStats() {
+        if (!resultReuseEnabled) {
+            return "Result reuse: off";
+        }
+        return String.format(Locale.US, "Result reuse (%.1f px): slouch %s, legs %s, lean %s",
+                reusePixelTolerance, slouchCache.getStats(), crossLeggedCache.getStats(), leanCache.getStats());
+    }
+
+    private synchronized Map<String, Object> getResultReuseMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("enabled", resultReuseEnabled);
+        metrics.put("pixelTolerance", reusePixelTolerance);
+        metrics.put("visibilityTolerance", reuseVisibilityTolerance);
+        metrics.put("slouchModel", slouchCache.getMetricsMap());
+        metrics.put("crossLeggedModel", crossLeggedCache.getMetricsMap());
+        metrics.put("leanModel", leanCache.getMetricsMap());
+        return metrics;
+    }
+
+    private synchronized void resetResultReuseCounters() {
+        slouchCache.resetCounters();
+        crossLeggedCache.resetCounters();
+        leanCache.resetCounters();
+    }
+
+    private synchronized String getSchedulingStats() {
+        return String.format(Locale.US, "Scheduling (min visibility %.2f):\n  slouch %s\n  legs %s\n  lean %s",
+                minJointVisibility, slouchSchedule.getStats(), crossLeggedSchedule.getStats(), leanSchedule.getStats());
+    }
+
+    private synchronized void resetSchedulingCounters() {
+        slouchSchedule.resetCounters();
+        crossLeggedSchedule.resetCounters();
+        leanSchedule.resetCounters();
+    }
+
     /**
      * Get average inference time across all models
      */
     public long getAverageInferenceTimeMs() {
+        if (isFusedModelActive()) {
+            return fusedFrameMonitor.getAverageInferenceMs(); // One call covers all three models
+        }
         long slouch = slouchMonitor.getAverageInferenceMs();
         long crossLegged = crossLeggedMonitor.getAverageInferenceMs();
         long lean = leanMonitor.getAverageInferenceMs();
@@ -449,12 +1530,20 @@ public class PostureClassifier {
         slouchMonitor.reset();
         crossLeggedMonitor.reset();
         leanMonitor.reset();
+        fusedFrameMonitor.reset();
+        separateFrameMonitor.reset();
+        parallelFrameMonitor.reset();
+        resetResultReuseCounters();
+        resetSchedulingCounters();
     }
     
     /**
      * Get last inference time in microseconds (for PerformanceTracker)
      */
     public long getLastInferenceTimeMicros() {
+        if (isFusedModelActive()) {
+            return fusedFrameMonitor.getLastInferenceMs(); // One call covers all three models
+        }
         // Return average of all three models' last inference times
         long slouch = slouchMonitor.getLastInferenceMs();
         long cross = crossLeggedMonitor.getLastInferenceMs();
@@ -486,6 +1575,31 @@ public class PostureClassifier {
         allModels.put("crossLeggedModel", crossLeggedMonitor.getMetricsMap());
         allModels.put("leanModel", leanMonitor.getMetricsMap());
         allModels.put("delegate", currentDelegate.getDisplayName());
+        synchronized (this) {
+            allModels.put("slouchDelegate", slouchDelegate.getDisplayName());
+            allModels.put("crossLeggedDelegate", crossLeggedDelegate.getDisplayName());
+            allModels.put("leanDelegate", leanDelegate.getDisplayName());
+            allModels.put("fusedDelegate", fusedDelegate.getDisplayName());
+            allModels.put("slouchThreads", modelSet.threads[0]);
+            allModels.put("crossLeggedThreads", modelSet.threads[1]);
+            allModels.put("leanThreads", modelSet.threads[2]);
+            allModels.put("fusedThreads", modelSet.threads[3]);
+        }
+        allModels.put("delegateSwap", getSwapMetrics());
+        if (threadTuner != null) {
+            allModels.put("threadTuning", threadTuner.getMetricsMap());
+        }
+        allModels.put("classifierPath", getClassifierPath());
+        allModels.put("fusedPerFrame", fusedFrameMonitor.getMetricsMap());
+        allModels.put("separatePerFrame", separateFrameMonitor.getMetricsMap());
+        allModels.put("parallelPerFrame", parallelFrameMonitor.getMetricsMap());
+        allModels.put("resultReuse", getResultReuseMetrics());
+        synchronized (this) {
+            allModels.put("minJointVisibility", minJointVisibility);
+            allModels.put("slouchSchedule", slouchSchedule.getMetricsMap());
+            allModels.put("crossLeggedSchedule", crossLeggedSchedule.getMetricsMap());
+            allModels.put("leanSchedule", leanSchedule.getMetricsMap());
+        }
         
         return allModels;
     }
@@ -494,30 +1608,24 @@ public class PostureClassifier {
      * Clean up delegates and interpreters
      */
     private void cleanup() {
-        if (slouchInterpreter != null) {
-            slouchInterpreter.close();
-            slouchInterpreter = null;
-        }
-        if (crossLeggedInterpreter != null) {
-            crossLeggedInterpreter.close();
-            crossLeggedInterpreter = null;
-        }
-        if (leanInterpreter != null) {
-            leanInterpreter.close();
-            leanInterpreter = null;
-        }
-        
-        if (gpuDelegate != null) {
-            gpuDelegate.close();
-            gpuDelegate = null;
-        }
-        if (nnApiDelegate != null) {
-            nnApiDelegate.close();
-            nnApiDelegate = null;
+        slouchModel = null;
+        crossLeggedModel = null;
+        leanModel = null;
+        fusedModel = null;
+        if (modelSet != null) {
+            modelSet.close();
         }
     }
 
-    public void close() {
+    /**
+     * Close the live models; a swap still building closes its set when it finishes
+     */
+    public synchronized void close() {
+        closed = true;
+        if (swapExecutor != null) {
+            swapExecutor.shutdown();
+        }
+        setParallelInferenceEnabled(false);
         cleanup();
     }
 
@@ -0,0 +1,503 @@
+package com.esw.postureanalyzer.vision;
+
+import android.graphics.Bitmap;
+import android.util.Log;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Camera source that replays a recorded frame sequence from a file, for
+ * repeatable offline throughput runs without a live camera
+ * - Raw RGBA_8888 dump: fixed-size frames back to back, delivered as RGBA buffers
+ * - Raw YUYV dump: converted natively into pooled bitmaps, like the USB camera
+ * - Image directory: JPEG/PNG files in name order, decoded into pooled bitmaps
+ *
+ * Frames go through the normal FrameListener path at a fixed rate, or as fast as
+ * the file can be read (target FPS 0).
+ */
+public class ReplayFrameSource {
+    private static final String TAG = "ReplayFrameSource";
+    private static final int WINDOW_SIZE = 30; // Rolling average over 30 frames
+    private static final int RGBA_BUFFERS = 2;   // Frame being analysed + frame being read
+    private static final int DECODE_POOL_SIZE = 4;
+
+    static {
+        try {
+            System.loadLibrary("uvccamera");
+        } catch (UnsatisfiedLinkError e) {
+            Log.e(TAG, "Failed to load native library: " + e.getMessage());
+        }
+    }
+
+    private static native boolean nativeYuyvToBitmap(ByteBuffer yuyv, int stride, Bitmap bitmap);
+
+    public enum SourceFormat {
+        RGBA_DUMP("RGBA dump"),
+        YUYV_DUMP("YUYV dump"),
+        IMAGE_DIRECTORY("Image directory");
+
+        private final String displayName;
+
+        SourceFormat(String displayName) {
+            this.displayName = displayName;
+        }
+
+        public String getDisplayName() {
+            return displayName;
+        }
+    }
+
+    /**
+     * What to replay and how fast
+     */
+    public static class Config {
+        final File path;
+        final SourceFormat format;
+        final int width;   // Raw dumps only
+        final int height;
+        int rotationDegrees = 0;
+        float targetFps = 0f; // 0 = unthrottled
+        int loops = 1;
+
+        private Config(File path, SourceFormat format, int width, int height) {
+            this.path = path;
+            this.format = format;
+            this.width = width;
+            this.height = height;
+        }
+
+        public static Config rawDump(File file, SourceFormat format, int width, int height) {
+            if (format == SourceFormat.IMAGE_DIRECTORY) {
+                throw new IllegalArgumentException("Not a raw dump format: " + format);
+            }
+            return new Config(file, format, width, height);
+        }
+
+        public static Config imageDirectory(File directory) {
+            return new Config(directory, SourceFormat.IMAGE_DIRECTORY, 0, 0);
+        }
+
+        public Config setRotationDegrees(int rotationDegrees) {
+            this.rotationDegrees = rotationDegrees;
+            return this;
+        }
+
+        public Config setTargetFps(float targetFps) {
+            this.targetFps = targetFps;
+            return this;
+        }
+
+        public Config setLoops(int loops) {
+            this.loops = Math.max(1, loops);
+            return this;
+        }
+
+        public String describe() {
+            return String.format(Locale.US, "%s %s%s, %s, %d loop(s)",
+                format.getDisplayName(), path.getName(),
+                format == SourceFormat.IMAGE_DIRECTORY ? "" : String.format(Locale.US, " %dx%d", width, height),
+                targetFps > 0 ? String.format(Locale.US, "%.1f FPS", targetFps) : "unthrottled",
+                loops);
+        }
+    }
+
+    public interface ReplayListener {
+        /**
+         * Called on the replay thread when the sequence has been played through or failed
+         */
+        void onReplayFinished(ReplayFrameSource source, String error);
+    }
+
+    private final FrameListener frameListener;
+    private volatile ReplayListener replayListener;
+    private volatile Thread replayThread;
+    private volatile boolean running = false;
+    private Config config;
+
+    // Raw RGBA frames are read into a few reused direct buffers
+    private final ByteBuffer[] rgbaBuffers = new ByteBuffer[RGBA_BUFFERS];
+    private final boolean[] rgbaInUse = new boolean[RGBA_BUFFERS];
+    private ByteBuffer readBuffer; // YUYV frames and image files
+    private final UvcFrameDecoder frameDecoder = new UvcFrameDecoder(DECODE_POOL_SIZE);
+    private int lockedWidth = 0;
+    private int lockedHeight = 0;
+
+    // Rolling read/convert time windows
+    private final long[] readTimesUs = new long[WINDOW_SIZE];    // Frame time -> read done
+    private final long[] convertTimesUs = new long[WINDOW_SIZE]; // Read done -> handed to the listener
+    private int sampleCount = 0;
+    private int sampleIndex = 0;
+
+    // Counters for the current run
+    private long framesDelivered = 0;
+    private long framesFailed = 0;
+    private long bufferAllocations = 0;
+    private long allocatedBytes = 0;
+    private int loopsCompleted = 0;
+    private long runStartNanos = 0;
+    private long runEndNanos = 0;
+
+    public ReplayFrameSource(FrameListener frameListener) {
+        this.frameListener = frameListener;
+    }
+
+    public void setReplayListener(ReplayListener listener) {
+        this.replayListener = listener;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public synchronized Config getConfig() {
+        return config;
+    }
+
+    /**
+     * Start replaying on a background thread; stops any previous run
+     */
+    public void start(Config config) {
+        stop();
+        synchronized (this) {
+            this.config = config;
+            resetCounters();
+            runStartNanos = System.nanoTime();
+        }
+        running = true;
+        Thread thread = new Thread(() -> run(config), "Replay");
+        replayThread = thread;
+        thread.start();
+        Log.i(TAG, "Replay started: " + config.describe());
+    }
+
+    /**
+     * Stop the replay thread and wait for it to exit
+     */
+    public void stop() {
+        running = false;
+        Thread thread = replayThread;
+        if (thread == null || thread == Thread.currentThread()) {
+            return;
+        }
+        thread.interrupt();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        replayThread = null;
+    }
+
+    private void run(Config config) {
+        String error = null;
+        try {
+            long periodNanos = config.targetFps > 0 ? (long) (1_000_000_000L / config.targetFps) : 0;
+            long nextFrameNanos = System.nanoTime();
+            for (int loop = 0; loop < config.loops && running; loop++) {
+                if (config.format == SourceFormat.IMAGE_DIRECTORY) {
+                    nextFrameNanos = replayDirectory(config, periodNanos, nextFrameNanos);
+                } else {
+                    nextFrameNanos = replayDump(config, periodNanos, nextFrameNanos);
+                }
+                synchronized (this) {
+                    if (running) loopsCompleted++;
+                }
+            }
+        } catch (IOException e) {
+            // stop() interrupting a read closes the channel; that is not a failure
+            if (running) {
+                Log.e(TAG, "Replay failed", e);
+                error = e.getMessage() != null ? e.getMessage() : e.toString();
+            }
+        } catch (InterruptedException e) {
+            // stop()
+        } finally {
+            synchronized (this) {
+                runEndNanos = System.nanoTime();
+            }
+            running = false;
+            frameDecoder.clear();
+        }
+        Log.i(TAG, "Replay finished: " + getStats().replace('\n', ' '));
+        ReplayListener listener = replayListener;
+        if (listener != null) {
+            listener.onReplayFinished(this, error);
+        }
+    }
+
+    private long replayDump(Config config, long periodNanos, long nextFrameNanos)
+            throws IOException, InterruptedException {
+        int bytesPerPixel = config.format == SourceFormat.RGBA_DUMP ? 4 : 2;
+        int frameSize = config.width * config.height * bytesPerPixel;
+        try (FileInputStream input = new FileInputStream(config.path)) {
+            FileChannel channel = input.getChannel();
+            if (channel.size() < frameSize) {
+                throw new IOException(config.path + " is smaller than one " + config.width + "x" + config.height + " frame");
+            }
+            while (running) {
+                long captureNanos = waitForFrameTime(periodNanos, nextFrameNanos);
+                nextFrameNanos = nextFrameTime(periodNanos, nextFrameNanos, captureNanos);
+
+                int slot = -1;
+                ByteBuffer buffer;
+                if (config.format == SourceFormat.RGBA_DUMP) {
+                    slot = acquireRgbaBuffer(frameSize);
+                    if (slot < 0) {
+                        break;
+                    }
+                    buffer = rgbaBuffers[slot];
+                } else {
+                    buffer = ensureReadBuffer(frameSize);
+                }
+                buffer.clear();
+                buffer.limit(frameSize);
+                while (buffer.hasRemaining() && channel.read(buffer) > 0) {
+                    // Keep reading until the frame is complete or the file ends
+                }
+                if (buffer.hasRemaining()) {
+                    // End of file (a trailing partial frame is ignored)
+                    if (slot >= 0) releaseRgbaBuffer(slot);
+                    break;
+                }
+                buffer.flip();
+                long arrivalNanos = System.nanoTime();
+
+                Frame frame;
+                if (slot >= 0) {
+                    final int releasedSlot = slot;
+                    frame = Frame.ofBuffer(Frame.Format.RGBA_8888, buffer, config.width, config.height,
+                            config.width * 4, config.rotationDegrees, captureNanos, arrivalNanos,
+                            f -> releaseRgbaBuffer(releasedSlot));
+                } else {
+                    final ByteBuffer yuyv = buffer;
+                    BitmapPool.PooledBitmap pooled = frameDecoder.convert(
+                            target -> nativeYuyvToBitmap(yuyv, config.width * 2, target),
+                            config.width, config.height);
+                    frame = pooled != null ? Frame.ofBitmap(pooled.getBitmap(), config.rotationDegrees,
+                            captureNanos, arrivalNanos, f -> pooled.release()) : null;
+                }
+                deliver(frame, captureNanos, arrivalNanos);
+            }
+        }
+        return nextFrameNanos;
+    }
+
+    private long replayDirectory(Config config, long periodNanos, long nextFrameNanos)
+            throws IOException, InterruptedException {
+        File[] files = config.path.listFiles((dir, name) -> {
+            String lower = name.toLowerCase(Locale.US);
+            return lower.endsWith(".jpg") || lower.endsWith(".jpeg") || lower.endsWith(".png");
+        });
+        if (files == null || files.length == 0) {
+            throw new IOException("No JPEG or PNG images in " + config.path);
+        }
+        Arrays.sort(files);
+
+        for (File file : files) {
+            if (!running) {
+                break;
+            }
+            long captureNanos = waitForFrameTime(periodNanos, nextFrameNanos);
+            nextFrameNanos = nextFrameTime(periodNanos, nextFrameNanos, captureNanos);
+
+            ByteBuffer buffer;
+            try (FileInputStream input = new FileInputStream(file)) {
+                FileChannel channel = input.getChannel();
+                buffer = ensureReadBuffer((int) channel.size());
+                buffer.clear();
+                buffer.limit((int) channel.size());
+                while (buffer.hasRemaining() && channel.read(buffer) > 0) {
+                    // Read the whole image
+                }
+                buffer.flip();
+            }
+            long arrivalNanos = System.nanoTime();
+
+            // The first image locks the size, like the USB camera's first frame
+            BitmapPool.PooledBitmap pooled = frameDecoder.decode(buffer, lockedWidth, lockedHeight);
+            Frame frame = null;
+            if (pooled != null) {
+                if (lockedWidth == 0) {
+                    lockedWidth = pooled.getBitmap().getWidth();
+                    lockedHeight = pooled.getBitmap().getHeight();
+                }
+                frame = Frame.ofBitmap(pooled.getBitmap(), config.rotationDegrees, captureNanos, arrivalNanos,
+                        f -> pooled.release());
+            } else {
+                Log.w(TAG, "Failed to decode " + file.getName());
+            }
+            deliver(frame, captureNanos, arrivalNanos);
+        }
+        return nextFrameNanos;
+    }
+
+    /**
+     * Sleep until the frame's slot at a fixed rate; returns its capture time
+     */
+    private static long waitForFrameTime(long periodNanos, long nextFrameNanos) throws InterruptedException {
+        long now = System.nanoTime();
+        if (periodNanos > 0 && nextFrameNanos > now) {
+            long waitNanos = nextFrameNanos - now;
+            Thread.sleep(waitNanos / 1_000_000, (int) (waitNanos % 1_000_000));
+            return nextFrameNanos;
+        }
+        return now;
+    }
+
+    /**
+     * Next frame slot; a replay that falls behind does not burst to catch up
+     */
+    private static long nextFrameTime(long periodNanos, long nextFrameNanos, long captureNanos) {
+        return Math.max(nextFrameNanos, captureNanos) + periodNanos;
+    }
+
+    private void deliver(Frame frame, long captureNanos, long arrivalNanos) {
+        long deliveredNanos = System.nanoTime();
+        if (frame == null) {
+            synchronized (this) {
+                framesFailed++;
+            }
+            return;
+        }
+        try {
+            frameListener.onFrame(frame);
+        } finally {
+            frame.release();
+        }
+        recordFrame((arrivalNanos - captureNanos) / 1_000, (deliveredNanos - arrivalNanos) / 1_000);
+    }
+
+    /**
+     * Slot of a free RGBA buffer of at least frameSize, or -1 if stopped while waiting
+     */
+    private synchronized int acquireRgbaBuffer(int frameSize) {
+        for (int i = 0; i < RGBA_BUFFERS; i++) {
+            if (!rgbaInUse[i]) {
+                if (rgbaBuffers[i] == null || rgbaBuffers[i].capacity() < frameSize) {
+                    rgbaBuffers[i] = ByteBuffer.allocateDirect(frameSize);
+                    bufferAllocations++;
+                    allocatedBytes += frameSize;
+                }
+                rgbaInUse[i] = true;
+                return i;
+            }
+        }
+        // Every buffer is still held downstream; wait for one to be released
+        while (running) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                return -1; // stop()
+            }
+            for (int i = 0; i < RGBA_BUFFERS; i++) {
+                if (!rgbaInUse[i]) {
+                    rgbaInUse[i] = true;
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private synchronized void releaseRgbaBuffer(int slot) {
+        rgbaInUse[slot] = false;
+        notifyAll();
+    }
+
+    private synchronized ByteBuffer ensureReadBuffer(int size) {
+        if (readBuffer == null || readBuffer.capacity() < size) {
+            readBuffer = ByteBuffer.allocateDirect(size);
+            bufferAllocations++;
+            allocatedBytes += size;
+        }
+        return readBuffer;
+    }
+
+    private synchronized void recordFrame(long readUs, long convertUs) {
+        readTimesUs[sampleIndex] = readUs;
+        convertTimesUs[sampleIndex] = convertUs;
+        sampleIndex = (sampleIndex + 1) % WINDOW_SIZE;
+        if (sampleCount < WINDOW_SIZE) sampleCount++;
+        framesDelivered++;
+    }
+
+    private void resetCounters() {
+        sampleCount = 0;
+        sampleIndex = 0;
+        framesDelivered = 0;
+        framesFailed = 0;
+        bufferAllocations = 0;
+        allocatedBytes = 0;
+        loopsCompleted = 0;
+        runEndNanos = 0;
+        lockedWidth = 0;
+        lockedHeight = 0;
+    }
+
+    private long average(long[] window) {
+        if (sampleCount == 0) return 0;
+        long sum = 0;
+        for (int i = 0; i < sampleCount; i++) {
+            sum += window[i];
+        }
+        return sum / sampleCount;
+    }
+
+    private long elapsedNanos() {
+        if (runStartNanos == 0) return 0;
+        return (runEndNanos != 0 ? runEndNanos : System.nanoTime()) - runStartNanos;
+    }
+
+    public synchronized double getAchievedFps() {
+        long elapsed = elapsedNanos();
+        return elapsed > 0 ? framesDelivered * 1_000_000_000.0 / elapsed : 0.0;
+    }
+
+    /**
+     * Get statistics string for display
+     */
+    public synchronized String getStats() {
+        if (config == null) {
+            return "Replay: not started";
+        }
+        return String.format(Locale.US,
+            "Replay: %s%s\n  Frames: %d  Failed: %d  Loops: %d  Elapsed: %.1f s  FPS: %.1f\n  Read: %dμs  Convert: %dμs  Buffer allocations: %d (%d KB)\n  %s",
+            config.describe(), running ? " (running)" : "",
+            framesDelivered, framesFailed, loopsCompleted, elapsedNanos() / 1e9, getAchievedFps(),
+            average(readTimesUs), average(convertTimesUs), bufferAllocations, allocatedBytes / 1024,
+            frameDecoder.getStats().replace("\n", "\n  ")
+        );
+    }
+
+    /**
+     * Get metrics as a map for Firebase upload or the run report
+     */
+    public synchronized Map<String, Object> getMetricsMap() {
+        Map<String, Object> metrics = new HashMap<>();
+        if (config == null) {
+            return metrics;
+        }
+        metrics.put("source", config.describe());
+        metrics.put("format", config.format.name());
+        metrics.put("targetFps", config.targetFps);
+        metrics.put("running", running);
+        metrics.put("frames", framesDelivered);
+        metrics.put("failedFrames", framesFailed);
+        metrics.put("loops", loopsCompleted);
+        metrics.put("elapsedMs", elapsedNanos() / 1_000_000);
+        metrics.put("achievedFps", getAchievedFps());
+        metrics.put("avgReadUs", average(readTimesUs));
+        metrics.put("avgConvertUs", average(convertTimesUs));
+        metrics.put("bufferAllocations", bufferAllocations);
+        metrics.put("allocatedBytes", allocatedBytes);
+        metrics.put("decode", frameDecoder.getMetricsMap());
+        return metrics;
+    }
+}
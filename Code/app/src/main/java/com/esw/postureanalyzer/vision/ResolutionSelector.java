@@ -0,0 +1,334 @@
+package com.esw.postureanalyzer.vision;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Build;
+import android.util.Log;
+import android.util.Size;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Picks the CameraX analysis resolution from a measured latency budget
+ * - Probes a ladder of resolutions from highest to lowest
+ * - Measures frame conversion + pose pipeline time at each step
+ * - Selects the highest resolution whose average fits the budget
+ * - Persists the choice per device and delegate, so the probe runs once
+ */
+public class ResolutionSelector {
+    private static final String TAG = "ResolutionSelector";
+    private static final String PREFS_NAME = "analysis_resolution";
+
+    public static final Size[] DEFAULT_LADDER = {
+        new Size(1280, 720),
+        new Size(960, 540),
+        new Size(640, 480),
+        new Size(320, 240)
+    };
+    public static final long DEFAULT_LATENCY_BUDGET_MS = 50;
+
+    private static final int PROBE_WARMUP_FRAMES = 5;  // Discarded after each rebind
+    private static final int PROBE_FRAMES = 20;        // Measured per resolution
+
+    public interface ResolutionListener {
+        /**
+         * The camera should rebind its analysis use case at this resolution
+         */
+        void onResolutionChanged(Size resolution);
+    }
+
+    private final SharedPreferences prefs;
+    private final Size[] ladder;
+    private final long budgetMicros;
+    private ResolutionListener listener;
+
+    private String delegateKey = "CPU";
+    private Size selected;
+    private boolean probing = false;
+    private int probeIndex = 0;
+
+    // Current probe step
+    private int warmupRemaining;
+    private int pipelineSamples;
+    private long pipelineSumUs;
+    private int conversionSamples;
+    private long conversionSumUs;
+    private int frameWidth;
+    private int frameHeight;
+
+    // Results per ladder step (0 = not probed)
+    private final long[] probedConversionUs;
+    private final long[] probedPipelineUs;
+    private final String[] probedFrameSize;
+
+    public ResolutionSelector(Context context) {
+        this(context, DEFAULT_LADDER, DEFAULT_LATENCY_BUDGET_MS);
+    }
+
+    public ResolutionSelector(Context context, Size[] ladder, long budgetMs) {
+        this.prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        this.ladder = ladder;
+        this.budgetMicros = budgetMs * 1000;
+        this.probedConversionUs = new long[ladder.length];
+        this.probedPipelineUs = new long[ladder.length];
+        this.probedFrameSize = new String[ladder.length];
+    }
+
+    public synchronized void setListener(ResolutionListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Resolution the camera should bind with now.
+     * Loads the stored choice for the current delegate, or starts probing.
+     */
+    public synchronized Size getTargetResolution() {
+        if (probing) {
+            return ladder[probeIndex];
+        }
+        if (selected == null && !loadSelection()) {
+            startProbe();
+            return ladder[probeIndex];
+        }
+        return selected;
+    }
+
+    /**
+     * Re-evaluate for a new delegate. Uses the stored choice for that delegate if
+     * there is one, otherwise probes again. The listener is told to rebind if needed.
+     */
+    public void setDelegate(String delegate) {
+        Size target;
+        ResolutionListener callback;
+        synchronized (this) {
+            if (delegate.equals(delegateKey)) {
+                return;
+            }
+            Size previous = probing ? ladder[probeIndex] : selected;
+            delegateKey = delegate;
+            selected = null;
+            probing = false;
+            target = getTargetResolution();
+            if (target.equals(previous) && !probing) {
+                return;
+            }
+            callback = listener;
+        }
+        Log.d(TAG, "Delegate changed to " + delegate + ", analysis resolution " + target);
+        if (callback != null) {
+            callback.onResolutionChanged(target);
+        }
+    }
+
+    /**
+     * Discard the stored choice for the current delegate and probe again
+     */
+    public void reprobe() {
+        Size target;
+        ResolutionListener callback;
+        synchronized (this) {
+            prefs.edit().remove(prefsKey()).apply();
+            selected = null;
+            probing = false;
+            target = getTargetResolution();
+            callback = listener;
+        }
+        if (callback != null) {
+            callback.onResolutionChanged(target);
+        }
+    }
+
+    /**
+     * Time spent converting one camera frame for the pose pipeline (camera thread)
+     */
+    public synchronized void recordConversion(int width, int height, long micros) {
+        frameWidth = width;
+        frameHeight = height;
+        if (!probing || warmupRemaining > 0) {
+            return;
+        }
+        conversionSamples++;
+        conversionSumUs += micros;
+    }
+
+    /**
+     * Pose pipeline time for one frame from the internal camera (result thread)
+     */
+    public void recordPipeline(long micros) {
+        Size next = null;
+        ResolutionListener callback;
+        synchronized (this) {
+            if (!probing) {
+                return;
+            }
+            if (warmupRemaining > 0) {
+                warmupRemaining--;
+                if (warmupRemaining == 0) {
+                    conversionSamples = 0;
+                    conversionSumUs = 0;
+                }
+                return;
+            }
+            pipelineSamples++;
+            pipelineSumUs += micros;
+            if (pipelineSamples < PROBE_FRAMES) {
+                return;
+            }
+            next = finishProbeStep();
+            callback = listener;
+        }
+        if (next != null && callback != null) {
+            callback.onResolutionChanged(next);
+        }
+    }
+
+    /**
+     * Evaluate the current probe step. Returns the next resolution to bind,
+     * or null when the current one was selected.
+     */
+    private Size finishProbeStep() {
+        long conversionUs = conversionSamples > 0 ? conversionSumUs / conversionSamples : 0;
+        long pipelineUs = pipelineSumUs / pipelineSamples;
+        probedConversionUs[probeIndex] = conversionUs;
+        probedPipelineUs[probeIndex] = pipelineUs;
+        probedFrameSize[probeIndex] = frameWidth + "x" + frameHeight;
+        Log.d(TAG, String.format(Locale.US, "Probe %s: conversion=%dμs pipeline=%dμs (budget %dμs)",
+                ladder[probeIndex], conversionUs, pipelineUs, budgetMicros));
+
+        boolean fits = conversionUs + pipelineUs <= budgetMicros;
+        boolean last = probeIndex == ladder.length - 1;
+        if (!fits && !last) {
+            probeIndex++;
+            resetProbeStep();
+            return ladder[probeIndex];
+        }
+        // Highest that fits, or the smallest when nothing does
+        probing = false;
+        selected = ladder[probeIndex];
+        saveSelection(conversionUs, pipelineUs);
+        Log.i(TAG, "Selected analysis resolution " + selected + " for " + delegateKey
+                + (fits ? "" : " (over budget at every step)"));
+        return null;
+    }
+
+    private void startProbe() {
+        probing = true;
+        probeIndex = 0;
+        for (int i = 0; i < ladder.length; i++) {
+            probedConversionUs[i] = 0;
+            probedPipelineUs[i] = 0;
+            probedFrameSize[i] = null;
+        }
+        resetProbeStep();
+        Log.d(TAG, "Probing analysis resolutions for " + delegateKey);
+    }
+
+    private void resetProbeStep() {
+        warmupRemaining = PROBE_WARMUP_FRAMES;
+        pipelineSamples = 0;
+        pipelineSumUs = 0;
+        conversionSamples = 0;
+        conversionSumUs = 0;
+    }
+
+    private String prefsKey() {
+        String device = (Build.MANUFACTURER + "_" + Build.MODEL).replaceAll("[^a-zA-Z0-9]", "_");
+        return device + "_" + delegateKey;
+    }
+
+    private boolean loadSelection() {
+        String stored = prefs.getString(prefsKey(), null);
+        if (stored == null) {
+            return false;
+        }
+        try {
+            selected = Size.parseSize(stored);
+        } catch (NumberFormatException e) {
+            Log.w(TAG, "Ignoring stored resolution " + stored);
+            return false;
+        }
+        Log.d(TAG, "Using stored analysis resolution " + selected + " for " + delegateKey);
+        return true;
+    }
+
+    private void saveSelection(long conversionUs, long pipelineUs) {
+        prefs.edit()
+                .putString(prefsKey(), selected.toString())
+                .putLong(prefsKey() + "_conversionUs", conversionUs)
+                .putLong(prefsKey() + "_pipelineUs", pipelineUs)
+                .apply();
+    }
+
+    public synchronized boolean isProbing() {
+        return probing;
+    }
+
+    public synchronized String getSelectedResolution() {
+        return selected != null ? selected.toString() : "probing";
+    }
+
+    public synchronized long getSelectedConversionUs() {
+        return prefs.getLong(prefsKey() + "_conversionUs", 0);
+    }
+
+    public synchronized long getSelectedPipelineUs() {
+        return prefs.getLong(prefsKey() + "_pipelineUs", 0);
+    }
+
+    /**
+     * Get statistics string for display
+     */
+    public synchronized String getStats() {
+        StringBuilder stats = new StringBuilder();
+        stats.append(String.format(Locale.US, "Analysis resolution: %s (frames %dx%d, budget %dms)",
+                probing ? "probing " + ladder[probeIndex] : getSelectedResolution(),
+                frameWidth, frameHeight, budgetMicros / 1000));
+        if (!probing && selected != null) {
+            stats.append(String.format(Locale.US, "\n  Selected: conversion=%dμs pipeline=%dμs",
+                    getSelectedConversionUs(), getSelectedPipelineUs()));
+        }
+        for (int i = 0; i < ladder.length; i++) {
+            if (probedFrameSize[i] != null) {
+                stats.append(String.format(Locale.US, "\n  Probe %s: conversion=%dμs pipeline=%dμs",
+                        ladder[i], probedConversionUs[i], probedPipelineUs[i]));
+            }
+        }
+        return stats.toString();
+    }
+
+    /**
+     * Get metrics as a map for Firebase upload
+     */
+    public synchronized Map<String, Object> getMetricsMap() {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("selectedResolution", getSelectedResolution());
+        metrics.put("frameSize", frameWidth + "x" + frameHeight);
+        metrics.put("budgetMs", budgetMicros / 1000);
+        metrics.put("delegate", delegateKey);
+        metrics.put("probing", probing);
+        if (selected != null) {
+            metrics.put("selectedConversionUs", getSelectedConversionUs());
+            metrics.put("selectedPipelineUs", getSelectedPipelineUs());
+        }
+        metrics.put("probes", getProbeMetrics());
+        return metrics;
+    }
+
+    /**
+     * Measured timings for each probed resolution of the last probe
+     */
+    public synchronized Map<String, Object> getProbeMetrics() {
+        Map<String, Object> probes = new HashMap<>();
+        for (int i = 0; i < ladder.length; i++) {
+            if (probedFrameSize[i] != null) {
+                Map<String, Object> probe = new HashMap<>();
+                probe.put("frameSize", probedFrameSize[i]);
+                probe.put("conversionUs", probedConversionUs[i]);
+                probe.put("pipelineUs", probedPipelineUs[i]);
+                probes.put(ladder[i].toString(), probe);
+            }
+        }
+        return probes;
+    }
+}
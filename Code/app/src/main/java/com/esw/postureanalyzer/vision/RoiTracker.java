@@ -0,0 +1,207 @@
+package com.esw.postureanalyzer.vision;
+
+import android.graphics.RectF;
+import android.util.Log;
+import com.google.mediapipe.tasks.components.containers.NormalizedLandmark;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Tracks the region of the frame the user occupies so pose inference can run on a crop
+ * - ROI is the previous landmark bounding box plus a margin, in normalized upright coordinates
+ * - The ROI is kept while the landmarks stay inside it, so crop sizes (and pooled bitmaps) stay stable
+ * - Falls back to the full frame periodically, when the person is lost or touches the crop edge
+ */
+public class RoiTracker {
+    private static final String TAG = "RoiTracker";
+
+    private static final float MARGIN = 0.25f;              // Of the larger bounding box side, per side
+    private static final float EDGE_THRESHOLD = 0.02f;      // Landmark this close to a crop edge -> re-detect
+    private static final float MAX_CROP_AREA = 0.8f;        // Larger crops are not worth the copy
+    private static final float SHRINK_AREA_RATIO = 2f;      // Replace a kept ROI once it is this much too big
+    private static final float MIN_VISIBILITY = 0.5f;
+    private static final int MIN_VISIBLE_LANDMARKS = 8;
+    private static final int FULL_FRAME_INTERVAL = 30;      // Re-detect on the full frame every N frames
+
+    private final RectF roi = new RectF();
+    private final RectF target = new RectF();
+    private boolean hasRoi = false;
+    private int framesSinceFullFrame = 0;
+
+    // Counters
+    private long croppedFrames = 0;
+    private long fullFrames = 0;
+    private long edgeRedetects = 0;
+    private double croppedAreaSum = 0;
+
+    /**
+     * Get the ROI for the next frame. Returns false when the full frame should be used.
+     */
+    public synchronized boolean nextRoi(RectF out) {
+        framesSinceFullFrame++;
+        if (!hasRoi || framesSinceFullFrame >= FULL_FRAME_INTERVAL) {
+            framesSinceFullFrame = 0;
+            fullFrames++;
+            return false;
+        }
+        out.set(roi);
+        return true;
+    }
+
+    /**
+     * Record the crop that was actually submitted (after pixel alignment)
+     */
+    public synchronized void recordCrop(RectF usedRoi) {
+        croppedFrames++;
+        croppedAreaSum += usedRoi.width() * usedRoi.height();
+    }
+
+    /**
+     * Update the ROI from full-frame landmarks.
+     * usedRoi is the crop the landmarks were detected in, or null for a full frame.
+     */
+    public synchronized void onLandmarks(List<NormalizedLandmark> landmarks, RectF usedRoi) {
+        float minX = 1f, minY = 1f, maxX = 0f, maxY = 0f;
+        int visible = 0;
+        boolean touchesEdge = false;
+        for (int i = 0; i < landmarks.size(); i++) {
+            NormalizedLandmark landmark = landmarks.get(i);
+            if (landmark.visibility().orElse(0f) < MIN_VISIBILITY) {
+                continue;
+            }
+            float x = landmark.x();
+            float y = landmark.y();
+            minX = Math.min(minX, x);
+            minY = Math.min(minY, y);
+            maxX = Math.max(maxX, x);
+            maxY = Math.max(maxY, y);
+            visible++;
+            if (usedRoi != null && isNearCropEdge(x, y, usedRoi)) {
+                touchesEdge = true;
+            }
+        }
+
+        if (visible < MIN_VISIBLE_LANDMARKS) {
+            reset();
+            return;
+        }
+        if (touchesEdge) {
+            // Part of the body may be outside the crop, look at the whole frame next
+            edgeRedetects++;
+            hasRoi = false;
+            return;
+        }
+
+        float margin = MARGIN * Math.max(maxX - minX, maxY - minY);
+        target.set(Math.max(0f, minX - margin), Math.max(0f, minY - margin),
+                Math.min(1f, maxX + margin), Math.min(1f, maxY + margin));
+        float targetArea = target.width() * target.height();
+        if (targetArea > MAX_CROP_AREA) {
+            hasRoi = false;
+            return;
+        }
+
+        // Keep the current ROI while it still contains the user and is not far too large
+        if (hasRoi && roi.contains(target) && roi.width() * roi.height() < targetArea * SHRINK_AREA_RATIO) {
+            return;
+        }
+        if (!hasRoi) {
+            Log.d(TAG, String.format(Locale.US, "ROI acquired: %.2f,%.2f - %.2f,%.2f",
+                    target.left, target.top, target.right, target.bottom));
+        }
+        roi.set(target);
+        hasRoi = true;
+    }
+
+    /**
+     * Person lost: go back to full-frame detection
+     */
+    public synchronized void reset() {
+        hasRoi = false;
+        framesSinceFullFrame = 0;
+    }
+
+    public synchronized void resetStats() {
+        croppedFrames = 0;
+        fullFrames = 0;
+        edgeRedetects = 0;
+        croppedAreaSum = 0;
+    }
+
+    private static boolean isNearCropEdge(float x, float y, RectF crop) {
+        // Crop edges on the frame border are real image edges, not cut-offs
+        return (crop.left > 0f && x - crop.left < EDGE_THRESHOLD)
+                || (crop.top > 0f && y - crop.top < EDGE_THRESHOLD)
+                || (crop.right < 1f && crop.right - x < EDGE_THRESHOLD)
+                || (crop.bottom < 1f && crop.bottom - y < EDGE_THRESHOLD);
+    }
+
+    /**
+     * Map a normalized rect in upright coordinates into the coordinates of a buffer
+     * that must be rotated clockwise by rotationDegrees to become upright.
+     */
+    public static void uprightToBuffer(RectF upright, int rotationDegrees, RectF out) {
+        switch (((rotationDegrees % 360) + 360) % 360) {
+            case 90:
+                out.set(upright.top, 1f - upright.right, upright.bottom, 1f - upright.left);
+                break;
+            case 180:
+                out.set(1f - upright.right, 1f - upright.bottom, 1f - upright.left, 1f - upright.top);
+                break;
+            case 270:
+                out.set(1f - upright.bottom, upright.left, 1f - upright.top, upright.right);
+                break;
+            default:
+                out.set(upright);
+                break;
+        }
+    }
+
+    /**
+     * Inverse of uprightToBuffer
+     */
+    public static void bufferToUpright(RectF buffer, int rotationDegrees, RectF out) {
+        switch (((rotationDegrees % 360) + 360) % 360) {
+            case 90:
+                out.set(1f - buffer.bottom, buffer.left, 1f - buffer.top, buffer.right);
+                break;
+            case 180:
+                out.set(1f - buffer.right, 1f - buffer.bottom, 1f - buffer.left, 1f - buffer.top);
+                break;
+            case 270:
+                out.set(buffer.top, 1f - buffer.right, buffer.bottom, 1f - buffer.left);
+                break;
+            default:
+                out.set(buffer);
+                break;
+        }
+    }
+
+    /**
+     * Get statistics string for display
+     */
+    public synchronized String getStats() {
+        long total = croppedFrames + fullFrames;
+        return String.format(Locale.US,
+            "ROI: cropped=%d full=%d (%.0f%% cropped)\n  Avg crop area: %.0f%%  Edge re-detects: %d",
+            croppedFrames, fullFrames,
+            total > 0 ? croppedFrames * 100f / total : 0f,
+            croppedFrames > 0 ? croppedAreaSum * 100 / croppedFrames : 0,
+            edgeRedetects
+        );
+    }
+
+    /**
+     * Get metrics as a map for Firebase upload
+     */
+    public synchronized Map<String, Object> getMetricsMap() {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("croppedFrames", croppedFrames);
+        metrics.put("fullFrames", fullFrames);
+        metrics.put("edgeRedetects", edgeRedetects);
+        metrics.put("avgCropArea", croppedFrames > 0 ? croppedAreaSum / croppedFrames : 0);
+        return metrics;
+    }
+}
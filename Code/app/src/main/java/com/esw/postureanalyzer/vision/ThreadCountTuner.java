@@ -0,0 +1,228 @@
+package com.esw.postureanalyzer.vision;
+
+import android.content.Context;
+import android.util.Log;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Picks the interpreter thread count of each posture model under the real load
+ * - Waits until the classifier is being fed live frames, so MediaPipe's threads are busy
+ * - Times each model that runs on the CPU or GPU delegate at 1..N threads (tuner thread)
+ * - Applies the fastest count, preferring fewer threads when they are within a few percent
+ * Runs again whenever it is started, e.g. after a delegate change.
+ */
+class ThreadCountTuner {
+    private static final String TAG = "ThreadCountTuner";
+
+    static final int MAX_THREADS = 4;
+    private static final float FEWER_THREADS_MARGIN = 1.05f; // More threads must be >5% faster
+    private static final long LIVE_FRAME_WINDOW_NS = 500_000_000L; // A classify() this recent means load
+    private static final long LOAD_WAIT_TIMEOUT_MS = 30_000;
+    private static final long LOAD_POLL_MS = 100;
+
+    // Same order as PostureClassifier.getModelDelegates()/getModelThreads()
+    private static final String[] COMPONENTS = {"slouch", "crossLegged", "lean", "fused"};
+    private static final String[] MODEL_ASSETS = {
+        PostureClassifier.SLOUCH_MODEL_ASSET,
+        PostureClassifier.CROSS_LEGGED_MODEL_ASSET,
+        PostureClassifier.LEAN_MODEL_ASSET,
+        PostureClassifier.FUSED_MODEL_ASSET
+    };
+
+    private final Context context;
+    private final PostureClassifier classifier;
+
+    private boolean running = false;
+    private boolean restartRequested = false;
+    private String status = "not run";
+    private boolean underLoad;
+    private int maxThreads;
+    private long tunedAtMs;
+    private final DelegateType[] tunedDelegates = new DelegateType[COMPONENTS.length];
+    private final int[] chosenThreads = new int[COMPONENTS.length];
+    // Median μs per model at 1..maxThreads threads; null if the model was not tuned
+    private final long[][] timingsUs = new long[COMPONENTS.length][];
+
+    ThreadCountTuner(Context context, PostureClassifier classifier) {
+        this.context = context.getApplicationContext();
+        this.classifier = classifier;
+    }
+
+    /**
+     * Tune the current delegates; if a tuning is already running it is repeated afterwards
+     */
+    synchronized void start() {
+        if (running) {
+            restartRequested = true;
+            return;
+        }
+        running = true;
+        status = "waiting for live frames";
+        new Thread(this::tune, "ThreadTuner").start();
+    }
+
+    private void tune() {
+        while (true) {
+            boolean loaded = waitForLiveFrames();
+            DelegateType[] delegates = classifier.getModelDelegates();
+            int[] threads = classifier.getModelThreads();
+            int coreLimit = Math.max(1, Math.min(MAX_THREADS, Runtime.getRuntime().availableProcessors()));
+            synchronized (this) {
+                status = "measuring";
+            }
+            Log.d(TAG, "Tuning thread counts (1.." + coreLimit + ")" + (loaded ? " under live load" : " without live frames"));
+
+            long[][] timings = new long[COMPONENTS.length][];
+            for (int i = 0; i < COMPONENTS.length; i++) {
+                if (delegates[i] != DelegateType.CPU && delegates[i] != DelegateType.GPU) {
+                    continue; // NNAPI always runs single-threaded, the Java engine has no threads
+                }
+                timings[i] = measure(MODEL_ASSETS[i], delegates[i], coreLimit);
+                if (timings[i] != null) {
+                    threads[i] = pick(timings[i], threads[i]);
+                    Log.d(TAG, String.format(Locale.US, "  %s on %s: %d threads %s", COMPONENTS[i],
+                            delegates[i].getDisplayName(), threads[i], Arrays.toString(timings[i])));
+                }
+            }
+
+            boolean current = Arrays.equals(delegates, classifier.getModelDelegates());
+            synchronized (this) {
+                underLoad = loaded;
+                maxThreads = coreLimit;
+                tunedAtMs = System.currentTimeMillis();
+                for (int i = 0; i < COMPONENTS.length; i++) {
+                    tunedDelegates[i] = delegates[i];
+                    chosenThreads[i] = threads[i];
+                    timingsUs[i] = timings[i];
+                }
+                status = current ? "tuned" : "stale (delegates changed while tuning)";
+            }
+            if (current) {
+                classifier.setModelThreads(threads[0], threads[1], threads[2], threads[3]);
+            }
+
+            synchronized (this) {
+                if (!restartRequested) {
+                    running = false;
+                    return;
+                }
+                restartRequested = false;
+                status = "waiting for live frames";
+            }
+        }
+    }
+
+    /**
+     * Wait (bounded) until the classifier has been called recently; false on timeout
+     */
+    private boolean waitForLiveFrames() {
+        long deadline = System.currentTimeMillis() + LOAD_WAIT_TIMEOUT_MS;
+        while (System.currentTimeMillis() < deadline) {
+            if (System.nanoTime() - classifier.getLastClassifyNanos() < LIVE_FRAME_WINDOW_NS) {
+                return true;
+            }
+            try {
+                Thread.sleep(LOAD_POLL_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        Log.w(TAG, "No live frames within " + LOAD_WAIT_TIMEOUT_MS + "ms, tuning without load");
+        return false;
+    }
+
+    /**
+     * Median μs at 1..maxThreads threads (UNAVAILABLE where it failed), or null if not bundled
+     */
+    private long[] measure(String modelName, DelegateType delegateType, int maxThreads) {
+        long[] timings = new long[maxThreads];
+        for (int threads = 1; threads <= maxThreads; threads++) {
+            try {
+                timings[threads - 1] = ModelBenchmark.medianMicros(context, modelName, delegateType, threads);
+            } catch (IOException e) {
+                return null;
+            } catch (Exception e) {
+                Log.w(TAG, "  " + modelName + " failed with " + threads + " threads: " + e.getMessage());
+                timings[threads - 1] = DelegateAutoTuner.UNAVAILABLE;
+            }
+        }
+        return timings;
+    }
+
+    /**
+     * Fewest threads within FEWER_THREADS_MARGIN of the fastest, or fallback if none ran
+     */
+    static int pick(long[] timings, int fallback) {
+        long fastest = Long.MAX_VALUE;
+        for (long micros : timings) {
+            if (micros != DelegateAutoTuner.UNAVAILABLE && micros < fastest) {
+                fastest = micros;
+            }
+        }
+        if (fastest == Long.MAX_VALUE) {
+            return fallback;
+        }
+        for (int i = 0; i < timings.length; i++) {
+            if (timings[i] != DelegateAutoTuner.UNAVAILABLE && timings[i] <= fastest * FEWER_THREADS_MARGIN) {
+                return i + 1;
+            }
+        }
+        return fallback;
+    }
+
+    /**
+     * Get statistics string for display
+     */
+    synchronized String getStats() {
+        StringBuilder stats = new StringBuilder();
+        stats.append("Thread tuning: ").append(status);
+        if (tunedAtMs > 0) {
+            stats.append(underLoad ? " (under live load" : " (no live frames").append(", max ")
+                    .append(maxThreads).append(")");
+        }
+        for (int i = 0; i < COMPONENTS.length; i++) {
+            if (timingsUs[i] == null) {
+                continue;
+            }
+            stats.append(String.format(Locale.US, "\n  %s %s: %d threads |", COMPONENTS[i],
+                    tunedDelegates[i].getDisplayName(), chosenThreads[i]));
+            for (int t = 0; t < timingsUs[i].length; t++) {
+                long micros = timingsUs[i][t];
+                stats.append(String.format(Locale.US, " %d:%s", t + 1,
+                        micros == DelegateAutoTuner.UNAVAILABLE ? "n/a" : micros + "μs"));
+            }
+        }
+        return stats.toString();
+    }
+
+    /**
+     * Get metrics as a map for Firebase upload
+     */
+    synchronized Map<String, Object> getMetricsMap() {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("status", status);
+        metrics.put("underLoad", underLoad);
+        metrics.put("maxThreads", maxThreads);
+        metrics.put("tunedAt", tunedAtMs);
+        for (int i = 0; i < COMPONENTS.length; i++) {
+            if (timingsUs[i] == null) {
+                continue;
+            }
+            Map<String, Object> component = new HashMap<>();
+            component.put("delegate", tunedDelegates[i].getDisplayName());
+            component.put("threads", chosenThreads[i]);
+            Map<String, Object> timings = new HashMap<>();
+            for (int t = 0; t < timingsUs[i].length; t++) {
+                timings.put(String.valueOf(t + 1), timingsUs[i][t]);
+            }
+            component.put("timingsUs", timings);
+            metrics.put(COMPONENTS[i], component);
+        }
+        return metrics;
+    }
+}
@@ -6,25 +6,20 @@ import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
-import android.graphics.ImageFormat;
-import android.graphics.Rect;
-import android.graphics.YuvImage;
 import android.hardware.usb.UsbDevice;
 import android.hardware.usb.UsbDeviceConnection;
 import android.hardware.usb.UsbManager;
 import android.os.Build;
-import android.os.Handler;
-import android.os.HandlerThread;
 import android.util.Log;
 import android.view.Surface;
-import android.widget.ImageView;
+import android.view.TextureView;
 import android.widget.Toast;
 
 import androidx.core.content.ContextCompat;
 
-import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
 import java.util.HashMap;
+import java.util.Map;
 
 /**
  * USB Camera Manager - V4L2 Implementation for QIDK
@@ -51,15 +46,27 @@ public class UVCCameraManager {
     private native boolean nativeOpenByFd(long nativePtr, int fd);
     private native void nativeClose(long nativePtr);
     private native boolean nativeSetFormat(long nativePtr, int width, int height, int pixelFormat);
+    private native void nativeSetQueueConfig(long nativePtr, int bufferCount, boolean drainToNewest);
     private native boolean nativeStartStreaming(long nativePtr);
     private native void nativeStopStreaming(long nativePtr);
-    private native byte[] nativeGetFrame(long nativePtr);
+    private native boolean nativeStartCapture(long nativePtr);
+    private native void nativeStopCapture(long nativePtr);
+    private native void nativeSetTargetFps(long nativePtr, float fps);
+    private native void nativeGetCaptureStats(long nativePtr, long[] out);
+    private native byte[] nativeCopyFrame(long nativePtr);
+    private native boolean nativeConvertFrameIntoBitmap(long nativePtr, Bitmap bitmap);
+    private native int nativeGetWidth(long nativePtr);
+    private native int nativeGetHeight(long nativePtr);
+    private native int nativeGetFrameSize(long nativePtr);
+    private native boolean nativeRegisterRing(long nativePtr, ByteBuffer[] slots, ByteBuffer lengths);
+    private native void nativeReleaseRingFrame(long nativePtr, int slot);
     private native int getYUYVFormat();
     private native int getMJPEGFormat();
     
     private final Context context;
     private final FrameListener frameListener;
-    private ImageView usbPreviewView;
+    private volatile UsbPreviewRenderer previewRenderer;
+    private float previewFps = UsbPreviewRenderer.DEFAULT_MAX_FPS;
     
     private UsbManager usbManager;
     private UsbDevice usbCamera;
@@ -70,18 +77,48 @@ public class UVCCameraManager {
     // Track the actual resolution being used
     private int currentWidth = 640;
     private int currentHeight = 480;
+    private boolean isYuyv = false;
     
     // Cache first successful bitmap size to enforce consistency
     private int cachedBitmapWidth = -1;
     private int cachedBitmapHeight = -1;
     
-    private HandlerThread frameThread;
-    private Handler frameHandler;
-    private volatile boolean shouldCaptureFrames = false;
-
-    public interface FrameListener {
-        void onFrame(Bitmap bitmap, int rotationDegrees);
-    }
+    // Decoded frames are pooled. A frame goes back to the pool once the pose
+    // pipeline releases its Frame and the preview renderer has drawn it.
+    private static final int DECODE_POOL_SIZE = 5; // in flight + waiting + preview pending/drawing + decoding
+    private final UvcFrameDecoder frameDecoder = new UvcFrameDecoder(DECODE_POOL_SIZE);
+    
+    // Compressed frames come through a direct-buffer ring instead of a new byte[] per frame.
+    // Each slot is decoded and released before the next dequeue, the extra slot covers
+    // a frame the capture side copies while Java still holds one.
+    private static final int RING_SLOTS = 2;
+    private volatile UvcFrameRing frameRing;
+    private boolean ringRegistered = false;
+    
+    // YUYV frames are converted natively from the V4L2 buffer into the pooled bitmap
+    private final UvcFrameDecoder.FrameWriter yuyvWriter = new UvcFrameDecoder.FrameWriter() {
+        @Override
+        public boolean writeInto(Bitmap target) {
+            return nativeConvertFrameIntoBitmap(nativeCameraPtr, target);
+        }
+    };
+    
+    // Frames are pushed by a native thread blocked in poll() on the V4L2 fd.
+    // It skips frames that arrive faster than the capture rate:
+    // min(targetFps, governor rate).
+    public static final float DEFAULT_TARGET_FPS = 30f;
+    private volatile float targetFps = DEFAULT_TARGET_FPS;
+    private float appliedFps = -1f; // Capture thread only
+    private final UvcCaptureStats captureStats = new UvcCaptureStats();
+    private final long[] nativeStats = new long[UvcCaptureStats.NATIVE_COUNT];
+    
+    // V4L2 buffer queue. With drain-to-newest, older filled buffers are requeued
+    // unread so a slow consumer analyses the latest frame instead of a stale one.
+    public static final int DEFAULT_BUFFER_COUNT = 4;
+    public static final boolean DEFAULT_DRAIN_TO_NEWEST = true;
+    private int bufferCount = DEFAULT_BUFFER_COUNT;
+    private boolean drainToNewest = DEFAULT_DRAIN_TO_NEWEST;
+    private volatile AnalysisRateGovernor rateGovernor;
 
     public interface ConnectionListener {
         void onCameraConnected();
@@ -101,11 +138,56 @@ public class UVCCameraManager {
     }
 
     /**
-     * Set the ImageView to display USB camera frames
+     * Let the governor set the capture interval instead of the fixed 30 FPS throttle
+     */
+    public void setRateGovernor(AnalysisRateGovernor rateGovernor) {
+        this.rateGovernor = rateGovernor;
+    }
+
+    /**
+     * Upper bound on the capture rate; 0 delivers every frame the camera produces
      */
-    public void setPreviewView(ImageView usbPreviewView) {
-        this.usbPreviewView = usbPreviewView;
-        Log.d(TAG, "USB preview ImageView set");
+    public void setTargetFps(float fps) {
+        this.targetFps = fps;
+        Log.d(TAG, "Target capture rate: " + (fps > 0 ? fps + " FPS" : "unthrottled"));
+    }
+
+    public float getTargetFps() {
+        return targetFps;
+    }
+
+    /**
+     * V4L2 queue depth and dequeue mode; applied the next time streaming starts
+     */
+    public void setQueueConfig(int bufferCount, boolean drainToNewest) {
+        this.bufferCount = bufferCount;
+        this.drainToNewest = drainToNewest;
+    }
+
+    /**
+     * Set the TextureView to render USB camera frames into. Frames are drawn on
+     * a render thread, never on the main thread.
+     */
+    public void setPreviewView(TextureView usbPreviewView) {
+        if (previewRenderer != null) {
+            if (previewRenderer.getView() == usbPreviewView) {
+                return;
+            }
+            previewRenderer.release();
+        }
+        previewRenderer = new UsbPreviewRenderer(usbPreviewView, previewFps);
+        Log.d(TAG, "USB preview TextureView set");
+    }
+
+    /**
+     * Preview frame-rate cap, independent of the capture and analysis rate
+     */
+    public void setPreviewFps(float fps) {
+        this.previewFps = fps;
+        UsbPreviewRenderer renderer = previewRenderer;
+        if (renderer != null) {
+            renderer.setMaxFps(fps);
+        }
     }
 
     /**
@@ -307,6 +389,7 @@ public class UVCCameraManager {
                 Log.d(TAG, "Trying MJPEG " + res[0] + "x" + res[1]);
                 if (nativeSetFormat(nativeCameraPtr, res[0], res[1], getMJPEGFormat())) {
                     formatSet = true;
+                    isYuyv = false;
                     currentWidth = res[0];
                     currentHeight = res[1];
                     Log.i(TAG, "Successfully set MJPEG " + res[0] + "x" + res[1]);
@@ -320,9 +403,11 @@ public class UVCCameraManager {
                     Log.d(TAG, "Trying YUYV " + res[0] + "x" + res[1]);
                     if (nativeSetFormat(nativeCameraPtr, res[0], res[1], getYUYVFormat())) {
                         formatSet = true;
-                        currentWidth = res[0];
-                        currentHeight = res[1];
-                        Log.i(TAG, "Successfully set YUYV " + res[0] + "x" + res[1]);
+                        isYuyv = true;
+                        // Raw frames have no header, use the size the driver actually chose
+                        currentWidth = nativeGetWidth(nativeCameraPtr);
+                        currentHeight = nativeGetHeight(nativeCameraPtr);
+                        Log.i(TAG, "Successfully set YUYV " + currentWidth + "x" + currentHeight);
                         break;
                     }
                 }
@@ -339,7 +424,12 @@ public class UVCCameraManager {
                 return;
             }
             
+            if (!isYuyv) {
+                registerFrameRing(nativeGetFrameSize(nativeCameraPtr));
+            }
+            
             // Start streaming
+            nativeSetQueueConfig(nativeCameraPtr, bufferCount, drainToNewest);
             if (!nativeStartStreaming(nativeCameraPtr)) {
                 Log.e(TAG, "Failed to start streaming");
                 Toast.makeText(context, "Failed to start streaming", Toast.LENGTH_SHORT).show();
@@ -351,14 +441,21 @@ public class UVCCameraManager {
                 return;
             }
             
-            // Start frame capture thread
-            frameThread = new HandlerThread("UVC-FrameThread");
-            frameThread.start();
-            frameHandler = new Handler(frameThread.getLooper());
-            shouldCaptureFrames = true;
-            
-            // Start capturing frames
-            frameHandler.post(frameCaptureRunnable);
+            // Start the native capture thread
+            captureStats.reset();
+            appliedFps = -1f;
+            applyCaptureRate();
+            if (!nativeStartCapture(nativeCameraPtr)) {
+                Log.e(TAG, "Failed to start capture thread");
+                Toast.makeText(context, "Failed to start streaming", Toast.LENGTH_SHORT).show();
+                nativeStopStreaming(nativeCameraPtr);
+                nativeClose(nativeCameraPtr);
+                nativeDestroy(nativeCameraPtr);
+                nativeCameraPtr = 0;
+                usbConnection.close();
+                usbConnection = null;
+                return;
+            }
             
             isStreaming = true;
             
@@ -382,163 +479,157 @@ public class UVCCameraManager {
         }
     }
     
-    // Frame timing control - don't skip frames, just throttle
-    private long lastFrameTime = 0;
-    private static final long MIN_FRAME_INTERVAL_MS = 33; // 30 FPS max
-    
     /**
-     * Runnable for capturing frames from native camera
+     * Called from the native capture thread for each frame it delivers.
+     * slot is the ring slot holding a compressed frame, or -1 if the frame is read
+     * through the camera (YUYV, or no ring); -2 if the ring had no room.
+     * timestampNanos is the dequeue time and captureNanos the driver capture time
+     * (the dequeue time if the driver has none), both on the System.nanoTime() clock.
      */
-    private final Runnable frameCaptureRunnable = new Runnable() {
-        @Override
-        public void run() {
-            if (!shouldCaptureFrames || nativeCameraPtr == 0) {
-                return;
+    @SuppressWarnings("unused") // Called from native code
+    private void onNativeFrame(int slot, long timestampNanos, long captureNanos) {
+        long callbackNanos = System.nanoTime();
+        
+        BitmapPool.PooledBitmap frame = null;
+        if (isYuyv) {
+            // Raw YUYV - converted natively into a pooled bitmap, no byte[] copy
+            frame = frameDecoder.convert(yuyvWriter, currentWidth, currentHeight);
+        } else if (slot >= 0) {
+            // Frame copied natively into a ring slot, decoded in place. The ring has only a
+            // couple of slots, so both sides get theirs back even if decoding throws.
+            try {
+                frame = decodeMjpeg(frameRing.onAcquired(slot));
+            } finally {
+                frameRing.release(slot);
+                nativeReleaseRingFrame(nativeCameraPtr, slot);
             }
-            
-            long currentTime = System.currentTimeMillis();
-            
-            // Throttle frame rate to prevent overwhelming MediaPipe
-            if (currentTime - lastFrameTime < MIN_FRAME_INTERVAL_MS) {
-                // Schedule next attempt
-                if (shouldCaptureFrames) {
-                    long delay = MIN_FRAME_INTERVAL_MS - (currentTime - lastFrameTime);
-                    frameHandler.postDelayed(this, delay);
+        } else if (slot == UvcFrameRing.DROPPED) {
+            frameRing.recordDropped();
+        } else {
+            // No ring registered - copy the frame into a new byte[]
+            byte[] frameData = nativeCopyFrame(nativeCameraPtr);
+            if (frameData != null) {
+                if (frameRing != null) {
+                    frameRing.recordHeapCopy(frameData.length);
                 }
-                return;
+                frame = decodeMjpeg(ByteBuffer.wrap(frameData));
+            }
+        }
+        
+        // Every frame after the first is decoded (or scaled) to the locked size
+        if (frame != null) {
+            Bitmap bitmap = frame.getBitmap();
+            if (cachedBitmapWidth == -1) {
+                cachedBitmapWidth = bitmap.getWidth();
+                cachedBitmapHeight = bitmap.getHeight();
+                Log.i(TAG, "✓ Locked bitmap size: " + cachedBitmapWidth + "x" + cachedBitmapHeight);
             }
             
-            lastFrameTime = currentTime;
-            
-            // Get frame from native code
-            byte[] frameData = nativeGetFrame(nativeCameraPtr);
+            // Hand to the preview render thread, if there is a preview
+            UsbPreviewRenderer renderer = previewRenderer;
+            if (renderer != null) {
+                renderer.offer(frame);
+            }
             
-            if (frameData != null && frameData.length > 0) {
-                Bitmap bitmap = null;
-                
-                // Check if it's MJPEG (starts with JPEG magic bytes FF D8)
-                if (frameData.length > 2 && frameData[0] == (byte)0xFF && frameData[1] == (byte)0xD8) {
-                    // It's MJPEG - decode directly
-                    bitmap = BitmapFactory.decodeByteArray(frameData, 0, frameData.length);
-                } else {
-                    // It's raw format (YUYV) - convert it using configured resolution
-                    bitmap = convertYUYVToBitmap(frameData, currentWidth, currentHeight);
-                }
-                
-                // CRITICAL FIX: Enforce STRICT dimension consistency
-                if (bitmap != null) {
-                    // Cache the first successful bitmap size
-                    if (cachedBitmapWidth == -1) {
-                        cachedBitmapWidth = bitmap.getWidth();
-                        cachedBitmapHeight = bitmap.getHeight();
-                        Log.i(TAG, "✓ Locked bitmap size: " + cachedBitmapWidth + "x" + cachedBitmapHeight);
-                    }
-                    
-                    // Force ALL frames to match the cached size - NO EXCEPTIONS
-                    if (bitmap.getWidth() != cachedBitmapWidth || bitmap.getHeight() != cachedBitmapHeight) {
-                        Log.w(TAG, "⚠ Frame size mismatch! Got " + bitmap.getWidth() + "x" + bitmap.getHeight() + ", forcing to " + cachedBitmapWidth + "x" + cachedBitmapHeight);
-                        Bitmap scaledBitmap = Bitmap.createScaledBitmap(bitmap, cachedBitmapWidth, cachedBitmapHeight, true);
-                        bitmap.recycle();
-                        bitmap = scaledBitmap;
-                    }
-                    
-                    // Display on PreviewView if available
-                    displayBitmapOnPreview(bitmap);
-                    
-                    // Send to MediaPipe for pose detection (non-blocking)
-                    if (frameListener != null) {
-                        frameListener.onFrame(bitmap, 0);
-                    }
-                }
+            AnalysisRateGovernor governor = rateGovernor;
+            if (governor != null) {
+                governor.recordScheduledFrame();
             }
             
-            // Schedule next frame capture
-            if (shouldCaptureFrames) {
-                frameHandler.postDelayed(this, MIN_FRAME_INTERVAL_MS);
+            // Send to MediaPipe for pose detection (non-blocking). The Frame owns the
+            // pooled reference; the pipeline retains it while the bitmap is in use.
+            BitmapPool.PooledBitmap pooled = frame;
+            Frame pipelineFrame = Frame.ofBitmap(bitmap, 0, captureNanos, timestampNanos, f -> pooled.release());
+            try {
+                if (frameListener != null) {
+                    frameListener.onFrame(pipelineFrame);
+                }
+            } finally {
+                pipelineFrame.release();
             }
         }
-    };
+        
+        captureStats.recordFrame(timestampNanos, callbackNanos, System.nanoTime());
+        applyCaptureRate();
+    }
     
     /**
-     * Convert YUYV frame data to Bitmap
+     * Decode an MJPEG frame into a pooled bitmap at the locked size
      */
-    private Bitmap convertYUYVToBitmap(byte[] yuyv, int width, int height) {
-        try {
-            // Convert YUYV to YUV420 (NV21)
-            byte[] yuv420 = new byte[width * height * 3 / 2];
-            
-            // Simple YUYV to NV21 conversion
-            for (int i = 0, j = 0; i < yuyv.length && j < width * height; i += 4, j += 2) {
-                // Extract Y values
-                if (j < width * height) yuv420[j] = yuyv[i];
-                if (j + 1 < width * height) yuv420[j + 1] = yuyv[i + 2];
-            }
-            
-            // Convert to Bitmap using YuvImage
-            YuvImage yuvImage = new YuvImage(yuv420, ImageFormat.NV21, width, height, null);
-            ByteArrayOutputStream out = new ByteArrayOutputStream();
-            yuvImage.compressToJpeg(new Rect(0, 0, width, height), 80, out);
-            byte[] jpegData = out.toByteArray();
-            
-            return BitmapFactory.decodeByteArray(jpegData, 0, jpegData.length);
-        } catch (Exception e) {
-            Log.e(TAG, "Error converting frame: " + e.getMessage());
+    private BitmapPool.PooledBitmap decodeMjpeg(ByteBuffer data) {
+        // Check it starts with JPEG magic bytes FF D8
+        int start = data.position();
+        if (data.remaining() <= 2 || data.get(start) != (byte)0xFF || data.get(start + 1) != (byte)0xD8) {
             return null;
         }
+        return frameDecoder.decode(data, cachedBitmapWidth, cachedBitmapHeight);
     }
-
+    
     /**
-     * Display bitmap on ImageView
+     * Register the direct-buffer ring with the native camera, reusing the
+     * existing ring when its slots are large enough for this format
      */
-    private void displayBitmapOnPreview(final Bitmap bitmap) {
-        if (usbPreviewView == null || bitmap == null) {
-            return;
+    private void registerFrameRing(int frameSize) {
+        ringRegistered = false;
+        if (frameSize <= 0) {
+            // Driver did not report a size; compressed frames stay well under YUYV size
+            frameSize = currentWidth * currentHeight * 2;
+        }
+        if (frameRing == null || frameRing.getSlotCapacity() < frameSize) {
+            frameRing = new UvcFrameRing(RING_SLOTS, frameSize);
+        }
+        ringRegistered = nativeRegisterRing(nativeCameraPtr, frameRing.getSlots(), frameRing.getLengths());
+        if (!ringRegistered) {
+            Log.w(TAG, "Frame ring not registered, falling back to per-frame copies");
         }
-        
-        // Run on UI thread to update the view
-        usbPreviewView.post(() -> {
-            try {
-                usbPreviewView.setImageBitmap(bitmap);
-                // Make sure the ImageView is visible
-                if (usbPreviewView.getVisibility() != android.view.View.VISIBLE) {
-                    usbPreviewView.setVisibility(android.view.View.VISIBLE);
-                }
-            } catch (Exception e) {
-                Log.e(TAG, "Error displaying frame on preview: " + e.getMessage());
-            }
-        });
     }
-
+    
+    /**
+     * Capture rate: governed rate when set, never above targetFps.
+     * Only calls into native code when the rate changes.
+     */
+    private void applyCaptureRate() {
+        float fps = targetFps;
+        AnalysisRateGovernor governor = rateGovernor;
+        if (governor != null) {
+            fps = fps > 0 ? Math.min(fps, governor.getCurrentFps()) : governor.getCurrentFps();
+        }
+        if (fps != appliedFps) {
+            appliedFps = fps;
+            nativeSetTargetFps(nativeCameraPtr, fps);
+            captureStats.setTargetFps(fps);
+        }
+    }
+    
     /**
      * Stop camera
      */
     public void stopCamera() {
         Log.d(TAG, "Stopping camera...");
         
-        // Stop frame capture
-        shouldCaptureFrames = false;
-        
-        if (frameHandler != null) {
-            frameHandler.removeCallbacks(frameCaptureRunnable);
+        // Stop frame capture; returns once the capture thread has exited
+        if (nativeCameraPtr != 0) {
+            updateCaptureStats();
+            nativeStopCapture(nativeCameraPtr);
         }
         
-        if (frameThread != null) {
-            frameThread.quitSafely();
-            try {
-                frameThread.join();
-            } catch (InterruptedException e) {
-                Log.e(TAG, "Error stopping frame thread", e);
-            }
-            frameThread = null;
-            frameHandler = null;
+        // The preview keeps showing its last frame; frames still in the pose pipeline
+        // return to the pool when it releases them
+        if (previewRenderer != null) {
+            previewRenderer.clearPending();
         }
+        frameDecoder.clear();
         
-        // Stop native streaming
-        if (nativeCameraPtr != 0) {
-            nativeStopStreaming(nativeCameraPtr);
-            nativeClose(nativeCameraPtr);
-            nativeDestroy(nativeCameraPtr);
-            nativeCameraPtr = 0;
+        // Stop native streaming (destroying the camera unregisters the ring)
+        synchronized (this) {
+            ringRegistered = false;
+            isStreaming = false;
+            if (nativeCameraPtr != 0) {
+                nativeStopStreaming(nativeCameraPtr);
+                nativeClose(nativeCameraPtr);
+                nativeDestroy(nativeCameraPtr);
+                nativeCameraPtr = 0;
+            }
         }
         
         // Close USB connection
@@ -547,7 +638,6 @@ public class UVCCameraManager {
             usbConnection = null;
         }
         
-        isStreaming = false;
         Log.d(TAG, "Camera stopped");
     }
 
@@ -557,6 +647,11 @@ public class UVCCameraManager {
     public void release() {
         stopCamera();
         
+        if (previewRenderer != null) {
+            previewRenderer.release();
+            previewRenderer = null;
+        }
+        
         try {
             if (usbReceiver != null) {
                 context.unregisterReceiver(usbReceiver);
@@ -569,6 +664,51 @@ public class UVCCameraManager {
         usbManager = null;
     }
 
+    /**
+     * Get capture, decode time, allocation, frame ring and preview statistics
+     */
+    public String getDecodeStats() {
+        updateCaptureStats();
+        String stats = captureStats.getStats() + "\n" + frameDecoder.getStats();
+        UsbPreviewRenderer renderer = previewRenderer;
+        if (renderer != null) {
+            stats += "\n" + renderer.getStats();
+        }
+        UvcFrameRing ring = frameRing;
+        if (ring == null) {
+            return stats;
+        }
+        return stats + "\n" + ring.getStats();
+    }
+    
+    /**
+     * Get decode metrics for Firebase upload
+     */
+    public Map<String, Object> getDecodeMetrics() {
+        updateCaptureStats();
+        Map<String, Object> metrics = frameDecoder.getMetricsMap();
+        metrics.put("capture", captureStats.getMetricsMap());
+        UsbPreviewRenderer renderer = previewRenderer;
+        if (renderer != null) {
+            metrics.put("preview", renderer.getMetricsMap());
+        }
+        UvcFrameRing ring = frameRing;
+        if (ring != null) {
+            metrics.put("frameRing", ring.getMetricsMap());
+        }
+        return metrics;
+    }
+    
+    /**
+     * Pull the native capture counters while the camera exists
+     */
+    private synchronized void updateCaptureStats() {
+        if (isStreaming && nativeCameraPtr != 0) {
+            nativeGetCaptureStats(nativeCameraPtr, nativeStats);
+            captureStats.updateNativeCounters(nativeStats);
+        }
+    }
+
     /**
      * Check if camera is streaming
      */
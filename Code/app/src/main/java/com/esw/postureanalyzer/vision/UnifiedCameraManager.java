@@ -1,22 +1,25 @@
 package com.esw.postureanalyzer.vision;
 
 import android.content.Context;
-import android.graphics.Bitmap;
 import android.view.Surface;
-import android.widget.ImageView;
+import android.view.TextureView;
 
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.camera.view.PreviewView;
 
+import java.util.Map;
+
 /**
  * Unified Camera Manager that supports both internal cameras (CameraX) and USB cameras (UVC)
  * This allows seamless switching between camera types
+ * A recorded frame sequence can be replayed in place of a camera for offline benchmarks
  */
 public class UnifiedCameraManager {
     
     public enum CameraType {
         INTERNAL,  // Use Android CameraX API (built-in cameras)
-        USB_UVC    // Use USB Video Class cameras
+        USB_UVC,   // Use USB Video Class cameras
+        REPLAY     // Replay recorded frames from a file (no camera)
     }
     
     private final AppCompatActivity activity;
@@ -24,13 +27,14 @@ public class UnifiedCameraManager {
     
     private CameraXManager cameraXManager;
     private UVCCameraManager uvcCameraManager;
+    private ReplayFrameSource replaySource;
     private CameraType currentCameraType;
     private boolean isStarted = false;
+    private IngestionMode ingestionMode = IngestionMode.BITMAP;
+    private AnalysisRateGovernor rateGovernor;
+    private ResolutionSelector resolutionSelector;
+    private CameraXManager.AllocationListener allocationListener;
 
-    public interface FrameListener {
-        void onFrame(Bitmap bitmap, int rotationDegrees);
-    }
-    
     public interface CameraStatusListener {
         void onCameraStarted(CameraType type);
         void onCameraStopped(CameraType type);
@@ -49,6 +53,54 @@ public class UnifiedCameraManager {
         this.statusListener = listener;
     }
 
+    /**
+     * Select the frame format the internal camera delivers (Bitmap or RGBA buffer).
+     * USB frames are always delivered as bitmaps.
+     */
+    public void setIngestionMode(IngestionMode mode) {
+        this.ingestionMode = mode;
+        if (cameraXManager != null) {
+            cameraXManager.setIngestionMode(mode);
+        }
+    }
+
+    public IngestionMode getIngestionMode() {
+        return ingestionMode;
+    }
+
+    /**
+     * Share one analysis-rate governor between the internal and USB cameras
+     */
+    public void setRateGovernor(AnalysisRateGovernor governor) {
+        this.rateGovernor = governor;
+        if (cameraXManager != null) {
+            cameraXManager.setRateGovernor(governor);
+        }
+        if (uvcCameraManager != null) {
+            uvcCameraManager.setRateGovernor(governor);
+        }
+    }
+
+    /**
+     * Let the selector pick the internal camera's analysis resolution
+     */
+    public void setResolutionSelector(ResolutionSelector selector) {
+        this.resolutionSelector = selector;
+        if (cameraXManager != null) {
+            cameraXManager.setResolutionSelector(selector);
+        }
+    }
+
+    /**
+     * Report the internal camera's per-frame allocation (the ingestion mode comparison)
+     */
+    public void setAllocationListener(CameraXManager.AllocationListener listener) {
+        this.allocationListener = listener;
+        if (cameraXManager != null) {
+            cameraXManager.setAllocationListener(listener);
+        }
+    }
+
     /**
      * Start camera with internal CameraX
      */
@@ -58,8 +110,11 @@ public class UnifiedCameraManager {
         currentCameraType = CameraType.INTERNAL;
         
         if (cameraXManager == null) {
-            cameraXManager = new CameraXManager(activity, previewView, 
-                (bitmap, rotation) -> frameListener.onFrame(bitmap, rotation));
+            cameraXManager = new CameraXManager(activity, previewView, frameListener);
+            cameraXManager.setIngestionMode(ingestionMode);
+            cameraXManager.setRateGovernor(rateGovernor);
+            cameraXManager.setResolutionSelector(resolutionSelector);
+            cameraXManager.setAllocationListener(allocationListener);
         }
         
         cameraXManager.startCamera();
@@ -78,16 +133,16 @@ public class UnifiedCameraManager {
     }
     
     /**
-     * Start USB UVC camera with ImageView for display
+     * Start USB UVC camera with a TextureView for display
      */
-    public void startUSBCamera(Surface previewSurface, ImageView usbPreviewView) {
+    public void startUSBCamera(Surface previewSurface, TextureView usbPreviewView) {
         stopCamera(); // Stop any existing camera
         
         currentCameraType = CameraType.USB_UVC;
         
         if (uvcCameraManager == null) {
-            uvcCameraManager = new UVCCameraManager(activity, 
-                (bitmap, rotation) -> frameListener.onFrame(bitmap, rotation));
+            uvcCameraManager = new UVCCameraManager(activity, frameListener);
+            uvcCameraManager.setRateGovernor(rateGovernor);
             
             uvcCameraManager.setConnectionListener(new UVCCameraManager.ConnectionListener() {
                 @Override
@@ -115,7 +170,7 @@ public class UnifiedCameraManager {
             uvcCameraManager.initialize();
         }
         
-        // Set the USB preview ImageView for displaying USB camera frames
+        // Set the USB preview TextureView for rendering USB camera frames
         if (usbPreviewView != null) {
             uvcCameraManager.setPreviewView(usbPreviewView);
         }
@@ -124,6 +179,37 @@ public class UnifiedCameraManager {
         isStarted = true;
     }
 
+    /**
+     * Replay a recorded frame sequence through the normal frame path instead of a camera.
+     * The status listener is told the source stopped when the sequence ends.
+     */
+    public void startReplay(ReplayFrameSource.Config config, ReplayFrameSource.ReplayListener replayListener) {
+        stopCamera(); // Stop any existing camera
+        
+        currentCameraType = CameraType.REPLAY;
+        
+        if (replaySource == null) {
+            replaySource = new ReplayFrameSource(frameListener);
+        }
+        replaySource.setReplayListener((source, error) -> {
+            if (error != null && statusListener != null) {
+                statusListener.onError("Replay failed: " + error);
+            }
+            if (replayListener != null) {
+                replayListener.onReplayFinished(source, error);
+            }
+            if (statusListener != null) {
+                statusListener.onCameraStopped(CameraType.REPLAY);
+            }
+        });
+        replaySource.start(config);
+        isStarted = true;
+        
+        if (statusListener != null) {
+            statusListener.onCameraStarted(CameraType.REPLAY);
+        }
+    }
+
     /**
      * Stop the current camera
      */
@@ -135,6 +221,10 @@ public class UnifiedCameraManager {
         if (currentCameraType == CameraType.USB_UVC && uvcCameraManager != null) {
             uvcCameraManager.stopCamera();
         }
+        if (currentCameraType == CameraType.REPLAY && replaySource != null) {
+            replaySource.setReplayListener(null); // Stopped on purpose, not finished
+            replaySource.stop();
+        }
         
         // CRITICAL: Explicitly stop CameraX to prevent both cameras running simultaneously
         if (cameraXManager != null) {
@@ -157,7 +247,16 @@ public class UnifiedCameraManager {
             uvcCameraManager = null;
         }
         
-        // CameraX manager doesn't need explicit release (lifecycle-aware)
+        if (replaySource != null) {
+            replaySource.stop();
+            replaySource = null;
+        }
+        
+        // CameraX manager doesn't need explicit release (lifecycle-aware), but its
+        // allocation counting is process-wide
+        if (cameraXManager != null) {
+            cameraXManager.setAllocationListener(null);
+        }
         cameraXManager = null;
         
         isStarted = false;
@@ -170,6 +269,28 @@ public class UnifiedCameraManager {
         return currentCameraType;
     }
 
+    /**
+     * USB frame decode statistics, or null if the USB camera was never started
+     */
+    public String getUvcDecodeStats() {
+        return uvcCameraManager != null ? uvcCameraManager.getDecodeStats() : null;
+    }
+
+    public Map<String, Object> getUvcDecodeMetrics() {
+        return uvcCameraManager != null ? uvcCameraManager.getDecodeMetrics() : null;
+    }
+
+    /**
+     * Replay run statistics, or null if nothing was replayed
+     */
+    public String getReplayStats() {
+        return replaySource != null ? replaySource.getStats() : null;
+    }
+
+    public Map<String, Object> getReplayMetrics() {
+        return replaySource != null ? replaySource.getMetricsMap() : null;
+    }
+
     /**
      * Check if camera is currently running
      */
@@ -177,6 +298,9 @@ public class UnifiedCameraManager {
         if (currentCameraType == CameraType.USB_UVC && uvcCameraManager != null) {
             return uvcCameraManager.isStreaming();
         }
+        if (currentCameraType == CameraType.REPLAY && replaySource != null) {
+            return replaySource.isRunning();
+        }
         return isStarted && currentCameraType == CameraType.INTERNAL;
     }
 
@@ -191,10 +315,10 @@ public class UnifiedCameraManager {
         if (newType == CameraType.INTERNAL && previewObject instanceof PreviewView) {
             startInternalCamera((PreviewView) previewObject);
         } else if (newType == CameraType.USB_UVC) {
-            // USB camera accepts ImageView for display
-            ImageView imageView = (previewObject instanceof ImageView) ? (ImageView) previewObject : null;
+            // USB camera accepts a TextureView for display
+            TextureView textureView = (previewObject instanceof TextureView) ? (TextureView) previewObject : null;
             Surface surface = (previewObject instanceof Surface) ? (Surface) previewObject : null;
-            startUSBCamera(surface, imageView);
+            startUSBCamera(surface, textureView);
         } else {
             if (statusListener != null) {
                 statusListener.onError("Invalid camera type or preview object");
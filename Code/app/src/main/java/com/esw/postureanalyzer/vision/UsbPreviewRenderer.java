@@ -0,0 +1,321 @@
+package com.esw.postureanalyzer.vision;
+
+import android.graphics.Bitmap;
+import android.graphics.Matrix;
+import android.graphics.SurfaceTexture;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.util.Log;
+import android.view.Surface;
+import android.view.TextureView;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Renders USB camera frames into a TextureView from a dedicated render thread
+ * - Frames are copied natively into the view's ANativeWindow, no ImageView upload
+ *   and nothing posted to the main thread per frame
+ * - Own frame-rate cap, independent of the analysis rate
+ * - Only the newest offered frame is drawn; an undrawn older one is dropped
+ *
+ * The main thread is only used for surface lifecycle callbacks and to update
+ * the fit-center transform when the frame or view size changes.
+ */
+public class UsbPreviewRenderer implements TextureView.SurfaceTextureListener {
+    private static final String TAG = "UsbPreviewRenderer";
+    private static final int WINDOW_SIZE = 30; // Rolling average over 30 frames
+
+    public static final float DEFAULT_MAX_FPS = 15f;
+
+    static {
+        try {
+            System.loadLibrary("uvccamera");
+        } catch (UnsatisfiedLinkError e) {
+            Log.e(TAG, "Failed to load native library: " + e.getMessage());
+        }
+    }
+
+    private static native long nativeAttach(Surface surface);
+    private static native void nativeDetach(long windowPtr);
+    private static native boolean nativeRender(long windowPtr, Bitmap bitmap);
+
+    private final TextureView view;
+    private final HandlerThread renderThread;
+    private final Handler renderHandler;
+    private volatile float maxFps;
+
+    // Hand-off from the capture thread
+    private final Object lock = new Object();
+    private BitmapPool.PooledBitmap pending;
+    private boolean renderScheduled = false;
+    private long lastAcceptedNanos = 0;
+
+    // Render thread only
+    private long windowPtr = 0;
+    private Surface surface;
+    private SurfaceTexture surfaceTexture;
+
+    // Fit-center transform (main thread)
+    private final Matrix transform = new Matrix();
+    private volatile int frameWidth = 0;
+    private volatile int frameHeight = 0;
+
+    // Rolling render time window
+    private final long[] renderTimesUs = new long[WINDOW_SIZE];
+    private int renderCount = 0;
+    private int renderIndex = 0;
+
+    // Counters
+    private long framesRendered = 0;
+    private long skippedByCap = 0;
+    private long replacedFrames = 0; // Offered while an older frame was still waiting
+    private long failedRenders = 0;
+
+    public UsbPreviewRenderer(TextureView view, float maxFps) {
+        this.view = view;
+        this.maxFps = maxFps;
+        this.renderThread = new HandlerThread("UVC-Preview");
+        renderThread.start();
+        this.renderHandler = new Handler(renderThread.getLooper());
+
+        view.setSurfaceTextureListener(this);
+        if (view.isAvailable()) {
+            onSurfaceTextureAvailable(view.getSurfaceTexture(), view.getWidth(), view.getHeight());
+        }
+    }
+
+    public TextureView getView() {
+        return view;
+    }
+
+    /**
+     * Preview frame-rate cap; 0 draws every offered frame
+     */
+    public void setMaxFps(float maxFps) {
+        this.maxFps = maxFps;
+    }
+
+    public float getMaxFps() {
+        return maxFps;
+    }
+
+    /**
+     * Offer a frame from the capture thread. The renderer takes its own
+     * reference if it will draw the frame.
+     */
+    public void offer(BitmapPool.PooledBitmap frame) {
+        long now = System.nanoTime();
+        BitmapPool.PooledBitmap replaced = null;
+        synchronized (lock) {
+            float fps = maxFps;
+            if (fps > 0 && lastAcceptedNanos != 0
+                    && now - lastAcceptedNanos < AnalysisRateGovernor.minFrameIntervalNanos(fps)) {
+                skippedByCap++;
+                return;
+            }
+            lastAcceptedNanos = now;
+            frame.retain();
+            if (pending != null) {
+                replaced = pending;
+                replacedFrames++;
+            }
+            pending = frame;
+            if (!renderScheduled) {
+                renderScheduled = true;
+                renderHandler.post(renderRunnable);
+            }
+        }
+        if (replaced != null) {
+            replaced.release();
+        }
+    }
+
+    private final Runnable renderRunnable = new Runnable() {
+        @Override
+        public void run() {
+            BitmapPool.PooledBitmap frame;
+            synchronized (lock) {
+                frame = pending;
+                pending = null;
+                renderScheduled = false;
+            }
+            if (frame == null) {
+                return;
+            }
+            try {
+                render(frame);
+            } finally {
+                frame.release();
+            }
+        }
+    };
+
+    private void render(BitmapPool.PooledBitmap frame) {
+        if (windowPtr == 0) {
+            return; // No surface yet, or the view is gone
+        }
+        Bitmap bitmap = frame.getBitmap();
+        long start = System.nanoTime();
+        if (!nativeRender(windowPtr, bitmap)) {
+            synchronized (this) {
+                failedRenders++;
+            }
+            return;
+        }
+        recordRenderTime((System.nanoTime() - start) / 1_000);
+
+        if (bitmap.getWidth() != frameWidth || bitmap.getHeight() != frameHeight) {
+            frameWidth = bitmap.getWidth();
+            frameHeight = bitmap.getHeight();
+            view.post(this::updateTransform);
+        }
+    }
+
+    /**
+     * Scale the frame-sized buffer to fit the view without stretching (main thread)
+     */
+    private void updateTransform() {
+        int viewWidth = view.getWidth();
+        int viewHeight = view.getHeight();
+        if (frameWidth == 0 || frameHeight == 0 || viewWidth == 0 || viewHeight == 0) {
+            return;
+        }
+        float scale = Math.min(viewWidth / (float) frameWidth, viewHeight / (float) frameHeight);
+        transform.setScale(frameWidth * scale / viewWidth, frameHeight * scale / viewHeight,
+                viewWidth / 2f, viewHeight / 2f);
+        view.setTransform(transform);
+    }
+
+    @Override
+    public void onSurfaceTextureAvailable(SurfaceTexture texture, int width, int height) {
+        renderHandler.post(() -> {
+            releaseWindow();
+            surfaceTexture = texture;
+            surface = new Surface(texture);
+            windowPtr = nativeAttach(surface);
+        });
+        updateTransform();
+    }
+
+    @Override
+    public void onSurfaceTextureSizeChanged(SurfaceTexture texture, int width, int height) {
+        updateTransform();
+    }
+
+    @Override
+    public boolean onSurfaceTextureDestroyed(SurfaceTexture texture) {
+        // Released on the render thread once it stops drawing into it
+        renderHandler.post(this::detachWindow);
+        return false;
+    }
+
+    @Override
+    public void onSurfaceTextureUpdated(SurfaceTexture texture) {
+    }
+
+    /**
+     * Texture destroyed: release our window and the texture itself (render thread)
+     */
+    private void detachWindow() {
+        releaseWindow();
+        if (surfaceTexture != null) {
+            surfaceTexture.release();
+            surfaceTexture = null;
+        }
+    }
+
+    /**
+     * Return a frame that is still waiting to be drawn to its pool
+     */
+    public void clearPending() {
+        BitmapPool.PooledBitmap frame;
+        synchronized (lock) {
+            frame = pending;
+            pending = null;
+        }
+        if (frame != null) {
+            frame.release();
+        }
+    }
+
+    /**
+     * Stop the render thread and release the surface (main thread)
+     */
+    public void release() {
+        clearPending();
+        if (view.getSurfaceTextureListener() == this) {
+            view.setSurfaceTextureListener(null);
+        }
+        // The view still owns an available texture; only drop our window on it
+        renderHandler.post(() -> {
+            releaseWindow();
+            surfaceTexture = null;
+        });
+        renderThread.quitSafely();
+    }
+
+    private void releaseWindow() {
+        if (windowPtr != 0) {
+            nativeDetach(windowPtr);
+            windowPtr = 0;
+        }
+        if (surface != null) {
+            surface.release();
+            surface = null;
+        }
+    }
+
+    private synchronized void recordRenderTime(long micros) {
+        renderTimesUs[renderIndex] = micros;
+        renderIndex = (renderIndex + 1) % WINDOW_SIZE;
+        if (renderCount < WINDOW_SIZE) renderCount++;
+        framesRendered++;
+    }
+
+    public synchronized long getAverageRenderUs() {
+        if (renderCount == 0) return 0;
+        long sum = 0;
+        for (int i = 0; i < renderCount; i++) {
+            sum += renderTimesUs[i];
+        }
+        return sum / renderCount;
+    }
+
+    /**
+     * Get statistics string for display
+     */
+    public String getStats() {
+        long skipped;
+        long replaced;
+        synchronized (lock) {
+            skipped = skippedByCap;
+            replaced = replacedFrames;
+        }
+        synchronized (this) {
+            return String.format(Locale.US,
+                "USB preview: cap %s  Rendered: %d  avg=%dμs\n  Skipped (cap): %d  Replaced: %d  Failed: %d",
+                maxFps > 0 ? String.format(Locale.US, "%.0f FPS", maxFps) : "none",
+                framesRendered, getAverageRenderUs(), skipped, replaced, failedRenders
+            );
+        }
+    }
+
+    /**
+     * Get metrics as a map for Firebase upload
+     */
+    public Map<String, Object> getMetricsMap() {
+        Map<String, Object> metrics = new HashMap<>();
+        synchronized (lock) {
+            metrics.put("skippedByCap", skippedByCap);
+            metrics.put("replacedFrames", replacedFrames);
+        }
+        synchronized (this) {
+            metrics.put("maxFps", maxFps);
+            metrics.put("framesRendered", framesRendered);
+            metrics.put("avgRenderUs", getAverageRenderUs());
+            metrics.put("failedRenders", failedRenders);
+        }
+        return metrics;
+    }
+}
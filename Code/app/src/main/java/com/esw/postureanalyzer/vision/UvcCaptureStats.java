@@ -0,0 +1,111 @@
+package com.esw.postureanalyzer.vision;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Statistics for the native UVC capture thread
+ * - Frames dequeued, delivered and skipped by the target FPS (native counters)
+ * - Dispatch latency: dequeue timestamp to the Java callback
+ * - Handling time: decode/convert and hand-off inside the callback
+ * - V4L2 queue: depth, buffers drained unread, frame age at dequeue
+ */
+public class UvcCaptureStats {
+    private static final int WINDOW_SIZE = 30; // Rolling average over 30 frames
+
+    // Layout of the array filled by nativeGetCaptureStats()
+    static final int NATIVE_DEQUEUED = 0;
+    static final int NATIVE_DELIVERED = 1;
+    static final int NATIVE_SKIPPED = 2;
+    static final int NATIVE_POLL_TIMEOUTS = 3;
+    static final int NATIVE_ERRORS = 4;
+    static final int NATIVE_QUEUE_DEPTH = 5;
+    static final int NATIVE_DRAIN_TO_NEWEST = 6;
+    static final int NATIVE_DRAINED = 7;
+    static final int NATIVE_AVG_AGE_US = 8;
+    static final int NATIVE_MAX_AGE_US = 9;
+    static final int NATIVE_COUNT = 10;
+
+    private final long[] nativeCounters = new long[NATIVE_COUNT];
+    private final long[] dispatchTimesUs = new long[WINDOW_SIZE];
+    private final long[] handlingTimesUs = new long[WINDOW_SIZE];
+    private int sampleCount = 0;
+    private int sampleIndex = 0;
+    private float targetFps = 0f;
+
+    /**
+     * Counters as filled in by nativeGetCaptureStats()
+     */
+    public synchronized void updateNativeCounters(long[] counters) {
+        System.arraycopy(counters, 0, nativeCounters, 0, NATIVE_COUNT);
+    }
+
+    public synchronized void setTargetFps(float fps) {
+        targetFps = fps;
+    }
+
+    /**
+     * One delivered frame: dequeued at timestampNanos, callback entered at
+     * callbackNanos and returned at doneNanos (all System.nanoTime())
+     */
+    public synchronized void recordFrame(long timestampNanos, long callbackNanos, long doneNanos) {
+        dispatchTimesUs[sampleIndex] = (callbackNanos - timestampNanos) / 1_000;
+        handlingTimesUs[sampleIndex] = (doneNanos - callbackNanos) / 1_000;
+        sampleIndex = (sampleIndex + 1) % WINDOW_SIZE;
+        if (sampleCount < WINDOW_SIZE) sampleCount++;
+    }
+
+    private long average(long[] window) {
+        if (sampleCount == 0) return 0;
+        long sum = 0;
+        for (int i = 0; i < sampleCount; i++) {
+            sum += window[i];
+        }
+        return sum / sampleCount;
+    }
+
+    public synchronized void reset() {
+        sampleCount = 0;
+        sampleIndex = 0;
+        for (int i = 0; i < NATIVE_COUNT; i++) {
+            nativeCounters[i] = 0;
+        }
+    }
+
+    /**
+     * Get statistics string for display
+     */
+    public synchronized String getStats() {
+        return String.format(Locale.US,
+            "UVC capture: target %s  Dequeued: %d  Delivered: %d  Skipped: %d\n  Dispatch: %dμs  Handling: %dμs  Timeouts: %d  Errors: %d\n  Queue: %d buffers%s  Drained: %d  Frame age: avg=%dμs max=%dμs",
+            targetFps > 0 ? String.format(Locale.US, "%.1f FPS", targetFps) : "unthrottled",
+            nativeCounters[NATIVE_DEQUEUED], nativeCounters[NATIVE_DELIVERED], nativeCounters[NATIVE_SKIPPED],
+            average(dispatchTimesUs), average(handlingTimesUs),
+            nativeCounters[NATIVE_POLL_TIMEOUTS], nativeCounters[NATIVE_ERRORS],
+            nativeCounters[NATIVE_QUEUE_DEPTH], nativeCounters[NATIVE_DRAIN_TO_NEWEST] != 0 ? " (drain to newest)" : "",
+            nativeCounters[NATIVE_DRAINED], nativeCounters[NATIVE_AVG_AGE_US], nativeCounters[NATIVE_MAX_AGE_US]
+        );
+    }
+
+    /**
+     * Get metrics as a map for Firebase upload
+     */
+    public synchronized Map<String, Object> getMetricsMap() {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("targetFps", targetFps);
+        metrics.put("dequeued", nativeCounters[NATIVE_DEQUEUED]);
+        metrics.put("delivered", nativeCounters[NATIVE_DELIVERED]);
+        metrics.put("skipped", nativeCounters[NATIVE_SKIPPED]);
+        metrics.put("pollTimeouts", nativeCounters[NATIVE_POLL_TIMEOUTS]);
+        metrics.put("errors", nativeCounters[NATIVE_ERRORS]);
+        metrics.put("avgDispatchUs", average(dispatchTimesUs));
+        metrics.put("avgHandlingUs", average(handlingTimesUs));
+        metrics.put("queueDepth", nativeCounters[NATIVE_QUEUE_DEPTH]);
+        metrics.put("drainToNewest", nativeCounters[NATIVE_DRAIN_TO_NEWEST] != 0);
+        metrics.put("drainedFrames", nativeCounters[NATIVE_DRAINED]);
+        metrics.put("avgFrameAgeUs", nativeCounters[NATIVE_AVG_AGE_US]);
+        metrics.put("maxFrameAgeUs", nativeCounters[NATIVE_MAX_AGE_US]);
+        return metrics;
+    }
+}
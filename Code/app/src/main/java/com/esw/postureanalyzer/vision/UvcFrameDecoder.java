@@ -0,0 +1,282 @@
+package com.esw.postureanalyzer.vision;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.util.Log;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Decodes UVC JPEG frames into pooled bitmaps
+ * Uses BitmapFactory.Options.inBitmap so a steady stream of same-size frames
+ * decodes into the same few bitmaps instead of allocating one per frame.
+ * Raw (YUYV) frames are written straight into a pooled bitmap by a FrameWriter.
+ * Tracks decode time and how many frames still needed a fresh allocation.
+ */
+public class UvcFrameDecoder {
+    private static final String TAG = "UvcFrameDecoder";
+    private static final int WINDOW_SIZE = 30; // Rolling average over 30 frames
+    private static final int DECODE_TEMP_STORAGE = 16 * 1024;
+
+    public interface FrameWriter {
+        /**
+         * Write the next frame into target. Returns false if no frame was written.
+         */
+        boolean writeInto(Bitmap target);
+    }
+
+    private final BitmapPool pool;
+    private final BitmapFactory.Options decodeOptions = new BitmapFactory.Options();
+    private final BitmapFactory.Options boundsOptions = new BitmapFactory.Options();
+    private final Canvas scaleCanvas = new Canvas();
+    private final Paint scalePaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    private final Rect scaleRect = new Rect();
+    private final ByteBufferInputStream directStream = new ByteBufferInputStream();
+
+    // Rolling decode time window, fixed size so recording does not allocate
+    private final long[] decodeTimesUs = new long[WINDOW_SIZE];
+    private int decodeCount = 0;
+    private int decodeIndex = 0;
+
+    // Counters
+    private long framesDecoded = 0;
+    private long failedDecodes = 0;
+    private long fallbackDecodes = 0; // inBitmap rejected, decoded into a new bitmap
+    private long scaledFrames = 0;    // Decoded size differed from the locked size
+    private long rawFrames = 0;       // Written by a FrameWriter instead of decoded
+    private long allocatedBytes = 0;
+
+    public UvcFrameDecoder(int poolSize) {
+        this.pool = new BitmapPool("UVC decode", poolSize);
+        decodeOptions.inMutable = true;
+        decodeOptions.inPreferredConfig = Bitmap.Config.ARGB_8888;
+        boundsOptions.inJustDecodeBounds = true;
+        // decodeStream() would otherwise allocate its read buffer on every call
+        decodeOptions.inTempStorage = new byte[DECODE_TEMP_STORAGE];
+        boundsOptions.inTempStorage = decodeOptions.inTempStorage;
+    }
+
+    /**
+     * Decode the JPEG between the buffer's position and limit into a pooled bitmap
+     * of targetWidth x targetHeight. Direct buffers are read in place, without a
+     * copy to the Java heap. Pass 0 for the target size to use the JPEG's own size.
+     * The caller owns one reference to the result; returns null if decoding fails.
+     */
+    public synchronized BitmapPool.PooledBitmap decode(ByteBuffer jpeg, int targetWidth, int targetHeight) {
+        long start = System.nanoTime();
+        long missesBefore = pool.getMisses();
+
+        if (targetWidth <= 0 || targetHeight <= 0) {
+            decodeFrom(jpeg, boundsOptions);
+            targetWidth = boundsOptions.outWidth;
+            targetHeight = boundsOptions.outHeight;
+            if (targetWidth <= 0 || targetHeight <= 0) {
+                failedDecodes++;
+                return null;
+            }
+        }
+
+        BitmapPool.PooledBitmap target = pool.acquire(targetWidth, targetHeight);
+        Bitmap decoded = null;
+        decodeOptions.inBitmap = target.getBitmap();
+        try {
+            decoded = decodeFrom(jpeg, decodeOptions);
+        } catch (IllegalArgumentException e) {
+            // JPEG larger than the pooled bitmap, decode into a new one and scale below
+            Log.d(TAG, "Frame does not fit a " + targetWidth + "x" + targetHeight + " bitmap, decoding into a new one");
+            decodeOptions.inBitmap = null;
+            decoded = decodeFrom(jpeg, decodeOptions);
+            fallbackDecodes++;
+            if (decoded != null) {
+                allocatedBytes += decoded.getAllocationByteCount();
+            }
+        } finally {
+            decodeOptions.inBitmap = null;
+        }
+
+        if (decoded == null) {
+            target.release();
+            failedDecodes++;
+            return null;
+        }
+
+        if (decoded != target.getBitmap() || decoded.getWidth() != targetWidth || decoded.getHeight() != targetHeight) {
+            // Keep every frame at the locked size so downstream sees consistent dimensions
+            BitmapPool.PooledBitmap scaled = target;
+            if (decoded == target.getBitmap()) {
+                // inBitmap was reconfigured to a smaller size; it no longer matches its pool slot
+                scaled = pool.acquire(targetWidth, targetHeight);
+            }
+            scaleRect.set(0, 0, targetWidth, targetHeight);
+            scaleCanvas.setBitmap(scaled.getBitmap());
+            scaleCanvas.drawBitmap(decoded, null, scaleRect, scalePaint);
+            scaleCanvas.setBitmap(null);
+            if (scaled != target) {
+                target.release();
+            } else {
+                decoded.recycle();
+            }
+            target = scaled;
+            scaledFrames++;
+        }
+
+        long misses = pool.getMisses() - missesBefore;
+        allocatedBytes += misses * targetWidth * targetHeight * 4L;
+        recordDecodeTime((System.nanoTime() - start) / 1_000);
+        framesDecoded++;
+        return target;
+    }
+
+    /**
+     * Decode without moving the buffer's position, so it can be decoded again
+     */
+    private Bitmap decodeFrom(ByteBuffer jpeg, BitmapFactory.Options options) {
+        if (jpeg.hasArray()) {
+            return BitmapFactory.decodeByteArray(jpeg.array(), jpeg.arrayOffset() + jpeg.position(),
+                    jpeg.remaining(), options);
+        }
+        directStream.setBuffer(jpeg);
+        try {
+            return BitmapFactory.decodeStream(directStream, null, options);
+        } finally {
+            directStream.setBuffer(null);
+        }
+    }
+
+    /**
+     * Let writer fill a pooled width x height bitmap, e.g. native YUYV conversion.
+     * The caller owns one reference to the result; returns null if nothing was written.
+     */
+    public synchronized BitmapPool.PooledBitmap convert(FrameWriter writer, int width, int height) {
+        long start = System.nanoTime();
+        long missesBefore = pool.getMisses();
+
+        BitmapPool.PooledBitmap target = pool.acquire(width, height);
+        if (!writer.writeInto(target.getBitmap())) {
+            target.release();
+            return null;
+        }
+
+        long misses = pool.getMisses() - missesBefore;
+        allocatedBytes += misses * width * height * 4L;
+        recordDecodeTime((System.nanoTime() - start) / 1_000);
+        framesDecoded++;
+        rawFrames++;
+        return target;
+    }
+
+    /**
+     * Reads a direct buffer from its position to its limit without changing either
+     */
+    private static final class ByteBufferInputStream extends InputStream {
+        private ByteBuffer buffer;
+        private int offset;
+
+        void setBuffer(ByteBuffer buffer) {
+            this.buffer = buffer;
+            this.offset = buffer != null ? buffer.position() : 0;
+        }
+
+        @Override
+        public int read() {
+            if (offset >= buffer.limit()) {
+                return -1;
+            }
+            return buffer.get(offset++) & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] target, int targetOffset, int length) {
+            int remaining = buffer.limit() - offset;
+            if (remaining <= 0) {
+                return -1;
+            }
+            int count = Math.min(length, remaining);
+            int position = buffer.position();
+            buffer.position(offset);
+            buffer.get(target, targetOffset, count);
+            buffer.position(position);
+            offset += count;
+            return count;
+        }
+
+        @Override
+        public long skip(long count) {
+            int skipped = (int) Math.max(0, Math.min(count, buffer.limit() - offset));
+            offset += skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return buffer.limit() - offset;
+        }
+    }
+
+    private void recordDecodeTime(long micros) {
+        decodeTimesUs[decodeIndex] = micros;
+        decodeIndex = (decodeIndex + 1) % WINDOW_SIZE;
+        if (decodeCount < WINDOW_SIZE) decodeCount++;
+    }
+
+    public synchronized long getAverageDecodeUs() {
+        if (decodeCount == 0) return 0;
+        long sum = 0;
+        for (int i = 0; i < decodeCount; i++) {
+            sum += decodeTimesUs[i];
+        }
+        return sum / decodeCount;
+    }
+
+    /**
+     * Frames that needed a new bitmap (pool misses and rejected inBitmap decodes)
+     */
+    public synchronized long getAllocationCount() {
+        return pool.getMisses() + fallbackDecodes;
+    }
+
+    /**
+     * Recycle free pooled bitmaps, e.g. when the camera stops
+     */
+    public synchronized void clear() {
+        pool.clear();
+    }
+
+    /**
+     * Get statistics string for display
+     */
+    public synchronized String getStats() {
+        if (framesDecoded == 0) {
+            return "UVC decode: No data yet";
+        }
+        return String.format(Locale.US,
+            "UVC decode: avg=%dμs  Frames: %d (raw %d)\n  Allocations: %d (%d KB)  Scaled: %d  Failed: %d\n  %s",
+            getAverageDecodeUs(), framesDecoded, rawFrames,
+            getAllocationCount(), allocatedBytes / 1024, scaledFrames, failedDecodes,
+            pool.getStats()
+        );
+    }
+
+    /**
+     * Get metrics as a map for Firebase upload
+     */
+    public synchronized Map<String, Object> getMetricsMap() {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("framesDecoded", framesDecoded);
+        metrics.put("avgDecodeUs", getAverageDecodeUs());
+        metrics.put("allocations", getAllocationCount());
+        metrics.put("allocatedBytes", allocatedBytes);
+        metrics.put("fallbackDecodes", fallbackDecodes);
+        metrics.put("scaledFrames", scaledFrames);
+        metrics.put("rawFrames", rawFrames);
+        metrics.put("failedDecodes", failedDecodes);
+        metrics.put("pool", pool.getMetricsMap());
+        return metrics;
+    }
+}
@@ -0,0 +1,189 @@
+package com.esw.postureanalyzer.vision;
+
+import android.util.Log;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Ring of preallocated direct ByteBuffers shared with the native V4L2 camera
+ * - Registered once with native code, which copies each dequeued frame into a free slot
+ * - Frames are handed to Java by slot index and released back by index
+ * - Frame lengths are written by native code into a shared direct int buffer
+ *
+ * Steady state has no JNI allocation and no copy onto the Java heap; the only
+ * copy is the native one out of the V4L2 buffer, which is tracked in bytes/sec.
+ * The buffers must stay registered (this object reachable) until the native
+ * camera is destroyed.
+ */
+public class UvcFrameRing {
+    private static final String TAG = "UvcFrameRing";
+    private static final int WINDOW_SIZE = 30; // Rolling rate over 30 frames
+
+    // Returned by native acquire in place of a slot index
+    public static final int NO_FRAME = -1;
+    public static final int DROPPED = -2;   // Frame dequeued but no free slot or too large
+
+    private final ByteBuffer[] slots;
+    private final ByteBuffer lengthsBuffer;
+    private final IntBuffer lengths;
+    private final int slotCapacity;
+
+    private final boolean[] held;
+    private int heldCount = 0;
+    private int peakHeld = 0;
+
+    // Rolling copy rate, fixed size so recording does not allocate
+    private final long[] frameNanos = new long[WINDOW_SIZE];
+    private final int[] frameBytes = new int[WINDOW_SIZE];
+    private int frameCount = 0;
+    private int frameIndex = 0;
+
+    // Counters
+    private long framesReceived = 0;
+    private long bytesCopied = 0;
+    private long framesDropped = 0;
+    private long heapCopies = 0;     // Frames that came through the byte[] fallback instead
+    private long heapCopyBytes = 0;
+
+    public UvcFrameRing(int slotCount, int slotCapacity) {
+        this.slotCapacity = slotCapacity;
+        this.slots = new ByteBuffer[slotCount];
+        for (int i = 0; i < slotCount; i++) {
+            slots[i] = ByteBuffer.allocateDirect(slotCapacity);
+        }
+        this.lengthsBuffer = ByteBuffer.allocateDirect(slotCount * 4).order(ByteOrder.nativeOrder());
+        this.lengths = lengthsBuffer.asIntBuffer();
+        this.held = new boolean[slotCount];
+        Log.d(TAG, "Allocated " + slotCount + " slots of " + slotCapacity / 1024 + " KB");
+    }
+
+    /**
+     * Slot buffers, for native registration
+     */
+    public ByteBuffer[] getSlots() {
+        return slots;
+    }
+
+    /**
+     * Per-slot frame length (native-order int32), for native registration
+     */
+    public ByteBuffer getLengths() {
+        return lengthsBuffer;
+    }
+
+    public int getSlotCapacity() {
+        return slotCapacity;
+    }
+
+    public int getSlotCount() {
+        return slots.length;
+    }
+
+    /**
+     * Native code handed over this slot. Returns its buffer with position 0 and
+     * limit at the frame length; the slot stays held until release().
+     */
+    public synchronized ByteBuffer onAcquired(int index) {
+        int length = lengths.get(index);
+        if (!held[index]) {
+            held[index] = true;
+            heldCount++;
+            peakHeld = Math.max(peakHeld, heldCount);
+        }
+        framesReceived++;
+        bytesCopied += length;
+        recordFrame(length);
+
+        ByteBuffer slot = slots[index];
+        slot.clear();
+        slot.limit(length);
+        return slot;
+    }
+
+    /**
+     * The slot is no longer read from Java; the caller also releases it natively
+     */
+    public synchronized void release(int index) {
+        if (!held[index]) {
+            Log.w(TAG, "release() on slot " + index + " that is not held");
+            return;
+        }
+        held[index] = false;
+        heldCount--;
+    }
+
+    public synchronized void recordDropped() {
+        framesDropped++;
+    }
+
+    /**
+     * A frame copied into a new byte[] because the ring is not registered
+     */
+    public synchronized void recordHeapCopy(int bytes) {
+        heapCopies++;
+        heapCopyBytes += bytes;
+        recordFrame(bytes);
+    }
+
+    private void recordFrame(int bytes) {
+        frameNanos[frameIndex] = System.nanoTime();
+        frameBytes[frameIndex] = bytes;
+        frameIndex = (frameIndex + 1) % WINDOW_SIZE;
+        if (frameCount < WINDOW_SIZE) frameCount++;
+    }
+
+    /**
+     * Copy rate over the rolling window, whichever path the frames came through
+     */
+    public synchronized long getCopyBytesPerSecond() {
+        if (frameCount < 2) return 0;
+        int newest = (frameIndex + WINDOW_SIZE - 1) % WINDOW_SIZE;
+        int oldest = frameCount < WINDOW_SIZE ? 0 : frameIndex;
+        long spanNanos = frameNanos[newest] - frameNanos[oldest];
+        if (spanNanos <= 0) return 0;
+        long sum = 0;
+        for (int i = 0; i < frameCount; i++) {
+            if (i != oldest) {
+                sum += frameBytes[i];
+            }
+        }
+        return sum * 1_000_000_000L / spanNanos;
+    }
+
+    public synchronized int getOccupancy() {
+        return heldCount;
+    }
+
+    /**
+     * Get statistics string for display
+     */
+    public synchronized String getStats() {
+        return String.format(Locale.US,
+            "Frame ring: %d/%d held (peak %d)  Frames: %d  Dropped: %d\n  Copy: %d KB/s  Heap copies: %d (%d KB)",
+            heldCount, slots.length, peakHeld, framesReceived, framesDropped,
+            getCopyBytesPerSecond() / 1024, heapCopies, heapCopyBytes / 1024
+        );
+    }
+
+    /**
+     * Get metrics as a map for Firebase upload
+     */
+    public synchronized Map<String, Object> getMetricsMap() {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("slots", slots.length);
+        metrics.put("slotCapacity", slotCapacity);
+        metrics.put("occupancy", heldCount);
+        metrics.put("peakOccupancy", peakHeld);
+        metrics.put("framesReceived", framesReceived);
+        metrics.put("framesDropped", framesDropped);
+        metrics.put("bytesCopied", bytesCopied);
+        metrics.put("copyBytesPerSec", getCopyBytesPerSecond());
+        metrics.put("heapCopies", heapCopies);
+        metrics.put("heapCopyBytes", heapCopyBytes);
+        return metrics;
+    }
+}
@@ -0,0 +1,228 @@
+// Unit test for the native poll() capture loop, driven by a pipe instead of a
+// V4L2 device. Runs on the host:
+//
+//   cd app/src/test/cpp
+//   c++ -std=c++11 -pthread -I../../main/cpp -I. -o capture_loop_test
+//       ../../main/cpp/capture_loop.cpp ../../main/cpp/frame_ring.cpp
+//       pipe_frame_source.cpp capture_loop_test.cpp
+//   ./capture_loop_test
+
+#include "capture_loop.h"
+#include "frame_ring.h"
+#include "pipe_frame_source.h"
+
+#include <chrono>
+#include <cstdio>
+#include <cstring>
+#include <mutex>
+#include <thread>
+#include <unistd.h>
+#include <vector>
+
+static int failures = 0;
+
+#define CHECK(cond, ...) do { \
+        if (!(cond)) { \
+            failures++; \
+            printf("FAIL %s:%d: ", __FILE__, __LINE__); \
+            printf(__VA_ARGS__); \
+            printf("\n"); \
+        } \
+    } while (0)
+
+static const int FRAME_SIZE = 64;
+
+struct Recorded {
+    std::mutex mutex;
+    std::vector<uint8_t> first_bytes;
+    std::vector<int64_t> timestamps;
+    std::vector<int64_t> capture_timestamps;
+    std::vector<int> slots;
+    bool started = false;
+    bool stopped = false;
+};
+
+// Records what the loop delivers; optionally copies frames into a ring like the JNI listener
+class RecordingListener : public CaptureListener {
+public:
+    RecordingListener(Recorded* recorded, FrameRing* ring) : recorded_(recorded), ring_(ring) {}
+
+    void onCaptureStarted() override {
+        std::lock_guard<std::mutex> lock(recorded_->mutex);
+        recorded_->started = true;
+    }
+
+    void onFrame(const uint8_t* data, int size, int64_t timestamp_ns, int64_t capture_ns) override {
+        int slot = ring_ ? ring_->push(data, size) : FrameRing::NO_FRAME;
+        std::lock_guard<std::mutex> lock(recorded_->mutex);
+        recorded_->first_bytes.push_back(data[0]);
+        recorded_->timestamps.push_back(timestamp_ns);
+        recorded_->capture_timestamps.push_back(capture_ns);
+        recorded_->slots.push_back(slot);
+        if (slot >= 0) {
+            ring_->release(slot);
+        }
+    }
+
+    void onCaptureStopped() override {
+        std::lock_guard<std::mutex> lock(recorded_->mutex);
+        recorded_->stopped = true;
+    }
+
+private:
+    Recorded* recorded_;
+    FrameRing* ring_;
+};
+
+static void writeFrame(int fd, uint8_t value) {
+    uint8_t frame[FRAME_SIZE];
+    memset(frame, value, sizeof(frame));
+    // Split in two writes to exercise partial reads
+    if (write(fd, frame, FRAME_SIZE / 2) != FRAME_SIZE / 2
+            || write(fd, frame + FRAME_SIZE / 2, FRAME_SIZE / 2) != FRAME_SIZE / 2) {
+        printf("write to pipe failed\n");
+    }
+}
+
+static void waitForStop(CaptureLoop& loop) {
+    for (int i = 0; i < 200 && loop.isRunning(); i++) {
+        std::this_thread::sleep_for(std::chrono::milliseconds(5));
+    }
+}
+
+static void test_delivers_every_frame_unthrottled() {
+    int fds[2];
+    CHECK(pipe(fds) == 0, "pipe");
+    PipeFrameSource source(fds[0], FRAME_SIZE);
+    CaptureLoop loop(&source);
+    Recorded recorded;
+
+    CHECK(loop.start(std::unique_ptr<CaptureListener>(new RecordingListener(&recorded, nullptr))), "start");
+    for (int i = 0; i < 10; i++) {
+        writeFrame(fds[1], static_cast<uint8_t>(i));
+    }
+    close(fds[1]); // End of stream stops the loop like an unplugged camera
+    waitForStop(loop);
+    CHECK(!loop.isRunning(), "loop still running after source closed");
+    loop.stop();
+
+    CHECK(recorded.started && recorded.stopped, "thread hooks not called");
+    CHECK(recorded.first_bytes.size() == 10, "delivered %zu frames, expected 10", recorded.first_bytes.size());
+    for (size_t i = 0; i < recorded.first_bytes.size(); i++) {
+        CHECK(recorded.first_bytes[i] == i, "frame %zu out of order", i);
+        if (i > 0) {
+            CHECK(recorded.timestamps[i] >= recorded.timestamps[i - 1], "timestamps not monotonic");
+        }
+        // A pipe has no capture time, so the dequeue time stands in for it
+        CHECK(recorded.capture_timestamps[i] == recorded.timestamps[i], "frame %zu capture time not the dequeue time", i);
+    }
+    CaptureStats stats = loop.stats();
+    CHECK(stats.dequeued == 10 && stats.delivered == 10 && stats.skipped == 0,
+          "stats dequeued=%lld delivered=%lld skipped=%lld",
+          (long long) stats.dequeued, (long long) stats.delivered, (long long) stats.skipped);
+    close(fds[0]);
+}
+
+static void test_target_fps_skips_early_frames() {
+    int fds[2];
+    CHECK(pipe(fds) == 0, "pipe");
+    PipeFrameSource source(fds[0], FRAME_SIZE);
+    CaptureLoop loop(&source);
+    loop.setTargetFps(10.0f);
+    Recorded recorded;
+
+    CHECK(loop.start(std::unique_ptr<CaptureListener>(new RecordingListener(&recorded, nullptr))), "start");
+    // 50 frames at ~100 FPS for ~500 ms
+    for (int i = 0; i < 50; i++) {
+        writeFrame(fds[1], static_cast<uint8_t>(i));
+        std::this_thread::sleep_for(std::chrono::milliseconds(10));
+    }
+    close(fds[1]);
+    waitForStop(loop);
+    loop.stop();
+
+    CaptureStats stats = loop.stats();
+    CHECK(stats.dequeued == 50, "dequeued %lld, expected 50", (long long) stats.dequeued);
+    CHECK(stats.delivered + stats.skipped == stats.dequeued, "delivered + skipped != dequeued");
+    CHECK(stats.delivered >= 4 && stats.delivered <= 8, "delivered %lld at 10 FPS over ~0.5 s",
+          (long long) stats.delivered);
+    for (size_t i = 1; i < recorded.timestamps.size(); i++) {
+        int64_t interval = recorded.timestamps[i] - recorded.timestamps[i - 1];
+        CHECK(interval >= 90000000LL, "delivered %lld ns apart at 10 FPS", (long long) interval);
+    }
+    close(fds[0]);
+}
+
+static void test_stop_wakes_blocked_poll() {
+    int fds[2];
+    CHECK(pipe(fds) == 0, "pipe");
+    PipeFrameSource source(fds[0], FRAME_SIZE);
+    CaptureLoop loop(&source);
+    Recorded recorded;
+
+    CHECK(loop.start(std::unique_ptr<CaptureListener>(new RecordingListener(&recorded, nullptr))), "start");
+    std::this_thread::sleep_for(std::chrono::milliseconds(20));
+    CHECK(loop.isRunning(), "loop exited without frames");
+
+    // No frames: the thread is blocked in poll(), stop() must not wait for the timeout
+    int64_t start = monotonicNanos();
+    loop.stop();
+    int64_t elapsed_ms = (monotonicNanos() - start) / 1000000;
+    CHECK(elapsed_ms < 100, "stop() took %lld ms", (long long) elapsed_ms);
+    CHECK(recorded.stopped, "onCaptureStopped not called");
+    CHECK(recorded.first_bytes.empty(), "frames delivered from an empty pipe");
+
+    // The loop can be restarted on the same source
+    Recorded again;
+    CHECK(loop.start(std::unique_ptr<CaptureListener>(new RecordingListener(&again, nullptr))), "restart");
+    writeFrame(fds[1], 7);
+    close(fds[1]);
+    waitForStop(loop);
+    loop.stop();
+    CHECK(again.first_bytes.size() == 1 && again.first_bytes[0] == 7, "restarted loop did not deliver");
+    close(fds[0]);
+}
+
+static void test_frames_pass_through_ring() {
+    int fds[2];
+    CHECK(pipe(fds) == 0, "pipe");
+    PipeFrameSource source(fds[0], FRAME_SIZE);
+    CaptureLoop loop(&source);
+    Recorded recorded;
+
+    std::vector<std::vector<uint8_t>> memory(2, std::vector<uint8_t>(FRAME_SIZE));
+    std::vector<uint8_t*> slots = {memory[0].data(), memory[1].data()};
+    std::vector<int> capacities = {FRAME_SIZE, FRAME_SIZE};
+    int32_t lengths[2] = {0, 0};
+    FrameRing ring;
+    ring.attach(slots, capacities, lengths);
+
+    CHECK(loop.start(std::unique_ptr<CaptureListener>(new RecordingListener(&recorded, &ring))), "start");
+    for (int i = 0; i < 4; i++) {
+        writeFrame(fds[1], static_cast<uint8_t>(0x40 + i));
+    }
+    close(fds[1]);
+    waitForStop(loop);
+    loop.stop();
+
+    CHECK(recorded.slots.size() == 4, "delivered %zu frames", recorded.slots.size());
+    for (size_t i = 0; i < recorded.slots.size(); i++) {
+        CHECK(recorded.slots[i] == static_cast<int>(i % 2), "frame %zu in slot %d", i, recorded.slots[i]);
+    }
+    CHECK(lengths[0] == FRAME_SIZE && lengths[1] == FRAME_SIZE, "slot lengths not written");
+    CHECK(memory[0][0] == 0x42 && memory[1][FRAME_SIZE - 1] == 0x43, "slot contents wrong");
+    close(fds[0]);
+}
+
+int main() {
+    test_delivers_every_frame_unthrottled();
+    test_target_fps_skips_early_frames();
+    test_stop_wakes_blocked_poll();
+    test_frames_pass_through_ring();
+    if (failures > 0) {
+        printf("%d check(s) failed\n", failures);
+        return 1;
+    }
+    printf("All capture_loop tests passed\n");
+    return 0;
+}
@@ -0,0 +1,25 @@
+#include "pipe_frame_source.h"
+#include <cerrno>
+#include <unistd.h>
+
+PipeFrameSource::PipeFrameSource(int fd, int frame_size)
+    : fd_(fd), frame_(frame_size) {
+}
+
+bool PipeFrameSource::dequeueFrame(const uint8_t** data, int* size) {
+    // A frame may arrive in several writes; read until it is complete
+    size_t filled = 0;
+    while (filled < frame_.size()) {
+        ssize_t n = read(fd_, frame_.data() + filled, frame_.size() - filled);
+        if (n < 0 && errno == EINTR) {
+            continue;
+        }
+        if (n <= 0) {
+            return false; // Writer closed mid-frame or read error
+        }
+        filled += n;
+    }
+    *data = frame_.data();
+    *size = static_cast<int>(frame_.size());
+    return true;
+}
@@ -0,0 +1,23 @@
+#ifndef PIPE_FRAME_SOURCE_H
+#define PIPE_FRAME_SOURCE_H
+
+#include "frame_source.h"
+#include <vector>
+
+// Test mode source: reads fixed-size frames from a pipe (or any fd), so the
+// capture loop can run on Linux without a camera. Closing the write end ends
+// the stream like an unplugged camera.
+class PipeFrameSource : public FrameSource {
+public:
+    PipeFrameSource(int fd, int frame_size);
+    
+    int pollFd() const override { return fd_; }
+    bool dequeueFrame(const uint8_t** data, int* size) override;
+    void requeueFrame() override {}
+
+private:
+    int fd_;
+    std::vector<uint8_t> frame_;
+};
+
+#endif // PIPE_FRAME_SOURCE_H
@@ -0,0 +1,140 @@
+// Unit test for the native YUYV -> RGBA converter. Pure C, runs on the host:
+//
+//   cd app/src/test/cpp
+//   cc -std=c99 -I../../main/cpp ../../main/cpp/yuyv_convert.c yuyv_convert_test.c -lm -o yuyv_convert_test
+//   ./yuyv_convert_test
+
+#include "yuyv_convert.h"
+
+#include <math.h>
+#include <stdio.h>
+#include <stdlib.h>
+#include <string.h>
+
+static int failures = 0;
+
+#define CHECK(cond, ...) do { \
+        if (!(cond)) { \
+            failures++; \
+            printf("FAIL %s:%d: ", __FILE__, __LINE__); \
+            printf(__VA_ARGS__); \
+            printf("\n"); \
+        } \
+    } while (0)
+
+// Floating point BT.601 limited range reference
+static void reference_rgb(int y, int u, int v, int out[3]) {
+    double c = 1.164383 * (y - 16);
+    double d = u - 128;
+    double e = v - 128;
+    double rgb[3] = {
+        c + 1.596027 * e,
+        c - 0.391762 * d - 0.812968 * e,
+        c + 2.017232 * d
+    };
+    for (int i = 0; i < 3; i++) {
+        double value = floor(rgb[i] + 0.5);
+        out[i] = value < 0 ? 0 : value > 255 ? 255 : (int)value;
+    }
+}
+
+static void convert_pixel(int y, int u, int v, uint8_t out[8]) {
+    uint8_t yuyv[4] = {(uint8_t)y, (uint8_t)u, (uint8_t)y, (uint8_t)v};
+    yuyv_to_rgba(yuyv, 4, out, 8, 2, 1);
+}
+
+static void test_known_colors(void) {
+    static const struct {
+        const char* name;
+        int y, u, v;
+        int r, g, b;
+    } colors[] = {
+        {"black", 16, 128, 128, 0, 0, 0},
+        {"white", 235, 128, 128, 255, 255, 255},
+        {"gray", 126, 128, 128, 128, 128, 128},
+        {"red", 81, 90, 240, 255, 0, 0},
+        {"green", 145, 54, 34, 0, 255, 0},
+        {"blue", 41, 240, 110, 0, 0, 255},
+    };
+    for (size_t i = 0; i < sizeof(colors) / sizeof(colors[0]); i++) {
+        uint8_t out[8];
+        convert_pixel(colors[i].y, colors[i].u, colors[i].v, out);
+        CHECK(abs(out[0] - colors[i].r) <= 2 && abs(out[1] - colors[i].g) <= 2 && abs(out[2] - colors[i].b) <= 2,
+              "%s: got %d,%d,%d expected %d,%d,%d", colors[i].name,
+              out[0], out[1], out[2], colors[i].r, colors[i].g, colors[i].b);
+        CHECK(out[3] == 255, "%s: alpha %d", colors[i].name, out[3]);
+    }
+}
+
+static void test_matches_reference(void) {
+    int worst = 0;
+    for (int y = 0; y < 256; y += 3) {
+        for (int u = 0; u < 256; u += 5) {
+            for (int v = 0; v < 256; v += 5) {
+                uint8_t out[8];
+                int expected[3];
+                convert_pixel(y, u, v, out);
+                reference_rgb(y, u, v, expected);
+                for (int c = 0; c < 3; c++) {
+                    int diff = abs(out[c] - expected[c]);
+                    if (diff > worst) worst = diff;
+                    CHECK(diff <= 2, "yuv %d,%d,%d channel %d: got %d expected %d", y, u, v, c, out[c], expected[c]);
+                }
+            }
+        }
+    }
+    printf("max deviation from float reference: %d\n", worst);
+}
+
+static void test_shared_chroma(void) {
+    // Two pixels in a macropixel keep their own luma and share U/V
+    uint8_t yuyv[4] = {16, 128, 235, 128};
+    uint8_t out[8];
+    yuyv_to_rgba(yuyv, 4, out, 8, 2, 1);
+    CHECK(out[0] == 0 && out[1] == 0 && out[2] == 0, "first pixel not black");
+    CHECK(out[4] == 255 && out[5] == 255 && out[6] == 255, "second pixel not white");
+}
+
+static void test_strides(void) {
+    // 4x3 image with padded source and destination rows; padding must not be touched
+    enum { W = 4, H = 3, SRC_STRIDE = W * 2 + 6, DST_STRIDE = W * 4 + 12 };
+    uint8_t src[SRC_STRIDE * H];
+    uint8_t dst[DST_STRIDE * H];
+    memset(src, 0xAA, sizeof(src));
+    memset(dst, 0x55, sizeof(dst));
+    for (int row = 0; row < H; row++) {
+        for (int x = 0; x < W; x += 2) {
+            uint8_t* p = src + row * SRC_STRIDE + x * 2;
+            p[0] = (uint8_t)(16 + row * 50 + x * 10);
+            p[1] = 128;
+            p[2] = (uint8_t)(16 + row * 50 + (x + 1) * 10);
+            p[3] = 128;
+        }
+    }
+    yuyv_to_rgba(src, SRC_STRIDE, dst, DST_STRIDE, W, H);
+    for (int row = 0; row < H; row++) {
+        for (int x = 0; x < W; x++) {
+            int expected[3];
+            const uint8_t* px = dst + row * DST_STRIDE + x * 4;
+            reference_rgb(16 + row * 50 + x * 10, 128, 128, expected);
+            CHECK(abs(px[0] - expected[0]) <= 1, "row %d x %d: got %d expected %d", row, x, px[0], expected[0]);
+            CHECK(px[3] == 255, "row %d x %d: alpha %d", row, x, px[3]);
+        }
+        for (int pad = W * 4; pad < DST_STRIDE; pad++) {
+            CHECK(dst[row * DST_STRIDE + pad] == 0x55, "row %d: padding byte %d overwritten", row, pad);
+        }
+    }
+}
+
+int main(void) {
+    test_known_colors();
+    test_matches_reference();
+    test_shared_chroma();
+    test_strides();
+    if (failures > 0) {
+        printf("%d check(s) failed\n", failures);
+        return 1;
+    }
+    printf("All yuyv_convert tests passed\n");
+    return 0;
+}
@@ -0,0 +1,151 @@
+package com.esw.postureanalyzer.vision;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * DelegateAutoTuner with timed stand-ins for the posture model benchmark and for the live
+ * landmarker frames, and the table kept in memory
+ */
+public class DelegateAutoTunerTest {
+    private static final int CPU = PoseLandmarkerHelper.DELEGATE_CPU;
+    private static final int GPU = PoseLandmarkerHelper.DELEGATE_GPU;
+    private static final int FRAMES_PER_PROBE = 40; // Warm-up plus measured frames
+
+    private FakeSharedPreferences prefs;
+    private PostureClassifier classifier;
+    private final Map<String, Long> modelTimings = new HashMap<>(); // asset/delegate -> μs
+    private final List<String> timed = new ArrayList<>();
+    private final BlockingQueue<Integer> landmarkerDelegates = new LinkedBlockingQueue<>();
+    private final BlockingQueue<Boolean> completions = new LinkedBlockingQueue<>();
+
+    @Before
+    public void setUp() {
+        prefs = new FakeSharedPreferences();
+        classifier = new PostureClassifier(
+                new SumModel(FeatureExtractor.SLOUCH_FEATURES, 1),
+                new SumModel(FeatureExtractor.CROSS_LEGGED_FEATURES, 1),
+                new SumModel(FeatureExtractor.LEANING_FEATURES, 3));
+
+        time(PostureClassifier.SLOUCH_MODEL_ASSET, DelegateType.CPU, 300);
+        time(PostureClassifier.SLOUCH_MODEL_ASSET, DelegateType.GPU, 500);
+        time(PostureClassifier.SLOUCH_MODEL_ASSET, DelegateType.JAVA, 100);
+        time(PostureClassifier.CROSS_LEGGED_MODEL_ASSET, DelegateType.CPU, 200);
+        time(PostureClassifier.CROSS_LEGGED_MODEL_ASSET, DelegateType.GPU, 150);
+        // The lean model fails on every delegate
+        time(PostureClassifier.FUSED_MODEL_ASSET, DelegateType.CPU, 400);
+        time(PostureClassifier.FUSED_MODEL_ASSET, DelegateType.NNAPI, 250);
+        time(PostureClassifier.FUSED_MODEL_ASSET, DelegateType.JAVA, 1);
+    }
+
+    private void time(String modelName, DelegateType delegateType, long micros) {
+        modelTimings.put(modelName + "/" + delegateType, micros);
+    }
+
+    private DelegateAutoTuner newTuner(String buildKey) {
+        DelegateAutoTuner tuner = new DelegateAutoTuner(classifier, prefs, "Test_Device", buildKey,
+                (modelName, delegateType) -> {
+                    synchronized (timed) {
+                        timed.add(modelName + "/" + delegateType);
+                    }
+                    Long micros = modelTimings.get(modelName + "/" + delegateType);
+                    if (micros == null) {
+                        throw new IllegalStateException(delegateType + " cannot run " + modelName);
+                    }
+                    return micros;
+                });
+        tuner.setListener(new DelegateAutoTuner.TuningListener() {
+            @Override
+            public void onLandmarkerDelegate(int delegate) {
+                landmarkerDelegates.add(delegate);
+            }
+
+            @Override
+            public void onTuningComplete(boolean fromStore) {
+                completions.add(fromStore);
+            }
+        });
+        return tuner;
+    }
+
+    private int timedCount() {
+        synchronized (timed) {
+            return timed.size();
+        }
+    }
+
+    /**
+     * Wait for the model benchmark, then feed both landmarker probes (CPU slower than GPU)
+     */
+    private void runProbes(DelegateAutoTuner tuner) throws InterruptedException {
+        assertEquals("first probe", Integer.valueOf(CPU), landmarkerDelegates.poll(5, TimeUnit.SECONDS));
+        for (int i = 0; i < FRAMES_PER_PROBE; i++) {
+            tuner.recordLandmarkerFrame(CPU, 5000);
+        }
+        assertEquals("second probe", Integer.valueOf(GPU), landmarkerDelegates.poll(5, TimeUnit.SECONDS));
+        for (int i = 0; i < FRAMES_PER_PROBE; i++) {
+            tuner.recordLandmarkerFrame(GPU, 3000);
+        }
+    }
+
+    @Test
+    public void selectsTheFastestDelegatePerComponent() throws Exception {
+        DelegateAutoTuner tuner = newTuner("build-1");
+        tuner.start();
+        runProbes(tuner);
+
+        assertEquals("landmarker", Integer.valueOf(GPU), landmarkerDelegates.poll(5, TimeUnit.SECONDS));
+        assertEquals("completed from store", Boolean.FALSE, completions.poll(5, TimeUnit.SECONDS));
+        assertFalse(tuner.isTuning());
+        // slouch, cross-legged, lean (nothing ran: CPU), fused (Java engine never timed)
+        assertArrayEquals(new DelegateType[]{DelegateType.JAVA, DelegateType.GPU, DelegateType.CPU, DelegateType.NNAPI},
+                classifier.getModelDelegates());
+        assertFalse(timed.contains(PostureClassifier.FUSED_MODEL_ASSET + "/" + DelegateType.JAVA));
+    }
+
+    @Test
+    public void storedTableIsUsedOnTheSameBuild() throws Exception {
+        DelegateAutoTuner first = newTuner("build-1");
+        first.start();
+        runProbes(first);
+        assertEquals(Boolean.FALSE, completions.poll(5, TimeUnit.SECONDS));
+        landmarkerDelegates.clear();
+        classifier.setDelegate(DelegateType.CPU);
+        int benchmarked = timedCount();
+
+        newTuner("build-1").start();
+
+        assertEquals("completed from store", Boolean.TRUE, completions.poll(0, TimeUnit.SECONDS));
+        assertEquals("landmarker", Integer.valueOf(GPU), landmarkerDelegates.poll(0, TimeUnit.SECONDS));
+        assertEquals("models timed again", benchmarked, timedCount());
+        assertEquals(DelegateType.JAVA, classifier.getModelDelegates()[0]);
+    }
+
+    @Test
+    public void storedTableIsDiscardedAfterABuildChange() throws Exception {
+        DelegateAutoTuner first = newTuner("build-1");
+        first.start();
+        runProbes(first);
+        assertEquals(Boolean.FALSE, completions.poll(5, TimeUnit.SECONDS));
+        landmarkerDelegates.clear();
+        int benchmarked = timedCount();
+
+        DelegateAutoTuner updated = newTuner("build-2");
+        updated.start();
+
+        assertTrue(updated.isTuning());
+        assertEquals("first probe", Integer.valueOf(CPU), landmarkerDelegates.poll(5, TimeUnit.SECONDS));
+        assertEquals("models timed again", 2 * benchmarked, timedCount());
+        assertNull("completed", completions.poll(0, TimeUnit.SECONDS));
+        updated.stop();
+    }
+}
@@ -0,0 +1,64 @@
+package com.esw.postureanalyzer.vision;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * ParallelModelRunner: every task runs once per runAll(), and a stopped worker fails runAll() instead of hanging it
+ */
+public class ParallelModelRunnerTest {
+
+    @Test
+    public void runsEveryTaskOncePerCall() throws Exception {
+        AtomicInteger a = new AtomicInteger();
+        AtomicInteger b = new AtomicInteger();
+        ParallelModelRunner runner = new ParallelModelRunner(new String[]{"a", "b"},
+                new Runnable[]{a::incrementAndGet, b::incrementAndGet});
+        try {
+            runner.runAll();
+            runner.runAll();
+            assertEquals(2, a.get());
+            assertEquals(2, b.get());
+        } finally {
+            runner.close();
+        }
+    }
+
+    @Test
+    public void interruptedWorkerFailsRunAllInsteadOfHanging() throws Exception {
+        AtomicInteger runs = new AtomicInteger();
+        // The first task interrupts its own worker, which then stops waiting for work
+        ParallelModelRunner runner = new ParallelModelRunner(new String[]{"interrupted", "other"},
+                new Runnable[]{() -> Thread.currentThread().interrupt(), runs::incrementAndGet});
+        runner.runAll();
+
+        Throwable[] thrown = new Throwable[1];
+        Thread caller = new Thread(() -> {
+            try {
+                runner.runAll();
+            } catch (Throwable t) {
+                thrown[0] = t;
+            }
+        });
+        caller.start();
+        caller.join(5_000);
+
+        assertFalse("runAll() hung after a worker stopped", caller.isAlive());
+        assertTrue(thrown[0] instanceof IllegalStateException);
+        assertTrue(runs.get() >= 1);
+    }
+
+    @Test
+    public void closedRunnerRefusesToRun() throws Exception {
+        ParallelModelRunner runner = new ParallelModelRunner(new String[]{"a"}, new Runnable[]{() -> { }});
+        runner.close();
+        try {
+            runner.runAll();
+            fail("runAll() ran on a closed runner");
+        } catch (IllegalStateException expected) {
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.esw.postureanalyzer.vision;
+
+import com.google.mediapipe.tasks.vision.poselandmarker.PoseLandmarkerResult;
+import java.lang.management.ManagementFactory;
+import org.junit.Test;
+
+import static com.esw.postureanalyzer.vision.TestPose.pose;
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Checks that PostureClassifier.classify() creates no garbage once warmed up,
+ * using the JVM's per-thread allocation counter. The models are stand-ins that
+ * read the input tensor and write fixed-shape scores, so only the classifier's
+ * own feature extraction, tensor handling and bookkeeping are measured.
+ */
+public class PostureClassifierAllocationTest {
+    private static final int WARMUP_CALLS = 20_000; // Enough for the JIT to compile the path
+    private static final int MEASURED_CALLS = 1_000;
+    private static final int MEASURED_ROUNDS = 5;
+
+    @Test
+    public void classifyDoesNotAllocateAfterWarmup() {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        SumModel slouch = new SumModel(FeatureExtractor.SLOUCH_FEATURES, 1);
+        SumModel crossLegged = new SumModel(FeatureExtractor.CROSS_LEGGED_FEATURES, 1);
+        SumModel lean = new SumModel(FeatureExtractor.LEANING_FEATURES, 3);
+        PostureClassifier classifier = new PostureClassifier(slouch, crossLegged, lean);
+        // Run every model on every call, so the legs and lean paths are measured too
+        classifier.setModelIntervals(0, 0, 0);
+        classifier.setResultReuseEnabled(false);
+        PoseLandmarkerResult[] poses = {pose(0f), pose(0.1f)};
+
+        for (int i = 0; i < WARMUP_CALLS; i++) {
+            assertNotNull(classifier.classify(poses[i & 1], 640, 480));
+        }
+
+        long threadId = Thread.currentThread().getId();
+        // Reading the counter can allocate on some JVMs; measure that and take it out
+        long counterStart = threads.getThreadAllocatedBytes(threadId);
+        long counterOverhead = threads.getThreadAllocatedBytes(threadId) - counterStart;
+
+        // A one-off JVM event (e.g. a recompilation) can allocate a few bytes on this thread;
+        // garbage made by classify() itself shows up in every round
+        long allocated = Long.MAX_VALUE;
+        for (int round = 0; round < MEASURED_ROUNDS && allocated > 0; round++) {
+            long start = threads.getThreadAllocatedBytes(threadId);
+            for (int i = 0; i < MEASURED_CALLS; i++) {
+                classifier.classify(poses[i & 1], 640, 480);
+            }
+            allocated = Math.min(allocated, threads.getThreadAllocatedBytes(threadId) - start - counterOverhead);
+        }
+
+        assertEquals("Bytes allocated by " + MEASURED_CALLS + " classify() calls", 0, allocated);
+        assertEquals("cross-legged runs", slouch.runs, crossLegged.runs);
+        assertEquals("lean runs", slouch.runs, lean.runs);
+    }
+
+    @Test
+    public void classifyResultsMatchAcrossCalls() {
+        PostureClassifier classifier = new PostureClassifier(
+                new SumModel(FeatureExtractor.SLOUCH_FEATURES, 1),
+                new SumModel(FeatureExtractor.CROSS_LEGGED_FEATURES, 1),
+                new SumModel(FeatureExtractor.LEANING_FEATURES, 3));
+        PoseLandmarkerResult result = pose(0f);
+
+        PostureClassifier.ClassificationResult first = classifier.classify(result, 640, 480);
+        PostureClassifier.ClassificationResult second = classifier.classify(result, 640, 480);
+
+        // Same input, same prebuilt result instance
+        assertSame(first, second);
+        assertNotEquals("Error", first.getSlouchStatus());
+        assertNotEquals("Error", first.getLegsStatus());
+        assertNotEquals("Error", first.getLeanStatus());
+    }
+}
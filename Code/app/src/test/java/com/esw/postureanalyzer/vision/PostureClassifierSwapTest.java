@@ -0,0 +1,160 @@
+package com.esw.postureanalyzer.vision;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.esw.postureanalyzer.vision.TestPose.pose;
+import static org.junit.Assert.*;
+
+/**
+ * Delegate swaps with stand-in models: the new set is built on the swap executor while the
+ * old one keeps serving classify(), and only the lock-held install switches between them.
+ */
+public class PostureClassifierSwapTest {
+    private ExecutorService swapExecutor;
+    private StandInFactory factory;
+    private SumModel slouch;
+    private PostureClassifier classifier;
+
+    /**
+     * Creates SumModels, and can be made to fail or to hold the first build until released
+     */
+    private static class StandInFactory implements PostureClassifier.ModelFactory {
+        final List<SumModel> created = new ArrayList<>();
+        final CountDownLatch building = new CountDownLatch(1);
+        CountDownLatch release; // Held by the first build when set
+        volatile boolean fail;
+        int builds;
+
+        @Override
+        public ClassifierModel create(String modelName, DelegateType delegateType) {
+            if (fail) {
+                throw new IllegalStateException(delegateType + " is not available");
+            }
+            if (modelName.equals(PostureClassifier.SLOUCH_MODEL_ASSET)) {
+                builds++;
+                building.countDown();
+                if (release != null && builds == 1) {
+                    try {
+                        assertTrue(release.await(5, TimeUnit.SECONDS));
+                    } catch (InterruptedException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+            }
+            SumModel model;
+            if (modelName.equals(PostureClassifier.CROSS_LEGGED_MODEL_ASSET)) {
+                model = new SumModel(FeatureExtractor.CROSS_LEGGED_FEATURES, 1);
+            } else if (modelName.equals(PostureClassifier.LEAN_MODEL_ASSET)) {
+                model = new SumModel(FeatureExtractor.LEANING_FEATURES, 3);
+            } else {
+                model = new SumModel(FeatureExtractor.SLOUCH_FEATURES, 1);
+            }
+            synchronized (created) {
+                created.add(model);
+            }
+            return model;
+        }
+    }
+
+    @Before
+    public void setUp() {
+        factory = new StandInFactory();
+        useClassifier(new SumModel(FeatureExtractor.SLOUCH_FEATURES, 1));
+    }
+
+    /**
+     * Replace the fixture's classifier with one whose live slouch model is slouchModel
+     */
+    private void useClassifier(SumModel slouchModel) {
+        if (classifier != null) {
+            classifier.close();
+        }
+        swapExecutor = Executors.newSingleThreadExecutor();
+        slouch = slouchModel;
+        classifier = new PostureClassifier(slouch,
+                new SumModel(FeatureExtractor.CROSS_LEGGED_FEATURES, 1),
+                new SumModel(FeatureExtractor.LEANING_FEATURES, 3),
+                swapExecutor, factory);
+        // Every frame runs every model, so runs show which set served it
+        classifier.setModelIntervals(0, 0, 0);
+        classifier.setResultReuseEnabled(false);
+    }
+
+    @After
+    public void tearDown() {
+        classifier.close();
+    }
+
+    /**
+     * Returns once every swap queued so far has finished
+     */
+    private void awaitSwaps() throws Exception {
+        swapExecutor.submit(() -> { }).get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void oldSetIsClosedOnlyAfterTheNewOneIsLive() throws Exception {
+        final DelegateType[] liveAtClose = new DelegateType[1];
+        final int[] oldRunsAtClose = new int[1];
+        useClassifier(new SumModel(FeatureExtractor.SLOUCH_FEATURES, 1) {
+            @Override
+            public void close() {
+                liveAtClose[0] = classifier.getCurrentDelegate();
+                classifier.classify(pose(0f), 640, 480); // Must be served by the new set
+                oldRunsAtClose[0] = runs;
+                super.close();
+            }
+        });
+
+        classifier.classify(pose(0f), 640, 480);
+        assertEquals("old runs before the swap", 1, slouch.runs);
+        classifier.setDelegate(DelegateType.JAVA);
+        awaitSwaps();
+
+        assertTrue("old set closed", slouch.closed);
+        assertEquals(DelegateType.JAVA, liveAtClose[0]);
+        assertEquals("old runs while closing", 1, oldRunsAtClose[0]);
+        assertEquals("new slouch runs", 1, factory.created.get(0).runs);
+    }
+
+    @Test
+    public void failedBuildKeepsTheOldSet() throws Exception {
+        factory.fail = true;
+        classifier.setDelegate(DelegateType.GPU);
+        awaitSwaps();
+
+        assertEquals(DelegateType.CPU, classifier.getCurrentDelegate());
+        assertFalse("old set closed", slouch.closed);
+        classifier.classify(pose(0f), 640, 480);
+        assertEquals("old slouch runs", 1, slouch.runs);
+    }
+
+    @Test
+    public void requestsMadeDuringABuildAreServedByOneMoreBuild() throws Exception {
+        factory.release = new CountDownLatch(1);
+        classifier.setDelegate(DelegateType.GPU);
+        assertTrue(factory.building.await(5, TimeUnit.SECONDS));
+
+        // Both queue a swap; the first one builds the latest request, the second finds it live
+        classifier.setDelegate(DelegateType.NNAPI);
+        classifier.setDelegate(DelegateType.JAVA);
+        classifier.classify(pose(0f), 640, 480);
+        assertEquals("old set serves frames meanwhile", 1, slouch.runs);
+        factory.release.countDown();
+        awaitSwaps();
+
+        assertEquals("builds", 2, factory.builds);
+        assertEquals(DelegateType.JAVA, classifier.getCurrentDelegate());
+        assertTrue("old set closed", slouch.closed);
+        assertTrue("GPU set closed", factory.created.get(0).closed);
+        assertFalse("JAVA set closed", factory.created.get(3).closed);
+    }
+}
@@ -0,0 +1,104 @@
+package com.esw.postureanalyzer.vision;
+
+import com.google.mediapipe.tasks.vision.poselandmarker.PoseLandmarkerResult;
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.esw.postureanalyzer.vision.TestPose.pose;
+import static org.junit.Assert.*;
+
+/**
+ * Behaviour of PostureClassifier.classify() with stand-in models. Every model runs on
+ * every frame unless a test sets its own intervals.
+ */
+public class PostureClassifierTest {
+    private SumModel slouch;
+    private SumModel crossLegged;
+    private SumModel lean;
+    private PostureClassifier classifier;
+
+    @Before
+    public void setUp() {
+        slouch = new SumModel(FeatureExtractor.SLOUCH_FEATURES, 1);
+        crossLegged = new SumModel(FeatureExtractor.CROSS_LEGGED_FEATURES, 1);
+        lean = new SumModel(FeatureExtractor.LEANING_FEATURES, 3);
+        classifier = new PostureClassifier(slouch, crossLegged, lean);
+        classifier.setModelIntervals(0, 0, 0);
+    }
+
+    @Test
+    public void parallelInferenceMatchesSerial() {
+        PoseLandmarkerResult[] poses = {pose(0f), pose(0.1f), pose(0.2f)};
+        PostureClassifier.ClassificationResult[] serial = new PostureClassifier.ClassificationResult[poses.length];
+        for (int i = 0; i < poses.length; i++) {
+            serial[i] = classifier.classify(poses[i], 640, 480);
+        }
+
+        classifier.setParallelInferenceEnabled(true);
+        try {
+            for (int round = 0; round < 100; round++) {
+                for (int i = 0; i < poses.length; i++) {
+                    assertSame(serial[i], classifier.classify(poses[i], 640, 480));
+                }
+            }
+        } finally {
+            classifier.close();
+        }
+        assertFalse(classifier.isParallelInferenceEnabled());
+    }
+
+    @Test
+    public void resultsAreReusedWhileJointsStayWithinTolerance() {
+        classifier.setResultReuseTolerance(2f, 0.05f);
+
+        PostureClassifier.ClassificationResult first = classifier.classify(pose(0f), 640, 480);
+        assertEquals("runs after first frame", 1, slouch.runs);
+
+        // 0.64 px of movement: every model reuses its result
+        assertSame(first, classifier.classify(pose(0.001f), 640, 480));
+        assertEquals("slouch runs", 1, slouch.runs);
+        assertEquals("cross-legged runs", 1, crossLegged.runs);
+        assertEquals("lean runs", 1, lean.runs);
+
+        // 6.4 px: every model runs again
+        classifier.classify(pose(0.01f), 640, 480);
+        assertEquals("slouch runs", 2, slouch.runs);
+        assertEquals("cross-legged runs", 2, crossLegged.runs);
+        assertEquals("lean runs", 2, lean.runs);
+
+        // A different image size never reuses
+        classifier.classify(pose(0.01f), 1280, 720);
+        assertEquals("slouch runs", 3, slouch.runs);
+
+        classifier.setResultReuseEnabled(false);
+        classifier.classify(pose(0.01f), 1280, 720);
+        assertEquals("slouch runs", 4, slouch.runs);
+    }
+
+    @Test
+    public void hiddenLegsSkipTheCrossLeggedModel() {
+        PostureClassifier.ClassificationResult result = classifier.classify(pose(0f, 0.05f), 640, 480);
+        assertEquals(PostureClassifier.NOT_VISIBLE, result.getLegsStatus());
+        assertNotEquals(PostureClassifier.NOT_VISIBLE, result.getSlouchStatus());
+        assertEquals("cross-legged runs", 0, crossLegged.runs);
+        assertEquals("slouch runs", 1, slouch.runs);
+
+        // Legs come back into view: the model runs straight away
+        result = classifier.classify(pose(0f, 0.9f), 640, 480);
+        assertNotEquals(PostureClassifier.NOT_VISIBLE, result.getLegsStatus());
+        assertEquals("cross-legged runs", 1, crossLegged.runs);
+    }
+
+    @Test
+    public void modelsRunAtMostOncePerInterval() {
+        classifier.setResultReuseEnabled(false);
+        classifier.setModelIntervals(0, 60_000, 60_000);
+
+        for (int i = 0; i < 10; i++) {
+            classifier.classify(pose(i * 0.1f), 640, 480);
+        }
+        assertEquals("slouch runs", 10, slouch.runs);
+        assertEquals("cross-legged runs", 1, crossLegged.runs);
+        assertEquals("lean runs", 1, lean.runs);
+    }
+}
@@ -0,0 +1,47 @@
+package com.esw.postureanalyzer.vision;
+
+import com.google.mediapipe.framework.image.MPImage;
+import com.google.mediapipe.tasks.components.containers.Landmark;
+import com.google.mediapipe.tasks.components.containers.NormalizedLandmark;
+import com.google.mediapipe.tasks.vision.poselandmarker.PoseLandmarkerResult;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * A single synthetic pose for feeding PostureClassifier.classify()
+ */
+class TestPose extends PoseLandmarkerResult {
+    private final List<List<NormalizedLandmark>> landmarks;
+
+    private TestPose(List<NormalizedLandmark> pose) {
+        this.landmarks = Collections.singletonList(pose);
+    }
+
+    static TestPose pose(float offset) {
+        return pose(offset, 0.9f);
+    }
+
+    /**
+     * legVisibility applies to the knees and ankles (landmarks 25-28)
+     */
+    static TestPose pose(float offset, float legVisibility) {
+        List<NormalizedLandmark> pose = new ArrayList<>();
+        for (int i = 0; i < 33; i++) {
+            float visibility = i >= 25 && i <= 28 ? legVisibility : 0.9f;
+            pose.add(NormalizedLandmark.create(0.3f + offset + (i % 7) * 0.05f, 0.1f + i * 0.025f, 0f,
+                    Optional.of(visibility), Optional.of(0.9f)));
+        }
+        return new TestPose(pose);
+    }
+
+    @Override
+    public long timestampMs() { return 0; }
+    @Override
+    public List<List<NormalizedLandmark>> landmarks() { return landmarks; }
+    @Override
+    public List<List<Landmark>> worldLandmarks() { return Collections.emptyList(); }
+    @Override
+    public Optional<List<MPImage>> segmentationMasks() { return Optional.empty(); }
+}
@@ -0,0 +1,42 @@
+package com.esw.postureanalyzer.vision;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * ThreadCountTuner.pick(): timings are median μs at 1..N threads
+ */
+public class ThreadCountTunerTest {
+    private static final long NA = DelegateAutoTuner.UNAVAILABLE;
+
+    @Test
+    public void picksTheFastestCount() {
+        assertEquals(3, ThreadCountTuner.pick(new long[]{400, 250, 150, 200}, 4));
+    }
+
+    @Test
+    public void prefersFewerThreadsWithinFivePercent() {
+        // 2 threads are 4% slower than 4: not worth two more threads
+        assertEquals(2, ThreadCountTuner.pick(new long[]{400, 104, 102, 100}, 4));
+        // The fewest threads within the margin win, not the closest to the fastest
+        assertEquals(1, ThreadCountTuner.pick(new long[]{104, 101, 100, 100}, 4));
+    }
+
+    @Test
+    public void takesMoreThreadsWhenTheyAreMoreThanFivePercentFaster() {
+        assertEquals(4, ThreadCountTuner.pick(new long[]{400, 106, 106, 100}, 1));
+    }
+
+    @Test
+    public void skipsCountsThatFailed() {
+        assertEquals(2, ThreadCountTuner.pick(new long[]{NA, 100, NA, 120}, 4));
+        assertEquals(4, ThreadCountTuner.pick(new long[]{NA, NA, NA, 90}, 1));
+    }
+
+    @Test
+    public void keepsTheFallbackWhenNothingRan() {
+        assertEquals(3, ThreadCountTuner.pick(new long[]{NA, NA, NA, NA}, 3));
+        assertEquals(2, ThreadCountTuner.pick(new long[0], 2));
+    }
+}
@@ -0,0 +1,99 @@
+"""
+Combine the three posture models into one multi-head TFLite model.
+
+Usage:
+    python build_fused_model.py
+
+Reads the trained weights back out of posture_model.tflite, crosslegged.tflite and
+lean_direction_model.tflite, rebuilds the three MLPs side by side in one Keras model
+and converts it, so the app runs one interpreter call per frame instead of three.
+
+Layout (must match PostureClassifier.FUSED_*):
+    input  [1, 18] = slouch features (3, raw) | cross-legged features (6, normalized) | lean features (9, raw)
+    output [1, 5]  = slouch score | cross-legged score | lean left, right, upright
+
+Outputs:
+    - posture_fused.tflite   # copy to Code/app/src/main/assets/
+"""
+
+import numpy as np
+import tensorflow as tf
+from tensorflow.keras import layers, models
+
+# ===== CONFIG =====
+HEADS = [
+    # (tflite file, input size)
+    ("posture_model.tflite", 3),
+    ("crosslegged.tflite", 6),
+    ("lean_direction_model.tflite", 9),
+]
+FUSED_MODEL_FILE = "posture_fused.tflite"
+
+
+def read_dense_stack(path):
+    """Return [(kernel, bias)] per FULLY_CONNECTED op and the final activation."""
+    interpreter = tf.lite.Interpreter(model_path=path)
+    interpreter.allocate_tensors()
+    dense = []
+    final_activation = None
+    for op in interpreter._get_ops_details():
+        if op["op_name"] == "FULLY_CONNECTED":
+            weights = interpreter.get_tensor(op["inputs"][1])  # [out, in]
+            bias = interpreter.get_tensor(op["inputs"][2])
+            dense.append((weights.T, bias))
+        elif op["op_name"] == "LOGISTIC":
+            final_activation = "sigmoid"
+        elif op["op_name"] == "SOFTMAX":
+            final_activation = "softmax"
+        else:
+            raise ValueError(f"{path}: unexpected op {op['op_name']}")
+    return dense, final_activation
+
+
+inputs = layers.Input(shape=(sum(size for _, size in HEADS),), name="features")
+heads = []
+offset = 0
+for path, size in HEADS:
+    dense, final_activation = read_dense_stack(path)
+    name = path.split(".")[0]
+    x = layers.Lambda(lambda t, start=offset, end=offset + size: t[:, start:end], name=f"{name}_input")(inputs)
+    for i, (kernel, bias) in enumerate(dense):
+        last = i == len(dense) - 1
+        layer = layers.Dense(kernel.shape[1], activation=final_activation if last else "relu", name=f"{name}_dense{i}")
+        x = layer(x)
+        layer.set_weights([kernel, bias])
+    heads.append(x)
+    offset += size
+    print(f"{path}: {len(dense)} dense layers, {final_activation} head")
+
+model = models.Model(inputs, layers.Concatenate(name="heads")(heads))
+model.summary()
+
+# Sanity check against the separate models on random inputs
+sample = np.random.RandomState(42).normal(size=(16, offset)).astype("float32")
+fused_out = model.predict(sample, verbose=0)
+offset = 0
+column = 0
+for path, size in HEADS:
+    interpreter = tf.lite.Interpreter(model_path=path)
+    interpreter.allocate_tensors()
+    input_index = interpreter.get_input_details()[0]["index"]
+    output_details = interpreter.get_output_details()[0]
+    width = output_details["shape"][-1]
+    for row in range(sample.shape[0]):
+        interpreter.set_tensor(input_index, sample[row:row + 1, offset:offset + size])
+        interpreter.invoke()
+        expected = interpreter.get_tensor(output_details["index"])[0]
+        np.testing.assert_allclose(fused_out[row, column:column + width], expected, atol=1e-5)
+    offset += size
+    column += width
+print("Fused model matches the separate models")
+
+# ===== CONVERT TO TFLITE =====
+converter = tf.lite.TFLiteConverter.from_keras_model(model)
+tflite_model = converter.convert()
+
+with open(FUSED_MODEL_FILE, "wb") as f:
+    f.write(tflite_model)
+
+print(f"Fused model saved to {FUSED_MODEL_FILE}")
@@ -5,7 +5,7 @@ import pandas as pd
 import os
 
 # ===== CONFIG =====
-CSV_FILE = "crosslegged_sitting_data.csv"
+CSV_FILE = "data/crosslegged_sitting_data.csv"
 LABEL = int(input("Enter label (1 = cross-legged, 0 = normal sitting): "))
 
 # Mediapipe setup
@@ -17,7 +17,7 @@ import mediapipe as mp
 import numpy as np
 
 parser = argparse.ArgumentParser()
-parser.add_argument("--out", default="lean_dataset.csv", help="CSV output file")
+parser.add_argument("--out", default="data/lean_dataset.csv", help="CSV output file")
 parser.add_argument("--label", type=int, choices=[0,1,2], required=True, help="Label (0:left,1:right,2:other)")
 parser.add_argument("--fps", type=float, default=3.0, help="Samples per second to capture")
 args = parser.parse_args()
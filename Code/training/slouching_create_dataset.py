@@ -6,7 +6,7 @@ import os
 
 # ===== CONFIG =====
 POSTURE_NAME = input("Enter posture (0=slouching, 1=straight): ")
-CSV_FILE = "pose_dataset.csv"
+CSV_FILE = "data/pose_dataset.csv"
 FRAME_INTERVAL = 5  # take one frame every 5 frames to avoid overfitting
 
 os.makedirs("frames", exist_ok=True)
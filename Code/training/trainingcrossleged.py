@@ -17,7 +17,7 @@ from tensorflow import keras
 from tensorflow.keras import layers
 import os
 
-CSV = "crosslegged_sitting_data.csv"
+CSV = "data/crosslegged_sitting_data.csv"
 MODEL_H5 = "model.h5"
 TFLITE_FILE = "crosslegged.tflite"
 SCALER_FILE = "scaler.npz"
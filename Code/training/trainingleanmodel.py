@@ -7,7 +7,7 @@ from tensorflow.keras.layers import Dense, Dropout
 from tensorflow.keras.callbacks import EarlyStopping
 
 # ===== CONFIGURATION =====
-DATA_FILE = "lean_dataset.csv"
+DATA_FILE = "data/lean_dataset.csv"
 MODEL_NAME = "lean_direction_model.tflite"
 
 # ===== LOAD DATA =====
@@ -3,7 +3,7 @@ import tensorflow as tf
 from tensorflow.keras import layers, models
 
 # ===== CONFIG =====
-CSV_FILE = "pose_dataset.csv"
+CSV_FILE = "data/pose_dataset.csv"
 TFLITE_MODEL_FILE = "posture_model.tflite"
 
 # Load dataset